@@ -17,6 +17,7 @@ file and clikc "Upload and Save."
 import time
 import numpy as np
 import libcamera
+import ntcore
 from RPi import GPIO
 from cscore import CameraServer
 from ntcore import NetworkTableInstance
@@ -85,7 +86,10 @@ class LEDFinder:
 
         # not instant, ~300us
         led_on = np.amax(img) > 200
-        self.vision_nt_led.set(led_on)
+        # stamp the value with the capture time, NT converts it to the
+        # robot's clock, see vision-timing LedClockSync.java
+        delay_us = (time.clock_gettime_ns(time.CLOCK_BOOTTIME) - sensor_timestamp) // 1000
+        self.vision_nt_led.set(led_on, ntcore._now() - delay_us)
 
         self.output_stream.putFrame(img)
 
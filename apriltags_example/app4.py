@@ -4,6 +4,7 @@
 
 import io
 import json
+import struct
 import time
 
 import cv2
@@ -55,6 +56,8 @@ class TagFinder:
         self.vision_nt = inst.getTable("Vision")
  
         self.vision_nt_msgpack = self.vision_nt.getRawTopic("tags").publish("msgpack")
+        # same content, fixed layout, see vision-host TagFrame.java
+        self.vision_nt_tagframe = self.vision_nt.getRawTopic("tagframe").publish("tagframe")
         # tag size was wrong before.  full size is 0.2m but
         # https://github.com/AprilRobotics/apriltag/wiki/AprilTag-User-Guide
         # this points out that the apriltag library expects tag_size to be
@@ -76,10 +79,12 @@ class TagFinder:
         ]
 
     def pre_callback(self, request):
+        # sensor timestamp is the boottime when the first byte was received from the sensor
+        sensor_timestamp = request.get_metadata()['SensorTimestamp']
         with MappedArray(request, "lores") as m:
-            self.analyze(m.array, self.width, self.height)
+            self.analyze(m.array, self.width, self.height, sensor_timestamp)
 
-    def analyze(self, data, width, height):
+    def analyze(self, data, width, height, sensor_timestamp):
         start_time = time.time()
 
         y_len = width * height
@@ -117,6 +122,7 @@ class TagFinder:
 #        tags = Tags()
         tags = {}
         tags['tags'] = []
+        tagframe_tags = []
 
         for result_item in result:
             if result_item.hamming > 0:
@@ -127,10 +133,13 @@ class TagFinder:
                 'pose_t': result_item.pose_t.tolist(),
                 'pose_R': result_item.pose_R.tolist()
                 })
+            tagframe_tags.append(struct.pack("<HH9f3f", result_item.tag_id, 0,
+                *result_item.pose_R.flatten(), *result_item.pose_t.flatten()))
 
         current_time = time.time()
         analysis_et = current_time - start_time
-        total_et = current_time - self.frame_time
+        # latency, capture to publish
+        total_et = (time.clock_gettime_ns(time.CLOCK_BOOTTIME) - sensor_timestamp) / 1e9
 
         tags['et'] = total_et
         # print(tags)
@@ -138,7 +147,12 @@ class TagFinder:
         posebytes = msgpack.packb(tags)
         self.vision_nt_msgpack.set(posebytes)
 
-        fps = 1 / total_et
+        # version, header size, tag size, count, latency, capture time (us)
+        tagframe = struct.pack("<BBBBfq", 1, 16, 52, len(tagframe_tags),
+            total_et, sensor_timestamp // 1000)
+        self.vision_nt_tagframe.set(tagframe + b"".join(tagframe_tags))
+
+        fps = 1 / (current_time - self.frame_time)
         self.frame_time = current_time
         self.draw_text(img, f"analysis ET(ms) {1000*analysis_et:.0f}", (5, 25))
         self.draw_text(img, f"total ET(ms) {1000*total_et:.0f}", (5, 65))
@@ -195,7 +209,6 @@ def main():
     # height=1232
     # option 2: medium, two circles, three squares, timer says ~80ms but seems more like 500ms
     # remember to note this delay in the kalman filter input
-    # TODO: report the actual delay in network tables
     width = 832
     height = 616
     # option 3: tiny, trade speed for detection distance; two circles, three squraes, ~40ms
@@ -3,6 +3,7 @@ package org.team100.frc2024;
 
 import org.team100.lib.barcode.Sensor;
 import org.team100.lib.barcode.Mux;
+import org.team100.lib.barcode.MuxSampler;
 
 import edu.wpi.first.wpilibj.AnalogInput;
 import edu.wpi.first.wpilibj.DigitalOutput;
@@ -20,14 +21,15 @@ public class Robot extends TimedRobot {
     private final Mux mux = new Mux(m_outputs);
     private final AnalogInput m_input = new AnalogInput(0);
     private final AnalogInput m_testInput = new AnalogInput(1);
+    // everything on the mux reads through this.
+    private final MuxSampler m_sampler = new MuxSampler(m_input, mux);
     private final DigitalOutput m_odd = new DigitalOutput(0);
     private final DigitalOutput m_even = new DigitalOutput(1);
     private final Timer m_testTimer = new Timer();
     // TODO: tune the thresholds
     private final Sensor m_array = new Sensor(
-            m_input,
+            m_sampler,
             new double[] { 1, 1, 1, 1, 1 },
-            mux,
             m_odd,
             m_even);
 
@@ -40,7 +42,8 @@ public class Robot extends TimedRobot {
     public void robotInit() {
         m_testTimer.start();
         // TODO: represent failure in a better way than -1.
-        id = m_array.readValue().orElse(-1);
+        id = m_array.scan(5000).orElse(-1);
+        m_array.start();
     }
 
     @Override
@@ -61,6 +64,8 @@ public class Robot extends TimedRobot {
     @Override
     public void close() {
         super.close();
+        m_array.close();
+        m_sampler.close();
         for (int i = 0; i < m_outputs.length; ++i) {
             m_outputs[i].close();
         }
@@ -1,5 +1,7 @@
 package org.team100.lib.barcode;
 
+import java.util.Arrays;
+
 import edu.wpi.first.wpilibj.DigitalOutput;
 
 /**
@@ -12,7 +14,18 @@ import edu.wpi.first.wpilibj.DigitalOutput;
  */
 public class Mux {
     private static final int kSelectors = 4;
+    private static final int kChannels = 1 << kSelectors;
+    /** Computed once, so set() doesn't allocate. */
+    private static final boolean[][] kTruth = new boolean[kChannels][];
+    static {
+        for (int channel = 0; channel < kChannels; ++channel) {
+            kTruth[channel] = toArray(channel, kSelectors);
+        }
+    }
     private final DigitalOutput[] m_outputs;
+    /** The selected channel, or -1 if the outputs are unknown. */
+    private int m_channel = -1;
+    private long m_toggles;
 
     /**
      * @param outputs the digital IO pins corresponding to each selector pin.
@@ -24,11 +37,55 @@ public class Mux {
         m_outputs = outputs;
     }
 
+    /** Only the selector pins that differ from the current channel are set. */
     public void set(int channel) {
+        if (channel == m_channel)
+            return;
         boolean[] truth = truth(channel);
+        // the first time, set them all.
+        int changed = m_channel < 0 ? kChannels - 1 : channel ^ m_channel;
         for (int i = 0; i < kSelectors; ++i) {
-            m_outputs[i].set(truth[i]);
+            if ((changed & (1 << i)) != 0) {
+                m_outputs[i].set(truth[i]);
+                m_toggles++;
+            }
+        }
+        m_channel = channel;
+    }
+
+    /** Total selector pin writes, to see what the channel ordering costs. */
+    public long toggles() {
+        return m_toggles;
+    }
+
+    /**
+     * Sorts the channels by their position in the 4-bit reflected Gray code
+     * sequence, so that scanning them in order, and wrapping around, changes
+     * as few selector pins as possible; if the channels are contiguous in that
+     * sequence, each step changes exactly one.
+     * 
+     * @return a new array
+     */
+    static int[] grayOrder(int[] channels) {
+        Integer[] boxed = new Integer[channels.length];
+        for (int i = 0; i < channels.length; ++i) {
+            boxed[i] = channels[i];
+        }
+        Arrays.sort(boxed, (a, b) -> Integer.compare(grayRank(a), grayRank(b)));
+        int[] result = new int[channels.length];
+        for (int i = 0; i < channels.length; ++i) {
+            result[i] = boxed[i];
+        }
+        return result;
+    }
+
+    /** @return the index of the channel in the Gray code sequence */
+    static int grayRank(int channel) {
+        int rank = channel;
+        for (int shift = 1; shift < kSelectors; shift <<= 1) {
+            rank ^= rank >> shift;
         }
+        return rank;
     }
 
     ///////////////////////////////////////////////////
@@ -36,9 +93,11 @@ public class Mux {
     /**
      * The truth table as described on the datasheet page two:
      * https://www.sparkfun.com/datasheets/IC/cd74hc4067.pdf
+     * 
+     * This is the shared table row, don't modify it.
      */
     static boolean[] truth(int channel) {
-        return toArray(channel, kSelectors);
+        return kTruth[channel];
     }
 
     /** @return binary representation of channel */
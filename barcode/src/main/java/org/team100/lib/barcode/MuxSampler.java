@@ -0,0 +1,348 @@
+package org.team100.lib.barcode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
+
+import edu.wpi.first.wpilibj.AnalogInput;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Shares one analog input, behind the Mux, among everything wired to it: the
+ * photosensor array, DIP switches, a second photosensor, etc.
+ *
+ * Each user registers its channels, with the time its signal needs to settle
+ * after switching to that channel. The sampler sweeps them round-robin, in
+ * Gray-code order, so consecutive channels differ in as few selector bits as
+ * possible, and the Mux only toggles the bits that change.
+ *
+ * AnalogInput.getVoltage() is the latest completed conversion, not the input
+ * right now, so each channel is sampled only after its settling time plus two
+ * conversion periods: one for the conversion in progress at the switch, and one
+ * for a whole conversion of the new channel. At the default 50 kS/s that's 40
+ * us on top of the signal's own settling. For the same reason, a sample is
+ * timestamped two conversions before it's read, which is as old as it can be,
+ * and a sweep doesn't read anything until two conversions after it starts, so
+ * that all its samples are from after the start.
+ *
+ * The latest value and its FPGA timestamp for each channel are kept in atomic
+ * arrays, behind a per-channel sequence number, so readers on any thread get a
+ * consistent pair without locking, and never wait for a sample.
+ *
+ * Sampling is a non-blocking step() that never waits; it returns the time it
+ * next has something to do, and the Notifier alarm is set for then, see
+ * start(). A sweep is one wakeup per channel, since each switch needs its own
+ * settling time, and then the sampler sleeps until the next sweep, every
+ * kSweepPeriodUs, or sooner if a consumer asks for one, see requestSweep().
+ * Other work that needs the same thread (e.g. Sensor's scan) can run after each
+ * step, see addPeriodic().
+ */
+public class MuxSampler implements AutoCloseable {
+    private static final int kChannels = 16;
+    /** Sweep all the channels this often, even if nobody asks. */
+    private static final long kSweepPeriodUs = 20000;
+
+    private final DoubleSupplier m_input;
+    private final IntConsumer m_mux;
+    private final LongSupplier m_clockUs;
+    private final long m_conversionUs;
+
+    // odd while a channel is being written.
+    private final AtomicIntegerArray m_seq = new AtomicIntegerArray(kChannels);
+    // Double.doubleToRawLongBits
+    private final AtomicLongArray m_value = new AtomicLongArray(kChannels);
+    private final AtomicLongArray m_timeUs = new AtomicLongArray(kChannels);
+
+    // registered channels, in Gray-code order, and their settling times
+    private int[] m_order = new int[0];
+    private final long[] m_settleUs = new long[kChannels];
+    private final List<LongUnaryOperator> m_periodic = new ArrayList<>();
+    private volatile LongUnaryOperator[] m_periodicArray = new LongUnaryOperator[0];
+    private Notifier m_notifier;
+    /** Sets the alarm, seconds from now, or null if not started. */
+    private DoubleConsumer m_alarm;
+    /** When the alarm is set for, or Long.MAX_VALUE if it isn't. */
+    private long m_alarmUs = Long.MAX_VALUE;
+
+    // sampling state
+    private boolean m_sweeping;
+    private int m_next;
+    private int m_selected = -1;
+    private long m_deadlineUs;
+    /** Samples in this sweep are read at or after this time. */
+    private long m_earliestUs;
+    /** The next periodic sweep. */
+    private long m_periodicUs = Long.MIN_VALUE;
+    /** The earliest requested sweep not yet started, or Long.MAX_VALUE. */
+    private long m_requestUs = Long.MAX_VALUE;
+
+    public MuxSampler(AnalogInput input, Mux mux) {
+        // the instantaneous voltage, since the mux moves faster than the average.
+        this(input::getVoltage, mux::set, RobotController::getFPGATime,
+                conversionUs(AnalogInput.getGlobalSampleRate()));
+    }
+
+    /**
+     * @param clockUs      FPGA time, microseconds
+     * @param conversionUs ADC conversion period, see conversionUs()
+     */
+    MuxSampler(DoubleSupplier input, IntConsumer mux, LongSupplier clockUs, long conversionUs) {
+        m_input = input;
+        m_mux = mux;
+        m_clockUs = clockUs;
+        m_conversionUs = conversionUs;
+        for (int i = 0; i < kChannels; ++i) {
+            m_timeUs.set(i, -1);
+            m_value.set(i, Double.doubleToRawLongBits(Double.NaN));
+        }
+    }
+
+    /**
+     * @param sampleRateHz per channel, AnalogInput.getGlobalSampleRate(), 50k by
+     *                     default.
+     */
+    static long conversionUs(double sampleRateHz) {
+        return (long) Math.ceil(1e6 / sampleRateHz);
+    }
+
+    /**
+     * Start sampling the channel. Registering it again just changes the settling
+     * time.
+     *
+     * @param settleUs how long the signal takes to settle after selecting the
+     *                 channel, e.g. the RC time of the source; the sampler adds
+     *                 two conversion periods.
+     */
+    public synchronized void register(int channel, long settleUs) {
+        if (channel < 0 || channel >= kChannels)
+            throw new IllegalArgumentException("bad channel " + channel);
+        m_settleUs[channel] = settleUs + 2 * m_conversionUs;
+        for (int c : m_order) {
+            if (c == channel) {
+                wake(Long.MIN_VALUE);
+                return;
+            }
+        }
+        int[] channels = Arrays.copyOf(m_order, m_order.length + 1);
+        channels[m_order.length] = channel;
+        m_order = Mux.grayOrder(channels);
+        m_sweeping = false;
+        m_selected = -1;
+        wake(Long.MIN_VALUE);
+    }
+
+    /** Total wait after selecting the channel, before sampling it. */
+    public long settleUs(int channel) {
+        return m_settleUs[channel];
+    }
+
+    /**
+     * Run the task on the sampler thread, after each step, with the time. The
+     * task returns the time it next needs to run, or Long.MAX_VALUE if it only
+     * needs to run after samples.
+     */
+    public synchronized void addPeriodic(LongUnaryOperator task) {
+        m_periodic.add(task);
+        m_periodicArray = m_periodic.toArray(new LongUnaryOperator[0]);
+        wake(Long.MIN_VALUE);
+    }
+
+    public synchronized void removePeriodic(LongUnaryOperator task) {
+        m_periodic.remove(task);
+        m_periodicArray = m_periodic.toArray(new LongUnaryOperator[0]);
+    }
+
+    /**
+     * Sweep all the channels as soon as possible after the time, e.g. when the
+     * caller knows its signal will be ready, see valueAfter().
+     */
+    public synchronized void requestSweep(long timeUs) {
+        m_requestUs = Math.min(m_requestUs, timeUs);
+        wake(timeUs);
+    }
+
+    /** Sample in the background. */
+    public synchronized void start() {
+        if (m_notifier != null)
+            return;
+        m_notifier = new Notifier(this::run);
+        m_notifier.setName("mux");
+        start(m_notifier::startSingle);
+    }
+
+    /**
+     * Sample whenever the alarm goes off, see run().
+     *
+     * @param alarm sets a single-shot alarm, seconds from now, replacing any
+     *              earlier one
+     */
+    synchronized void start(DoubleConsumer alarm) {
+        m_alarm = alarm;
+        m_alarmUs = Long.MAX_VALUE;
+        wake(Long.MIN_VALUE);
+    }
+
+    /** Latest value, or NaN if the channel hasn't been sampled. */
+    public double value(int channel) {
+        while (true) {
+            int seq = m_seq.get(channel);
+            if ((seq & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            double value = Double.longBitsToDouble(m_value.get(channel));
+            if (m_seq.get(channel) == seq)
+                return value;
+        }
+    }
+
+    /**
+     * FPGA time of the latest value, microseconds, or -1 if none; the value is
+     * the input at or after this time.
+     */
+    public long timeUs(int channel) {
+        return m_timeUs.get(channel);
+    }
+
+    /**
+     * The latest value, if it was sampled at or after the time, otherwise NaN;
+     * the value and time are from the same sample.
+     */
+    public double valueAfter(int channel, long timeUs) {
+        while (true) {
+            int seq = m_seq.get(channel);
+            if ((seq & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long sampleUs = m_timeUs.get(channel);
+            double value = Double.longBitsToDouble(m_value.get(channel));
+            if (m_seq.get(channel) == seq)
+                return sampleUs >= timeUs ? value : Double.NaN;
+        }
+    }
+
+    /**
+     * Sample the selected channel if it has settled, then run the periodic tasks.
+     * Never waits.
+     *
+     * The tasks run outside the lock, so they can call back into the sampler,
+     * and a consumer holding its own lock can call step() too, e.g.
+     * Sensor.scan().
+     *
+     * @return when there's something to do next, FPGA microseconds
+     */
+    public long step(long nowUs) {
+        long nextUs = sample(nowUs);
+        for (LongUnaryOperator task : m_periodicArray) {
+            nextUs = Math.min(nextUs, task.applyAsLong(nowUs));
+        }
+        // a task may have asked for a sweep
+        return Math.min(nextUs, nextSampleUs());
+    }
+
+    /** @return when the next sample is due */
+    private synchronized long sample(long nowUs) {
+        int[] order = m_order;
+        if (order.length == 0)
+            return Long.MAX_VALUE;
+        if (!m_sweeping) {
+            long sweepUs = nextSweepUs();
+            if (nowUs < sweepUs) {
+                // switch now, so the first channel is settled when the sweep starts.
+                if (m_selected != order[0])
+                    select(order[0], nowUs);
+                return sweepUs;
+            }
+            m_sweeping = true;
+            m_next = 0;
+            m_earliestUs = nowUs + 2 * m_conversionUs;
+            m_periodicUs = nowUs + kSweepPeriodUs;
+            // requests made after this, even if for earlier, get another sweep.
+            m_requestUs = Long.MAX_VALUE;
+        }
+        if (m_selected != order[m_next])
+            select(order[m_next], nowUs);
+        long readyUs = Math.max(m_deadlineUs, m_earliestUs);
+        if (nowUs < readyUs)
+            return readyUs;
+        store(m_selected, m_input.getAsDouble(), nowUs - 2 * m_conversionUs);
+        m_next++;
+        if (m_next < order.length) {
+            select(order[m_next], nowUs);
+            return m_deadlineUs;
+        }
+        m_sweeping = false;
+        select(order[0], nowUs);
+        return nextSweepUs();
+    }
+
+    private long nextSweepUs() {
+        return Math.min(m_periodicUs, m_requestUs);
+    }
+
+    private synchronized long nextSampleUs() {
+        if (m_order.length == 0)
+            return Long.MAX_VALUE;
+        return m_sweeping ? Math.max(m_deadlineUs, m_earliestUs) : nextSweepUs();
+    }
+
+    private void select(int channel, long nowUs) {
+        m_mux.accept(channel);
+        m_selected = channel;
+        m_deadlineUs = nowUs + m_settleUs[channel];
+    }
+
+    private void store(int channel, double value, long timeUs) {
+        m_seq.incrementAndGet(channel);
+        m_value.set(channel, Double.doubleToRawLongBits(value));
+        m_timeUs.set(channel, timeUs);
+        m_seq.incrementAndGet(channel);
+    }
+
+    /**
+     * The alarm callback: step, and set the alarm for the next thing to do.
+     *
+     * The alarm has gone off, so it's cleared before the step, and a request
+     * that arrives during the step, from another thread or a periodic task, sets
+     * it again itself. Otherwise the request would be compared to the alarm that
+     * just went off, and dropped.
+     */
+    void run() {
+        synchronized (this) {
+            m_alarmUs = Long.MAX_VALUE;
+        }
+        long nextUs = step(m_clockUs.getAsLong());
+        synchronized (this) {
+            wake(Math.min(nextUs, nextSampleUs()));
+        }
+    }
+
+    /** Move the alarm earlier, if sampling has started. */
+    private void wake(long timeUs) {
+        if (m_alarm == null || timeUs >= m_alarmUs)
+            return;
+        m_alarmUs = timeUs;
+        if (timeUs == Long.MAX_VALUE)
+            return;
+        long nowUs = m_clockUs.getAsLong();
+        m_alarm.accept(timeUs <= nowUs ? 0 : (timeUs - nowUs) / 1e6);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (m_notifier != null) {
+            m_notifier.close();
+            m_notifier = null;
+        }
+        m_alarm = null;
+    }
+}
@@ -1,9 +1,13 @@
 package org.team100.lib.barcode;
 
 import java.util.OptionalInt;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
 
-import edu.wpi.first.wpilibj.AnalogInput;
+import edu.wpi.first.util.function.BooleanConsumer;
 import edu.wpi.first.wpilibj.DigitalOutput;
+import edu.wpi.first.wpilibj.RobotController;
 
 /**
  * Represents the id sensor assembly, which consists of two parts:
@@ -16,7 +20,8 @@ import edu.wpi.first.wpilibj.DigitalOutput;
  * 
  * The multiplexer is controlled with 4 inputs, which are driven by RoboRIO
  * digital outputs. The same multiplexer (and analog input) may be used for
- * other inputs, e.g. a second photosensor, dip switches, etc.
+ * other inputs, e.g. a second photosensor, dip switches, etc, so it's shared
+ * through a MuxSampler.
  * 
  * The sensor emitters leak light to their neighbors, so there are two control
  * pins which activate the "odd" and "even" emitters. These are connected to DIO
@@ -59,93 +64,212 @@ import edu.wpi.first.wpilibj.DigitalOutput;
  * Pololu product page:
  * 
  * https://www.pololu.com/product/4405/resources
+ * 
+ * Scanning takes about a millisecond, mostly waiting for the emitters, which
+ * is too long to block the main loop, and the waits are too short for
+ * Thread.sleep() to be any good, so the scan is a state machine, see step(),
+ * run on the MuxSampler thread after each of its steps, see start(). The
+ * sampler does the mux switching and settling; the scan just turns on the
+ * emitters, asks the sampler for a sweep once they've warmed up, and waits for
+ * a sample of each of its channels from that sweep, so it never blocks at all.
+ * Between scans, it tells the sampler when the next one is due, so the thread
+ * sleeps until then. Each finished scan is published atomically, see
+ * readValue().
  */
-public class Sensor {
+public class Sensor implements AutoCloseable {
+    /** LED driver startup time plus sensor rise time. */
+    private static final long kEmitterUs = 85 + 300;
+    /**
+     * Settling of the sensor output through the mux into the ADC input: 47k
+     * into some tens of pF is about a microsecond per time constant. The sampler
+     * adds the ADC conversion time.
+     */
+    private static final long kRcSettleUs = 10;
+    /** Value bits in the published word; the rest is the timestamp. */
+    private static final int kValueBits = 16;
+    private static final long kNone = -1;
+
+    private static final int kIdle = 0;
+    private static final int kWarmup = 1;
+
+    private final MuxSampler m_sampler;
     private final double[] m_thresholds;
-    private final AnalogInput m_input;
-    private final Mux m_mux;
-    private final DigitalOutput m_odd;
-    private final DigitalOutput m_even;
+    private final BooleanConsumer m_odd;
+    private final BooleanConsumer m_even;
+    private final LongSupplier m_clockUs;
+    private final long m_scanPeriodUs;
+    private final LongUnaryOperator m_step = this::step;
+    // timestamp << kValueBits | value, or kNone.
+    private final AtomicLong m_latest = new AtomicLong(kNone);
+
+    // scan state, only step() touches these
+    private int m_phase = kIdle;
+    /** Zero for channels 0,2,4, one for 1,3. */
+    private int m_group;
+    private int m_bits;
+    /** Samples at or after this time see the emitters on. */
+    private long m_readyUs;
+    private long m_nextScanUs = Long.MIN_VALUE;
 
     /**
-     * @param input      all the sensors are multiplexed to one analog input.
+     * @param sampler    all the sensors are multiplexed to one analog input.
      * @param thresholds for each sensor, N of them.
-     * @param mux        the array uses N pins starting at zero.
      * @param odd        turn on the odd emitters when high
      * @param even       turn on the even emitters when high
      */
     public Sensor(
-            AnalogInput input,
+            MuxSampler sampler,
             double[] thresholds,
-            Mux mux,
             DigitalOutput odd,
             DigitalOutput even) {
-        m_input = input;
+        this(sampler, thresholds, odd::set, even::set, RobotController::getFPGATime, 20000);
+    }
+
+    /**
+     * @param sampler      the array uses N channels starting at zero.
+     * @param clockUs      FPGA time, microseconds
+     * @param scanPeriodUs start a scan this often
+     */
+    Sensor(
+            MuxSampler sampler,
+            double[] thresholds,
+            BooleanConsumer odd,
+            BooleanConsumer even,
+            LongSupplier clockUs,
+            long scanPeriodUs) {
+        if (thresholds.length > kValueBits)
+            throw new IllegalArgumentException("too many sensors: " + thresholds.length);
+        m_sampler = sampler;
         m_thresholds = thresholds;
-        m_mux = mux;
         m_odd = odd;
         m_even = even;
+        m_clockUs = clockUs;
+        m_scanPeriodUs = scanPeriodUs;
         // the default state for the outputs should be off
-        m_odd.set(false);
-        m_even.set(false);
+        m_odd.accept(false);
+        m_even.accept(false);
+        for (int channel = 0; channel < thresholds.length; ++channel) {
+            m_sampler.register(channel, kRcSettleUs);
+        }
     }
 
-    /** @return the number represented by the barcode. */
+    /** Scan continuously, in the background, on the sampler thread. */
+    public void start() {
+        m_sampler.removePeriodic(m_step);
+        m_sampler.addPeriodic(m_step);
+        m_sampler.start();
+    }
+
+    /** @return the number represented by the barcode, from the latest scan. */
     public OptionalInt readValue() {
-        boolean[] read = read();
-        if (read.length == 0)
+        long latest = m_latest.get();
+        if (latest == kNone)
             return OptionalInt.empty();
-        return OptionalInt.of(toChannel(read));
+        return OptionalInt.of((int) (latest & ((1 << kValueBits) - 1)));
     }
 
-    /////////////////////////////////////////////////
+    /** @return FPGA time of the latest scan, microseconds, or -1 if none. */
+    public long readTimeUs() {
+        long latest = m_latest.get();
+        if (latest == kNone)
+            return -1;
+        return latest >>> kValueBits;
+    }
 
     /**
-     * @return array representing the state of the sensors, 1 means dark
+     * Scan right now, spinning the sampler until it's done, for use before
+     * start(), e.g. in robotInit().
+     * 
+     * @param budgetUs give up after this long
+     * @return the value, or empty if it took too long
      */
-    boolean[] read() {
-        try {
-            boolean[] result = new boolean[m_thresholds.length];
-            // to read all the bits, we have to scan with the mux.
-            // first turn on the odd emitters, which actually means 0,2,4.
-            m_odd.set(true);
-            Thread.sleep(0, 85);// led driver startup time
-            Thread.sleep(0, 200);// sensor startup time minus the mux time below
-            for (int i = 0; i < m_thresholds.length; i += 2) {
-                m_mux.set(i);
-                Thread.sleep(0, 100);// 100ns of settling time
-                result[i] = readInput(m_thresholds[i]);
+    public synchronized OptionalInt scan(long budgetUs) {
+        long startUs = m_clockUs.getAsLong();
+        long published = m_latest.get();
+        abort();
+        m_nextScanUs = startUs;
+        while (m_latest.get() == published) {
+            long nowUs = m_clockUs.getAsLong();
+            if (nowUs - startUs > budgetUs) {
+                abort();
+                return OptionalInt.empty();
             }
-            // switch the emitters to 1,3 (note the confusing naming here)
-            m_odd.set(false);
-            m_even.set(true);
-            Thread.sleep(0, 85);// led driver startup time
-            Thread.sleep(0, 200);// sensor startup time minus the mux time below
-            for (int i = 1; i < m_thresholds.length; i += 2) {
-                m_mux.set(i);
-                Thread.sleep(0, 100);// 100ns of settling time
-                result[i] = readInput(m_thresholds[i]);
-            }
-            m_even.set(false);
-            return result;
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-            return new boolean[0]; // empty means failure
-        } finally {
-            // make sure the emitters are off
-            m_odd.set(false);
-            m_even.set(false);
+            m_sampler.step(nowUs);
+            step(m_clockUs.getAsLong());
+            Thread.onSpinWait();
         }
+        return readValue();
     }
 
     /**
-     * @param threshold above the threshold means dark, 1, below means light, is 0
-     * @return true = dark = "1" in the bar code.
+     * Do whatever is due, and return; never waits.
+     * 
+     * @return when the next scan is due, or Long.MAX_VALUE during a scan, which
+     *         continues after the sampler's sweep.
      */
-    boolean readInput(double threshold) {
-        return m_input.getAverageVoltage() > threshold;
+    synchronized long step(long nowUs) {
+        switch (m_phase) {
+            case kIdle:
+                if (nowUs < m_nextScanUs)
+                    return m_nextScanUs;
+                m_nextScanUs += m_scanPeriodUs;
+                if (m_nextScanUs < nowUs)
+                    m_nextScanUs = nowUs + m_scanPeriodUs;
+                m_bits = 0;
+                m_group = 0;
+                // first turn on the odd emitters, which actually means 0,2,4.
+                m_odd.accept(true);
+                m_readyUs = nowUs + kEmitterUs;
+                m_sampler.requestSweep(m_readyUs);
+                m_phase = kWarmup;
+                return Long.MAX_VALUE;
+            case kWarmup:
+                int bits = 0;
+                for (int channel = m_group; channel < m_thresholds.length; channel += 2) {
+                    double value = m_sampler.valueAfter(channel, m_readyUs);
+                    if (Double.isNaN(value))
+                        return Long.MAX_VALUE;
+                    if (value > m_thresholds[channel])
+                        bits |= 1 << channel;
+                }
+                m_bits |= bits;
+                if (m_group == 0 && m_thresholds.length > 1) {
+                    // switch the emitters to 1,3 (note the confusing naming here)
+                    m_odd.accept(false);
+                    m_even.accept(true);
+                    m_group = 1;
+                    m_readyUs = nowUs + kEmitterUs;
+                    m_sampler.requestSweep(m_readyUs);
+                    return Long.MAX_VALUE;
+                }
+                m_odd.accept(false);
+                m_even.accept(false);
+                m_latest.set((nowUs << kValueBits) | m_bits);
+                m_phase = kIdle;
+                return m_nextScanUs;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    /** Stop any scan in progress, with the emitters off. */
+    private void abort() {
+        m_odd.accept(false);
+        m_even.accept(false);
+        m_phase = kIdle;
+    }
+
+    /** Stops scanning; the sampler is shared, so it's left running. */
+    @Override
+    public void close() {
+        m_sampler.removePeriodic(m_step);
+        synchronized (this) {
+            abort();
+        }
     }
 
+    /////////////////////////////////////////////////
+
     /** @return int representation of array */
     static int toChannel(boolean[] array) {
         int result = 0;
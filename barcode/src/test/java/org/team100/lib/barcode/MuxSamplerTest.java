@@ -0,0 +1,219 @@
+package org.team100.lib.barcode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class MuxSamplerTest {
+    /** At the default AnalogInput sample rate, 50 kS/s. */
+    private static final long kConversionUs = 20;
+    /** Signal settling, as Sensor uses. */
+    private static final long kRcUs = 10;
+
+    /**
+     * Fake hardware. The clock ticks one microsecond every time it's read, and
+     * each channel reads its own number.
+     *
+     * Like the real ADC, the input is the latest conversion, one every 20 us,
+     * and a conversion sees the previous channel if the mux switched during it,
+     * or less than 10 us before it.
+     */
+    private static class Fake {
+        long nowUs = 1000;
+        int channel = -1;
+        int previousChannel = -1;
+        long selectedUs;
+        List<Integer> selections = new ArrayList<>();
+
+        long clock() {
+            return nowUs++;
+        }
+
+        void select(int c) {
+            previousChannel = channel;
+            channel = c;
+            selectedUs = nowUs;
+            selections.add(c);
+        }
+
+        double input() {
+            // the latest conversion started a whole period ago.
+            long conversionUs = nowUs - nowUs % kConversionUs - kConversionUs;
+            return conversionUs - selectedUs < kRcUs ? previousChannel : channel;
+        }
+
+        MuxSampler sampler() {
+            return new MuxSampler(this::input, this::select, this::clock, kConversionUs);
+        }
+    }
+
+    /** What the notifier does: step, then sleep until the returned time. */
+    private static long run(Fake fake, MuxSampler sampler, long untilUs) {
+        int steps = 0;
+        long nextUs = fake.nowUs;
+        while (nextUs < untilUs) {
+            fake.nowUs = Math.max(fake.nowUs, nextUs);
+            long before = fake.nowUs;
+            nextUs = sampler.step(fake.clock());
+            // never waits
+            assertTrue(fake.nowUs - before < 10, "step took " + (fake.nowUs - before));
+            steps++;
+        }
+        fake.nowUs = Math.max(fake.nowUs, untilUs);
+        return steps;
+    }
+
+    @Test
+    void testConversionUs() {
+        assertEquals(20, MuxSampler.conversionUs(50000));
+        assertEquals(100, MuxSampler.conversionUs(10000));
+    }
+
+    @Test
+    void testSettle() {
+        Fake fake = new Fake();
+        MuxSampler sampler = fake.sampler();
+        sampler.register(3, kRcUs);
+        // two conversions, plus the RC
+        assertEquals(50, sampler.settleUs(3));
+    }
+
+    @Test
+    void testEmpty() {
+        Fake fake = new Fake();
+        MuxSampler sampler = fake.sampler();
+        assertEquals(Long.MAX_VALUE, sampler.step(fake.clock()));
+        assertTrue(Double.isNaN(sampler.value(3)));
+        assertEquals(-1, sampler.timeUs(3));
+        assertTrue(fake.selections.isEmpty());
+    }
+
+    @Test
+    void testRoundRobin() {
+        Fake fake = new Fake();
+        MuxSampler sampler = fake.sampler();
+        for (int c = 0; c < 5; ++c) {
+            sampler.register(c, kRcUs);
+        }
+        sampler.register(12, kRcUs);
+        long beforeUs = fake.nowUs;
+        // one sweep
+        run(fake, sampler, beforeUs + 1000);
+        for (int c : new int[] { 0, 1, 2, 3, 4, 12 }) {
+            // settled, so no bleed from the previous channel
+            assertEquals(c, sampler.value(c), 0.0);
+            assertTrue(sampler.timeUs(c) > beforeUs);
+            assertEquals(c, sampler.valueAfter(c, beforeUs), 0.0);
+        }
+        assertTrue(Double.isNaN(sampler.valueAfter(0, fake.nowUs)));
+        // unregistered
+        assertEquals(-1, sampler.timeUs(5));
+        // gray code order, wrapping around
+        assertEquals(List.of(0, 1, 3, 2, 4, 12, 0), fake.selections.subList(0, 7));
+    }
+
+    /** Sampling sooner than two conversions after the switch reads stale values. */
+    @Test
+    void testStaleWithoutConversions() {
+        Fake fake = new Fake();
+        MuxSampler sampler = new MuxSampler(fake::input, fake::select, fake::clock, 0);
+        sampler.register(0, 5);
+        sampler.register(1, 5);
+        run(fake, sampler, fake.nowUs + 1000);
+        assertTrue(sampler.value(0) != 0 || sampler.value(1) != 1);
+    }
+
+    /**
+     * A sweep is one wakeup per channel, and then nothing until the next sweep,
+     * 20 ms later.
+     */
+    @Test
+    void testSleepsBetweenSweeps() {
+        Fake fake = new Fake();
+        MuxSampler sampler = fake.sampler();
+        for (int c = 0; c < 5; ++c) {
+            sampler.register(c, kRcUs);
+        }
+        long steps = run(fake, sampler, fake.nowUs + 100000);
+        // five sweeps, of five samples, and the wait for the first one.
+        assertEquals(30, steps, 5);
+    }
+
+    /** A requested sweep starts at the requested time, not the next period. */
+    @Test
+    void testRequestSweep() {
+        Fake fake = new Fake();
+        MuxSampler sampler = fake.sampler();
+        sampler.register(0, kRcUs);
+        sampler.register(1, kRcUs);
+        run(fake, sampler, fake.nowUs + 1000);
+        long requestUs = fake.nowUs + 500;
+        sampler.requestSweep(requestUs);
+        assertEquals(requestUs, sampler.step(fake.clock()));
+        run(fake, sampler, requestUs + 200);
+        assertEquals(0, sampler.valueAfter(0, requestUs), 0.0);
+        assertEquals(1, sampler.valueAfter(1, requestUs), 0.0);
+    }
+
+    /** Periodic tasks run after each step, and can set the next wakeup. */
+    @Test
+    void testPeriodic() {
+        Fake fake = new Fake();
+        MuxSampler sampler = fake.sampler();
+        sampler.register(0, kRcUs);
+        sampler.register(1, 150);
+        long[] ran = new long[1];
+        long taskUs = fake.nowUs + 3000;
+        sampler.addPeriodic(nowUs -> {
+            ran[0]++;
+            return nowUs < taskUs ? taskUs : Long.MAX_VALUE;
+        });
+        run(fake, sampler, fake.nowUs + 1000);
+        assertEquals(0, sampler.value(0), 0.0);
+        assertEquals(1, sampler.value(1), 0.0);
+        long before = ran[0];
+        // the task's wakeup comes before the next sweep.
+        assertEquals(taskUs, sampler.step(fake.clock()));
+        assertEquals(before + 1, ran[0]);
+    }
+
+    /**
+     * A request that arrives while the alarm callback is stepping sets the alarm
+     * itself, rather than being compared to the alarm that just went off.
+     */
+    @Test
+    void testRequestDuringStep() {
+        Fake fake = new Fake();
+        MuxSampler sampler = fake.sampler();
+        // the alarm, in absolute time, like the notifier would compute it.
+        List<Long> alarms = new ArrayList<>();
+        sampler.start(delayS -> alarms.add(fake.nowUs + (long) (delayS * 1e6)));
+        sampler.register(0, kRcUs);
+        sampler.register(1, kRcUs);
+        run(fake, sampler, fake.nowUs + 1000);
+        // asleep until the next periodic sweep
+        long sleepUs = sampler.step(fake.clock());
+        assertTrue(sleepUs > fake.nowUs + 10000);
+
+        long requestUs = fake.nowUs + 500;
+        int[] armed = new int[1];
+        sampler.addPeriodic(nowUs -> {
+            if (armed[0] == 0) {
+                int before = alarms.size();
+                sampler.requestSweep(requestUs);
+                armed[0] = alarms.size() - before;
+            }
+            return Long.MAX_VALUE;
+        });
+        alarms.clear();
+        sampler.run();
+        // the request armed the alarm during the step
+        assertEquals(1, armed[0]);
+        // and it wasn't pushed back afterwards
+        assertEquals(requestUs, alarms.get(alarms.size() - 1), 5);
+    }
+}
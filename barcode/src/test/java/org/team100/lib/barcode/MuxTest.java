@@ -1,6 +1,7 @@
 package org.team100.lib.barcode;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import org.junit.jupiter.api.Test;
 
@@ -25,4 +26,18 @@ public class MuxTest {
         assertArrayEquals(new boolean[] { false, true, true, true }, Mux.toArray(14, 4));
         assertArrayEquals(new boolean[] { true, true, true, true }, Mux.toArray(15, 4));
     }
+
+    @Test
+    void testGrayOrder() {
+        int[] all = new int[16];
+        for (int i = 0; i < 16; ++i) {
+            all[i] = i;
+        }
+        int[] order = Mux.grayOrder(all);
+        for (int i = 0; i < 16; ++i) {
+            // one pin at a time, including wrapping around
+            assertEquals(1, Integer.bitCount(order[i] ^ order[(i + 1) % 16]));
+            assertEquals(i, Mux.grayRank(order[i]));
+        }
+    }
 }
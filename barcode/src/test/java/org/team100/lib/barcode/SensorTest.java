@@ -1,6 +1,10 @@
 package org.team100.lib.barcode;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.OptionalInt;
 
 import org.junit.jupiter.api.Test;
 
@@ -25,4 +29,140 @@ public class SensorTest {
         assertEquals(14, Sensor.toChannel(new boolean[] { false, true, true, true }));
         assertEquals(15, Sensor.toChannel(new boolean[] { true, true, true, true }));
     }
+
+    /** At the default AnalogInput sample rate, 50 kS/s. */
+    private static final long kConversionUs = 20;
+
+    /**
+     * Fake hardware. The clock ticks one microsecond every time it's read, and
+     * the photosensors only read dark if their emitter has been on long enough.
+     * 
+     * Like the real ADC, the input is the latest conversion, one every 20 us,
+     * and a conversion sees the previous channel if the mux switched during it,
+     * or less than 10 us before it.
+     */
+    private static class Fake {
+        long nowUs = 1000;
+        int channel = -1;
+        int previousChannel = -1;
+        long selectedUs = -1;
+        long oddOnUs = -1;
+        long evenOnUs = -1;
+        boolean[] dark;
+        int samples;
+
+        Fake(boolean... dark) {
+            this.dark = dark;
+        }
+
+        long clock() {
+            return nowUs++;
+        }
+
+        void odd(boolean on) {
+            oddOnUs = on ? nowUs : -1;
+        }
+
+        void even(boolean on) {
+            evenOnUs = on ? nowUs : -1;
+        }
+
+        void select(int c) {
+            previousChannel = channel;
+            channel = c;
+            selectedUs = nowUs;
+        }
+
+        double input() {
+            samples++;
+            // the latest conversion started a whole period ago.
+            long conversionUs = nowUs - nowUs % kConversionUs - kConversionUs;
+            int c = conversionUs - selectedUs < 10 ? previousChannel : channel;
+            if (c < 0)
+                return 0;
+            // zero-based even channels use the "odd" emitters.
+            long onUs = c % 2 == 0 ? oddOnUs : evenOnUs;
+            if (onUs < 0 || conversionUs - onUs < 385)
+                return 0;
+            return dark[c] ? 5 : 0;
+        }
+
+        MuxSampler sampler = new MuxSampler(this::input, this::select, this::clock, kConversionUs);
+
+        Sensor sensor() {
+            return new Sensor(sampler, new double[] { 1, 1, 1, 1, 1 },
+                    this::odd, this::even, this::clock, 20000);
+        }
+    }
+
+    @Test
+    void testScan() {
+        Fake fake = new Fake(true, false, true, true, false);
+        Sensor sensor = fake.sensor();
+        assertFalse(sensor.readValue().isPresent());
+        assertEquals(-1, sensor.readTimeUs());
+        OptionalInt value = sensor.scan(5000);
+        assertEquals(OptionalInt.of(0b01101), value);
+        assertEquals(value, sensor.readValue());
+        assertTrue(sensor.readTimeUs() > 1000);
+        // the sampler reads all the channels all the time
+        assertTrue(fake.samples >= 5);
+        // emitters off afterwards
+        assertEquals(-1, fake.oddOnUs);
+        assertEquals(-1, fake.evenOnUs);
+    }
+
+    @Test
+    void testBudget() {
+        Fake fake = new Fake(true, true, true, true, true);
+        Sensor sensor = fake.sensor();
+        assertFalse(sensor.scan(100).isPresent());
+        assertEquals(-1, fake.oddOnUs);
+        assertEquals(-1, fake.evenOnUs);
+        assertFalse(sensor.readValue().isPresent());
+    }
+
+    /**
+     * Stepping never waits, and the sampler's alarm is only set for when there's
+     * something to do, so a scan takes a handful of wakeups, and between scans
+     * there are none.
+     */
+    @Test
+    void testStep() {
+        Fake fake = new Fake(false, true, false, true, true);
+        Sensor sensor = fake.sensor();
+        int steps = 0;
+        // what start() does, without the notifier
+        fake.sampler.addPeriodic(sensor::step);
+        long nextUs = fake.nowUs;
+        while (!sensor.readValue().isPresent()) {
+            // the alarm
+            fake.nowUs = Math.max(fake.nowUs, nextUs);
+            long before = fake.nowUs;
+            nextUs = fake.sampler.step(fake.clock());
+            assertTrue(fake.nowUs - before < 10, "step took " + (fake.nowUs - before));
+            assertTrue(nextUs > fake.nowUs - 10, "next " + nextUs + " now " + fake.nowUs);
+            steps++;
+        }
+        assertEquals(OptionalInt.of(0b11010), sensor.readValue());
+        // a sweep for each group of emitters, plus the waits for them.
+        assertTrue(steps < 20, "steps " + steps);
+        assertEquals(-1, fake.oddOnUs);
+        assertEquals(-1, fake.evenOnUs);
+        // the sweep finishes, and then the next wakeup is the next scan, 20 ms
+        // after the start of this one.
+        long published = sensor.readTimeUs();
+        while (nextUs < published + 1000) {
+            fake.nowUs = Math.max(fake.nowUs, nextUs);
+            nextUs = fake.sampler.step(fake.clock());
+        }
+        assertTrue(nextUs > published + 15000, "next " + nextUs + " published " + published);
+        assertEquals(-1, fake.oddOnUs);
+        fake.nowUs = nextUs;
+        fake.sampler.step(fake.clock());
+        assertTrue(fake.oddOnUs > 0);
+        assertEquals(published, sensor.readTimeUs());
+        sensor.close();
+        assertEquals(-1, fake.oddOnUs);
+    }
 }
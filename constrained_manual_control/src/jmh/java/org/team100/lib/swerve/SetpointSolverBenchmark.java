@@ -0,0 +1,192 @@
+package org.team100.lib.swerve;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.team100.lib.util.Util;
+
+/**
+ * The closed-form steering and drive limits in SwerveSetpointGenerator, against
+ * the original iterative (regula falsi) ones they replaced, which are kept here,
+ * over the same seeded random sweep of module velocity pairs.
+ *
+ * Run with ./gradlew jmh; results are in build/results/jmh.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SetpointSolverBenchmark {
+    private static final int kCases = 1024;
+    private static final double kMaxThetaStep = Math.toRadians(1500.0) * 0.01;
+    private static final double kMaxVelStep = 10.0 * 0.01;
+    // what the generator used
+    private static final int kSteeringIterations = 8;
+    private static final int kDriveIterations = 10;
+
+    /** x0, y0, f0, x1, y1, f1 per case, f is the heading. */
+    private final double[] m_steering = new double[kCases * 6];
+    /** x0, y0, v0, x1, y1, v1 per case, v is the speed. */
+    private final double[] m_drive = new double[kCases * 6];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(100);
+        double[] v = new double[4];
+        for (int i = 0; i < m_steering.length; i += 6) {
+            // away from the origin, where the heading is undefined
+            for (int j = 0; j < 4; j += 2) {
+                do {
+                    v[j] = 6 * random.nextDouble() - 3;
+                    v[j + 1] = 6 * random.nextDouble() - 3;
+                } while (Math.hypot(v[j], v[j + 1]) < 0.1);
+            }
+            double x0 = v[0];
+            double y0 = v[1];
+            double x1 = v[2];
+            double y1 = v[3];
+            m_steering[i] = x0;
+            m_steering[i + 1] = y0;
+            m_steering[i + 2] = Math.atan2(y0, x0);
+            m_steering[i + 3] = x1;
+            m_steering[i + 4] = y1;
+            m_steering[i + 5] = Math.atan2(y1, x1);
+            m_drive[i] = x0;
+            m_drive[i + 1] = y0;
+            m_drive[i + 2] = Math.hypot(x0, y0);
+            m_drive[i + 3] = x1;
+            m_drive[i + 4] = y1;
+            m_drive[i + 5] = Math.hypot(x1, y1);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(kCases)
+    public double steeringClosedForm() {
+        double[] c = m_steering;
+        double sum = 0;
+        for (int i = 0; i < c.length; i += 6) {
+            sum += SwerveSetpointGenerator.findSteeringMaxS(
+                    c[i], c[i + 1], c[i + 2], c[i + 3], c[i + 4], c[i + 5], kMaxThetaStep);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(kCases)
+    public double steeringIterative() {
+        double[] c = m_steering;
+        double sum = 0;
+        for (int i = 0; i < c.length; i += 6) {
+            sum += findSteeringMaxS(
+                    c[i], c[i + 1], c[i + 2], c[i + 3], c[i + 4], c[i + 5], kMaxThetaStep, kSteeringIterations);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(kCases)
+    public double driveClosedForm() {
+        double[] c = m_drive;
+        double sum = 0;
+        for (int i = 0; i < c.length; i += 6) {
+            sum += SwerveSetpointGenerator.findDriveMaxS(c[i], c[i + 1], c[i + 3], c[i + 4], kMaxVelStep);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(kCases)
+    public double driveIterative() {
+        double[] c = m_drive;
+        double sum = 0;
+        for (int i = 0; i < c.length; i += 6) {
+            sum += findDriveMaxS(
+                    c[i], c[i + 1], c[i + 2], c[i + 3], c[i + 4], c[i + 5], kMaxVelStep, kDriveIterations);
+        }
+        return sum;
+    }
+
+    //////////////////////////////////////////
+    // the original iterative solvers
+
+    @FunctionalInterface
+    private interface Function2d {
+        public double f(double x, double y);
+    }
+
+    /**
+     * Find the root of the generic 2D parametric function 'func' using the regula
+     * falsi technique. This is a pretty naive way to
+     * do root finding, but it's usually faster than simple bisection while being
+     * robust in ways that e.g. the Newton-Raphson
+     * method isn't.
+     * 
+     * @param func            The Function2d to take the root of.
+     * @param x_0             x value of the lower bracket.
+     * @param y_0             y value of the lower bracket.
+     * @param f_0             value of 'func' at x_0, y_0 (passed in by caller to
+     *                        save a call to 'func' during recursion)
+     * @param x_1             x value of the upper bracket.
+     * @param y_1             y value of the upper bracket.
+     * @param f_1             value of 'func' at x_1, y_1 (passed in by caller to
+     *                        save a call to 'func' during recursion)
+     * @param iterations_left Number of iterations of root finding left.
+     * @return The parameter value 's' that interpolating between 0 and 1 that
+     *         corresponds to the (approximate) root.
+     */
+    private static double findRoot(Function2d func, double x_0, double y_0, double f_0, double x_1, double y_1,
+            double f_1, int iterations_left) {
+        if (iterations_left < 0 || Util.epsilonEquals(f_0, f_1)) {
+            return 1.0;
+        }
+        var s_guess = Math.max(0.0, Math.min(1.0, -f_0 / (f_1 - f_0)));
+        var x_guess = (x_1 - x_0) * s_guess + x_0;
+        var y_guess = (y_1 - y_0) * s_guess + y_0;
+        var f_guess = func.f(x_guess, y_guess);
+        if (Math.signum(f_0) == Math.signum(f_guess)) {
+            // 0 and guess on same side of root, so use upper bracket.
+            return s_guess
+                    + (1.0 - s_guess) * findRoot(func, x_guess, y_guess, f_guess, x_1, y_1, f_1, iterations_left - 1);
+        } else {
+            // Use lower bracket.
+            return s_guess * findRoot(func, x_0, y_0, f_0, x_guess, y_guess, f_guess, iterations_left - 1);
+        }
+    }
+
+    private static double findSteeringMaxS(double x_0, double y_0, double f_0, double x_1, double y_1, double f_1,
+            double max_deviation, int max_iterations) {
+        f_1 = SwerveSetpointGenerator.unwrapAngle(f_0, f_1);
+        double diff = f_1 - f_0;
+        if (Math.abs(diff) <= max_deviation) {
+            // Can go all the way to s=1.
+            return 1.0;
+        }
+        double offset = f_0 + Math.signum(diff) * max_deviation;
+        Function2d func = (x, y) -> {
+            return SwerveSetpointGenerator.unwrapAngle(f_0, Math.atan2(y, x)) - offset;
+        };
+        return findRoot(func, x_0, y_0, f_0 - offset, x_1, y_1, f_1 - offset, max_iterations);
+    }
+
+    private static double findDriveMaxS(double x_0, double y_0, double f_0, double x_1, double y_1, double f_1,
+            double max_vel_step, int max_iterations) {
+        double diff = f_1 - f_0;
+        if (Math.abs(diff) <= max_vel_step) {
+            // Can go all the way to s=1.
+            return 1.0;
+        }
+        double offset = f_0 + Math.signum(diff) * max_vel_step;
+        Function2d func = (x, y) -> {
+            return Math.hypot(x, y) - offset;
+        };
+        return findRoot(func, x_0, y_0, f_0 - offset, x_1, y_1, f_1 - offset, max_iterations);
+    }
+}
@@ -0,0 +1,24 @@
+package org.team100.lib.geometry;
+
+/**
+ * A Rotation2d that can be overwritten in place, for preallocated outputs like
+ * the setpoint from FastSwerveSetpointGenerator.
+ *
+ * Rotation2d is otherwise immutable and freely shared, so don't hand one of
+ * these to anything that keeps it.
+ */
+public class MutableRotation2d extends Rotation2d {
+    public MutableRotation2d() {
+        super();
+    }
+
+    /**
+     * Either the trig or the radians may be NaN, to be computed lazily from the
+     * other, just like Rotation2d.
+     */
+    public void set(double cos, double sin, double radians) {
+        cos_angle_ = cos;
+        sin_angle_ = sin;
+        radians_ = radians;
+    }
+}
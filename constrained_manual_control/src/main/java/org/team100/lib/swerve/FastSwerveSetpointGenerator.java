@@ -0,0 +1,387 @@
+package org.team100.lib.swerve;
+
+import org.team100.lib.geometry.MutableRotation2d;
+import org.team100.lib.swerve.SwerveSetpointGenerator.KinematicLimits;
+import org.team100.lib.util.Util;
+
+/**
+ * Same as SwerveSetpointGenerator, without allocation, so it can run every
+ * cycle without feeding the garbage collector.
+ *
+ * All the per-module scratch is in primitive arrays owned by the generator, and
+ * the result is written into a setpoint owned by the caller, so one instance
+ * should only be used by one thread. The kinematics uses the batch methods on
+ * the cached matrices, the stop-and-flip case is a second pass rather than a
+ * recursive call, and the limit solvers are the same closed-form ones.
+ *
+ * The output is identical to SwerveSetpointGenerator, bit for bit, including
+ * the lazy Rotation2d representation (trig, radians, or both) of each module
+ * angle, since that affects later rounding. So the arithmetic here follows the
+ * original exactly, including the matrix multiplication order in EJML, which
+ * the kinematics batch methods also follow; keep them in sync, and keep
+ * FastSwerveSetpointGeneratorTest passing.
+ */
+public class FastSwerveSetpointGenerator {
+    private final SwerveDriveKinematics m_kinematics;
+    private final int m_numModules;
+
+    // scratch, all indexed by module, except m_states which is x,y interleaved.
+    private final double[] m_states;
+    private final double[] m_chassis = new double[3];
+    private final double[] m_chassisIn = new double[3];
+    private final double[] m_prevSpeed;
+    private final double[] m_prevCos;
+    private final double[] m_prevSin;
+    private final double[] m_prevRadians;
+    private final double[] m_desiredSpeed;
+    private final double[] m_desiredCos;
+    private final double[] m_desiredSin;
+    private final boolean[] m_hasOverride;
+    /** NaN means the override has no trig, just radians. */
+    private final double[] m_overrideCos;
+    private final double[] m_overrideSin;
+    /** NaN means the override has no radians, just trig. */
+    private final double[] m_overrideRadians;
+
+    public FastSwerveSetpointGenerator(final SwerveDriveKinematics kinematics) {
+        m_kinematics = kinematics;
+        m_numModules = kinematics.getNumModules();
+        m_states = new double[m_numModules * 2];
+        m_prevSpeed = new double[m_numModules];
+        m_prevCos = new double[m_numModules];
+        m_prevSin = new double[m_numModules];
+        m_prevRadians = new double[m_numModules];
+        m_desiredSpeed = new double[m_numModules];
+        m_desiredCos = new double[m_numModules];
+        m_desiredSin = new double[m_numModules];
+        m_hasOverride = new boolean[m_numModules];
+        m_overrideCos = new double[m_numModules];
+        m_overrideSin = new double[m_numModules];
+        m_overrideRadians = new double[m_numModules];
+    }
+
+    /** A setpoint at rest, suitable for output, with mutable angles. */
+    public SwerveSetpoint newSetpoint() {
+        SwerveModuleState[] states = new SwerveModuleState[m_numModules];
+        for (int i = 0; i < m_numModules; ++i) {
+            states[i] = new SwerveModuleState(0, new MutableRotation2d());
+        }
+        return new SwerveSetpoint(new ChassisSpeeds(), states);
+    }
+
+    /**
+     * Generate a new setpoint, same as SwerveSetpointGenerator.generateSetpoint().
+     *
+     * @param limits       The kinematic limits to respect for this setpoint.
+     * @param prevSetpoint The previous setpoint motion.
+     * @param desiredState The desired state of motion. Not modified.
+     * @param dt           The loop time.
+     * @param out          The result, which may be the same object as
+     *                     prevSetpoint. Any module angle that isn't a
+     *                     MutableRotation2d is replaced the first time, so use
+     *                     newSetpoint() to avoid even that.
+     */
+    public void generateSetpoint(
+            final KinematicLimits limits,
+            final SwerveSetpoint prevSetpoint,
+            final ChassisSpeeds desiredState,
+            double dt,
+            SwerveSetpoint out) {
+        // Read all of the previous setpoint first, since out may be the same.
+        for (int i = 0; i < m_numModules; ++i) {
+            SwerveModuleState state = prevSetpoint.mModuleStates[i];
+            m_prevSpeed[i] = state.speedMetersPerSecond;
+            m_prevCos[i] = state.angle.cos();
+            m_prevSin[i] = state.angle.sin();
+            m_prevRadians[i] = state.angle.getRadians();
+        }
+        final double prevVx = prevSetpoint.mChassisSpeeds.vxMetersPerSecond;
+        final double prevVy = prevSetpoint.mChassisSpeeds.vyMetersPerSecond;
+        final double prevOmega = prevSetpoint.mChassisSpeeds.omegaRadiansPerSecond;
+
+        double desiredVx = desiredState.vxMetersPerSecond;
+        double desiredVy = desiredState.vyMetersPerSecond;
+        double desiredOmega = desiredState.omegaRadiansPerSecond;
+        boolean needToSteer;
+        while (true) {
+            toModuleStates(desiredVx, desiredVy, desiredOmega);
+            for (int i = 0; i < m_numModules; ++i) {
+                setDesired(i, m_states[i * 2], m_states[i * 2 + 1]);
+            }
+            // Make sure desiredState respects velocity limits.
+            if (limits.kMaxDriveVelocity > 0.0) {
+                desaturate(limits.kMaxDriveVelocity);
+                toChassisSpeeds();
+                desiredVx = m_chassis[0];
+                desiredVy = m_chassis[1];
+                desiredOmega = m_chassis[2];
+            }
+
+            // Special case: desiredState is a complete stop. In this case, module angle is
+            // arbitrary, so just use the previous angle.
+            needToSteer = !isStopped(desiredVx, desiredVy, desiredOmega);
+            if (!needToSteer) {
+                for (int i = 0; i < m_numModules; ++i) {
+                    m_desiredCos[i] = m_prevCos[i];
+                    m_desiredSin[i] = m_prevSin[i];
+                    m_desiredSpeed[i] = 0.0;
+                }
+            }
+
+            if (allModulesShouldFlip()
+                    && !isStopped(prevVx, prevVy, prevOmega)
+                    && !isStopped(desiredVx, desiredVy, desiredOmega)) {
+                // It will (likely) be faster to stop the robot, rotate the modules in place to
+                // the complement of the desired angle, and accelerate again.
+                desiredVx = 0;
+                desiredVy = 0;
+                desiredOmega = 0;
+                continue;
+            }
+            break;
+        }
+
+        // 's' interpolates between start and goal. At 0, we are at prevState and at 1,
+        // we are at desiredState.
+        double min_s = enforceSteeringVelocityLimit(limits, dt, needToSteer);
+        min_s = enforceDriveWheelAccelerationLimit(limits, dt, min_s);
+
+        double retVx = prevVx + min_s * (desiredVx - prevVx);
+        double retVy = prevVy + min_s * (desiredVy - prevVy);
+        double retOmega = prevOmega + min_s * (desiredOmega - prevOmega);
+        out.mChassisSpeeds.vxMetersPerSecond = retVx;
+        out.mChassisSpeeds.vyMetersPerSecond = retVy;
+        out.mChassisSpeeds.omegaRadiansPerSecond = retOmega;
+        newStates(retVx, retVy, retOmega, out.mModuleStates);
+    }
+
+    /** Inverse kinematics into m_states. */
+    private void toModuleStates(double vx, double vy, double omega) {
+        m_chassisIn[0] = vx;
+        m_chassisIn[1] = vy;
+        m_chassisIn[2] = omega;
+        m_kinematics.toModuleVelocities(m_chassisIn, m_states, 1);
+    }
+
+    /** Forward kinematics of the desired module states into m_chassis. */
+    private void toChassisSpeeds() {
+        for (int i = 0; i < m_numModules; ++i) {
+            m_states[i * 2] = m_desiredSpeed[i] * m_desiredCos[i];
+            m_states[i * 2 + 1] = m_desiredSpeed[i] * m_desiredSin[i];
+        }
+        m_kinematics.toChassisSpeeds(m_states, m_chassis, 1);
+    }
+
+    /** Same as Rotation2d(x, y, true), and the hypot speed. */
+    private void setDesired(int i, double x, double y) {
+        double speed = Math.hypot(x, y);
+        m_desiredSpeed[i] = speed;
+        if (speed > Util.kEpsilon) {
+            m_desiredCos[i] = x / speed;
+            m_desiredSin[i] = y / speed;
+        } else {
+            m_desiredCos[i] = 1.0;
+            m_desiredSin[i] = 0.0;
+        }
+    }
+
+    private void desaturate(double maxSpeed) {
+        double realMaxSpeed = m_desiredSpeed[0];
+        for (int i = 1; i < m_numModules; ++i) {
+            if (Double.compare(m_desiredSpeed[i], realMaxSpeed) > 0)
+                realMaxSpeed = m_desiredSpeed[i];
+        }
+        if (realMaxSpeed > maxSpeed) {
+            for (int i = 0; i < m_numModules; ++i) {
+                m_desiredSpeed[i] = m_desiredSpeed[i] / realMaxSpeed * maxSpeed;
+            }
+        }
+    }
+
+    private boolean allModulesShouldFlip() {
+        for (int i = 0; i < m_numModules; ++i) {
+            double prevSign = m_prevSpeed[i] < 0.0 ? -1.0 : 1.0;
+            double desiredSign = m_desiredSpeed[i] < 0.0 ? -1.0 : 1.0;
+            double required_rotation_rad = Math.abs(relativeRadians(
+                    prevSign * m_prevCos[i], prevSign * m_prevSin[i],
+                    desiredSign * m_desiredCos[i], desiredSign * m_desiredSin[i]));
+            if (required_rotation_rad < Math.PI / 2.0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double enforceSteeringVelocityLimit(KinematicLimits limits, double dt, boolean needToSteer) {
+        double min_s = 1.0;
+        final double max_theta_step = dt * limits.kMaxSteeringVelocity;
+        for (int i = 0; i < m_numModules; ++i) {
+            if (!needToSteer) {
+                setOverride(i, m_prevCos[i], m_prevSin[i], m_prevRadians[i]);
+                continue;
+            }
+            m_hasOverride[i] = false;
+            if (Util.epsilonEquals(m_prevSpeed[i], 0.0)) {
+                // If module is stopped, we know that we will need to move straight to the final
+                // steering angle, so limit based purely on rotation in place.
+                if (Util.epsilonEquals(m_desiredSpeed[i], 0.0)) {
+                    // Goal angle doesn't matter. Just leave module at its current angle.
+                    setOverride(i, m_prevCos[i], m_prevSin[i], m_prevRadians[i]);
+                    continue;
+                }
+                double necessaryRotation = relativeRadians(
+                        m_prevCos[i], m_prevSin[i], m_desiredCos[i], m_desiredSin[i]);
+                if (Math.abs(necessaryRotation) > Math.PI / 2.0) {
+                    // Rotation2d.kPi has no trig, so this is the radians path.
+                    necessaryRotation = wrapRadians(necessaryRotation + Math.PI);
+                }
+                final double numStepsNeeded = Math.abs(necessaryRotation) / max_theta_step;
+                if (numStepsNeeded <= 1.0) {
+                    // Steer directly to goal angle.
+                    setOverride(i, m_desiredCos[i], m_desiredSin[i], Double.NaN);
+                } else {
+                    // Adjust steering by max_theta_step.
+                    setOverride(i, Double.NaN, Double.NaN, wrapRadians(m_prevRadians[i]
+                            + wrapRadians(Math.signum(necessaryRotation) * max_theta_step)));
+                    min_s = 0.0;
+                }
+                continue;
+            }
+            if (min_s == 0.0) {
+                // s can't get any lower. Save some CPU.
+                continue;
+            }
+            double prevHeading = m_prevSpeed[i] < 0.0
+                    ? Math.atan2(-m_prevSin[i], -m_prevCos[i])
+                    : m_prevRadians[i];
+            double desiredHeading = m_desiredSpeed[i] < 0.0
+                    ? Math.atan2(-m_desiredSin[i], -m_desiredCos[i])
+                    : Math.atan2(m_desiredSin[i], m_desiredCos[i]);
+            double s = SwerveSetpointGenerator.findSteeringMaxS(prevVx(i), prevVy(i), prevHeading,
+                    desiredVx(i), desiredVy(i), desiredHeading, max_theta_step);
+            min_s = Math.min(min_s, s);
+        }
+        return min_s;
+    }
+
+    private double enforceDriveWheelAccelerationLimit(KinematicLimits limits, double dt, double min_s) {
+        final double max_vel_step = dt * limits.kMaxDriveAcceleration;
+        for (int i = 0; i < m_numModules; ++i) {
+            if (min_s == 0.0) {
+                break;
+            }
+            double prevVx = prevVx(i);
+            double prevVy = prevVy(i);
+            double vx_min_s = min_s == 1.0 ? desiredVx(i) : (desiredVx(i) - prevVx) * min_s + prevVx;
+            double vy_min_s = min_s == 1.0 ? desiredVy(i) : (desiredVy(i) - prevVy) * min_s + prevVy;
+            double s = min_s * SwerveSetpointGenerator.findDriveMaxS(prevVx, prevVy, vx_min_s, vy_min_s,
+                    max_vel_step);
+            min_s = Math.min(min_s, s);
+        }
+        return min_s;
+    }
+
+    private void newStates(double vx, double vy, double omega, SwerveModuleState[] out) {
+        toModuleStates(vx, vy, omega);
+        for (int i = 0; i < m_numModules; ++i) {
+            double x = m_states[i * 2];
+            double y = m_states[i * 2 + 1];
+            double speed = Math.hypot(x, y);
+            double cos = 1.0;
+            double sin = 0.0;
+            double radians = Double.NaN;
+            if (speed > Util.kEpsilon) {
+                cos = x / speed;
+                sin = y / speed;
+            }
+            if (m_hasOverride[i]) {
+                double overrideCos = m_overrideCos[i];
+                double overrideSin = m_overrideSin[i];
+                double overrideRadians = m_overrideRadians[i];
+                double toOverride = Double.isNaN(overrideCos)
+                        ? wrapRadians(Math.atan2(-sin, cos) + overrideRadians)
+                        : relativeRadians(cos, sin, overrideCos, overrideSin);
+                if (Math.abs(toOverride) > Math.PI / 2.0) {
+                    speed *= -1.0;
+                }
+                cos = overrideCos;
+                sin = overrideSin;
+                radians = overrideRadians;
+            }
+            double deltaRotation = Double.isNaN(cos)
+                    ? wrapRadians(Math.atan2(-m_prevSin[i], m_prevCos[i]) + radians)
+                    : relativeRadians(m_prevCos[i], m_prevSin[i], cos, sin);
+            if (Math.abs(deltaRotation) > Math.PI / 2.0) {
+                if (Double.isNaN(cos)) {
+                    radians = wrapRadians(radians + Math.PI);
+                } else {
+                    cos = -cos;
+                    sin = -sin;
+                    radians = Double.NaN;
+                }
+                speed *= -1.0;
+            }
+            SwerveModuleState state = out[i];
+            state.speedMetersPerSecond = speed;
+            state.distanceMeters = 0;
+            if (!(state.angle instanceof MutableRotation2d)) {
+                state.angle = new MutableRotation2d();
+            }
+            ((MutableRotation2d) state.angle).set(cos, sin, radians);
+        }
+    }
+
+    private void setOverride(int i, double cos, double sin, double radians) {
+        m_hasOverride[i] = true;
+        m_overrideCos[i] = cos;
+        m_overrideSin[i] = sin;
+        m_overrideRadians[i] = radians;
+    }
+
+    private double prevVx(int i) {
+        return m_prevCos[i] * m_prevSpeed[i];
+    }
+
+    private double prevVy(int i) {
+        return m_prevSin[i] * m_prevSpeed[i];
+    }
+
+    private double desiredVx(int i) {
+        return m_desiredCos[i] * m_desiredSpeed[i];
+    }
+
+    private double desiredVy(int i) {
+        return m_desiredSin[i] * m_desiredSpeed[i];
+    }
+
+    private static boolean isStopped(double vx, double vy, double omega) {
+        return Util.epsilonEquals(vx, 0.0, Util.kEpsilon)
+                && Util.epsilonEquals(vy, 0.0, Util.kEpsilon)
+                && Util.epsilonEquals(omega, 0.0, Util.kEpsilon);
+    }
+
+    /**
+     * Same as from.inverse().rotateBy(to).getRadians() where both have trig,
+     * including the normalization.
+     */
+    private static double relativeRadians(double fromCos, double fromSin, double toCos, double toSin) {
+        double inverseSin = -fromSin;
+        double x = fromCos * toCos - inverseSin * toSin;
+        double y = fromCos * toSin + inverseSin * toCos;
+        double magnitude = Math.hypot(x, y);
+        if (magnitude > Util.kEpsilon) {
+            return Math.atan2(y / magnitude, x / magnitude);
+        }
+        return 0.0;
+    }
+
+    /** Same as Rotation2d.WrapRadians. */
+    private static double wrapRadians(double radians) {
+        final double k2Pi = 2.0 * Math.PI;
+        radians = radians % k2Pi;
+        radians = (radians + k2Pi) % k2Pi;
+        if (radians > Math.PI)
+            radians -= k2Pi;
+        return radians;
+    }
+}
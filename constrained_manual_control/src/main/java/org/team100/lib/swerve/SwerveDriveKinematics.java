@@ -2,6 +2,7 @@ package org.team100.lib.swerve;
 
 import org.team100.lib.geometry.Rotation2d;
 import org.team100.lib.geometry.Translation2d;
+import org.team100.lib.util.Util;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -46,12 +47,18 @@ import org.ejml.simple.SimpleMatrix;
  */
 public class SwerveDriveKinematics {
     private final SimpleMatrix m_inverseKinematics;
-    private final SimpleMatrix m_forwardKinematics;
 
     private final int m_numModules;
     private final Translation2d[] m_modules;
     private Translation2d m_prevCoR = new Translation2d();
-    private final Rotation2d[] m_rotations;
+
+    /**
+     * Inverse kinematics about the physical center, row-major, 2n x 3. Unlike
+     * m_inverseKinematics this never changes.
+     */
+    private final double[] m_inverse;
+    /** Pseudo-inverse of m_inverse, row-major, 3 x 2n. */
+    private final double[] m_forward;
 
     /**
      * Constructs a swerve drive kinematics object. This takes in a variable number
@@ -73,14 +80,21 @@ public class SwerveDriveKinematics {
         m_numModules = wheelsMeters.length;
         m_modules = Arrays.copyOf(wheelsMeters, m_numModules);
         m_inverseKinematics = new SimpleMatrix(m_numModules * 2, 3);
-        m_rotations = new Rotation2d[m_numModules];
 
         for (int i = 0; i < m_numModules; i++) {
             m_inverseKinematics.setRow(i * 2 + 0, 0, /* Start Data */ 1, 0, -m_modules[i].y());
             m_inverseKinematics.setRow(i * 2 + 1, 0, /* Start Data */ 0, 1, +m_modules[i].x());
-            m_rotations[i] = new Rotation2d(m_modules[i].x(), m_modules[i].y(), true);
         }
-        m_forwardKinematics = m_inverseKinematics.pseudoInverse();
+        SimpleMatrix forwardKinematics = m_inverseKinematics.pseudoInverse();
+        int rows = m_numModules * 2;
+        m_inverse = new double[rows * 3];
+        m_forward = new double[3 * rows];
+        for (int row = 0; row < rows; ++row) {
+            for (int col = 0; col < 3; ++col) {
+                m_inverse[row * 3 + col] = m_inverseKinematics.get(row, col);
+                m_forward[col * rows + row] = forwardKinematics.get(col, row);
+            }
+        }
     }
 
     /**
@@ -191,60 +205,151 @@ public class SwerveDriveKinematics {
                     "Number of modules is not consistent with number of wheel locations provided in "
                             + "constructor");
         }
-        var moduleStatesMatrix = new SimpleMatrix(m_numModules * 2, 1);
+        return new ChassisSpeeds(
+                forward(0, wheelStates),
+                forward(1, wheelStates),
+                forward(2, wheelStates));
+    }
 
-        for (int i = 0; i < m_numModules; i++) {
-            var module = wheelStates[i];
-            moduleStatesMatrix.set(i * 2, 0, module.speedMetersPerSecond * module.angle.cos());
-            moduleStatesMatrix.set(i * 2 + 1, module.speedMetersPerSecond * module.angle.sin());
+    /**
+     * One row of the forward kinematics, in the same order as EJML would do it,
+     * without allocating the vector.
+     */
+    private double forward(int row, SwerveModuleState[] wheelStates) {
+        int cols = m_numModules * 2;
+        SwerveModuleState module = wheelStates[0];
+        double total = m_forward[row * cols] * (module.speedMetersPerSecond * module.angle.cos());
+        total += m_forward[row * cols + 1] * (module.speedMetersPerSecond * module.angle.sin());
+        for (int i = 1; i < m_numModules; i++) {
+            module = wheelStates[i];
+            total += m_forward[row * cols + i * 2] * (module.speedMetersPerSecond * module.angle.cos());
+            total += m_forward[row * cols + i * 2 + 1] * (module.speedMetersPerSecond * module.angle.sin());
         }
-
-        var chassisSpeedsVector = m_forwardKinematics.mult(moduleStatesMatrix);
-        return new ChassisSpeeds(
-                chassisSpeedsVector.get(0, 0),
-                chassisSpeedsVector.get(1, 0),
-                chassisSpeedsVector.get(2, 0));
+        return total;
     }
 
+    /**
+     * Chassis speed that best satisfies each wheel's rolling constraint: speed
+     * along the wheel equal to the wheel speed, and no speed across it.
+     *
+     * <p>
+     * The constraints for each wheel are just its velocity rows of the inverse
+     * kinematics, rotated into the wheel frame, and a rotation doesn't change a
+     * least-squares solution, so this is the same as
+     * {@link #toChassisSpeeds(SwerveModuleState...)}, using the cached
+     * pseudo-inverse instead of a new one every time.
+     */
     public ChassisSpeeds toChasisSpeedWheelConstraints(SwerveModuleState... wheelStates) {
         if (wheelStates.length != m_numModules) {
             throw new IllegalArgumentException(
                     "Number of modules is not consistent with number of wheel locations provided in "
                             + "constructor");
         }
-        var constraintsMatrix = new SimpleMatrix(m_numModules * 2, 3);
-        for (int i = 0; i < m_numModules; i++) {
-            var module = wheelStates[i];
-
-            var beta = module.angle.rotateBy(
-                    m_rotations[i].inverse()).rotateBy(Rotation2d.fromRadians(Math.PI / 2.0));
+        return toChassisSpeeds(wheelStates);
+    }
 
-            // System.out.println(module);
-            constraintsMatrix.setRow(i * 2, 0,
-                    module.angle.cos(),
-                    module.angle.sin(),
-                    -m_modules[i].norm() * beta.cos());
-            constraintsMatrix.setRow(i * 2 + 1, 0,
-                    -module.angle.sin(),
-                    module.angle.cos(),
-                    m_modules[i].norm() * beta.sin());
+    /**
+     * Batch inverse kinematics, about the physical center, into module velocity
+     * components.
+     *
+     * @param chassisSpeeds    vx, vy, omega for each of count entries.
+     * @param moduleVelocities output, vx, vy for each module, for each entry.
+     * @param count            number of entries.
+     */
+    public void toModuleVelocities(double[] chassisSpeeds, double[] moduleVelocities, int count) {
+        int rows = m_numModules * 2;
+        for (int k = 0; k < count; ++k) {
+            double vx = chassisSpeeds[k * 3];
+            double vy = chassisSpeeds[k * 3 + 1];
+            double omega = chassisSpeeds[k * 3 + 2];
+            for (int row = 0; row < rows; ++row) {
+                double total = m_inverse[row * 3] * vx;
+                total += m_inverse[row * 3 + 1] * vy;
+                total += m_inverse[row * 3 + 2] * omega;
+                moduleVelocities[k * rows + row] = total;
+            }
         }
-        // System.out.println(constraintsMatrix);
+    }
 
-        var psuedoInv = constraintsMatrix.pseudoInverse();
+    /**
+     * Batch inverse kinematics, about the physical center, into module speeds and
+     * angles, same as {@link #toSwerveModuleStates(ChassisSpeeds)}: speeds are not
+     * negative, and a stopped module has zero angle.
+     *
+     * @param chassisSpeeds vx, vy, omega for each of count entries.
+     * @param speeds        output, for each module, for each entry.
+     * @param angles        output, radians, for each module, for each entry.
+     * @param count         number of entries.
+     */
+    public void toModuleStates(double[] chassisSpeeds, double[] speeds, double[] angles, int count) {
+        for (int k = 0; k < count; ++k) {
+            double vx = chassisSpeeds[k * 3];
+            double vy = chassisSpeeds[k * 3 + 1];
+            double omega = chassisSpeeds[k * 3 + 2];
+            for (int i = 0; i < m_numModules; ++i) {
+                int row = i * 2;
+                double x = m_inverse[row * 3] * vx;
+                x += m_inverse[row * 3 + 1] * vy;
+                x += m_inverse[row * 3 + 2] * omega;
+                row++;
+                double y = m_inverse[row * 3] * vx;
+                y += m_inverse[row * 3 + 1] * vy;
+                y += m_inverse[row * 3 + 2] * omega;
+                double speed = Math.hypot(x, y);
+                speeds[k * m_numModules + i] = speed;
+                angles[k * m_numModules + i] = speed > Util.kEpsilon ? Math.atan2(y / speed, x / speed) : 0.0;
+            }
+        }
+    }
 
-        var enforcedConstraints = new SimpleMatrix(m_numModules * 2, 1);
-        for (int i = 0; i < m_numModules; i++) {
-            enforcedConstraints.setRow(i * 2, 0, wheelStates[i].speedMetersPerSecond);
-            enforcedConstraints.setRow(i * 2 + 1, 0, 0);
+    /**
+     * Batch forward kinematics from module velocity components.
+     *
+     * @param moduleVelocities vx, vy for each module, for each of count entries.
+     * @param chassisSpeeds    output, vx, vy, omega for each entry.
+     * @param count            number of entries.
+     */
+    public void toChassisSpeeds(double[] moduleVelocities, double[] chassisSpeeds, int count) {
+        int cols = m_numModules * 2;
+        for (int k = 0; k < count; ++k) {
+            int offset = k * cols;
+            for (int row = 0; row < 3; ++row) {
+                double total = m_forward[row * cols] * moduleVelocities[offset];
+                for (int col = 1; col < cols; ++col) {
+                    total += m_forward[row * cols + col] * moduleVelocities[offset + col];
+                }
+                chassisSpeeds[k * 3 + row] = total;
+            }
         }
-        // System.out.println(enforcedConstraints);
+    }
 
-        var chassisSpeedsVector = psuedoInv.mult(enforcedConstraints);
-        return new ChassisSpeeds(
-                chassisSpeedsVector.get(0, 0),
-                chassisSpeedsVector.get(1, 0),
-                chassisSpeedsVector.get(2, 0));
+    /**
+     * Batch forward kinematics from module speeds and angles.
+     *
+     * @param speeds        for each module, for each of count entries.
+     * @param angles        radians, for each module, for each entry.
+     * @param chassisSpeeds output, vx, vy, omega for each entry.
+     * @param count         number of entries.
+     */
+    public void toChassisSpeeds(double[] speeds, double[] angles, double[] chassisSpeeds, int count) {
+        int cols = m_numModules * 2;
+        for (int k = 0; k < count; ++k) {
+            double vx = 0;
+            double vy = 0;
+            double omega = 0;
+            for (int i = 0; i < m_numModules; ++i) {
+                double speed = speeds[k * m_numModules + i];
+                double angle = angles[k * m_numModules + i];
+                double x = speed * Math.cos(angle);
+                double y = speed * Math.sin(angle);
+                vx += m_forward[i * 2] * x + m_forward[i * 2 + 1] * y;
+                vy += m_forward[cols + i * 2] * x + m_forward[cols + i * 2 + 1] * y;
+                omega += m_forward[2 * cols + i * 2] * x + m_forward[2 * cols + i * 2 + 1] * y;
+            }
+            chassisSpeeds[k * 3] = vx;
+            chassisSpeeds[k * 3 + 1] = vy;
+            chassisSpeeds[k * 3 + 2] = omega;
+        }
     }
 
     /**
@@ -151,7 +151,7 @@ public class SwerveSetpointGenerator {
         return Math.abs(prevToGoal.getRadians()) > Math.PI / 2.0;
     }
 
-    private double unwrapAngle(double ref, double angle) {
+    static double unwrapAngle(double ref, double angle) {
         double diff = angle - ref;
         if (diff > Math.PI) {
             return angle - 2.0 * Math.PI;
@@ -162,52 +162,17 @@ public class SwerveSetpointGenerator {
         }
     }
 
-    @FunctionalInterface
-    private interface Function2d {
-        public double f(double x, double y);
-    }
-
     /**
-     * Find the root of the generic 2D parametric function 'func' using the regula
-     * falsi technique. This is a pretty naive way to
-     * do root finding, but it's usually faster than simple bisection while being
-     * robust in ways that e.g. the Newton-Raphson
-     * method isn't.
-     * 
-     * @param func            The Function2d to take the root of.
-     * @param x_0             x value of the lower bracket.
-     * @param y_0             y value of the lower bracket.
-     * @param f_0             value of 'func' at x_0, y_0 (passed in by caller to
-     *                        save a call to 'func' during recursion)
-     * @param x_1             x value of the upper bracket.
-     * @param y_1             y value of the upper bracket.
-     * @param f_1             value of 'func' at x_1, y_1 (passed in by caller to
-     *                        save a call to 'func' during recursion)
-     * @param iterations_left Number of iterations of root finding left.
-     * @return The parameter value 's' that interpolating between 0 and 1 that
-     *         corresponds to the (approximate) root.
+     * How far, from 0 to 1, the velocity can go from (x_0, y_0) towards (x_1,
+     * y_1) before its heading has turned by max_deviation. The heading of the
+     * interpolated velocity reaches the limit where the velocity crosses the line
+     * through the origin at the limit angle, and the interpolation is linear, so
+     * that's just a line intersection.
+     *
+     * The segment sweeps less than half a turn, so there's only one crossing.
      */
-    private double findRoot(Function2d func, double x_0, double y_0, double f_0, double x_1, double y_1, double f_1,
-            int iterations_left) {
-        if (iterations_left < 0 || Util.epsilonEquals(f_0, f_1)) {
-            return 1.0;
-        }
-        var s_guess = Math.max(0.0, Math.min(1.0, -f_0 / (f_1 - f_0)));
-        var x_guess = (x_1 - x_0) * s_guess + x_0;
-        var y_guess = (y_1 - y_0) * s_guess + y_0;
-        var f_guess = func.f(x_guess, y_guess);
-        if (Math.signum(f_0) == Math.signum(f_guess)) {
-            // 0 and guess on same side of root, so use upper bracket.
-            return s_guess
-                    + (1.0 - s_guess) * findRoot(func, x_guess, y_guess, f_guess, x_1, y_1, f_1, iterations_left - 1);
-        } else {
-            // Use lower bracket.
-            return s_guess * findRoot(func, x_0, y_0, f_0, x_guess, y_guess, f_guess, iterations_left - 1);
-        }
-    }
-
-    protected double findSteeringMaxS(double x_0, double y_0, double f_0, double x_1, double y_1, double f_1,
-            double max_deviation, int max_iterations) {
+    protected static double findSteeringMaxS(double x_0, double y_0, double f_0, double x_1, double y_1, double f_1,
+            double max_deviation) {
         f_1 = unwrapAngle(f_0, f_1);
         double diff = f_1 - f_0;
         if (Math.abs(diff) <= max_deviation) {
@@ -215,27 +180,22 @@ public class SwerveSetpointGenerator {
             return 1.0;
         }
         double offset = f_0 + Math.signum(diff) * max_deviation;
-        Function2d func = (x, y) -> {
-            return unwrapAngle(f_0, Math.atan2(y, x)) - offset;
-        };
-        return findRoot(func, x_0, y_0, f_0 - offset, x_1, y_1, f_1 - offset, max_iterations);
-    }
-
-    protected double findDriveMaxS(double x_0, double y_0, double f_0, double x_1, double y_1, double f_1,
-            double max_vel_step, int max_iterations) {
-        double diff = f_1 - f_0;
-        if (Math.abs(diff) <= max_vel_step) {
-            // Can go all the way to s=1.
+        double cos = Math.cos(offset);
+        double sin = Math.sin(offset);
+        // cross product of the limit direction and the velocity is zero:
+        // cos * ((y_1 - y_0) * s + y_0) - sin * ((x_1 - x_0) * s + x_0) = 0
+        double denominator = sin * (x_1 - x_0) - cos * (y_1 - y_0);
+        if (Math.abs(denominator) < Util.kEpsilon) {
             return 1.0;
         }
-        double offset = f_0 + Math.signum(diff) * max_vel_step;
-        Function2d func = (x, y) -> {
-            return Math.hypot(x, y) - offset;
-        };
-        return findRoot(func, x_0, y_0, f_0 - offset, x_1, y_1, f_1 - offset, max_iterations);
+        return Math.max(0.0, Math.min(1.0, (cos * y_0 - sin * x_0) / denominator));
     }
 
-    protected double findDriveMaxS(double x_0, double y_0, double x_1, double y_1, double max_vel_step) {
+    /**
+     * How far, from 0 to 1, the velocity can go from (x_0, y_0) towards (x_1,
+     * y_1) before its speed has changed by max_vel_step.
+     */
+    protected static double findDriveMaxS(double x_0, double y_0, double x_1, double y_1, double max_vel_step) {
         // Our drive velocity between s=0 and s=1 is quadratic in s:
         // v^2 = ((x_1 - x_0) * s + x_0)^2 + ((y_1 - y_0) * s + y_0)^2
         // = a * s^2 + b * s + c
@@ -246,14 +206,24 @@ public class SwerveSetpointGenerator {
         // We want to find where this quadratic results in a velocity that is >
         // max_vel_step from our velocity at s=0:
         // sqrt(x_0^2 + y_0^2) +/- max_vel_step = ...quadratic...
+        final double v_0 = Math.hypot(x_0, y_0);
+        final double diff = Math.hypot(x_1, y_1) - v_0;
+        if (Math.abs(diff) <= max_vel_step) {
+            // Can go all the way to s=1.
+            return 1.0;
+        }
         final double dx = x_1 - x_0;
         final double dy = y_1 - y_0;
         final double a = dx * dx + dy * dy;
         final double b = 2.0 * x_0 * dx + 2.0 * y_0 * dy;
         final double c = x_0 * x_0 + y_0 * y_0;
-        final double v_limit_upper_2 = Math.pow(Math.hypot(x_0, y_0) + max_vel_step, 2.0);
-        final double v_limit_lower_2 = Math.pow(Math.hypot(x_0, y_0) - max_vel_step, 2.0);
-        return 0.0;
+        final double v_limit = v_0 + Math.signum(diff) * max_vel_step;
+        // The limit is crossed exactly once in (0, 1). Speeding up, s=0 is between
+        // the roots, so it's the upper one. Slowing down, v_limit is positive (or
+        // we'd have returned above), s=0 is outside, so it's the lower one.
+        final double root = Math.sqrt(Math.max(0.0, b * b - 4.0 * a * (c - v_limit * v_limit)));
+        final double s = diff > 0 ? (-b + root) / (2.0 * a) : (-b - root) / (2.0 * a);
+        return Math.max(0.0, Math.min(1.0, s));
     }
 
     private boolean allModulesShouldFlip(
@@ -367,10 +337,9 @@ public class SwerveSetpointGenerator {
                 continue;
             }
 
-            final int kMaxIterations = 8;
             double s = findSteeringMaxS(prev_[i].vx, prev_[i].vy, prev_[i].heading.getRadians(),
                     desired_[i].vx, desired_[i].vy, desired_[i].heading.getRadians(),
-                    max_theta_step, kMaxIterations);
+                    max_theta_step);
             min_s = Math.min(min_s, s);
         }
         return min_s;
@@ -436,13 +405,7 @@ public class SwerveSetpointGenerator {
             // Find the max s for this drive wheel. Search on the interval between 0 and
             // min_s, because we already know we can't go faster
             // than that.
-            // TODO(for efficiency, do all this on v^2 to save a bunch of sqrts)
-            // TODO(be smarter about root finding, since this is just a quadratic in s:
-            // ((xf-x0)*s+x0)^2+((yf-y0)*s+y0)^2)
-            final int kMaxIterations = 10;
-            double s = min_s * findDriveMaxS(prev_[i].vx, prev_[i].vy, Math.hypot(prev_[i].vx, prev_[i].vy),
-                    vx_min_s, vy_min_s, Math.hypot(vx_min_s, vy_min_s),
-                    max_vel_step, kMaxIterations);
+            double s = min_s * findDriveMaxS(prev_[i].vx, prev_[i].vy, vx_min_s, vy_min_s, max_vel_step);
             min_s = Math.min(min_s, s);
         }
         return min_s;
@@ -0,0 +1,129 @@
+package org.team100.lib.swerve;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.geometry.Rotation2d;
+import org.team100.lib.geometry.Translation2d;
+
+public class FastSwerveSetpointGeneratorTest {
+    private static final double kRobotSide = 0.616; // m
+    private static final SwerveDriveKinematics kKinematics = new SwerveDriveKinematics(
+            new Translation2d(kRobotSide / 2.0, kRobotSide / 2.0),
+            new Translation2d(kRobotSide / 2.0, -kRobotSide / 2.0),
+            new Translation2d(-kRobotSide / 2.0, kRobotSide / 2.0),
+            new Translation2d(-kRobotSide / 2.0, -kRobotSide / 2.0));
+    private static final SwerveSetpointGenerator.KinematicLimits kLimits = new SwerveSetpointGenerator.KinematicLimits();
+    static {
+        kLimits.kMaxDriveVelocity = 5.0; // m/s
+        kLimits.kMaxDriveAcceleration = 10.0; // m/s^2
+        kLimits.kMaxSteeringVelocity = Math.toRadians(1500.0); // rad/s
+    }
+    private static final double kDt = 0.01; // s
+
+    /** Random goals, including stops and reversals, held for a random time. */
+    private static ChassisSpeeds randomGoal(Random random) {
+        switch (random.nextInt(5)) {
+            case 0:
+                return new ChassisSpeeds();
+            case 1:
+                // pure rotation
+                return new ChassisSpeeds(0, 0, 8 * random.nextDouble() - 4);
+            default:
+                // often too fast, to exercise desaturation
+                return new ChassisSpeeds(
+                        12 * random.nextDouble() - 6,
+                        12 * random.nextDouble() - 6,
+                        8 * random.nextDouble() - 4);
+        }
+    }
+
+    /** Angles built from degrees have no trig, which takes different paths. */
+    private static SwerveSetpoint randomSetpoint(Random random) {
+        SwerveModuleState[] states = new SwerveModuleState[4];
+        for (int i = 0; i < 4; ++i) {
+            double speed = random.nextBoolean() ? 0 : 4 * random.nextDouble() - 2;
+            states[i] = new SwerveModuleState(speed, Rotation2d.fromDegrees(360 * random.nextDouble() - 180));
+        }
+        ChassisSpeeds speeds = random.nextBoolean()
+                ? new ChassisSpeeds()
+                : new ChassisSpeeds(2 * random.nextDouble() - 1, 2 * random.nextDouble() - 1, 0);
+        return new SwerveSetpoint(speeds, states);
+    }
+
+    private static SwerveSetpoint copy(SwerveSetpoint setpoint) {
+        SwerveModuleState[] states = new SwerveModuleState[setpoint.mModuleStates.length];
+        for (int i = 0; i < states.length; ++i) {
+            SwerveModuleState s = setpoint.mModuleStates[i];
+            states[i] = new SwerveModuleState(s.speedMetersPerSecond, new Rotation2d(s.angle));
+        }
+        ChassisSpeeds c = setpoint.mChassisSpeeds;
+        return new SwerveSetpoint(
+                new ChassisSpeeds(c.vxMetersPerSecond, c.vyMetersPerSecond, c.omegaRadiansPerSecond),
+                states);
+    }
+
+    private static void assertIdentical(SwerveSetpoint expected, SwerveSetpoint actual) {
+        assertEquals(expected.mChassisSpeeds.vxMetersPerSecond, actual.mChassisSpeeds.vxMetersPerSecond);
+        assertEquals(expected.mChassisSpeeds.vyMetersPerSecond, actual.mChassisSpeeds.vyMetersPerSecond);
+        assertEquals(expected.mChassisSpeeds.omegaRadiansPerSecond, actual.mChassisSpeeds.omegaRadiansPerSecond);
+        for (int i = 0; i < expected.mModuleStates.length; ++i) {
+            SwerveModuleState e = expected.mModuleStates[i];
+            SwerveModuleState a = actual.mModuleStates[i];
+            assertEquals(e.speedMetersPerSecond, a.speedMetersPerSecond);
+            assertEquals(e.distanceMeters, a.distanceMeters);
+            assertEquals(e.angle.getRadians(), a.angle.getRadians());
+            assertEquals(e.angle.cos(), a.angle.cos());
+            assertEquals(e.angle.sin(), a.angle.sin());
+        }
+    }
+
+    @Test
+    public void testIdentical() {
+        Random random = new Random(100);
+        SwerveSetpointGenerator reference = new SwerveSetpointGenerator(kKinematics);
+        FastSwerveSetpointGenerator fast = new FastSwerveSetpointGenerator(kKinematics);
+        for (int trial = 0; trial < 200; ++trial) {
+            SwerveSetpoint expected = randomSetpoint(random);
+            // one fast output is separate, the other overwrites its input.
+            SwerveSetpoint prev = copy(expected);
+            SwerveSetpoint next = fast.newSetpoint();
+            SwerveSetpoint inPlace = copy(expected);
+            for (int goals = 0; goals < 5; ++goals) {
+                ChassisSpeeds goal = randomGoal(random);
+                int steps = random.nextInt(100);
+                for (int step = 0; step < steps; ++step) {
+                    expected = reference.generateSetpoint(kLimits, expected, goal, kDt);
+                    fast.generateSetpoint(kLimits, prev, goal, kDt, next);
+                    fast.generateSetpoint(kLimits, inPlace, goal, kDt, inPlace);
+                    assertIdentical(expected, next);
+                    assertIdentical(expected, inPlace);
+                    SwerveSetpoint tmp = prev;
+                    prev = next;
+                    next = tmp;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNoVelocityLimit() {
+        SwerveSetpointGenerator.KinematicLimits limits = new SwerveSetpointGenerator.KinematicLimits();
+        limits.kMaxDriveVelocity = 0;
+        limits.kMaxDriveAcceleration = 10.0;
+        limits.kMaxSteeringVelocity = 10.0;
+        Random random = new Random(100);
+        SwerveSetpointGenerator reference = new SwerveSetpointGenerator(kKinematics);
+        FastSwerveSetpointGenerator fast = new FastSwerveSetpointGenerator(kKinematics);
+        SwerveSetpoint expected = randomSetpoint(random);
+        SwerveSetpoint actual = copy(expected);
+        for (int step = 0; step < 1000; ++step) {
+            ChassisSpeeds goal = step % 100 == 0 ? randomGoal(random) : new ChassisSpeeds(1, 0, 0);
+            expected = reference.generateSetpoint(limits, expected, goal, kDt);
+            fast.generateSetpoint(limits, actual, goal, kDt, actual);
+            assertIdentical(expected, actual);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.team100.lib.swerve;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the closed-form limit solvers in SwerveSetpointGenerator against the
+ * limits themselves, over a random sweep; see SetpointSolverBenchmark for the
+ * comparison with the original iterative ones.
+ */
+public class SetpointSolverTest {
+    private static final int kCases = 10000;
+    private static final double kMaxThetaStep = Math.toRadians(1500.0) * 0.01;
+    private static final double kMaxVelStep = 10.0 * 0.01;
+
+    /** x0, y0, x1, y1 per case, away from the origin. */
+    private static double[] randomCases(Random random) {
+        double[] cases = new double[kCases * 4];
+        for (int i = 0; i < cases.length; i += 2) {
+            double x;
+            double y;
+            do {
+                x = 6 * random.nextDouble() - 3;
+                y = 6 * random.nextDouble() - 3;
+            } while (Math.hypot(x, y) < 0.1);
+            cases[i] = x;
+            cases[i + 1] = y;
+        }
+        return cases;
+    }
+
+    /** Heading change from x0, y0 to the interpolated velocity at s. */
+    private static double turn(double[] c, int i, double s) {
+        double x = c[i] + s * (c[i + 2] - c[i]);
+        double y = c[i + 1] + s * (c[i + 3] - c[i + 1]);
+        return Math.abs(Math.IEEEremainder(Math.atan2(y, x) - Math.atan2(c[i + 1], c[i]), 2 * Math.PI));
+    }
+
+    /** Speed change from x0, y0 to the interpolated velocity at s. */
+    private static double speedChange(double[] c, int i, double s) {
+        double x = c[i] + s * (c[i + 2] - c[i]);
+        double y = c[i + 1] + s * (c[i + 3] - c[i + 1]);
+        return Math.abs(Math.hypot(x, y) - Math.hypot(c[i], c[i + 1]));
+    }
+
+    @Test
+    public void testSteering() {
+        double[] c = randomCases(new Random(100));
+        int limited = 0;
+        for (int i = 0; i < c.length; i += 4) {
+            double f0 = Math.atan2(c[i + 1], c[i]);
+            double f1 = Math.atan2(c[i + 3], c[i + 2]);
+            double s = SwerveSetpointGenerator.findSteeringMaxS(
+                    c[i], c[i + 1], f0, c[i + 2], c[i + 3], f1, kMaxThetaStep);
+            if (s < 1.0) {
+                // exactly at the limit
+                assertEquals(kMaxThetaStep, turn(c, i, s), 1e-9);
+                limited++;
+            }
+            // and never past it on the way
+            for (int k = 0; k <= 8; ++k) {
+                assertTrue(turn(c, i, s * k / 8) <= kMaxThetaStep + 1e-9);
+            }
+        }
+        // most random pairs turn more than the limit
+        assertTrue(limited > kCases / 2);
+    }
+
+    @Test
+    public void testDrive() {
+        double[] c = randomCases(new Random(100));
+        int limited = 0;
+        for (int i = 0; i < c.length; i += 4) {
+            double s = SwerveSetpointGenerator.findDriveMaxS(c[i], c[i + 1], c[i + 2], c[i + 3], kMaxVelStep);
+            if (s < 1.0) {
+                assertEquals(kMaxVelStep, speedChange(c, i, s), 1e-9);
+                limited++;
+            } else {
+                assertTrue(speedChange(c, i, s) <= kMaxVelStep + 1e-9);
+            }
+            // the speed can dip further on the way, e.g. passing near the origin;
+            // the limit is only on where the step ends.
+        }
+        assertTrue(limited > kCases / 2);
+    }
+}
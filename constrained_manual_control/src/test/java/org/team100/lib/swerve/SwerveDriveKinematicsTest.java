@@ -0,0 +1,137 @@
+package org.team100.lib.swerve;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.ejml.simple.SimpleMatrix;
+import org.junit.jupiter.api.Test;
+import org.team100.lib.geometry.Rotation2d;
+import org.team100.lib.geometry.Translation2d;
+
+public class SwerveDriveKinematicsTest {
+    private static final double kDelta = 1e-9;
+    // not symmetric, to make the pseudo-inverse more interesting.
+    private static final Translation2d[] kModules = {
+            new Translation2d(0.3, 0.25),
+            new Translation2d(0.3, -0.25),
+            new Translation2d(-0.35, 0.2),
+            new Translation2d(-0.25, -0.3) };
+    private static final SwerveDriveKinematics kKinematics = new SwerveDriveKinematics(kModules);
+
+    @Test
+    public void testBatchInverse() {
+        Random random = new Random(100);
+        int count = 100;
+        double[] chassis = new double[count * 3];
+        for (int i = 0; i < chassis.length; ++i) {
+            chassis[i] = 6 * random.nextDouble() - 3;
+        }
+        // a stopped one
+        chassis[0] = 0;
+        chassis[1] = 0;
+        chassis[2] = 0;
+        double[] speeds = new double[count * 4];
+        double[] angles = new double[count * 4];
+        double[] velocities = new double[count * 8];
+        kKinematics.toModuleStates(chassis, speeds, angles, count);
+        kKinematics.toModuleVelocities(chassis, velocities, count);
+        for (int k = 0; k < count; ++k) {
+            SwerveModuleState[] states = kKinematics.toSwerveModuleStates(
+                    new ChassisSpeeds(chassis[k * 3], chassis[k * 3 + 1], chassis[k * 3 + 2]));
+            for (int i = 0; i < 4; ++i) {
+                assertEquals(states[i].speedMetersPerSecond, speeds[k * 4 + i]);
+                assertEquals(states[i].angle.getRadians(), angles[k * 4 + i]);
+                assertEquals(states[i].speedMetersPerSecond * states[i].angle.cos(), velocities[k * 8 + i * 2], kDelta);
+                assertEquals(states[i].speedMetersPerSecond * states[i].angle.sin(), velocities[k * 8 + i * 2 + 1],
+                        kDelta);
+            }
+        }
+    }
+
+    @Test
+    public void testBatchForward() {
+        Random random = new Random(100);
+        int count = 100;
+        double[] speeds = new double[count * 4];
+        double[] angles = new double[count * 4];
+        double[] velocities = new double[count * 8];
+        for (int i = 0; i < speeds.length; ++i) {
+            speeds[i] = 4 * random.nextDouble() - 2;
+            angles[i] = 2 * Math.PI * random.nextDouble() - Math.PI;
+            velocities[i * 2] = speeds[i] * Math.cos(angles[i]);
+            velocities[i * 2 + 1] = speeds[i] * Math.sin(angles[i]);
+        }
+        double[] fromStates = new double[count * 3];
+        double[] fromVelocities = new double[count * 3];
+        kKinematics.toChassisSpeeds(speeds, angles, fromStates, count);
+        kKinematics.toChassisSpeeds(velocities, fromVelocities, count);
+        for (int k = 0; k < count; ++k) {
+            SwerveModuleState[] states = new SwerveModuleState[4];
+            for (int i = 0; i < 4; ++i) {
+                states[i] = new SwerveModuleState(speeds[k * 4 + i], new Rotation2d(angles[k * 4 + i], false));
+            }
+            ChassisSpeeds expected = kKinematics.toChassisSpeeds(states);
+            assertEquals(expected.vxMetersPerSecond, fromStates[k * 3], kDelta);
+            assertEquals(expected.vyMetersPerSecond, fromStates[k * 3 + 1], kDelta);
+            assertEquals(expected.omegaRadiansPerSecond, fromStates[k * 3 + 2], kDelta);
+            assertEquals(expected.vxMetersPerSecond, fromVelocities[k * 3], kDelta);
+            assertEquals(expected.vyMetersPerSecond, fromVelocities[k * 3 + 1], kDelta);
+            assertEquals(expected.omegaRadiansPerSecond, fromVelocities[k * 3 + 2], kDelta);
+        }
+    }
+
+    @Test
+    public void testRoundTrip() {
+        double[] chassis = { 1, -2, 0.5 };
+        double[] velocities = new double[8];
+        double[] result = new double[3];
+        kKinematics.toModuleVelocities(chassis, velocities, 1);
+        kKinematics.toChassisSpeeds(velocities, result, 1);
+        assertEquals(1, result[0], kDelta);
+        assertEquals(-2, result[1], kDelta);
+        assertEquals(0.5, result[2], kDelta);
+    }
+
+    /** The previous implementation: a new constraint matrix and pseudo-inverse every time. */
+    private static ChassisSpeeds wheelConstraints(SwerveModuleState[] wheelStates) {
+        SimpleMatrix constraintsMatrix = new SimpleMatrix(8, 3);
+        for (int i = 0; i < 4; i++) {
+            SwerveModuleState module = wheelStates[i];
+            Rotation2d rotation = new Rotation2d(kModules[i].x(), kModules[i].y(), true);
+            Rotation2d beta = module.angle.rotateBy(
+                    rotation.inverse()).rotateBy(Rotation2d.fromRadians(Math.PI / 2.0));
+            constraintsMatrix.setRow(i * 2, 0,
+                    module.angle.cos(),
+                    module.angle.sin(),
+                    -kModules[i].norm() * beta.cos());
+            constraintsMatrix.setRow(i * 2 + 1, 0,
+                    -module.angle.sin(),
+                    module.angle.cos(),
+                    kModules[i].norm() * beta.sin());
+        }
+        SimpleMatrix enforcedConstraints = new SimpleMatrix(8, 1);
+        for (int i = 0; i < 4; i++) {
+            enforcedConstraints.set(i * 2, 0, wheelStates[i].speedMetersPerSecond);
+        }
+        SimpleMatrix result = constraintsMatrix.pseudoInverse().mult(enforcedConstraints);
+        return new ChassisSpeeds(result.get(0, 0), result.get(1, 0), result.get(2, 0));
+    }
+
+    @Test
+    public void testWheelConstraints() {
+        Random random = new Random(100);
+        for (int k = 0; k < 100; ++k) {
+            SwerveModuleState[] states = new SwerveModuleState[4];
+            for (int i = 0; i < 4; ++i) {
+                states[i] = new SwerveModuleState(4 * random.nextDouble() - 2,
+                        Rotation2d.fromRadians(2 * Math.PI * random.nextDouble() - Math.PI));
+            }
+            ChassisSpeeds expected = wheelConstraints(states);
+            ChassisSpeeds actual = kKinematics.toChasisSpeedWheelConstraints(states);
+            assertEquals(expected.vxMetersPerSecond, actual.vxMetersPerSecond, kDelta);
+            assertEquals(expected.vyMetersPerSecond, actual.vyMetersPerSecond, kDelta);
+            assertEquals(expected.omegaRadiansPerSecond, actual.omegaRadiansPerSecond, kDelta);
+        }
+    }
+}
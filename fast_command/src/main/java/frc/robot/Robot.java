@@ -2,6 +2,7 @@ package frc.robot;
 
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.commands.FastScheduler;
 
 public class Robot extends TimedRobot {
     @SuppressWarnings("unused")
@@ -15,5 +16,6 @@ public class Robot extends TimedRobot {
     @Override
     public void robotPeriodic() {
         CommandScheduler.getInstance().run();
+        FastScheduler.getInstance().updateTelemetry();
     }
 }
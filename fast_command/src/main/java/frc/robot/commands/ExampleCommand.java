@@ -1,28 +1,54 @@
 package frc.robot.commands;
 
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.subsystems.ExampleSubsystem;
 
 public class ExampleCommand extends FastCommand {
+    /** What the fast loop needs from the main loop. */
+    private static class Input {
+        long cycle;
+    }
+
+    /** What the main loop gets back. */
+    private static class Output {
+        long cycle;
+        long fastCount;
+    }
+
     private final ExampleSubsystem m_subsystem;
+    private final TripleBuffer<Input> m_input = new TripleBuffer<>(Input::new);
+    private final TripleBuffer<Output> m_output = new TripleBuffer<>(Output::new);
+    // only the fast thread touches these
+    private long m_fastCount;
+    // only the main thread touches these
+    private long m_cycle;
 
     public ExampleCommand(ExampleSubsystem subsystem) {
+        super(5000);
         m_subsystem = subsystem;
         addRequirements(subsystem);
     }
 
     @Override
-    public void execute10ms() {
+    public void executeFast() {
+        Input input = m_input.read();
         m_subsystem.doTheThing();
+        m_fastCount++;
+        Output output = m_output.write();
+        output.cycle = input.cycle;
+        output.fastCount = m_fastCount;
+        m_output.publish();
     }
 
     @Override
-    public void initialize() {
-        super.initialize();
-    }
-
-    @Override
-    public void end(boolean interrupted) {
-        super.end(interrupted);
+    public void executeMain() {
+        Output output = m_output.read();
+        SmartDashboard.putNumber("ExampleCommand/main cycle", m_cycle);
+        SmartDashboard.putNumber("ExampleCommand/fast saw cycle", output.cycle);
+        SmartDashboard.putNumber("ExampleCommand/fast count", output.fastCount);
+        m_cycle++;
+        m_input.write().cycle = m_cycle;
+        m_input.publish();
     }
 
     @Override
@@ -1,42 +1,67 @@
 package frc.robot.commands;
 
-import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 
 /**
- * Command with faster loop in its own thread.
+ * Command with a faster loop, run by the FastScheduler thread.
  * 
  * Remember to call super from initialize() and end() to start and stop the
- * thread.
+ * fast loop.
+ * 
+ * executeFast() runs on the fast thread, and executeMain() runs in the main
+ * loop, so they shouldn't share anything except through a hand-off like
+ * TripleBuffer.
  */
 public abstract class FastCommand extends CommandBase {
-    private static final double kDtSec = 0.01;
-    private final Notifier notifier;
+    private static final long kDefaultPeriodUs = 10000;
+    private final FastScheduler m_scheduler;
+    private final long m_periodUs;
 
     public FastCommand() {
-        notifier = new Notifier(this::execute10ms);
+        this(kDefaultPeriodUs);
+    }
+
+    /** @param periodUs one of the scheduler's loop periods */
+    public FastCommand(long periodUs) {
+        this(FastScheduler.getInstance(), periodUs);
+    }
+
+    public FastCommand(FastScheduler scheduler, long periodUs) {
+        m_scheduler = scheduler;
+        m_periodUs = periodUs;
+        // fail now rather than when it's scheduled
+        scheduler.loop(periodUs);
     }
 
     @Override
     public void initialize() {
-        notifier.startPeriodic(kDtSec);
+        m_scheduler.add(this, m_periodUs);
     }
 
     /**
-     * Called by the notifier thread when the command is running.
+     * Called by the fast thread when the command is running.
      */
-    public abstract void execute10ms();
+    public abstract void executeFast();
+
+    /**
+     * Called by the main scheduler, every 20ms, to exchange data with the fast
+     * loop.
+     */
+    public void executeMain() {
+    }
 
     /**
      * The scheduler calls execute() at 20ms frequency.
-     * It's final to keep subclasses from touching it.
+     * It's final so subclasses use executeMain() instead, and think about
+     * threads.
      */
     @Override
     public final void execute() {
+        executeMain();
     }
 
     @Override
     public void end(boolean interrupted) {
-        notifier.stop();
+        m_scheduler.remove(this);
     }
 }
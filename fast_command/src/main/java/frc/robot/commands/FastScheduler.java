@@ -0,0 +1,226 @@
+package frc.robot.commands;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Threads;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Runs all the fast commands, at several rates, on one real-time thread,
+ * instead of one Notifier thread per command.
+ *
+ * There's one loop per rate. The thread wakes at the greatest common divisor
+ * of the rates and runs each loop that's due, in order of rate, fastest first.
+ * A loop that falls a whole period behind skips ahead rather than running
+ * twice in a row; that's counted as an overrun.
+ *
+ * Each loop records how long it took, and how far its period was from
+ * nominal, in histograms, see updateTelemetry().
+ *
+ * Commands are added and removed from the main loop, which replaces the
+ * loop's array, so the fast thread never takes a lock.
+ */
+public class FastScheduler implements AutoCloseable {
+    public static final long[] kDefaultPeriodsUs = new long[] { 2000, 5000, 10000 };
+    private static final int kPriority = 40;
+    private static final long kBinUs = 50;
+    private static final int kBins = 200;
+
+    private static FastScheduler instance;
+
+    /** Shared instance, with the default rates, started on first use. */
+    public static synchronized FastScheduler getInstance() {
+        if (instance == null) {
+            instance = new FastScheduler(RobotController::getFPGATime, kDefaultPeriodsUs);
+            instance.start();
+        }
+        return instance;
+    }
+
+    /** One rate. */
+    public static class Loop {
+        private final long m_periodUs;
+        private final String m_prefix;
+        private volatile FastCommand[] m_commands = new FastCommand[0];
+        private long m_nextUs = Long.MIN_VALUE;
+        private long m_lastUs = Long.MIN_VALUE;
+        private volatile long m_overruns;
+        /** Time to run all the commands. */
+        public final Histogram execution = new Histogram(kBinUs, kBins);
+        /** Difference between the actual and nominal period. */
+        public final Histogram jitter = new Histogram(kBinUs, kBins);
+
+        Loop(long periodUs) {
+            m_periodUs = periodUs;
+            m_prefix = "FastScheduler/" + periodUs + "us/";
+        }
+
+        public long periodUs() {
+            return m_periodUs;
+        }
+
+        public long overruns() {
+            return m_overruns;
+        }
+
+        public int size() {
+            return m_commands.length;
+        }
+
+        private void run(LongSupplier clock, long nowUs) {
+            if (m_lastUs != Long.MIN_VALUE)
+                jitter.record(Math.abs(nowUs - m_lastUs - m_periodUs));
+            m_lastUs = nowUs;
+            // not nowUs, which is before the faster loops ran.
+            long startUs = clock.getAsLong();
+            for (FastCommand command : m_commands) {
+                command.executeFast();
+            }
+            execution.record(clock.getAsLong() - startUs);
+            if (m_nextUs == Long.MIN_VALUE) {
+                m_nextUs = nowUs;
+            }
+            m_nextUs += m_periodUs;
+            if (m_nextUs <= nowUs) {
+                m_overruns++;
+                m_nextUs = nowUs + m_periodUs;
+            }
+        }
+    }
+
+    private final LongSupplier m_clock;
+    private final Loop[] m_loops;
+    private final long m_tickUs;
+    private Notifier m_notifier;
+    private boolean m_prioritySet;
+
+    /**
+     * @param clock     microseconds
+     * @param periodsUs one loop for each
+     */
+    public FastScheduler(LongSupplier clock, long... periodsUs) {
+        m_clock = clock;
+        long[] sorted = periodsUs.clone();
+        Arrays.sort(sorted);
+        m_loops = new Loop[sorted.length];
+        long tick = 0;
+        for (int i = 0; i < sorted.length; ++i) {
+            if (sorted[i] <= 0 || (i > 0 && sorted[i] == sorted[i - 1]))
+                throw new IllegalArgumentException("bad periods " + Arrays.toString(periodsUs));
+            m_loops[i] = new Loop(sorted[i]);
+            tick = gcd(tick, sorted[i]);
+        }
+        m_tickUs = tick;
+    }
+
+    /** Start the thread. */
+    public void start() {
+        if (m_notifier != null)
+            return;
+        // the HAL thread wakes all the notifiers, so it needs to be real-time too.
+        Notifier.setHALThreadPriority(true, kPriority);
+        m_notifier = new Notifier(this::run);
+        m_notifier.setName("FastScheduler");
+        m_notifier.startPeriodic(m_tickUs / 1e6);
+    }
+
+    /** Wake period, the greatest common divisor of the loop periods. */
+    public long tickUs() {
+        return m_tickUs;
+    }
+
+    private void run() {
+        if (!m_prioritySet) {
+            Threads.setCurrentThreadPriority(true, kPriority);
+            m_prioritySet = true;
+        }
+        tick(m_clock.getAsLong());
+    }
+
+    /** Run each loop that's due. The thread calls this, or tests can. */
+    public void tick(long nowUs) {
+        for (Loop loop : m_loops) {
+            if (loop.m_commands.length == 0) {
+                // idle loops start fresh when they get a command
+                loop.m_nextUs = Long.MIN_VALUE;
+                loop.m_lastUs = Long.MIN_VALUE;
+                continue;
+            }
+            // the wakeups jitter too, so within half a tick counts as due.
+            if (loop.m_nextUs == Long.MIN_VALUE || nowUs + m_tickUs / 2 >= loop.m_nextUs)
+                loop.run(m_clock, nowUs);
+        }
+    }
+
+    /** Main loop only. */
+    public void add(FastCommand command, long periodUs) {
+        Loop loop = loop(periodUs);
+        FastCommand[] commands = loop.m_commands;
+        for (FastCommand c : commands) {
+            if (c == command)
+                return;
+        }
+        FastCommand[] added = Arrays.copyOf(commands, commands.length + 1);
+        added[commands.length] = command;
+        loop.m_commands = added;
+    }
+
+    /** Main loop only. */
+    public void remove(FastCommand command) {
+        for (Loop loop : m_loops) {
+            FastCommand[] commands = loop.m_commands;
+            int n = 0;
+            FastCommand[] removed = new FastCommand[commands.length];
+            for (FastCommand c : commands) {
+                if (c != command)
+                    removed[n++] = c;
+            }
+            if (n < commands.length)
+                loop.m_commands = Arrays.copyOf(removed, n);
+        }
+    }
+
+    /** The loop at that period. */
+    public Loop loop(long periodUs) {
+        for (Loop loop : m_loops) {
+            if (loop.m_periodUs == periodUs)
+                return loop;
+        }
+        throw new IllegalArgumentException("no loop at " + periodUs + " us");
+    }
+
+    /** Publish the loop metrics; call from the main loop. */
+    public void updateTelemetry() {
+        for (Loop loop : m_loops) {
+            String prefix = loop.m_prefix;
+            SmartDashboard.putNumber(prefix + "commands", loop.size());
+            SmartDashboard.putNumber(prefix + "overruns", loop.overruns());
+            SmartDashboard.putNumber(prefix + "execution p50 us", loop.execution.percentile(0.5));
+            SmartDashboard.putNumber(prefix + "execution p99 us", loop.execution.percentile(0.99));
+            SmartDashboard.putNumber(prefix + "execution max us", loop.execution.max());
+            SmartDashboard.putNumber(prefix + "jitter p50 us", loop.jitter.percentile(0.5));
+            SmartDashboard.putNumber(prefix + "jitter p99 us", loop.jitter.percentile(0.99));
+            SmartDashboard.putNumber(prefix + "jitter max us", loop.jitter.max());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (m_notifier != null) {
+            m_notifier.close();
+            m_notifier = null;
+        }
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,71 @@
+package frc.robot.commands;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts of non-negative microsecond values in fixed-width bins, written by
+ * the fast thread and read by the main loop, so recording is just an atomic
+ * increment. Values past the last bin go in the last bin.
+ */
+public class Histogram {
+    private final long m_binUs;
+    private final AtomicLongArray m_bins;
+    private final AtomicLong m_count = new AtomicLong();
+    private final AtomicLong m_max = new AtomicLong();
+
+    public Histogram(long binUs, int bins) {
+        m_binUs = binUs;
+        m_bins = new AtomicLongArray(bins);
+    }
+
+    public void record(long valueUs) {
+        long v = Math.max(0, valueUs);
+        m_bins.incrementAndGet((int) Math.min(v / m_binUs, m_bins.length() - 1));
+        m_count.incrementAndGet();
+        // only the fast thread writes, so this doesn't need a loop
+        if (v > m_max.get())
+            m_max.set(v);
+    }
+
+    public long count() {
+        return m_count.get();
+    }
+
+    public long max() {
+        return m_max.get();
+    }
+
+    /** Count in one bin, for dumping the whole thing. */
+    public long bin(int i) {
+        return m_bins.get(i);
+    }
+
+    public int bins() {
+        return m_bins.length();
+    }
+
+    public long binUs() {
+        return m_binUs;
+    }
+
+    /**
+     * Upper edge of the bin containing the pth value, so it's an overestimate by
+     * up to one bin. Zero if empty.
+     *
+     * @param p in [0, 1]
+     */
+    public long percentile(double p) {
+        long count = count();
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(p * count));
+        long seen = 0;
+        for (int i = 0; i < m_bins.length(); ++i) {
+            seen += m_bins.get(i);
+            if (seen >= rank)
+                return (i + 1) * m_binUs;
+        }
+        return m_bins.length() * m_binUs;
+    }
+}
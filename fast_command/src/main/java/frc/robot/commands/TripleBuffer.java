@@ -0,0 +1,60 @@
+package frc.robot.commands;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hands the latest value from one thread to another without locks and without
+ * allocating, e.g. setpoints from the main loop to a fast loop, or
+ * measurements back.
+ *
+ * There are three instances: the writer fills one, the reader holds one, and
+ * the third is the most recently published. Publishing swaps the writer's
+ * with that one, and reading swaps the reader's with it if it's newer, so
+ * neither side ever waits or sees a half-written value. Values the reader
+ * doesn't get to in time are simply replaced.
+ *
+ * One writer thread and one reader thread.
+ */
+public class TripleBuffer<T> {
+    private static final int kIndex = 3;
+    private static final int kFresh = 4;
+
+    private final Object[] m_slots;
+    // index of the middle slot, plus kFresh if it hasn't been read
+    private final AtomicInteger m_middle = new AtomicInteger(1);
+    private int m_write = 0;
+    private int m_read = 2;
+
+    public TripleBuffer(Supplier<T> factory) {
+        m_slots = new Object[] { factory.get(), factory.get(), factory.get() };
+    }
+
+    /** Writer: the instance to fill in. It may hold an old value. */
+    @SuppressWarnings("unchecked")
+    public T write() {
+        return (T) m_slots[m_write];
+    }
+
+    /** Writer: make what's in write() the latest. */
+    public void publish() {
+        m_write = m_middle.getAndSet(m_write | kFresh) & kIndex;
+    }
+
+    /**
+     * Reader: the latest published instance. It stays put until the next
+     * read(), so it's safe to look at for as long as you like.
+     */
+    @SuppressWarnings("unchecked")
+    public T read() {
+        if ((m_middle.get() & kFresh) != 0) {
+            m_read = m_middle.getAndSet(m_read) & kIndex;
+        }
+        return (T) m_slots[m_read];
+    }
+
+    /** Reader: true if read() would return something new. */
+    public boolean hasNew() {
+        return (m_middle.get() & kFresh) != 0;
+    }
+}
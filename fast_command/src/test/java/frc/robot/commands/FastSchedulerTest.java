@@ -0,0 +1,114 @@
+package frc.robot.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/** Runs the loops by calling tick() with a fake clock, without the thread. */
+public class FastSchedulerTest {
+    /** Microseconds. Commands can advance it, to take time. */
+    private long m_nowUs;
+
+    private class Counter extends FastCommand {
+        int count;
+        /** How long each run takes. */
+        long durationUs;
+
+        Counter(FastScheduler scheduler, long periodUs) {
+            super(scheduler, periodUs);
+        }
+
+        @Override
+        public void executeFast() {
+            count++;
+            m_nowUs += durationUs;
+        }
+    }
+
+    private FastScheduler scheduler() {
+        return new FastScheduler(() -> m_nowUs, FastScheduler.kDefaultPeriodsUs);
+    }
+
+    /** Tick at the scheduler's rate, or late if a command took too long. */
+    private void run(FastScheduler scheduler, long durationUs) {
+        long endUs = m_nowUs + durationUs;
+        long nextUs = m_nowUs;
+        while (nextUs < endUs) {
+            m_nowUs = Math.max(m_nowUs, nextUs);
+            scheduler.tick(m_nowUs);
+            nextUs += scheduler.tickUs();
+        }
+    }
+
+    @Test
+    void testPeriods() {
+        FastScheduler scheduler = new FastScheduler(() -> m_nowUs, 10000, 2000, 5000);
+        assertEquals(1000, scheduler.tickUs());
+        assertEquals(2000, scheduler.loop(2000).periodUs());
+        assertThrows(IllegalArgumentException.class, () -> scheduler.loop(3000));
+        assertThrows(IllegalArgumentException.class, () -> new FastScheduler(() -> 0, 2000, 2000));
+        assertThrows(IllegalArgumentException.class, () -> new FastScheduler(() -> 0, 0));
+    }
+
+    @Test
+    void testRates() {
+        FastScheduler scheduler = scheduler();
+        Counter fast = new Counter(scheduler, 2000);
+        Counter medium = new Counter(scheduler, 5000);
+        Counter slow = new Counter(scheduler, 10000);
+        fast.durationUs = 100;
+        fast.initialize();
+        medium.initialize();
+        slow.initialize();
+        run(scheduler, 1000000);
+        assertEquals(500, fast.count);
+        assertEquals(200, medium.count);
+        assertEquals(100, slow.count);
+        assertEquals(100, scheduler.loop(2000).execution.max());
+        assertEquals(0, scheduler.loop(5000).execution.max());
+        for (long periodUs : FastScheduler.kDefaultPeriodsUs) {
+            FastScheduler.Loop loop = scheduler.loop(periodUs);
+            assertEquals(0, loop.overruns());
+            // the slower loops wait for the fast one, sometimes.
+            assertTrue(loop.jitter.max() <= 100);
+        }
+    }
+
+    @Test
+    void testAddRemove() {
+        FastScheduler scheduler = scheduler();
+        Counter counter = new Counter(scheduler, 5000);
+        counter.initialize();
+        counter.initialize();
+        assertEquals(1, scheduler.loop(5000).size());
+        run(scheduler, 20000);
+        assertEquals(4, counter.count);
+        counter.end(false);
+        assertEquals(0, scheduler.loop(5000).size());
+        run(scheduler, 20000);
+        assertEquals(4, counter.count);
+        // starts fresh, right away
+        counter.initialize();
+        scheduler.tick(m_nowUs);
+        assertEquals(5, counter.count);
+    }
+
+    /** Missing a whole period skips ahead, instead of catching up. */
+    @Test
+    void testOverrun() {
+        FastScheduler scheduler = scheduler();
+        Counter counter = new Counter(scheduler, 5000);
+        counter.initialize();
+        run(scheduler, 50000);
+        assertEquals(10, counter.count);
+        // the thread stalls, and wakes 7 ms after the 50 ms run was due
+        m_nowUs = 57000;
+        run(scheduler, 50000);
+        FastScheduler.Loop loop = scheduler.loop(5000);
+        assertEquals(1, loop.overruns());
+        assertEquals(20, counter.count);
+        assertEquals(7000, loop.jitter.max());
+    }
+}
@@ -0,0 +1,55 @@
+package frc.robot.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class HistogramTest {
+    @Test
+    void testEmpty() {
+        Histogram h = new Histogram(50, 10);
+        assertEquals(0, h.count());
+        assertEquals(0, h.max());
+        assertEquals(0, h.percentile(0.5));
+    }
+
+    @Test
+    void testRecord() {
+        Histogram h = new Histogram(50, 10);
+        h.record(0);
+        h.record(49);
+        h.record(50);
+        // negative goes in the first bin
+        h.record(-10);
+        assertEquals(4, h.count());
+        assertEquals(50, h.max());
+        assertEquals(3, h.bin(0));
+        assertEquals(1, h.bin(1));
+        assertEquals(10, h.bins());
+        assertEquals(50, h.binUs());
+    }
+
+    /** Past the end goes in the last bin, but the max is exact. */
+    @Test
+    void testOverflow() {
+        Histogram h = new Histogram(50, 10);
+        h.record(100000);
+        assertEquals(1, h.bin(9));
+        assertEquals(100000, h.max());
+        assertEquals(500, h.percentile(1));
+    }
+
+    /** The upper edge of the bin with the pth value. */
+    @Test
+    void testPercentile() {
+        Histogram h = new Histogram(10, 100);
+        for (int i = 0; i < 100; ++i) {
+            h.record(i * 5);
+        }
+        // 0..495
+        assertEquals(10, h.percentile(0));
+        assertEquals(250, h.percentile(0.5));
+        assertEquals(500, h.percentile(0.99));
+        assertEquals(500, h.percentile(1));
+    }
+}
@@ -0,0 +1,96 @@
+package frc.robot.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class TripleBufferTest {
+    private static class Value {
+        long a;
+        long b;
+    }
+
+    @Test
+    void testUnpublished() {
+        TripleBuffer<Value> buffer = new TripleBuffer<>(Value::new);
+        assertFalse(buffer.hasNew());
+        Value v = buffer.read();
+        assertEquals(0, v.a);
+        assertSame(v, buffer.read());
+    }
+
+    @Test
+    void testPublish() {
+        TripleBuffer<Value> buffer = new TripleBuffer<>(Value::new);
+        buffer.write().a = 1;
+        buffer.publish();
+        assertTrue(buffer.hasNew());
+        assertEquals(1, buffer.read().a);
+        assertFalse(buffer.hasNew());
+        // stays put until there's something new
+        Value v = buffer.read();
+        buffer.write().a = 2;
+        assertEquals(1, v.a);
+        assertSame(v, buffer.read());
+    }
+
+    /** The reader only sees the latest. */
+    @Test
+    void testLatest() {
+        TripleBuffer<Value> buffer = new TripleBuffer<>(Value::new);
+        for (int i = 1; i <= 5; ++i) {
+            buffer.write().a = i;
+            buffer.publish();
+        }
+        assertEquals(5, buffer.read().a);
+        assertFalse(buffer.hasNew());
+    }
+
+    /** The writer never gets the instance the reader holds. */
+    @Test
+    void testNoSharing() {
+        TripleBuffer<Value> buffer = new TripleBuffer<>(Value::new);
+        for (int i = 0; i < 10; ++i) {
+            buffer.write().a = i;
+            buffer.publish();
+            Value v = buffer.read();
+            for (int j = 0; j < 3; ++j) {
+                assertFalse(v == buffer.write());
+                buffer.write().a = -1;
+                buffer.publish();
+            }
+            assertEquals(i, v.a);
+            buffer.read();
+        }
+    }
+
+    /** Values from another thread are whole, and in order. */
+    @Test
+    void testThreads() throws InterruptedException {
+        TripleBuffer<Value> buffer = new TripleBuffer<>(Value::new);
+        long n = 1000000;
+        Thread writer = new Thread(() -> {
+            for (long i = 1; i <= n; ++i) {
+                Value v = buffer.write();
+                v.a = i;
+                v.b = -i;
+                buffer.publish();
+            }
+        });
+        writer.start();
+        long last = 0;
+        while (last < n) {
+            Value v = buffer.read();
+            assertEquals(-v.a, v.b);
+            assertTrue(v.a >= last);
+            last = v.a;
+            if (!writer.isAlive() && !buffer.hasNew())
+                break;
+        }
+        writer.join();
+        assertEquals(n, buffer.read().a);
+    }
+}
@@ -0,0 +1,182 @@
+package team100;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.util.Color;
+
+/**
+ * Something drawn onto part of an LED frame, see LedRenderer.
+ *
+ * Effects are drawn on the renderer thread and changed from the main loop, so
+ * their settings are volatile, and render() shouldn't allocate.
+ */
+public interface LedEffect {
+    /**
+     * @param frame  the strip's bytes, see LedRenderer.fill()
+     * @param start  first LED of the region
+     * @param length number of LEDs in the region
+     * @param nowUs  FPGA time of the frame
+     */
+    void render(byte[] frame, int start, int length, long nowUs);
+
+    /** One color, or nothing if it's turned off. */
+    public static class Solid implements LedEffect {
+        private volatile int rgb;
+        private volatile boolean on = true;
+
+        public Solid(Color color) {
+            setColor(color);
+        }
+
+        public void setColor(Color color) {
+            rgb = LedRenderer.rgb(color);
+        }
+
+        public void setOn(boolean on) {
+            this.on = on;
+        }
+
+        @Override
+        public void render(byte[] frame, int start, int length, long nowUs) {
+            if (on)
+                LedRenderer.fill(frame, start, length, rgb);
+        }
+    }
+
+    /**
+     * One color, alternately on and off; or steady, if flashing is turned off.
+     */
+    public static class Flash implements LedEffect {
+        private final long halfPeriodUs;
+        private volatile int rgb;
+        private volatile boolean flashing = true;
+
+        /** @param halfPeriodS time on, and time off, at least a microsecond */
+        public Flash(Color color, double halfPeriodS) {
+            halfPeriodUs = (long) (halfPeriodS * 1e6);
+            if (halfPeriodUs <= 0)
+                throw new IllegalArgumentException("half period too short: " + halfPeriodS);
+            setColor(color);
+        }
+
+        public void setColor(Color color) {
+            rgb = LedRenderer.rgb(color);
+        }
+
+        public void setFlashing(boolean flashing) {
+            this.flashing = flashing;
+        }
+
+        @Override
+        public void render(byte[] frame, int start, int length, long nowUs) {
+            if (flashing && (nowUs / halfPeriodUs) % 2 == 1)
+                return;
+            LedRenderer.fill(frame, start, length, rgb);
+        }
+    }
+
+    /** A lit segment running along the region, wrapping around. */
+    public static class Chase implements LedEffect {
+        private final int width;
+        private final long stepUs;
+        private volatile int rgb;
+
+        /**
+         * @param width number of LEDs lit
+         * @param stepS time to move one LED, at least a microsecond
+         */
+        public Chase(Color color, int width, double stepS) {
+            this.width = width;
+            stepUs = (long) (stepS * 1e6);
+            if (stepUs <= 0)
+                throw new IllegalArgumentException("step too short: " + stepS);
+            setColor(color);
+        }
+
+        public void setColor(Color color) {
+            rgb = LedRenderer.rgb(color);
+        }
+
+        @Override
+        public void render(byte[] frame, int start, int length, long nowUs) {
+            if (length == 0)
+                return;
+            int head = (int) ((nowUs / stepUs) % length);
+            int lit = Math.min(width, length);
+            int first = Math.min(lit, length - head);
+            LedRenderer.fill(frame, start + head, first, rgb);
+            LedRenderer.fill(frame, start, lit - first, rgb);
+        }
+    }
+
+    /**
+     * The front half of the region faces forward and the back half faces aft,
+     * so which one faces the driver depends on the robot heading. The driver
+     * effect goes on the half facing the driver, and the other effect on the
+     * other half; when the robot is sideways, neither half faces anyone useful,
+     * so the sideways effect covers the whole region.
+     *
+     * The heading is classified when it's set, not in every frame.
+     */
+    public static class Faces implements LedEffect {
+        private static final int kUnknown = 0;
+        private static final int kFront = 1;
+        private static final int kSide = 2;
+        private static final int kBack = 3;
+
+        private final LedEffect driver;
+        private final LedEffect other;
+        private final LedEffect sideways;
+        private final LedEffect unknown;
+        private volatile int facing = kUnknown;
+
+        /**
+         * @param driver   the half facing the driver
+         * @param other    the other half
+         * @param sideways everything, when sideways
+         * @param unknown  everything, before the heading is set
+         */
+        public Faces(LedEffect driver, LedEffect other, LedEffect sideways, LedEffect unknown) {
+            this.driver = driver;
+            this.other = other;
+            this.sideways = sideways;
+            this.unknown = unknown;
+        }
+
+        /**
+         * When the robot is within 45 degrees of fore/aft either way, the
+         * front/back faces the driver; otherwise it's sideways.
+         *
+         * @param heading NWU
+         */
+        public void setHeading(Rotation2d heading) {
+            double abs = Math.abs(heading.getRadians());
+            if (abs < Math.PI / 4) {
+                facing = kFront;
+            } else if (abs < 3.0 * Math.PI / 4) {
+                facing = kSide;
+            } else {
+                facing = kBack;
+            }
+        }
+
+        @Override
+        public void render(byte[] frame, int start, int length, long nowUs) {
+            int half = length / 2;
+            switch (facing) {
+                case kFront:
+                    driver.render(frame, start, half, nowUs);
+                    other.render(frame, start + half, length - half, nowUs);
+                    return;
+                case kBack:
+                    other.render(frame, start, half, nowUs);
+                    driver.render(frame, start + half, length - half, nowUs);
+                    return;
+                case kSide:
+                    sideways.render(frame, start, length, nowUs);
+                    return;
+                default:
+                    unknown.render(frame, start, length, nowUs);
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package team100;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import edu.wpi.first.wpilibj.AddressableLED;
+import edu.wpi.first.wpilibj.MyAddressableLEDBuffer;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.util.Color;
+
+/**
+ * Draws layers of effects onto one LED strip, at a fixed frame rate, on its own
+ * Notifier.
+ *
+ * Each frame is drawn from scratch into the back buffer, bottom layer first,
+ * and compared with the front buffer, i.e. what the strip is showing; only if
+ * it's different is it sent to the strip, and the buffers swapped. Most frames
+ * are the same as the last one (steady colors, slow flashes), so most of the
+ * time the cost is a few array fills and one array compare, no matter what the
+ * effects are, and no JNI call.
+ *
+ * Several physical strips chained together are just one long strip here, with
+ * a layer (or a Faces effect) for each part.
+ *
+ * The effects are changed from the main loop by setting their fields, which
+ * the next frame picks up; nothing is rebuilt, and nothing allocates.
+ */
+public class LedRenderer implements AutoCloseable {
+    /** An effect drawn onto part of the strip. */
+    private static class Layer {
+        final LedEffect effect;
+        final int start;
+        final int length;
+
+        Layer(LedEffect effect, int start, int length) {
+            this.effect = effect;
+            this.start = start;
+            this.length = length;
+        }
+    }
+
+    private final int length;
+    /** Null if there's no real strip. */
+    private final AddressableLED led;
+    /** Null if there's no real strip. */
+    private final Notifier notifier;
+    /** Sends a frame to the strip. */
+    private final Consumer<MyAddressableLEDBuffer> strip;
+    private MyAddressableLEDBuffer front;
+    private MyAddressableLEDBuffer back;
+    private volatile Layer[] layers = new Layer[0];
+    private volatile long frames;
+    private volatile long pushes;
+
+    /**
+     * @param port         PWM port
+     * @param length       number of LEDs
+     * @param framePeriodS how often to draw
+     */
+    public LedRenderer(int port, int length, double framePeriodS) {
+        this.length = length;
+        front = new MyAddressableLEDBuffer(length);
+        back = new MyAddressableLEDBuffer(length);
+        led = new AddressableLED(port);
+        led.setLength(length);
+        led.setData(front);
+        led.start();
+        strip = led::setData;
+        notifier = new Notifier(() -> frame(RobotController.getFPGATime()));
+        notifier.setName("LedRenderer");
+        notifier.startPeriodic(framePeriodS);
+    }
+
+    /**
+     * Without a strip or a notifier; call frame() to draw.
+     *
+     * @param length number of LEDs
+     * @param strip  receives each frame that's sent
+     */
+    LedRenderer(int length, Consumer<MyAddressableLEDBuffer> strip) {
+        this.length = length;
+        front = new MyAddressableLEDBuffer(length);
+        back = new MyAddressableLEDBuffer(length);
+        led = null;
+        notifier = null;
+        this.strip = strip;
+    }
+
+    /** Draw the effect over the whole strip, on top of the existing layers. */
+    public void add(LedEffect effect) {
+        add(effect, 0, length);
+    }
+
+    /** Draw the effect over part of the strip, on top of the existing layers. */
+    public synchronized void add(LedEffect effect, int start, int length) {
+        if (start < 0 || length < 0 || start + length > this.length)
+            throw new IllegalArgumentException("bad region " + start + " + " + length);
+        Layer[] added = Arrays.copyOf(layers, layers.length + 1);
+        added[layers.length] = new Layer(effect, start, length);
+        layers = added;
+    }
+
+    /** Frames drawn. */
+    public long frames() {
+        return frames;
+    }
+
+    /** Frames actually sent to the strip. */
+    public long pushes() {
+        return pushes;
+    }
+
+    /** Draw one frame, and send it if it changed. The notifier calls this. */
+    synchronized void frame(long nowUs) {
+        byte[] buffer = back.getBuffer();
+        Arrays.fill(buffer, (byte) 0);
+        for (Layer layer : layers) {
+            layer.effect.render(buffer, layer.start, layer.length, nowUs);
+        }
+        frames++;
+        if (Arrays.equals(buffer, front.getBuffer()))
+            return;
+        strip.accept(back);
+        pushes++;
+        MyAddressableLEDBuffer shown = back;
+        back = front;
+        front = shown;
+    }
+
+    @Override
+    public void close() {
+        if (notifier != null)
+            notifier.close();
+        if (led != null)
+            led.close();
+    }
+
+    //////////////////////////////////////////
+
+    /** @return the color as 0xRRGGBB */
+    public static int rgb(Color color) {
+        return ((int) (color.red * 255) << 16)
+                | ((int) (color.green * 255) << 8)
+                | (int) (color.blue * 255);
+    }
+
+    /**
+     * Set part of the frame to one color, in the strip's byte order, which is
+     * what AddressableLEDBuffer.setRGB() does.
+     *
+     * @param rgb 0xRRGGBB
+     */
+    public static void fill(byte[] frame, int start, int length, int rgb) {
+        byte r = (byte) (rgb >> 16);
+        byte g = (byte) (rgb >> 8);
+        byte b = (byte) rgb;
+        for (int i = start * 4; i < (start + length) * 4; i += 4) {
+            frame[i] = b;
+            frame[i + 1] = g;
+            frame[i + 2] = r;
+            frame[i + 3] = 0;
+        }
+    }
+}
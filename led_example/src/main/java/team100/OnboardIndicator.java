@@ -1,10 +1,7 @@
 package team100;
 
 import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.wpilibj.AddressableLED;
-import edu.wpi.first.wpilibj.AddressableLEDBuffer;
-import edu.wpi.first.wpilibj.MyAddressableLEDBuffer;
-import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.util.Color;
 
 /**
@@ -24,54 +21,59 @@ import edu.wpi.first.wpilibj.util.Color;
  * For more output and/or more colors, use the servo power module
  * (revrobotics/rev-11/1144), which can drive up to 15A at 6V (the absolute max
  * for these strips).
+ * 
+ * The drawing is done by LedRenderer, at a fixed frame rate; this just sets
+ * up the effects, and changes them.
  */
-public class OnboardIndicator {
+public class OnboardIndicator implements AutoCloseable {
     private static final int kStripLength = 60;
-    private static final int kOffset = 30;
-
-    private static enum Face {
-        FRONT, BACK;
-    }
+    private static final int kPort = 9;
+    private static final double kFrameS = 0.02;
 
-    private static enum State {
-        OFF(Color.kBlack),
-        ORANGE(Color.kOrange),
-        NO_FIX(Color.kRed),
-        GOOD_FIX(Color.kGreen),
-        CONE(Color.kYellow),
-        CUBE(Color.kBlue);
+    /**
+     * Red flashing for no fix, steady green for a good fix, which times out
+     * if it's not renewed.
+     */
+    private class DriverSignal implements LedEffect {
+        private final LedEffect noFix;
+        private final LedEffect goodFix = new LedEffect.Solid(Color.kGreen);
 
-        public final MyAddressableLEDBuffer buffer;
+        DriverSignal(double halfPeriodS) {
+            noFix = new LedEffect.Flash(Color.kRed, halfPeriodS);
+        }
 
-        private State(Color color) {
-            buffer = new MyAddressableLEDBuffer(kStripLength);
-            for (int i = 0; i < kStripLength; i++) {
-                buffer.setLED(i, color);
+        @Override
+        public void render(byte[] frame, int start, int length, long nowUs) {
+            if (nowUs < goodFixUntilUs) {
+                goodFix.render(frame, start, length, nowUs);
+            } else {
+                noFix.render(frame, start, length, nowUs);
             }
         }
     }
 
-    private static final int kPort = 9;
-    private final AddressableLED led;
-    private final Notifier notifier;
-    private State active;
-    private boolean flashOn;
-    private Rotation2d heading;
-    private MyAddressableLEDBuffer activeBuffer;
-    private int gamePiece;
-    private int goodFixTimeOutCount;
+    private final LedRenderer renderer;
+    private final LedEffect.Solid gamePiece;
+    private final LedEffect.Faces faces;
+    private final long goodFixTimeoutUs;
+    private volatile long goodFixUntilUs = Long.MIN_VALUE;
 
     /**
      * @param freq Desired flashing frequency (Hz)
      */
     public OnboardIndicator(double freq) {
-        active = State.NO_FIX;
-        activeBuffer = new MyAddressableLEDBuffer(kStripLength);
-        led = new AddressableLED(kPort);
-        led.setLength(kStripLength);
-        led.start();
-        notifier = new Notifier(this::flip);
-        notifier.startPeriodic(2.0 / freq);
+        // same timing as before: on and off for 2/freq each, and a good fix
+        // lasts about three of those.
+        double halfPeriodS = 2.0 / freq;
+        goodFixTimeoutUs = (long) (3 * halfPeriodS * 1e6);
+        gamePiece = new LedEffect.Solid(Color.kBlue);
+        faces = new LedEffect.Faces(
+                new DriverSignal(halfPeriodS),
+                gamePiece,
+                new LedEffect.Solid(Color.kOrange),
+                new LedEffect.Chase(Color.kOrange, 5, kFrameS));
+        renderer = new LedRenderer(kPort, kStripLength, kFrameS);
+        renderer.add(faces);
     }
 
     /**
@@ -83,7 +85,7 @@ public class OnboardIndicator {
      * 
      * So the only "views" are front and back.
      * 
-     * When the robot is within 90 degrees of fore/aft either way, light up the
+     * When the robot is within 45 degrees of fore/aft either way, light up the
      * front/back indicators.
      * 
      * what should they do in the other 180 degree range? maybe just steady white.
@@ -126,80 +128,29 @@ public class OnboardIndicator {
      * @param heading [-Math.PI, Math.PI]
      */
     public void setHeading(Rotation2d heading) {
-        this.heading = heading;
+        faces.setHeading(heading);
     }
 
+    /**
+     * A good fix, which lasts until the timeout unless renewed. Adjusting the
+     * timeout allows user to specify how long the most recent position fix
+     * should be considered valid.
+     */
     public void go() {
-        active = State.GOOD_FIX;
-        // Set count down clock which decreases every time flip routine is called.  
-        // When it goes to zero, 'active' will be set to State.NO_FIX.  Adjusting this 
-        // value in conjuntion with the Notify frequency allows user to specify how 
-        // lone the most recent position fix should be considered valid
-
-        goodFixTimeOutCount = 3;  // This value is a guess which should provide about 3/4 sec T.O.?
-        // Adjust as appropriate
+        goodFixUntilUs = RobotController.getFPGATime() + goodFixTimeoutUs;
     }
 
     public void nogo() {    // This is not expected to be called & should not be called
-        active = State.NO_FIX;
+        goodFixUntilUs = Long.MIN_VALUE;
     }
 
     public void setGamePieceType(int gamePiece) {
-        this.gamePiece = gamePiece;  // Cone = 1, Cube =2
+        // Cone = 1, Cube =2
+        this.gamePiece.setColor(gamePiece == 1 ? Color.kYellow : Color.kBlue);
     }
 
-    /**
-     * this actually controls all indicator LEDs, not just flipping light to dark
-     */
-    private void flip() {
-        double absHeadingRadiansNWU = Math.abs(heading.getRadians());
-        if (absHeadingRadiansNWU < Math.PI / 4) {
-            // front facing driver, back facing loader
-            if (flashOn && active == State.NO_FIX) {
-                System.arraycopy(State.OFF.buffer.getBuffer(), 0, activeBuffer.getBuffer(), 0, kOffset*4);
-               //led.setData(State.OFF.buffer);
-            } else {
-                System.arraycopy(active.buffer.getBuffer(), 0, activeBuffer.getBuffer(), 0, kOffset*4);
-                //led.setData(active.buffer);
-            }
-
-            if (gamePiece == 1) {   // Cone = 1
-                System.arraycopy(State.CONE.buffer.getBuffer(), 0, activeBuffer.getBuffer(), kOffset*4, kOffset*4);
-            } else {
-                System.arraycopy(State.CUBE.buffer.getBuffer(), 0, activeBuffer.getBuffer(), kOffset*4, kOffset*4);
-            }
-
-        } else if (absHeadingRadiansNWU < 3.0 * Math.PI / 4) {
-            // some sideways orientation
-            // steady orange both sides
-            // led.setData(State.ORANGE.buffer); *rff
-            System.arraycopy(State.ORANGE.buffer.getBuffer(), 0, activeBuffer.getBuffer(), 0, kOffset*8);
-        } else {
-            // front facing loader, back facing driver
-
-            if (flashOn && active == State.NO_FIX) {
-               System.arraycopy(State.OFF.buffer.getBuffer(), 0, activeBuffer.getBuffer(), kOffset*4, kOffset*4);
-               //led.setData(State.OFF.buffer);
-            } else {
-                System.arraycopy(active.buffer.getBuffer(), 0, activeBuffer.getBuffer(), kOffset*4, kOffset*4);
-                //led.setData(active.buffer);
-            }
-
-            if (gamePiece == 1) {   // Cone = 1
-                System.arraycopy(State.CONE.buffer.getBuffer(), 0, activeBuffer.getBuffer(), kOffset*4, kOffset*4);
-            } else {
-                System.arraycopy(State.CUBE.buffer.getBuffer(), 0, activeBuffer.getBuffer(), kOffset*4, kOffset*4);
-            }
-              
-        }
-
-        led.setData(activeBuffer);
-
-        flashOn ^= true; // flip with xor
-
-        if (goodFixTimeOutCount-- <= 0) {  // If a good AprilTag Fix is not found, 
-           //  set the active state to NO_FIX
-            active = State.NO_FIX;
-        }
+    @Override
+    public void close() {
+        renderer.close();
     }
 }
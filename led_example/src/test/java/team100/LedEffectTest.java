@@ -0,0 +1,108 @@
+package team100;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.util.Color;
+
+public class LedEffectTest {
+    private static final Color kRed = new Color(1.0, 0.0, 0.0);
+    private static final Color kBlue = new Color(0.0, 0.0, 1.0);
+
+    /** The frame as 0xRRGGBB per LED, easier to read. */
+    private static int[] colors(byte[] frame) {
+        int[] colors = new int[frame.length / 4];
+        for (int i = 0; i < colors.length; ++i) {
+            colors[i] = (frame[4 * i + 2] & 0xff) << 16
+                    | (frame[4 * i + 1] & 0xff) << 8
+                    | (frame[4 * i] & 0xff);
+        }
+        return colors;
+    }
+
+    private static int[] render(LedEffect effect, int leds, int start, int length, long nowUs) {
+        byte[] frame = new byte[4 * leds];
+        effect.render(frame, start, length, nowUs);
+        return colors(frame);
+    }
+
+    @Test
+    void testSolid() {
+        LedEffect.Solid solid = new LedEffect.Solid(kRed);
+        assertArrayEquals(new int[] { 0, 0xff0000, 0xff0000 }, render(solid, 3, 1, 2, 0));
+        solid.setOn(false);
+        assertArrayEquals(new int[] { 0, 0, 0 }, render(solid, 3, 1, 2, 0));
+    }
+
+    @Test
+    void testFlash() {
+        LedEffect.Flash flash = new LedEffect.Flash(kRed, 0.5);
+        assertArrayEquals(new int[] { 0xff0000, 0xff0000 }, render(flash, 2, 0, 2, 0));
+        assertArrayEquals(new int[] { 0xff0000, 0xff0000 }, render(flash, 2, 0, 2, 499999));
+        assertArrayEquals(new int[] { 0, 0 }, render(flash, 2, 0, 2, 500000));
+        assertArrayEquals(new int[] { 0xff0000, 0xff0000 }, render(flash, 2, 0, 2, 1000000));
+        flash.setFlashing(false);
+        assertArrayEquals(new int[] { 0xff0000, 0xff0000 }, render(flash, 2, 0, 2, 500000));
+        flash.setColor(kBlue);
+        assertArrayEquals(new int[] { 0x0000ff, 0x0000ff }, render(flash, 2, 0, 2, 500000));
+    }
+
+    /** Periods that round to zero microseconds would divide by zero later. */
+    @Test
+    void testTooShort() {
+        assertThrows(IllegalArgumentException.class, () -> new LedEffect.Flash(kRed, 0));
+        assertThrows(IllegalArgumentException.class, () -> new LedEffect.Flash(kRed, 1e-7));
+        assertThrows(IllegalArgumentException.class, () -> new LedEffect.Chase(kRed, 2, 0));
+        assertThrows(IllegalArgumentException.class, () -> new LedEffect.Chase(kRed, 2, 1e-7));
+        new LedEffect.Chase(kRed, 2, 1e-6);
+    }
+
+    @Test
+    void testChase() {
+        // two lit, moving one LED every 10 ms, in LEDs 1 to 4 of 6.
+        LedEffect.Chase chase = new LedEffect.Chase(kRed, 2, 0.01);
+        int r = 0xff0000;
+        assertArrayEquals(new int[] { 0, r, r, 0, 0, 0 }, render(chase, 6, 1, 4, 0));
+        assertArrayEquals(new int[] { 0, 0, r, r, 0, 0 }, render(chase, 6, 1, 4, 10000));
+        assertArrayEquals(new int[] { 0, 0, 0, r, r, 0 }, render(chase, 6, 1, 4, 20000));
+        // wraps around within the region
+        assertArrayEquals(new int[] { 0, r, 0, 0, r, 0 }, render(chase, 6, 1, 4, 30000));
+        assertArrayEquals(new int[] { 0, r, r, 0, 0, 0 }, render(chase, 6, 1, 4, 40000));
+        // wider than the region
+        LedEffect.Chase wide = new LedEffect.Chase(kRed, 10, 0.01);
+        assertArrayEquals(new int[] { r, r, r }, render(wide, 3, 0, 3, 10000));
+        // empty region
+        assertArrayEquals(new int[] { 0, 0 }, render(chase, 2, 1, 0, 10000));
+    }
+
+    @Test
+    void testFaces() {
+        int d = 0x000001;
+        int o = 0x000002;
+        int s = 0x000003;
+        int u = 0x000004;
+        LedEffect.Faces faces = new LedEffect.Faces(
+                (frame, start, length, nowUs) -> LedRenderer.fill(frame, start, length, d),
+                (frame, start, length, nowUs) -> LedRenderer.fill(frame, start, length, o),
+                (frame, start, length, nowUs) -> LedRenderer.fill(frame, start, length, s),
+                (frame, start, length, nowUs) -> LedRenderer.fill(frame, start, length, u));
+        assertArrayEquals(new int[] { 0, u, u, u, u, u }, render(faces, 6, 1, 5, 0));
+        // front half faces the driver
+        faces.setHeading(Rotation2d.fromDegrees(30));
+        assertArrayEquals(new int[] { 0, d, d, o, o, o }, render(faces, 6, 1, 5, 0));
+        faces.setHeading(Rotation2d.fromDegrees(-30));
+        assertArrayEquals(new int[] { 0, d, d, o, o, o }, render(faces, 6, 1, 5, 0));
+        faces.setHeading(Rotation2d.fromDegrees(90));
+        assertArrayEquals(new int[] { 0, s, s, s, s, s }, render(faces, 6, 1, 5, 0));
+        faces.setHeading(Rotation2d.fromDegrees(-100));
+        assertArrayEquals(new int[] { 0, s, s, s, s, s }, render(faces, 6, 1, 5, 0));
+        // back half faces the driver
+        faces.setHeading(Rotation2d.fromDegrees(180));
+        assertArrayEquals(new int[] { 0, o, o, d, d, d }, render(faces, 6, 1, 5, 0));
+        faces.setHeading(Rotation2d.fromDegrees(-150));
+        assertArrayEquals(new int[] { 0, o, o, d, d, d }, render(faces, 6, 1, 5, 0));
+    }
+}
@@ -0,0 +1,115 @@
+package team100;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.wpilibj.util.Color;
+
+public class LedRendererTest {
+    private static final Color kRed = new Color(1.0, 0.0, 0.0);
+
+    /** Copies of the frames sent to the strip. */
+    private static class Strip {
+        final List<byte[]> frames = new ArrayList<>();
+
+        LedRenderer renderer(int length) {
+            return new LedRenderer(length, b -> frames.add(b.getBuffer().clone()));
+        }
+
+        byte[] last() {
+            return frames.get(frames.size() - 1);
+        }
+    }
+
+    private static byte[] filled(int length, int rgb) {
+        byte[] frame = new byte[4 * length];
+        LedRenderer.fill(frame, 0, length, rgb);
+        return frame;
+    }
+
+    @Test
+    void testRgb() {
+        assertEquals(0xff0000, LedRenderer.rgb(new Color(1.0, 0.0, 0.0)));
+        assertEquals(0x00ff00, LedRenderer.rgb(new Color(0.0, 1.0, 0.0)));
+        assertEquals(0x0000ff, LedRenderer.rgb(new Color(0.0, 0.0, 1.0)));
+        assertEquals(0xffffff, LedRenderer.rgb(new Color(1.0, 1.0, 1.0)));
+    }
+
+    /** Four bytes per LED, blue green red, like AddressableLEDBuffer. */
+    @Test
+    void testFill() {
+        byte[] frame = new byte[4 * 4];
+        LedRenderer.fill(frame, 1, 2, 0x123456);
+        assertArrayEquals(new byte[] {
+                0, 0, 0, 0,
+                0x56, 0x34, 0x12, 0,
+                0x56, 0x34, 0x12, 0,
+                0, 0, 0, 0 }, frame);
+        // high bytes don't wrap around
+        LedRenderer.fill(frame, 3, 1, 0xff80ff);
+        assertArrayEquals(new byte[] { (byte) 0xff, (byte) 0x80, (byte) 0xff, 0 },
+                Arrays.copyOfRange(frame, 12, 16));
+        // nothing
+        LedRenderer.fill(frame, 0, 0, 0xffffff);
+        assertEquals(0, frame[0]);
+    }
+
+    /** A steady color is sent once, and then every frame is the same. */
+    @Test
+    void testSteady() {
+        Strip strip = new Strip();
+        LedRenderer renderer = strip.renderer(3);
+        LedEffect.Solid solid = new LedEffect.Solid(kRed);
+        renderer.add(solid);
+        for (int i = 0; i < 10; ++i) {
+            renderer.frame(i * 20000);
+        }
+        assertEquals(10, renderer.frames());
+        assertEquals(1, renderer.pushes());
+        assertEquals(1, strip.frames.size());
+        assertArrayEquals(filled(3, 0xff0000), strip.last());
+        // a change is sent once too
+        solid.setOn(false);
+        for (int i = 10; i < 20; ++i) {
+            renderer.frame(i * 20000);
+        }
+        assertEquals(20, renderer.frames());
+        assertEquals(2, renderer.pushes());
+        assertArrayEquals(filled(3, 0), strip.last());
+    }
+
+    /** A flash is sent once per edge, not once per frame. */
+    @Test
+    void testFlash() {
+        Strip strip = new Strip();
+        LedRenderer renderer = strip.renderer(2);
+        renderer.add(new LedEffect.Flash(kRed, 0.5));
+        // two seconds at 50 Hz: on, off, on, off.
+        for (int i = 0; i < 100; ++i) {
+            renderer.frame(i * 20000);
+        }
+        assertEquals(100, renderer.frames());
+        assertEquals(4, renderer.pushes());
+        assertEquals(4, strip.frames.size());
+        for (int i = 0; i < 4; ++i) {
+            assertArrayEquals(filled(2, i % 2 == 0 ? 0xff0000 : 0), strip.frames.get(i));
+        }
+    }
+
+    /** A black frame on a black strip isn't sent at all. */
+    @Test
+    void testNothing() {
+        Strip strip = new Strip();
+        LedRenderer renderer = strip.renderer(2);
+        renderer.frame(0);
+        assertEquals(1, renderer.frames());
+        assertEquals(0, renderer.pushes());
+        assertEquals(0, strip.frames.size());
+    }
+}
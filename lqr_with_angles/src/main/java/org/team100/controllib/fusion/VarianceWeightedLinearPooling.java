@@ -1,10 +1,19 @@
 package org.team100.controllib.fusion;
 
+import java.util.List;
+
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.MatrixFeatures_DDRM;
+import org.ejml.dense.row.factory.LinearSolverFactory_DDRM;
+import org.ejml.interfaces.linsol.LinearSolverDense;
 import org.team100.controllib.math.RandomVector;
+import org.team100.controllib.math.Variance;
 
 import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.Num;
 import edu.wpi.first.math.Pair;
+import edu.wpi.first.math.numbers.N1;
 
 /**
  * Variance weighted linear pooling is also called "mixing" -- it represents the
@@ -33,9 +42,24 @@ import edu.wpi.first.math.Pair;
  * Visualization of this pooling method is available here:
  * 
  * https://colab.research.google.com/drive/1W0YVYi4eXLpfdkSNpOy4otiW2Poliems#scrollTo=ps1ulO5dYUL4
+ * 
+ * For more than two inputs, use the N-way fuse(List), which accumulates the
+ * information (inverse variance) of all the inputs at once, rather than
+ * chaining pairwise fusions, which is slower and depends on the order of the
+ * inputs.
+ * 
+ * The N-way method keeps scratch matrices between calls, so an instance should
+ * not be shared between threads.
  */
 public class VarianceWeightedLinearPooling<States extends Num> extends LinearPooling<States> {
-    private static final double kThreshold = 1e-15;
+    private DMatrixRMaj m_work;
+    /** One input's inverse variance. */
+    private DMatrixRMaj m_inverse;
+    private DMatrixRMaj m_info;
+    private DMatrixRMaj m_infoInverse;
+    private DMatrixRMaj m_infoVector;
+    private DMatrixRMaj m_dispersion;
+    private LinearSolverDense<DMatrixRMaj> m_chol;
 
     public RandomVector<States> fuse(RandomVector<States> a, RandomVector<States> b) {
         // TODO: turn off these checks somehow for matches, use some sort of backoff
@@ -51,26 +75,126 @@ public class VarianceWeightedLinearPooling<States extends Num> extends LinearPoo
         return fuse(a, pa, b, pb);
     }
 
-    /** TODO make a weight type */
+    /**
+     * Inverses use the square-root form, which is scale-independent: a
+     * determinant threshold would reject perfectly good "don't know" variances,
+     * e.g. the inverse of 1e9 on every axis has a determinant of 1e-18.
+     * 
+     * TODO make a weight type
+     */
     Pair<Matrix<States, States>, Matrix<States, States>> weights(RandomVector<States> a, RandomVector<States> b) {
-        Matrix<States, States> aP = a.Kxx.getValue();
-        Matrix<States, States> bP = b.Kxx.getValue();
-        if (aP.det() < kThreshold) {
-            throw new IllegalArgumentException("aP is singular.\n" + aP.toString());
-        }
-        if (bP.det() < kThreshold) {
-            throw new IllegalArgumentException("bP is singular.\n" + bP.toString());
-        }
-        Matrix<States, States> aPI = aP.inv();
-        Matrix<States, States> bPI = bP.inv();
+        Matrix<States, States> aPI = a.Kxx.sqrt().inverse();
+        Matrix<States, States> bPI = b.Kxx.sqrt().inverse();
         Matrix<States, States> PIsum = aPI.plus(bPI);
-        if (PIsum.det() < kThreshold) {
-            throw new IllegalArgumentException("PIsum is singular.\n" + PIsum.toString());
-        }
-        Matrix<States, States> pIsumI = PIsum.inv();
+        Matrix<States, States> pIsumI = new Variance<>(PIsum).sqrt().inverse();
         Matrix<States, States> pa = aPI.times(pIsumI);
         Matrix<States, States> pb = bPI.times(pIsumI);
         return Pair.of(pa,pb);
     }
 
+    /**
+     * N-way fusion, using information-form accumulation:
+     * 
+     * Y = sum(1/P_i)
+     * y = sum((1/P_i) (x_i - x_0))
+     * c = x_0 + Y^-1 y
+     * D = sum((1/P_i) diag(x_i - c)^2)
+     * C = Y^-1 + Y^-1 D
+     * 
+     * i.e. the weights are p_i = Y^-1 (1/P_i), and sum(p_i P_i p_iT) is just
+     * Y^-1. For two inputs with diagonal variances, this is the same as the
+     * pairwise fuse(a, b) above; for more inputs, the result doesn't depend on
+     * the order.
+     * 
+     * Everything is accumulated in place, in scratch matrices of the state size,
+     * so nothing is kept per input; each input's inverse is computed again for
+     * the dispersion, since the states are small.
+     * 
+     * Inverses are computed by Cholesky decomposition, which also rejects
+     * covariances that are not positive definite.
+     * 
+     * Differences are taken with xminus and the result mean is made with xplus,
+     * relative to the first input, so non-Euclidean geometry is respected.
+     * 
+     * @param estimates all the same class, at least one.
+     */
+    public RandomVector<States> fuse(List<RandomVector<States>> estimates) {
+        if (estimates.isEmpty()) {
+            throw new IllegalArgumentException("no estimates to fuse");
+        }
+        RandomVector<States> first = estimates.get(0);
+        int n = first.x.getNumRows();
+        allocate(n);
+
+        // information matrix and vector
+        m_info.zero();
+        m_infoVector.zero();
+        for (RandomVector<States> estimate : estimates) {
+            if (estimate.getClass() != first.getClass()) {
+                throw new IllegalArgumentException(
+                        "estimates must be same type\n" + first.getClass() + " " + estimate.getClass());
+            }
+            DMatrixRMaj P = estimate.Kxx.getValue().getStorage().getDDRM();
+            if (!MatrixFeatures_DDRM.isSymmetric(P)) {
+                throw new IllegalArgumentException("P is not symmetric.\n" + estimate.Kxx.toString());
+            }
+            invert(P, m_inverse, "P");
+            CommonOps_DDRM.addEquals(m_info, m_inverse);
+            DMatrixRMaj d = first.xminus(estimate.x).getStorage().getDDRM();
+            // xminus is first - x_i so subtract
+            CommonOps_DDRM.multAdd(-1.0, m_inverse, d, m_infoVector);
+        }
+        invert(m_info, m_infoInverse, "information");
+
+        // mean
+        Matrix<States, N1> delta = first.x.copy();
+        CommonOps_DDRM.mult(m_infoInverse, m_infoVector, delta.getStorage().getDDRM());
+        Matrix<States, N1> cx = first.xplus(delta);
+
+        // dispersion
+        m_dispersion.zero();
+        for (RandomVector<States> estimate : estimates) {
+            invert(estimate.Kxx.getValue().getStorage().getDDRM(), m_inverse, "P");
+            Matrix<States, N1> d = estimate.xminus(cx);
+            // (1/P_i) diag(d)^2 scales column j of 1/P_i by d_j^2
+            for (int row = 0; row < n; ++row) {
+                for (int col = 0; col < n; ++col) {
+                    double dj = d.get(col, 0);
+                    m_dispersion.add(row, col, m_inverse.get(row, col) * dj * dj);
+                }
+            }
+        }
+
+        // variance
+        Matrix<States, States> cK = first.Kxx.getValue().copy();
+        DMatrixRMaj cKStorage = cK.getStorage().getDDRM();
+        CommonOps_DDRM.mult(m_infoInverse, m_dispersion, cKStorage);
+        CommonOps_DDRM.addEquals(cKStorage, m_infoInverse);
+        return first.make(cx, new Variance<>(cK));
+    }
+
+    /**
+     * Invert the symmetric positive definite matrix in using Cholesky
+     * decomposition.
+     */
+    private void invert(DMatrixRMaj in, DMatrixRMaj out, String name) {
+        m_work.setTo(in);
+        if (!m_chol.setA(m_work)) {
+            throw new IllegalArgumentException(name + " is not positive definite.\n" + in.toString());
+        }
+        m_chol.invert(out);
+    }
+
+    /** Make scratch matrices, only if the size has changed. */
+    private void allocate(int n) {
+        if (m_work == null || m_work.getNumRows() != n) {
+            m_work = new DMatrixRMaj(n, n);
+            m_inverse = new DMatrixRMaj(n, n);
+            m_info = new DMatrixRMaj(n, n);
+            m_infoInverse = new DMatrixRMaj(n, n);
+            m_infoVector = new DMatrixRMaj(n, 1);
+            m_dispersion = new DMatrixRMaj(n, n);
+            m_chol = LinearSolverFactory_DDRM.chol(n);
+        }
+    }
 }
@@ -0,0 +1,165 @@
+package org.team100.controllib.math;
+
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.decomposition.TriangularSolver_DDRM;
+import org.ejml.dense.row.factory.DecompositionFactory_DDRM;
+import org.ejml.interfaces.decomposition.CholeskyDecomposition_F64;
+import org.ejml.interfaces.decomposition.QRDecomposition;
+import org.ejml.simple.SimpleMatrix;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Num;
+
+/**
+ * Square-root form of a variance: the lower-triangular factor S such that
+ *
+ * P = S S^T
+ *
+ * This is the "square root filter" idea: keeping S instead of P means P can
+ * never lose symmetry or positive-definiteness through roundoff, and the
+ * dynamic range of S is the square root of the dynamic range of P, so a
+ * "don't know" variance of 1e9 is only 3e4 here, and products of very large
+ * and very small variances don't lose precision.
+ *
+ * Inverses are cheap: S is triangular, so
+ *
+ * P^-1 = S^-T S^-1
+ *
+ * which is just a triangular inversion, no det() or general inv().
+ *
+ * Predict and add are done by QR triangularization of the stacked factors,
+ * fuse is done in information form.
+ *
+ * https://en.wikipedia.org/wiki/Kalman_filter#Square_root_form
+ */
+public class SquareRootVariance<Dim extends Num> {
+    private final Matrix<Dim, Dim> value;
+
+    /**
+     * @param value lower-triangular factor, with positive diagonal.
+     */
+    public SquareRootVariance(Matrix<Dim, Dim> value) {
+        this.value = value;
+    }
+
+    /**
+     * Cholesky factor of the variance.
+     *
+     * @throws IllegalArgumentException if the variance is not positive definite.
+     */
+    public static <D extends Num> SquareRootVariance<D> of(Variance<D> P) {
+        DMatrixRMaj p = P.getValue().getStorage().getDDRM().copy();
+        CholeskyDecomposition_F64<DMatrixRMaj> chol = DecompositionFactory_DDRM.chol(p.getNumRows(), true);
+        if (!chol.decompose(p)) {
+            throw new IllegalArgumentException("P is not positive definite.\n" + P.toString());
+        }
+        return new SquareRootVariance<>(new Matrix<>(new SimpleMatrix(chol.getT(null))));
+    }
+
+    /** P = S S^T */
+    public Variance<Dim> toVariance() {
+        return new Variance<>(value.times(value.transpose()));
+    }
+
+    /** P^-1 = S^-T S^-1, using triangular inversion. */
+    public Matrix<Dim, Dim> inverse() {
+        DMatrixRMaj sInv = value.getStorage().getDDRM().copy();
+        TriangularSolver_DDRM.invertLower(sInv.data, sInv.getNumRows());
+        DMatrixRMaj result = new DMatrixRMaj(sInv.getNumRows(), sInv.getNumCols());
+        CommonOps_DDRM.multTransA(sInv, sInv, result);
+        return new Matrix<>(new SimpleMatrix(result));
+    }
+
+    /**
+     * Sum of independent variances, i.e. P + Q, without forming either.
+     */
+    public SquareRootVariance<Dim> plus(SquareRootVariance<Dim> other) {
+        return triangularize(value.getStorage().getDDRM(), other.value.getStorage().getDDRM());
+    }
+
+    /**
+     * Time update through the (linearized) dynamics A, with additive noise Q:
+     *
+     * P' = A P A^T + Q
+     */
+    public SquareRootVariance<Dim> predict(Matrix<Dim, Dim> A, SquareRootVariance<Dim> noise) {
+        Matrix<Dim, Dim> AS = A.times(value);
+        return triangularize(AS.getStorage().getDDRM(), noise.value.getStorage().getDDRM());
+    }
+
+    /**
+     * Inverse-variance fusion, i.e. the measurement update for a direct
+     * measurement of the whole state:
+     *
+     * P' = (Pa^-1 + Pb^-1)^-1
+     *
+     * Works fine with "don't know" variances on either side.
+     */
+    public SquareRootVariance<Dim> fuse(SquareRootVariance<Dim> other) {
+        DMatrixRMaj info = inverse().getStorage().getDDRM();
+        CommonOps_DDRM.addEquals(info, other.inverse().getStorage().getDDRM());
+        int n = info.getNumRows();
+        CholeskyDecomposition_F64<DMatrixRMaj> chol = DecompositionFactory_DDRM.chol(n, true);
+        if (!chol.decompose(info)) {
+            throw new IllegalArgumentException("information is not positive definite.\n" + info.toString());
+        }
+        // Y = L L^T so P = L^-T L^-1, retriangularize L^-T.
+        DMatrixRMaj lInv = chol.getT(null);
+        TriangularSolver_DDRM.invertLower(lInv.data, n);
+        DMatrixRMaj lInvT = new DMatrixRMaj(n, n);
+        CommonOps_DDRM.transpose(lInv, lInvT);
+        return triangularize(lInvT);
+    }
+
+    public SquareRootVariance<Dim> copy() {
+        return new SquareRootVariance<>(value.copy());
+    }
+
+    public Matrix<Dim, Dim> getValue() {
+        return value;
+    }
+
+    /**
+     * Given factors F_i, each with rows equal to the dimension, returns the
+     * lower-triangular S such that S S^T = sum(F_i F_i^T).
+     *
+     * With M = [F_1 F_2 ...], M^T = QR, so M M^T = R^T R, and S = R^T.
+     */
+    private SquareRootVariance<Dim> triangularize(DMatrixRMaj... factors) {
+        int n = value.getNumRows();
+        int cols = 0;
+        for (DMatrixRMaj f : factors) {
+            cols += f.getNumCols();
+        }
+        DMatrixRMaj mT = new DMatrixRMaj(cols, n);
+        int offset = 0;
+        for (DMatrixRMaj f : factors) {
+            for (int i = 0; i < n; ++i) {
+                for (int j = 0; j < f.getNumCols(); ++j) {
+                    mT.set(offset + j, i, f.get(i, j));
+                }
+            }
+            offset += f.getNumCols();
+        }
+        QRDecomposition<DMatrixRMaj> qr = DecompositionFactory_DDRM.qr(cols, n);
+        if (!qr.decompose(mT)) {
+            throw new IllegalArgumentException("QR failed.\n" + mT.toString());
+        }
+        DMatrixRMaj r = qr.getR(null, true);
+        DMatrixRMaj s = new DMatrixRMaj(n, n);
+        for (int i = 0; i < n; ++i) {
+            // flip rows of R so that the diagonal is positive, doesn't change R^T R.
+            double sign = r.get(i, i) < 0 ? -1.0 : 1.0;
+            for (int j = i; j < n; ++j) {
+                s.set(j, i, sign * r.get(i, j));
+            }
+        }
+        return new SquareRootVariance<>(new Matrix<>(new SimpleMatrix(s)));
+    }
+
+    @Override
+    public String toString() {
+        return "SquareRootVariance [value=" + value + "]";
+    }
+}
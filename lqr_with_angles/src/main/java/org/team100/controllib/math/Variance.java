@@ -74,6 +74,15 @@ public class Variance<Dim extends Num> {
         return new Variance<>(value.times(other.value));
     }
 
+    /**
+     * Square-root (Cholesky) form, which is the stable way to invert.
+     * 
+     * @throws IllegalArgumentException if this is not positive definite.
+     */
+    public SquareRootVariance<Dim> sqrt() {
+        return SquareRootVariance.of(this);
+    }
+
     // for testing
     public double[] getData() {
         return value.getData();
@@ -1,6 +1,6 @@
 package org.team100.controllib.reference.examples;
 
-import org.team100.lib.profile.MotionProfile;
+import org.team100.lib.profile.CompiledMotionProfile;
 import org.team100.lib.profile.MotionProfileGenerator;
 import org.team100.lib.profile.MotionState;
 
@@ -20,7 +20,7 @@ public class JerkLimitedProfileReference1D extends Reference1D {
 
     private final MotionState start;
     private final MotionState goal;
-    private final MotionProfile profile;
+    private final CompiledMotionProfile profile;
 
     public JerkLimitedProfileReference1D() {
         start = new MotionState(0, 0, 0);
@@ -30,7 +30,7 @@ public class JerkLimitedProfileReference1D extends Reference1D {
                 goal,
                 maxVel,
                 maxAccel,
-                maxJerk);
+                maxJerk).compile();
     }
 
     @Override
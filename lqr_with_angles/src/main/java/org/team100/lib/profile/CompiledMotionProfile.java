@@ -0,0 +1,144 @@
+package org.team100.lib.profile;
+
+import java.util.List;
+
+/**
+ * Immutable, array-backed version of a [MotionProfile], for followers and
+ * planners that sample the same profile many times.
+ *
+ * The segment end times are accumulated once, so get(t) is a binary search
+ * rather than a walk from the start, and sample() walks forward from the
+ * previous sample rather than searching at all.
+ *
+ * Results match [MotionProfile.get], including the stationary start state for
+ * negative time and the stationary end state after the end.
+ */
+public class CompiledMotionProfile {
+    /** Values per sample in the output of sample(): x, v, a. */
+    public static final int kStride = 3;
+
+    /** End time of each segment, i.e. cumulative duration. */
+    private final double[] m_end;
+    /** Start state of each segment. */
+    private final double[] m_x;
+    private final double[] m_v;
+    private final double[] m_a;
+    private final double[] m_j;
+    private final double m_startX;
+    private final double m_endX;
+
+    CompiledMotionProfile(List<MotionSegment> segments) {
+        int n = segments.size();
+        m_end = new double[n];
+        m_x = new double[n];
+        m_v = new double[n];
+        m_a = new double[n];
+        m_j = new double[n];
+        double t = 0;
+        for (int i = 0; i < n; ++i) {
+            MotionSegment segment = segments.get(i);
+            MotionState start = segment.getStart();
+            t += segment.getDt();
+            m_end[i] = t;
+            m_x[i] = start.getX();
+            m_v[i] = start.getV();
+            m_a[i] = start.getA();
+            m_j[i] = start.getJ();
+        }
+        m_startX = m_x[0];
+        m_endX = segments.get(n - 1).end().getX();
+    }
+
+    /**
+     * Returns the duration of the motion profile.
+     */
+    public double duration() {
+        return m_end[m_end.length - 1];
+    }
+
+    /**
+     * Returns the [MotionState] at time [t].
+     */
+    public MotionState get(double t) {
+        if (t < 0.0)
+            return new MotionState(m_startX, 0.0, 0.0, 0.0);
+        int i = segment(t);
+        if (i == m_end.length)
+            return new MotionState(m_endX, 0.0, 0.0, 0.0);
+        double tau = t - start(i);
+        return new MotionState(x(i, tau), v(i, tau), a(i, tau), m_j[i]);
+    }
+
+    /**
+     * Samples n states at t0, t0 + dt, ... into out, as x, v, a triples, so out
+     * must have room for kStride * n values. No allocation, and no search after
+     * the first sample, so this is the way to evaluate lots of candidates.
+     *
+     * @param dt must be positive
+     */
+    public void sample(double t0, double dt, int n, double[] out) {
+        if (dt <= 0)
+            throw new IllegalArgumentException("dt must be positive: " + dt);
+        if (out.length < kStride * n)
+            throw new IllegalArgumentException("out is too short: " + out.length);
+        int last = m_end.length;
+        int i = t0 < 0 ? 0 : segment(t0);
+        for (int k = 0; k < n; ++k) {
+            double t = t0 + k * dt;
+            int offset = kStride * k;
+            if (t < 0.0) {
+                out[offset] = m_startX;
+                out[offset + 1] = 0.0;
+                out[offset + 2] = 0.0;
+                continue;
+            }
+            while (i < last && t > m_end[i]) {
+                ++i;
+            }
+            if (i == last) {
+                out[offset] = m_endX;
+                out[offset + 1] = 0.0;
+                out[offset + 2] = 0.0;
+                continue;
+            }
+            double tau = t - start(i);
+            out[offset] = x(i, tau);
+            out[offset + 1] = v(i, tau);
+            out[offset + 2] = a(i, tau);
+        }
+    }
+
+    /**
+     * Index of the first segment ending at or after t, or the number of segments
+     * if t is after the end.
+     */
+    int segment(double t) {
+        int lo = 0;
+        int hi = m_end.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (m_end[mid] < t) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private double start(int i) {
+        return i == 0 ? 0.0 : m_end[i - 1];
+    }
+
+    private double x(int i, double t) {
+        return m_x[i] + m_v[i] * t + m_a[i] / 2 * t * t + m_j[i] / 6 * t * t * t;
+    }
+
+    private double v(int i, double t) {
+        return m_v[i] + m_a[i] * t + m_j[i] / 2 * t * t;
+    }
+
+    private double a(int i, double t) {
+        return m_a[i] + m_j[i] * t;
+    }
+}
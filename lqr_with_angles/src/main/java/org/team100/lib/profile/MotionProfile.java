@@ -6,6 +6,7 @@ import java.util.stream.Collectors;
 
 public class MotionProfile {
     private final List<MotionSegment> segments;
+    private final double duration;
 
     /**
      * Trapezoidal motion profile composed of motion segments.
@@ -16,6 +17,11 @@ public class MotionProfile {
         if (segments.isEmpty())
             throw new IllegalArgumentException();
         this.segments = segments;
+        double sum = 0.0;
+        for (MotionSegment segment : segments) {
+            sum += segment.getDt();
+        }
+        this.duration = sum;
     }
 
     /**
@@ -40,7 +46,14 @@ public class MotionProfile {
      * Returns the duration of the motion profile.
      */
     public double duration() {
-        return segments.stream().map((it) -> it.getDt()).reduce(0.0, Double::sum);
+        return duration;
+    }
+
+    /**
+     * Returns an array-backed version, for sampling many times.
+     */
+    public CompiledMotionProfile compile() {
+        return new CompiledMotionProfile(segments);
     }
 
     /**
@@ -0,0 +1,108 @@
+package org.team100.lib.profile;
+
+/**
+ * Time-synchronized trapezoidal profiles for several axes, stored as
+ * structure-of-arrays, one entry per axis.
+ *
+ * Each axis has three phases: change from the start velocity to the cruise
+ * velocity, cruise, and stop. All the axes share the same duration, so they
+ * start and finish together, which is what coordinated arm moves want.
+ *
+ * Instances are meant to be reused: [MultiAxisProfileGenerator] overwrites
+ * all the arrays in place, so regenerating every cycle doesn't allocate.
+ */
+public class MultiAxisProfile {
+    final int axes;
+    /** start position */
+    final double[] start;
+    /** goal position */
+    final double[] goal;
+    /** +1 or -1, the rest of the fields are in the positive frame */
+    final double[] sign;
+    /** start velocity */
+    final double[] v0;
+    /** cruise velocity */
+    final double[] vc;
+    /** acceleration during the first phase */
+    final double[] a1;
+    /** acceleration during the last phase */
+    final double[] a3;
+    /** end of the first phase */
+    final double[] t1;
+    /** end of the cruise phase */
+    final double[] t2;
+    /** end of the last phase */
+    final double[] t3;
+    /** position at the end of the first phase */
+    final double[] x1;
+    /** position at the end of the cruise phase */
+    final double[] x2;
+    double duration;
+
+    public MultiAxisProfile(int axes) {
+        this.axes = axes;
+        start = new double[axes];
+        goal = new double[axes];
+        sign = new double[axes];
+        v0 = new double[axes];
+        vc = new double[axes];
+        a1 = new double[axes];
+        a3 = new double[axes];
+        t1 = new double[axes];
+        t2 = new double[axes];
+        t3 = new double[axes];
+        x1 = new double[axes];
+        x2 = new double[axes];
+    }
+
+    public int axes() {
+        return axes;
+    }
+
+    /** Common duration of all the axes. */
+    public double duration() {
+        return duration;
+    }
+
+    /**
+     * Position and velocity of every axis at time t, written into x and v, which
+     * must have room for all the axes. Before the start the start position is
+     * returned, after the end the goal.
+     */
+    public void sample(double t, double[] x, double[] v) {
+        for (int i = 0; i < axes; ++i) {
+            double p;
+            double pdot;
+            if (t <= 0) {
+                x[i] = start[i];
+                v[i] = t < 0 ? 0 : sign[i] * v0[i];
+                continue;
+            } else if (t < t1[i]) {
+                p = v0[i] * t + a1[i] / 2 * t * t;
+                pdot = v0[i] + a1[i] * t;
+            } else if (t < t2[i]) {
+                double tau = t - t1[i];
+                p = x1[i] + vc[i] * tau;
+                pdot = vc[i];
+            } else if (t < t3[i]) {
+                double tau = t - t2[i];
+                p = x2[i] + vc[i] * tau + a3[i] / 2 * tau * tau;
+                pdot = vc[i] + a3[i] * tau;
+            } else {
+                x[i] = goal[i];
+                v[i] = 0;
+                continue;
+            }
+            x[i] = start[i] + sign[i] * p;
+            v[i] = sign[i] * pdot;
+        }
+    }
+
+    /** Single-axis sample, for followers that only care about one. */
+    public MotionState get(int axis, double t) {
+        double[] x = new double[axes];
+        double[] v = new double[axes];
+        sample(t, x, v);
+        return new MotionState(x[axis], v[axis]);
+    }
+}
@@ -0,0 +1,130 @@
+package org.team100.lib.profile;
+
+/**
+ * Generates time-synchronized, acceleration-limited profiles for several axes
+ * at once, in closed form, into a reusable [MultiAxisProfile].
+ *
+ * For each axis, the minimum time is found from the usual trapezoid (or
+ * triangle, if the cruise velocity isn't reached). The longest of those is the
+ * common duration, and every other axis is stretched to match by solving for
+ * the cruise velocity that takes exactly that long:
+ *
+ * If the cruise velocity is above the start velocity (accelerate, cruise,
+ * stop), the duration T, distance D, start velocity v0, and acceleration a
+ * give a quadratic:
+ *
+ * vc^2 - (v0 + aT) vc + (aD + v0^2/2) = 0
+ *
+ * and the smaller root is the one with a non-negative cruise time.
+ *
+ * Otherwise (slow down, cruise, stop) it's linear:
+ *
+ * vc = (D - v0^2/2a) / (T - v0/a)
+ *
+ * Goal velocity is always zero. An axis that can't stop in time, i.e. its
+ * stopping distance is longer than the remaining distance, decelerates harder
+ * than the limit, like the non-overshoot fallback in
+ * [MotionProfileGenerator]; that axis may finish early and hold.
+ *
+ * There's no search and no allocation, so it's fine to regenerate every cycle
+ * from the current setpoint as the goals change.
+ */
+public class MultiAxisProfileGenerator {
+    private static final double kEpsilon = 1e-9;
+
+    private MultiAxisProfileGenerator() {
+        //
+    }
+
+    /**
+     * All the arrays must have an entry for every axis in the output.
+     *
+     * @param start    start position
+     * @param startVel start velocity
+     * @param goal     goal position, goal velocity is zero
+     * @param maxVel   positive
+     * @param maxAccel positive
+     * @param out      overwritten
+     */
+    public static void generate(
+            double[] start,
+            double[] startVel,
+            double[] goal,
+            double[] maxVel,
+            double[] maxAccel,
+            MultiAxisProfile out) {
+        double duration = 0;
+        for (int i = 0; i < out.axes; ++i) {
+            double d = goal[i] - start[i];
+            double sign = d < 0 ? -1 : 1;
+            out.start[i] = start[i];
+            out.goal[i] = goal[i];
+            out.sign[i] = sign;
+            out.v0[i] = sign * startVel[i];
+            duration = Math.max(duration, minimumTime(sign * d, out.v0[i], maxVel[i], maxAccel[i]));
+        }
+        out.duration = duration;
+        for (int i = 0; i < out.axes; ++i) {
+            stretch(out, i, out.sign[i] * (goal[i] - start[i]), maxAccel[i], duration);
+        }
+    }
+
+    /** Minimum time to go distance D, starting at v0, ending at rest. */
+    static double minimumTime(double D, double v0, double vm, double a) {
+        if (v0 > 0 && v0 * v0 / (2 * a) > D) {
+            // can't stop in time, decelerate harder.
+            if (D < kEpsilon)
+                return 0;
+            return 2 * D / v0;
+        }
+        double vc = Math.min(vm, Math.sqrt(a * D + v0 * v0 / 2));
+        if (vc < kEpsilon)
+            return 0;
+        if (vc >= v0) {
+            return (vc - v0) / a + vc / a + (D - (2 * vc * vc - v0 * v0) / (2 * a)) / vc;
+        }
+        // start is above the max velocity
+        return v0 / a + (D - v0 * v0 / (2 * a)) / vc;
+    }
+
+    /** Fill in axis i so that it takes exactly T. */
+    static void stretch(MultiAxisProfile out, int i, double D, double a, double T) {
+        double v0 = out.v0[i];
+        double vc;
+        double a1;
+        double a3 = -a;
+        double t1;
+        double t3;
+        double t2;
+        if (v0 > 0 && v0 * v0 / (2 * a) > D) {
+            // can't stop in time
+            vc = v0;
+            a1 = 0;
+            t1 = 0;
+            a3 = D < kEpsilon ? 0 : -v0 * v0 / (2 * D);
+            t3 = D < kEpsilon ? 0 : 2 * D / v0;
+            // no cruise, finish early
+            t2 = 0;
+        } else {
+            double b = v0 + a * T;
+            double c = a * D + v0 * v0 / 2;
+            vc = (b - Math.sqrt(Math.max(0, b * b - 4 * c))) / 2;
+            if (vc < v0) {
+                // slow down to cruise
+                vc = (D - v0 * v0 / (2 * a)) / (T - v0 / a);
+            }
+            a1 = vc >= v0 ? a : -a;
+            t1 = Math.abs(vc - v0) / a;
+            t3 = vc / a;
+            t2 = Math.max(0, T - t1 - t3);
+        }
+        out.vc[i] = vc;
+        out.a1[i] = a1;
+        out.a3[i] = a3;
+        out.t1[i] = t1;
+        out.t2[i] = t1 + t2;
+        out.t3[i] = t1 + t2 + t3;
+        out.x1[i] = v0 * t1 + a1 / 2 * t1 * t1;
+        out.x2[i] = out.x1[i] + vc * t2;
+    }
+}
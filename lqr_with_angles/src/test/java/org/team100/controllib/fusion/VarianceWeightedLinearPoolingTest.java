@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.List;
 import java.util.Random;
 
 import org.junit.jupiter.api.Test;
@@ -211,6 +212,16 @@ public class VarianceWeightedLinearPoolingTest extends PoolingTest {
         assert2(cV, 0, 1, 1, 0, 0, 1);
     }
 
+    @Test
+    public void testBothDontKnow() {
+        // this used to fail the determinant check on the sum of inverses
+        RandomVector<N2> aV = v2(0, 0, 1e9, 0, 0, 1e9);
+        RandomVector<N2> bV = v2(1, 1, 1e9, 0, 0, 1e9);
+        RandomVector<N2> cV = p2.fuse(aV, bV);
+        assertArrayEquals(new double[] { 0.5, 0.5 }, cV.x.getData(), kDelta);
+        assertArrayEquals(new double[] { 5e8, 0, 0, 5e8 }, cV.Kxx.getData(), 1);
+    }
+
     @Test
     public void testDontKnowWeights() {
         RandomVector<N2> aV = v2(0, 0, 1, 0, 0, 1e9);
@@ -313,6 +324,65 @@ public class VarianceWeightedLinearPoolingTest extends PoolingTest {
         assertArrayEquals(new double[] { 0.999 }, cV.Kxx.getData(), 0.001);
     }
 
+    @Test
+    public void testNWayMatchesPairwise() {
+        RandomVector<N2> aV = v2(0, 0, 1, 0, 0, 2);
+        RandomVector<N2> bV = v2(1, 1, 2, 0, 0, 1);
+        RandomVector<N2> pairwise = p2.fuse(aV, bV);
+        RandomVector<N2> nway = p2.fuse(List.of(aV, bV));
+        assertArrayEquals(pairwise.x.getData(), nway.x.getData(), kDelta);
+        assertArrayEquals(pairwise.Kxx.getData(), nway.Kxx.getData(), kDelta);
+    }
+
+    @Test
+    public void testNWayUnanimity() {
+        RandomVector<N1> aV = v1(0, 1);
+        // see the same thing four times -> become four times as sure
+        RandomVector<N1> cV = p1.fuse(List.of(aV, aV, aV, aV));
+        assert1(cV, 0, 0.25);
+    }
+
+    @Test
+    public void testNWayOne() {
+        RandomVector<N2> aV = v2(1, 2, 1, 0.5, 0.5, 2);
+        RandomVector<N2> cV = p2.fuse(List.of(aV));
+        assert2(cV, 1, 2, 1, 0.5, 0.5, 2);
+    }
+
+    @Test
+    public void testNWayOrderIndependent() {
+        RandomVector<N1> aV = v1(0, 1);
+        RandomVector<N1> bV = v1(1, 2);
+        RandomVector<N1> cV = v1(2, 4);
+        RandomVector<N1> abc = p1.fuse(List.of(aV, bV, cV));
+        RandomVector<N1> cba = p1.fuse(List.of(cV, bV, aV));
+        // weights are 4/7, 2/7, 1/7
+        assert1(abc, 0.571, 1.102);
+        assert1(cba, 0.571, 1.102);
+    }
+
+    @Test
+    public void testNWayDontKnow() {
+        // the 1e9 variances don't break anything
+        RandomVector<N2> aV = v2(0, 0, 1, 0, 0, 1e9);
+        RandomVector<N2> bV = v2(1, 1, 1e9, 0, 0, 1);
+        RandomVector<N2> cV = v2(0, 1, 1e9, 0, 0, 1e9);
+        RandomVector<N2> dV = p2.fuse(List.of(aV, bV, cV));
+        assert2(dV, 0, 1, 1, 0, 0, 1);
+    }
+
+    @Test
+    public void testNWayZeroVariance() {
+        RandomVector<N1> aV = v1(0, 0);
+        RandomVector<N1> bV = v1(1, 1);
+        assertThrows(IllegalArgumentException.class, () -> p1.fuse(List.of(aV, bV)));
+    }
+
+    @Test
+    public void testNWayEmpty() {
+        assertThrows(IllegalArgumentException.class, () -> p1.fuse(List.of()));
+    }
+
     //@Test
     public void testRandom() {
         // make a bunch of random samples with the variance of the measurement.
@@ -0,0 +1,99 @@
+package org.team100.controllib.math;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.numbers.N2;
+
+public class SquareRootVarianceTest {
+    private static final double kDelta = 0.001;
+
+    static Matrix<N2, N2> m2(double x00, double x01, double x10, double x11) {
+        Matrix<N2, N2> X = new Matrix<>(Nat.N2(), Nat.N2());
+        X.set(0, 0, x00);
+        X.set(0, 1, x01);
+        X.set(1, 0, x10);
+        X.set(1, 1, x11);
+        return X;
+    }
+
+    @Test
+    public void testDiagonal() {
+        SquareRootVariance<N2> s = Variance.from2StdDev(2, 3).sqrt();
+        // the square root of a diagonal variance is the std dev
+        assertArrayEquals(new double[] { 2, 0, 0, 3 }, s.getValue().getData(), kDelta);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Variance<N2> p = new Variance<>(m2(2, 0.5, 0.5, 1));
+        SquareRootVariance<N2> s = p.sqrt();
+        // lower triangular
+        assertArrayEquals(new double[] { 1.414, 0, 0.354, 0.935 }, s.getValue().getData(), kDelta);
+        assertArrayEquals(p.getData(), s.toVariance().getData(), kDelta);
+    }
+
+    @Test
+    public void testInverse() {
+        Variance<N2> p = new Variance<>(m2(2, 0.5, 0.5, 1));
+        Matrix<N2, N2> inv = p.sqrt().inverse();
+        assertArrayEquals(p.getValue().inv().getData(), inv.getData(), kDelta);
+    }
+
+    @Test
+    public void testInverseDontKnow() {
+        // det of the inverse is 1e-18 but that's fine.
+        Variance<N2> p = new Variance<>(m2(1e9, 0, 0, 1e9));
+        Matrix<N2, N2> inv = p.sqrt().inverse();
+        assertArrayEquals(new double[] { 1e-9, 0, 0, 1e-9 }, inv.getData(), 1e-15);
+    }
+
+    @Test
+    public void testNotPositiveDefinite() {
+        Variance<N2> p = new Variance<>(m2(1, 0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> p.sqrt());
+    }
+
+    @Test
+    public void testPlus() {
+        Variance<N2> p = new Variance<>(m2(2, 0.5, 0.5, 1));
+        Variance<N2> q = Variance.from2StdDev(1, 2);
+        SquareRootVariance<N2> s = p.sqrt().plus(q.sqrt());
+        assertArrayEquals(p.plus(q).getData(), s.toVariance().getData(), kDelta);
+    }
+
+    @Test
+    public void testPredict() {
+        Variance<N2> p = new Variance<>(m2(2, 0.5, 0.5, 1));
+        Variance<N2> q = Variance.from2StdDev(0.1, 0.1);
+        // double integrator, dt = 0.5
+        Matrix<N2, N2> A = m2(1, 0.5, 0, 1);
+        SquareRootVariance<N2> s = p.sqrt().predict(A, q.sqrt());
+        Matrix<N2, N2> expected = A.times(p.getValue()).times(A.transpose()).plus(q.getValue());
+        assertArrayEquals(expected.getData(), s.toVariance().getData(), kDelta);
+        // still lower triangular
+        assertArrayEquals(new double[] { 0 }, new double[] { s.getValue().get(0, 1) }, kDelta);
+    }
+
+    @Test
+    public void testFuse() {
+        Variance<N2> a = new Variance<>(m2(2, 0.5, 0.5, 1));
+        Variance<N2> b = Variance.from2StdDev(1, 2);
+        SquareRootVariance<N2> s = a.sqrt().fuse(b.sqrt());
+        Matrix<N2, N2> expected = a.getValue().inv().plus(b.getValue().inv()).inv();
+        assertArrayEquals(expected.getData(), s.toVariance().getData(), kDelta);
+    }
+
+    @Test
+    public void testFuseDontKnow() {
+        // fusing with "don't know" gives back the known variance
+        Variance<N2> a = new Variance<>(m2(1, 0, 0, 1e9));
+        Variance<N2> b = new Variance<>(m2(1e9, 0, 0, 1));
+        SquareRootVariance<N2> s = a.sqrt().fuse(b.sqrt());
+        assertArrayEquals(new double[] { 1, 0, 0, 1 }, s.toVariance().getData(), kDelta);
+    }
+}
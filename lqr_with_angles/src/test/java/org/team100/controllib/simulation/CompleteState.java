@@ -21,6 +21,15 @@ public class CompleteState {
 
     int replayCount;
 
+    double estimatedPosition; // estimate for the current instant
+    double estimatedVelocity;
+    double estimatedPositionVariance;
+    double estimatedCovariance;
+    double estimatedVelocityVariance;
+
+    long replayNanos; // time spent in the most recent replay
+    long predictNowNanos; // time spent in the most recent predictNow
+
     double predictionTimeSec; // time in the future this prediction is intended for
     double predictedPosition;
     double predictedVelocity;
@@ -0,0 +1,55 @@
+package org.team100.controllib.simulation;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * For test simulation only. Holds sensor messages until their arrival time,
+ * according to a latency profile. Jitter can reorder messages, so a late one
+ * can arrive after a newer one, which is what replay is for.
+ */
+public class DelayLine {
+    interface Sink {
+        void accept(long recordTimeUs, double validTimeSec, double value);
+    }
+
+    private static class Message {
+        final long arrivalUs;
+        final double validTimeSec;
+        final double value;
+
+        Message(long arrivalUs, double validTimeSec, double value) {
+            this.arrivalUs = arrivalUs;
+            this.validTimeSec = validTimeSec;
+            this.value = value;
+        }
+    }
+
+    private final ArrayDeque<Message> m_messages = new ArrayDeque<>();
+    private final LatencyProfile m_latency;
+    private final Random m_random;
+
+    public DelayLine(LatencyProfile latency, Random random) {
+        m_latency = latency;
+        m_random = random;
+    }
+
+    void send(long timeUs, double validTimeSec, double value) {
+        if (m_latency.drop(m_random))
+            return;
+        m_messages.add(new Message(timeUs + m_latency.delayUs(m_random), validTimeSec, value));
+    }
+
+    /** Deliver everything that has arrived by now. */
+    void deliver(long timeUs, Sink sink) {
+        Iterator<Message> iter = m_messages.iterator();
+        while (iter.hasNext()) {
+            Message m = iter.next();
+            if (m.arrivalUs <= timeUs) {
+                sink.accept(timeUs, m.validTimeSec, m.value);
+                iter.remove();
+            }
+        }
+    }
+}
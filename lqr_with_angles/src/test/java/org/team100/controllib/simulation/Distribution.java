@@ -0,0 +1,61 @@
+package org.team100.controllib.simulation;
+
+import java.util.Arrays;
+
+/**
+ * For test simulation only. Collects one number per run, so results can be
+ * judged as distributions rather than single runs.
+ */
+public class Distribution {
+    private double[] m_values = new double[16];
+    private int m_size;
+
+    public synchronized void add(double value) {
+        if (m_size == m_values.length) {
+            m_values = Arrays.copyOf(m_values, m_size * 2);
+        }
+        m_values[m_size++] = value;
+    }
+
+    public synchronized int count() {
+        return m_size;
+    }
+
+    public synchronized double mean() {
+        if (m_size == 0)
+            return Double.NaN;
+        double sum = 0;
+        for (int i = 0; i < m_size; ++i) {
+            sum += m_values[i];
+        }
+        return sum / m_size;
+    }
+
+    public synchronized double stddev() {
+        if (m_size < 2)
+            return 0;
+        double mean = mean();
+        double sum = 0;
+        for (int i = 0; i < m_size; ++i) {
+            double d = m_values[i] - mean;
+            sum += d * d;
+        }
+        return Math.sqrt(sum / (m_size - 1));
+    }
+
+    /** Nearest-rank percentile, p between zero and one. */
+    public synchronized double percentile(double p) {
+        if (m_size == 0)
+            return Double.NaN;
+        double[] sorted = Arrays.copyOf(m_values, m_size);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p * m_size) - 1;
+        return sorted[Math.max(0, Math.min(m_size - 1, rank))];
+    }
+
+    /** mean, standard deviation, median, and 95th percentile */
+    @Override
+    public String toString() {
+        return String.format("%10.5f %10.5f %10.5f %10.5f", mean(), stddev(), percentile(0.5), percentile(0.95));
+    }
+}
@@ -0,0 +1,79 @@
+package org.team100.controllib.simulation;
+
+/**
+ * For test simulation only. Histogram of durations in nanoseconds, with
+ * power-of-two buckets, so it's small, cheap, and easy to merge across runs.
+ * 
+ * Bucket i holds durations in [2^i, 2^(i+1)), bucket zero also holds zero.
+ */
+public class LatencyHistogram {
+    private static final int kBuckets = 64;
+    private final long[] m_counts = new long[kBuckets];
+    private long m_count;
+    private long m_maxNanos;
+
+    public void add(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        m_counts[bucket(nanos)]++;
+        m_count++;
+        m_maxNanos = Math.max(m_maxNanos, nanos);
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < kBuckets; ++i) {
+            m_counts[i] += other.m_counts[i];
+        }
+        m_count += other.m_count;
+        m_maxNanos = Math.max(m_maxNanos, other.m_maxNanos);
+    }
+
+    public long count() {
+        return m_count;
+    }
+
+    public long maxNanos() {
+        return m_maxNanos;
+    }
+
+    /**
+     * @param p quantile, between zero and one
+     * @return upper bound of the bucket containing the quantile, in nanoseconds.
+     */
+    public long percentileNanos(double p) {
+        if (m_count == 0)
+            return 0;
+        long target = (long) Math.ceil(p * m_count);
+        long seen = 0;
+        for (int i = 0; i < kBuckets; ++i) {
+            seen += m_counts[i];
+            if (seen >= Math.max(1, target))
+                return Math.min(upperBound(i), m_maxNanos);
+        }
+        return m_maxNanos;
+    }
+
+    static int bucket(long nanos) {
+        if (nanos == 0)
+            return 0;
+        return 63 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket >= 62)
+            return Long.MAX_VALUE;
+        return (1L << (bucket + 1)) - 1;
+    }
+
+    /** One line per non-empty bucket, with a bar. */
+    public String toTable() {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < kBuckets; ++i) {
+            if (m_counts[i] == 0)
+                continue;
+            int bar = (int) (50 * m_counts[i] / m_count);
+            b.append(String.format("%12d ns, %10d, %s%n", upperBound(i), m_counts[i], "#".repeat(bar)));
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package org.team100.controllib.simulation;
+
+import java.util.Random;
+
+/**
+ * For test simulation only. Delay between a sensor sending a message and the
+ * estimator seeing it: a fixed part plus uniform jitter, and some chance of
+ * never seeing it at all.
+ */
+public class LatencyProfile {
+    /** Instant delivery, the same as the original simulation. */
+    public static final LatencyProfile NONE = new LatencyProfile("NONE", 0, 0, 0);
+    /** CAN bus: a couple of ms, a little jitter. */
+    public static final LatencyProfile CAN = new LatencyProfile("CAN", 2000, 1000, 0);
+    /** Busy CAN bus: more jitter, sometimes dropped. */
+    public static final LatencyProfile BUSY_CAN = new LatencyProfile("BUSY_CAN", 2000, 10000, 0.02);
+    /** Late enough to arrive after the next rio loop. */
+    public static final LatencyProfile SLOW = new LatencyProfile("SLOW", 30000, 20000, 0.05);
+
+    final String label;
+    final long fixedUs;
+    final long jitterUs;
+    final double dropProbability;
+
+    public LatencyProfile(String label, long fixedUs, long jitterUs, double dropProbability) {
+        this.label = label;
+        this.fixedUs = fixedUs;
+        this.jitterUs = jitterUs;
+        this.dropProbability = dropProbability;
+    }
+
+    /** Doesn't use the random source at all if there's no jitter. */
+    long delayUs(Random random) {
+        if (jitterUs == 0)
+            return fixedUs;
+        return fixedUs + (long) (random.nextDouble() * jitterUs);
+    }
+
+    /** Doesn't use the random source at all if nothing is ever dropped. */
+    boolean drop(Random random) {
+        if (dropProbability == 0)
+            return false;
+        return random.nextDouble() < dropProbability;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
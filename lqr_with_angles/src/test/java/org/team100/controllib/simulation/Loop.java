@@ -1,5 +1,7 @@
 package org.team100.controllib.simulation;
 
+import java.util.Random;
+
 import org.team100.controllib.controller.GainCalculator;
 import org.team100.controllib.estimator.NewBitemporalEstimatorController;
 import org.team100.controllib.math.AngularRandomVector;
@@ -19,6 +21,7 @@ import edu.wpi.first.math.numbers.N2;
 public class Loop {
     // sparkmax is 500us between measurements, maybe try that.
     private static final long kUsecPerSimLoop = 2000; // 2 ms per simulation loop
+    private static final long kSteps = 2000;
     private static final long kUsecPerRioLoop = 20000; // 20 ms per rio loop
     private static final double kSecPerUsec = 1e-6;
     private static final double kSecPerRioLoop = kUsecPerRioLoop * kSecPerUsec;
@@ -33,6 +36,15 @@ public class Loop {
     private final Scenario m_scenario;
 
     public Loop(Scenario scenario) {
+        this(scenario, new Random(), LatencyProfile.NONE);
+    }
+
+    /**
+     * @param random  source of sensor noise and latency, seed it for repeatable
+     *                runs
+     * @param latency delay between the sensors and the estimator
+     */
+    public Loop(Scenario scenario, Random random, LatencyProfile latency) {
         m_scenario = scenario;
         state = new CompleteState();
         WhiteNoiseVector<N2> w = WhiteNoiseVector.noise2(0.015, 0.17);
@@ -53,8 +65,8 @@ public class Loop {
                 scenario.reference(),
                 gc.getK());
 
-        positionSensor = new PositionSensor(system, estimator);
-        velocitySensor = new VelocitySensor(system, estimator);
+        positionSensor = new PositionSensor(system, estimator, random, latency);
+        velocitySensor = new VelocitySensor(system, estimator, random, latency);
         roborio = new RoboRIO(system, estimator);
     }
 
@@ -68,24 +80,49 @@ public class Loop {
     }
 
     public void run() {
-        Matrix<N2,N1> initr = m_scenario.reference().getR(0);
-        Matrix<N2,N1> initrdot = m_scenario.reference().getRDot(0);
-
-        state.init(initr.get(0,0), initr.get(1,0), initrdot.get(1,0));
+        init();
         System.out.println("\n\n" + m_scenario.label());
         System.out.println(state.header());
-        for (long step = 0; step < 2000; ++step) {
-            state.systemTimeMicrosec = step * kUsecPerSimLoop; // fpgatime
-            updateActual();
-            updateObservation();
-            positionSensor.step(state);
-            velocitySensor.step(state);
-            roborio.step(state);
-            updateResidual();
+        for (long step = 0; step < kSteps; ++step) {
+            step(step);
             System.out.println(state.toString());
         }
     }
 
+    /** Run without printing anything, collecting statistics instead. */
+    public RunStatistics runQuietly() {
+        return runQuietly(kSteps);
+    }
+
+    public RunStatistics runQuietly(long steps) {
+        init();
+        RunStatistics stats = new RunStatistics();
+        for (long step = 0; step < steps; ++step) {
+            step(step);
+            if (state.systemTimeMicrosec % kUsecPerRioLoop == 0) {
+                stats.add(state);
+            }
+        }
+        return stats;
+    }
+
+    private void init() {
+        Matrix<N2,N1> initr = m_scenario.reference().getR(0);
+        Matrix<N2,N1> initrdot = m_scenario.reference().getRDot(0);
+
+        state.init(initr.get(0,0), initr.get(1,0), initrdot.get(1,0));
+    }
+
+    private void step(long step) {
+        state.systemTimeMicrosec = step * kUsecPerSimLoop; // fpgatime
+        updateActual();
+        updateObservation();
+        positionSensor.step(state);
+        velocitySensor.step(state);
+        roborio.step(state);
+        updateResidual();
+    }
+
     /**
      * Update the actual state of the physical system.
      */
@@ -0,0 +1,124 @@
+package org.team100.controllib.simulation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * For test simulation only. Runs every combination of scenario, noise seed,
+ * and latency profile, in parallel and without printing, and summarizes each
+ * (scenario, latency) group as distributions across seeds, so changes to the
+ * estimator or gains can be judged on more than one printed run.
+ * 
+ * Each run gets its own scenario, loop, and estimator, so nothing is shared
+ * between threads.
+ */
+public class MonteCarlo {
+    /** Results for all the seeds of one (scenario, latency) pair. */
+    public static class Group {
+        public final String label;
+        public final Distribution rmsTrackingError = new Distribution();
+        public final Distribution rmsPositionError = new Distribution();
+        public final Distribution rmsVelocityError = new Distribution();
+        public final Distribution meanNees = new Distribution();
+        public final LatencyHistogram replayNanos = new LatencyHistogram();
+        public final LatencyHistogram predictNowNanos = new LatencyHistogram();
+
+        Group(String label) {
+            this.label = label;
+        }
+
+        synchronized void add(RunStatistics stats) {
+            rmsTrackingError.add(stats.rmsTrackingError());
+            rmsPositionError.add(stats.rmsPositionError());
+            rmsVelocityError.add(stats.rmsVelocityError());
+            meanNees.add(stats.meanNees());
+            replayNanos.merge(stats.replayNanos);
+            predictNowNanos.merge(stats.predictNowNanos);
+        }
+    }
+
+    private static class Case {
+        final Supplier<Scenario> scenario;
+        final long seed;
+        final LatencyProfile latency;
+        final Group group;
+
+        Case(Supplier<Scenario> scenario, long seed, LatencyProfile latency, Group group) {
+            this.scenario = scenario;
+            this.seed = seed;
+            this.latency = latency;
+            this.group = group;
+        }
+
+        void run(long steps) {
+            Loop loop = new Loop(scenario.get(), new Random(seed), latency);
+            group.add(loop.runQuietly(steps));
+        }
+    }
+
+    private final List<Supplier<Scenario>> m_scenarios;
+    private final List<LatencyProfile> m_latencies;
+    private final int m_seeds;
+    private final long m_steps;
+
+    /**
+     * @param scenarios each run gets a fresh scenario from the supplier
+     * @param latencies latency profiles to try
+     * @param seeds     number of noise seeds per (scenario, latency) pair
+     * @param steps     simulation steps per run, 2 ms each
+     */
+    public MonteCarlo(
+            List<Supplier<Scenario>> scenarios,
+            List<LatencyProfile> latencies,
+            int seeds,
+            long steps) {
+        m_scenarios = scenarios;
+        m_latencies = latencies;
+        m_seeds = seeds;
+        m_steps = steps;
+    }
+
+    /** @return groups in (scenario, latency) order */
+    public List<Group> run() {
+        Map<String, Group> groups = new LinkedHashMap<>();
+        List<Case> cases = new ArrayList<>();
+        for (Supplier<Scenario> scenario : m_scenarios) {
+            String scenarioLabel = scenario.get().label();
+            for (LatencyProfile latency : m_latencies) {
+                String label = scenarioLabel + " / " + latency;
+                Group group = groups.computeIfAbsent(label, Group::new);
+                for (long seed = 0; seed < m_seeds; ++seed) {
+                    cases.add(new Case(scenario, seed, latency, group));
+                }
+            }
+        }
+        cases.parallelStream().forEach(c -> c.run(m_steps));
+        return new ArrayList<>(groups.values());
+    }
+
+    /** One block per group: error distributions and latency percentiles. */
+    public static String report(List<Group> groups) {
+        StringBuilder b = new StringBuilder();
+        b.append(String.format("%-32s %10s %10s %10s %10s%n", "", "mean", "stddev", "p50", "p95"));
+        for (Group g : groups) {
+            b.append(String.format("%s (%d runs)%n", g.label, g.meanNees.count()));
+            b.append(String.format("%-32s %s%n", "  rms tracking error", g.rmsTrackingError));
+            b.append(String.format("%-32s %s%n", "  rms position error", g.rmsPositionError));
+            b.append(String.format("%-32s %s%n", "  rms velocity error", g.rmsVelocityError));
+            b.append(String.format("%-32s %s%n", "  mean NEES (2 is consistent)", g.meanNees));
+            b.append(String.format("  replay ns     p50 %10d p99 %10d max %10d%n",
+                    g.replayNanos.percentileNanos(0.5),
+                    g.replayNanos.percentileNanos(0.99),
+                    g.replayNanos.maxNanos()));
+            b.append(String.format("  predictNow ns p50 %10d p99 %10d max %10d%n",
+                    g.predictNowNanos.percentileNanos(0.5),
+                    g.predictNowNanos.percentileNanos(0.99),
+                    g.predictNowNanos.maxNanos()));
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,71 @@
+package org.team100.controllib.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class MonteCarloTest {
+
+    @Test
+    public void testSmall() {
+        MonteCarlo mc = new MonteCarlo(
+                List.of(ConstantVelocity::new, Sinusoidal::new),
+                List.of(LatencyProfile.NONE, LatencyProfile.CAN),
+                3,
+                1000);
+        List<MonteCarlo.Group> groups = mc.run();
+        assertEquals(4, groups.size());
+        for (MonteCarlo.Group g : groups) {
+            assertEquals(3, g.meanNees.count());
+            // 1000 steps of 2 ms is 100 rio ticks
+            assertEquals(300, g.replayNanos.count());
+            assertFalse(Double.isNaN(g.rmsPositionError.mean()));
+        }
+    }
+
+    @Test
+    public void testHistogram() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 100; ++i) {
+            h.add(i * 1000);
+        }
+        assertEquals(100, h.count());
+        assertEquals(100000, h.maxNanos());
+        // 50000 is in [32768, 65536)
+        assertEquals(65535, h.percentileNanos(0.5));
+        assertEquals(100000, h.percentileNanos(1.0));
+    }
+
+    @Test
+    public void testDistribution() {
+        Distribution d = new Distribution();
+        for (int i = 1; i <= 100; ++i) {
+            d.add(i);
+        }
+        assertEquals(50.5, d.mean(), 0.001);
+        assertEquals(50, d.percentile(0.5), 0.001);
+        assertEquals(95, d.percentile(0.95), 0.001);
+    }
+
+    // this takes a while
+    // @Test
+    public void testLarge() {
+        MonteCarlo mc = new MonteCarlo(
+                List.of(ConstantAcceleration::new, ConstantVelocity::new, Sinusoidal::new,
+                        Trajectory::new, JerkLimitedTrajectory::new),
+                List.of(LatencyProfile.NONE, LatencyProfile.CAN, LatencyProfile.BUSY_CAN, LatencyProfile.SLOW),
+                100,
+                2000);
+        List<MonteCarlo.Group> groups = mc.run();
+        System.out.println(MonteCarlo.report(groups));
+        System.out.println("replay latency, all runs");
+        LatencyHistogram all = new LatencyHistogram();
+        for (MonteCarlo.Group g : groups) {
+            all.merge(g.replayNanos);
+        }
+        System.out.println(all.toTable());
+    }
+}
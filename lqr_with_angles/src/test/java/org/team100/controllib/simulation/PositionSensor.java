@@ -25,6 +25,7 @@ public class PositionSensor {
     private final DoubleIntegratorRotary1D system;
     private final NewBitemporalEstimatorController<N2, N1, N2> estimator;
     private final Random m_random;
+    private final DelayLine m_delay;
     private final double stdev;
 
     double measurementValue;
@@ -35,9 +36,18 @@ public class PositionSensor {
     public PositionSensor(
             DoubleIntegratorRotary1D system,
             NewBitemporalEstimatorController<N2, N1, N2> estimator) {
+        this(system, estimator, new Random(), LatencyProfile.NONE);
+    }
+
+    public PositionSensor(
+            DoubleIntegratorRotary1D system,
+            NewBitemporalEstimatorController<N2, N1, N2> estimator,
+            Random random,
+            LatencyProfile latency) {
         this.system = system;
         this.estimator = estimator;
-        m_random = new Random();
+        m_random = random;
+        m_delay = new DelayLine(latency, random);
         stdev = Math.sqrt(system.v().Kxx.get(0, 0));
     }
 
@@ -57,11 +67,15 @@ public class PositionSensor {
             // send a measurement over can bus
             messageValue = measurementValue;
             messageTimestampUs = timeUs;
-            // let the rio see the one that we sent
-            state.observedPosition = messageValue;
-            state.positionObservationTimeSec = currentTime;
-            estimator.acceptMeasurement(timeUs, currentTime, system.position(messageValue));
+            m_delay.send(timeUs, currentTime, messageValue);
         }
+
+        m_delay.deliver(timeUs, (recordTimeUs, validTimeSec, value) -> {
+            // let the rio see the one that we sent
+            state.observedPosition = value;
+            state.positionObservationTimeSec = validTimeSec;
+            estimator.acceptMeasurement(recordTimeUs, validTimeSec, system.position(value));
+        });
     }
 
 }
@@ -33,9 +33,20 @@ public class RoboRIO {
             if (debug)
                 System.out.println("rio step " + state.actualTimeSec());
 
+            long startNanos = System.nanoTime();
             state.replayCount = estimator.replay(state.systemTimeMicrosec);
+            long replayNanos = System.nanoTime();
 
             RandomVector<N2> currentState = estimator.predictNow(state.actualTimeSec());
+            long predictNowNanos = System.nanoTime();
+            state.replayNanos = replayNanos - startNanos;
+            state.predictNowNanos = predictNowNanos - replayNanos;
+
+            state.estimatedPosition = currentState.x.get(0, 0);
+            state.estimatedVelocity = currentState.x.get(1, 0);
+            state.estimatedPositionVariance = currentState.Kxx.get(0, 0);
+            state.estimatedCovariance = currentState.Kxx.get(0, 1);
+            state.estimatedVelocityVariance = currentState.Kxx.get(1, 1);
 
             // Use the midpoint feedforward as the control for the future estimate.
 
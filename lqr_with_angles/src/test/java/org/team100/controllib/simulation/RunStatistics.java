@@ -0,0 +1,79 @@
+package org.team100.controllib.simulation;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * For test simulation only. Summarizes one run of the loop, one sample per rio
+ * tick.
+ * 
+ * Tracking error is the controller's view: the reference minus the prediction
+ * for the end of the period.
+ * 
+ * Estimator error is the truth minus the estimate for the current instant, and
+ * consistency is the normalized estimation error squared (NEES):
+ * 
+ * e^T P^-1 e
+ * 
+ * which for a consistent 2-dimensional estimator averages 2. Much more means
+ * the estimator is overconfident, much less means it's too timid.
+ * 
+ * Samples during the warmup period, while the estimator is still getting over
+ * the "don't know" initial variance, are ignored, except for latency.
+ */
+public class RunStatistics {
+    private static final double kWarmupSec = 1.0;
+
+    public final LatencyHistogram replayNanos = new LatencyHistogram();
+    public final LatencyHistogram predictNowNanos = new LatencyHistogram();
+
+    private int m_count;
+    private double m_trackingSquared;
+    private double m_positionErrorSquared;
+    private double m_velocityErrorSquared;
+    private double m_nees;
+    private int m_neesCount;
+    private int m_replays;
+
+    void add(CompleteState state) {
+        replayNanos.add(state.replayNanos);
+        predictNowNanos.add(state.predictNowNanos);
+        m_replays += state.replayCount;
+        if (state.actualTimeSec() < kWarmupSec)
+            return;
+        m_count++;
+        m_trackingSquared += state.errorPosition * state.errorPosition;
+        double ep = MathUtil.angleModulus(state.actualPosition - state.estimatedPosition);
+        double ev = state.actualVelocity - state.estimatedVelocity;
+        m_positionErrorSquared += ep * ep;
+        m_velocityErrorSquared += ev * ev;
+        double a = state.estimatedPositionVariance;
+        double b = state.estimatedCovariance;
+        double d = state.estimatedVelocityVariance;
+        double det = a * d - b * b;
+        if (det > 0) {
+            // e^T P^-1 e for 2x2 P
+            m_nees += (d * ep * ep - 2 * b * ep * ev + a * ev * ev) / det;
+            m_neesCount++;
+        }
+    }
+
+    public double rmsTrackingError() {
+        return Math.sqrt(m_trackingSquared / m_count);
+    }
+
+    public double rmsPositionError() {
+        return Math.sqrt(m_positionErrorSquared / m_count);
+    }
+
+    public double rmsVelocityError() {
+        return Math.sqrt(m_velocityErrorSquared / m_count);
+    }
+
+    public double meanNees() {
+        return m_nees / m_neesCount;
+    }
+
+    public int replays() {
+        return m_replays;
+    }
+}
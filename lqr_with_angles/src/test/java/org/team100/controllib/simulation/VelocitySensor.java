@@ -27,6 +27,7 @@ public class VelocitySensor {
     private final DoubleIntegratorRotary1D system;
     private final NewBitemporalEstimatorController<N2, N1, N2> estimator;
     private final Random m_random;
+    private final DelayLine m_delay;
     private final double stdev;
 
     double measurementValue;
@@ -37,9 +38,18 @@ public class VelocitySensor {
     public VelocitySensor(
             DoubleIntegratorRotary1D system,
             NewBitemporalEstimatorController<N2, N1, N2> estimator) {
+        this(system, estimator, new Random(), LatencyProfile.NONE);
+    }
+
+    public VelocitySensor(
+            DoubleIntegratorRotary1D system,
+            NewBitemporalEstimatorController<N2, N1, N2> estimator,
+            Random random,
+            LatencyProfile latency) {
         this.system = system;
         this.estimator = estimator;
-        m_random = new Random();
+        m_random = random;
+        m_delay = new DelayLine(latency, random);
         stdev = Math.sqrt(system.v().Kxx.get(1, 1));
     }
 
@@ -59,11 +69,15 @@ public class VelocitySensor {
             // send a measurement over can bus
             messageValue = measurementValue;
             messageTimestampUs = timeUs;
-            // let the rio see the one that we sent
-            state.observedVelocity = messageValue;
-            state.velocityObservationTimeSec = currentTime;
-            estimator.acceptMeasurement(timeUs, currentTime, system.velocity(messageValue));
+            m_delay.send(timeUs, currentTime, messageValue);
         }
+
+        m_delay.deliver(timeUs, (recordTimeUs, validTimeSec, value) -> {
+            // let the rio see the one that we sent
+            state.observedVelocity = value;
+            state.velocityObservationTimeSec = validTimeSec;
+            estimator.acceptMeasurement(recordTimeUs, validTimeSec, system.velocity(value));
+        });
     }
 
 }
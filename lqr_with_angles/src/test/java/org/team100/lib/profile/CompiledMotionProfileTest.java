@@ -0,0 +1,61 @@
+package org.team100.lib.profile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class CompiledMotionProfileTest {
+    private static final double kDelta = 1e-9;
+
+    private static void assertSame(MotionProfile profile) {
+        CompiledMotionProfile compiled = profile.compile();
+        assertEquals(profile.duration(), compiled.duration(), kDelta);
+        // before, during, and after
+        for (double t = -1; t < profile.duration() + 1; t += 0.01) {
+            MotionState expected = profile.get(t);
+            MotionState actual = compiled.get(t);
+            assertEquals(expected.getX(), actual.getX(), kDelta, "x at " + t);
+            assertEquals(expected.getV(), actual.getV(), kDelta, "v at " + t);
+            assertEquals(expected.getA(), actual.getA(), kDelta, "a at " + t);
+        }
+    }
+
+    @Test
+    public void testTrapezoid() {
+        MotionProfile profile = MotionProfileGenerator.generateSimpleMotionProfile(
+                new MotionState(0, 0), new MotionState(1, 0), 1, 1);
+        assertSame(profile);
+    }
+
+    @Test
+    public void testJerkLimited() {
+        MotionProfile profile = MotionProfileGenerator.generateSimpleMotionProfile(
+                new MotionState(0, 0, 0), new MotionState(1, 0, 0), 0.5, 1.5, 1);
+        assertSame(profile);
+    }
+
+    @Test
+    public void testFlipped() {
+        MotionProfile profile = MotionProfileGenerator.generateSimpleMotionProfile(
+                new MotionState(1, 0, 0), new MotionState(-2, 0, 0), 1, 2, 5);
+        assertSame(profile);
+    }
+
+    @Test
+    public void testSample() {
+        MotionProfile profile = MotionProfileGenerator.generateSimpleMotionProfile(
+                new MotionState(0, 0, 0), new MotionState(1, 0, 0), 0.5, 1.5, 1);
+        CompiledMotionProfile compiled = profile.compile();
+        int n = 1000;
+        double t0 = -0.5;
+        double dt = (profile.duration() + 1) / n;
+        double[] out = new double[CompiledMotionProfile.kStride * n];
+        compiled.sample(t0, dt, n, out);
+        for (int k = 0; k < n; ++k) {
+            MotionState expected = profile.get(t0 + k * dt);
+            assertEquals(expected.getX(), out[CompiledMotionProfile.kStride * k], kDelta);
+            assertEquals(expected.getV(), out[CompiledMotionProfile.kStride * k + 1], kDelta);
+            assertEquals(expected.getA(), out[CompiledMotionProfile.kStride * k + 2], kDelta);
+        }
+    }
+}
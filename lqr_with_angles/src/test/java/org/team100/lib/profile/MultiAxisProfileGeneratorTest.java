@@ -0,0 +1,79 @@
+package org.team100.lib.profile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class MultiAxisProfileGeneratorTest {
+    private static final double kDelta = 1e-6;
+
+    @Test
+    public void testOneAxisMatchesGenerator() {
+        MultiAxisProfile p = new MultiAxisProfile(1);
+        MultiAxisProfileGenerator.generate(
+                new double[] { 0 }, new double[] { 0 }, new double[] { 1 },
+                new double[] { 1 }, new double[] { 1 }, p);
+        MotionProfile expected = MotionProfileGenerator.generateSimpleMotionProfile(
+                new MotionState(0, 0), new MotionState(1, 0), 1, 1);
+        assertEquals(expected.duration(), p.duration(), kDelta);
+        for (double t = 0; t < p.duration(); t += 0.01) {
+            assertEquals(expected.get(t).getX(), p.get(0, t).getX(), kDelta);
+            assertEquals(expected.get(t).getV(), p.get(0, t).getV(), kDelta);
+        }
+    }
+
+    @Test
+    public void testSynchronized() {
+        // axis 0 is the long one, the others are stretched to match.
+        MultiAxisProfile p = new MultiAxisProfile(3);
+        double[] goal = { 2, -0.5, 0 };
+        MultiAxisProfileGenerator.generate(
+                new double[] { 0, 0, 0 }, new double[] { 0, 0, 0 }, goal,
+                new double[] { 1, 1, 1 }, new double[] { 1, 1, 1 }, p);
+        // 1s to accelerate, 1s to cruise, 1s to stop
+        assertEquals(3, p.duration(), kDelta);
+        double[] x = new double[3];
+        double[] v = new double[3];
+        p.sample(1.5, x, v);
+        // everyone is halfway there at the halfway point
+        assertEquals(1, x[0], kDelta);
+        assertEquals(-0.25, x[1], kDelta);
+        assertEquals(0, x[2], kDelta);
+        assertEquals(1, v[0], kDelta);
+        // the short axis cruises slower
+        assertTrue(Math.abs(v[1]) < 1);
+        p.sample(p.duration(), x, v);
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(goal[i], x[i], kDelta);
+            assertEquals(0, v[i], kDelta);
+        }
+    }
+
+    @Test
+    public void testStartVelocity() {
+        // regenerating mid-move keeps the current velocity.
+        MultiAxisProfile p = new MultiAxisProfile(2);
+        MultiAxisProfileGenerator.generate(
+                new double[] { 0, 0 }, new double[] { 0.5, -0.5 }, new double[] { 1, 1 },
+                new double[] { 1, 1 }, new double[] { 2, 2 }, p);
+        double[] x = new double[2];
+        double[] v = new double[2];
+        p.sample(0, x, v);
+        assertEquals(0.5, v[0], kDelta);
+        assertEquals(-0.5, v[1], kDelta);
+        p.sample(p.duration(), x, v);
+        assertEquals(1, x[0], kDelta);
+        assertEquals(1, x[1], kDelta);
+        // velocity is continuous and within limits
+        double[] prev = { 0.5, -0.5 };
+        for (double t = 0.001; t < p.duration(); t += 0.001) {
+            p.sample(t, x, v);
+            for (int i = 0; i < 2; ++i) {
+                assertTrue(Math.abs(v[i] - prev[i]) <= 2 * 0.001 + kDelta);
+                assertTrue(Math.abs(v[i]) <= 1 + kDelta);
+                prev[i] = v[i];
+            }
+        }
+    }
+}
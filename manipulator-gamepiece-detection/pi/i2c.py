@@ -1,6 +1,6 @@
 import board
 from RPi import GPIO
-from ntcore import NetworkTableInstance
+from ntcore import NetworkTableInstance, PubSubOptions
 import adafruit_vl53l4cd
 
 def main():
@@ -14,8 +14,11 @@ def main():
     ntinst.startClient4("sensor")
     ntinst.setServer("10.1.0.2")
     table = ntinst.getTable("Distances")
-    nt_distance_a = table.getDoubleTopic("distance_a").publish()
-    nt_distance_b = table.getDoubleTopic("distance_b").publish()
+    # send every sample, not just the latest one per flush; the robot reads
+    # them all, see NTDistanceSensor.java
+    options = PubSubOptions(sendAll=True, keepDuplicates=True)
+    nt_distance_a = table.getDoubleTopic("distance_a").publish(options)
+    nt_distance_b = table.getDoubleTopic("distance_b").publish(options)
 
     # Initialize GPIO
     GPIO.setmode(GPIO.BCM)
@@ -3,5 +3,12 @@ package frc.robot.subsystems.DistanceSensors;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
 public abstract class DistanceSensor extends SubsystemBase {
+    /** Recent samples, in centimeters, with FPGA timestamps. */
+    protected final SampleHistory history = new SampleHistory(64);
+
     public abstract double getCentimeters();
+
+    public SampleHistory getHistory() {
+        return history;
+    }
 }
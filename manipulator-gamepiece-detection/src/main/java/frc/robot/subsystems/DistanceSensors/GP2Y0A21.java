@@ -1,6 +1,7 @@
 package frc.robot.subsystems.DistanceSensors;
 
 import edu.wpi.first.wpilibj.AnalogInput;
+import edu.wpi.first.wpilibj.Timer;
 
 public class GP2Y0A21 extends DistanceSensor {
     private final AnalogInput sensor;
@@ -23,6 +24,7 @@ public class GP2Y0A21 extends DistanceSensor {
         distance = readSensor() * 1.65; // Seemed to give more accurate data, may need further adjustments.
                                         // Possibly because these sensors are not as accurate at close ranges
                                         // (They are only rated for 10-80cm, and I need them for 0.1-18cm)
+        history.add(Timer.getFPGATimestamp(), getCentimeters());
     }
 
     private double readSensor() {
@@ -3,28 +3,38 @@ package frc.robot.subsystems.DistanceSensors;
 import edu.wpi.first.networktables.DoubleSubscriber;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.TimestampedDouble;
 
+/**
+ * The Pi samples faster than the robot loop, so rather than look at the latest
+ * value once per loop, this takes every sample that arrived since the last
+ * loop, with the time it was taken, and keeps them in the history.
+ */
 public class NTDistanceSensor extends DistanceSensor {
     private final DoubleSubscriber ntVar;
 
-    private double distanceCentimeters;
-
     public NTDistanceSensor(String networkTableVariable) {
         NetworkTableInstance inst = NetworkTableInstance.getDefault();
         NetworkTable vision_table = inst.getTable("Distances");
-        ntVar = vision_table.getDoubleTopic(networkTableVariable).subscribe(-2.0);
+        ntVar = vision_table.getDoubleTopic(networkTableVariable).subscribe(
+                -2.0,
+                PubSubOption.sendAll(true),
+                PubSubOption.keepDuplicates(true),
+                PubSubOption.pollStorage(history.capacity()));
     }
 
     @Override
     public void periodic() {
-        double rawValue = ntVar.get();
-        if (rawValue != distanceCentimeters) {
-            distanceCentimeters = rawValue;
+        // timestamps are in the local time base, i.e. FPGA time.
+        for (TimestampedDouble sample : ntVar.readQueue()) {
+            history.add(sample.timestamp / 1e6, sample.value);
         }
     }
 
+    /** The newest sample, or -2 if there hasn't been one. */
     @Override
     public double getCentimeters() {
-        return distanceCentimeters;
+        return history.size() == 0 ? -2.0 : history.latestValue();
     }
-}
\ No newline at end of file
+}
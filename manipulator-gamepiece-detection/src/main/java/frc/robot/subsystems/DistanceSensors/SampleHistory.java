@@ -0,0 +1,134 @@
+package frc.robot.subsystems.DistanceSensors;
+
+/**
+ * The most recent timestamped samples from a sensor, oldest first, so two
+ * sensors sampled at different times can be compared at the same time.
+ *
+ * Negative values are the sensor saying it doesn't know (out of range, not
+ * connected), which can't be interpolated, so near those, valueAt() holds the
+ * nearest sample instead.
+ */
+public class SampleHistory {
+    /** Receives the values of two sensors at the same time. */
+    public interface PairConsumer {
+        void accept(double a, double b);
+    }
+
+    private final double[] times;
+    private final double[] values;
+    private int next;
+    private int size;
+
+    public SampleHistory(int capacity) {
+        times = new double[capacity];
+        values = new double[capacity];
+    }
+
+    /** Samples out of order are dropped. */
+    public void add(double timeSeconds, double value) {
+        if (size > 0 && timeSeconds < time(size - 1))
+            return;
+        times[next] = timeSeconds;
+        values[next] = value;
+        next = (next + 1) % times.length;
+        if (size < times.length)
+            size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return times.length;
+    }
+
+    /** @param i zero is the oldest */
+    public double time(int i) {
+        return times[index(i)];
+    }
+
+    /** @param i zero is the oldest */
+    public double value(int i) {
+        return values[index(i)];
+    }
+
+    /** Time of the newest sample, or negative infinity if there isn't one. */
+    public double latestTime() {
+        return size == 0 ? Double.NEGATIVE_INFINITY : time(size - 1);
+    }
+
+    /** Value of the newest sample, or NaN if there isn't one. */
+    public double latestValue() {
+        return size == 0 ? Double.NaN : value(size - 1);
+    }
+
+    /** Index of the first sample after the time, or size() if there isn't one. */
+    public int indexAfter(double timeSeconds) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (time(mid) <= timeSeconds) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Linear interpolation between the samples either side, clamped to the
+     * oldest and newest. NaN if empty.
+     */
+    public double valueAt(double timeSeconds) {
+        if (size == 0)
+            return Double.NaN;
+        int after = indexAfter(timeSeconds);
+        if (after == 0)
+            return value(0);
+        if (after == size)
+            return value(size - 1);
+        double t0 = time(after - 1);
+        double t1 = time(after);
+        double v0 = value(after - 1);
+        double v1 = value(after);
+        if (v0 < 0 || v1 < 0)
+            return timeSeconds - t0 < t1 - timeSeconds ? v0 : v1;
+        return v0 + (v1 - v0) * (timeSeconds - t0) / (t1 - t0);
+    }
+
+    /**
+     * Every sample from either history in (after, until], oldest first, paired
+     * with the other history at the same time. Each sample is used once: samples
+     * at the same time in both are paired with each other, and the others with
+     * valueAt().
+     */
+    public static void pairs(SampleHistory a, SampleHistory b, double after, double until,
+            PairConsumer consumer) {
+        int i = a.indexAfter(after);
+        int j = b.indexAfter(after);
+        while (true) {
+            double ta = i < a.size ? a.time(i) : Double.POSITIVE_INFINITY;
+            double tb = j < b.size ? b.time(j) : Double.POSITIVE_INFINITY;
+            if (ta == tb) {
+                if (ta > until)
+                    return;
+                consumer.accept(a.value(i++), b.value(j++));
+            } else if (ta < tb) {
+                if (ta > until)
+                    return;
+                consumer.accept(a.value(i++), b.valueAt(ta));
+            } else {
+                if (tb > until)
+                    return;
+                consumer.accept(a.valueAt(tb), b.value(j++));
+            }
+        }
+    }
+
+    private int index(int i) {
+        return (next - size + i + times.length) % times.length;
+    }
+}
@@ -7,17 +7,29 @@ package frc.robot.subsystems;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.subsystems.DistanceSensors.DistanceSensor;
 import frc.robot.subsystems.DistanceSensors.NTDistanceSensor;
+import frc.robot.subsystems.DistanceSensors.SampleHistory;
 import edu.wpi.first.util.sendable.SendableBuilder;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
 public class GamepieceLocator extends SubsystemBase {
     private final double kSeparationWidth = 20;
+    // no samples for this long means the Pi is gone
+    private final double kStaleSeconds = 0.5;
     private final DistanceSensor leftSensor;
     private final DistanceSensor rightSensor;
 
     private double offset;
     private boolean hasGamepiece;
 
+    // samples up to this time have been used
+    private double alignedUntil = Double.NEGATIVE_INFINITY;
+    // this cycle
+    private int pairs;
+    private int gamepiecePairs;
+    private double offsetSum;
+    private final SampleHistory.PairConsumer classifier = this::classify;
+
     /** Creates a new GamepieceLocator. */
     public GamepieceLocator() {
         leftSensor = new NTDistanceSensor("distance_a");
@@ -57,30 +69,53 @@ public class GamepieceLocator extends SubsystemBase {
 
     @Override
     public void periodic() {
-        // Read sensors
-        double left = leftSensor.getCentimeters();
-        double right = rightSensor.getCentimeters();
+        SampleHistory left = leftSensor.getHistory();
+        SampleHistory right = rightSensor.getHistory();
 
-        // If the sensors detect something outside of their rated range, the Pi will return -1.
-        // Also will be -2 if the Pi is not on NetworkTables. Detect those cases here
-        if (left < 0 || right < 0) {
+        // No samples, or none lately, means the Pi is not on NetworkTables.
+        double now = Timer.getFPGATimestamp();
+        if (left.size() == 0 || right.size() == 0
+                || now - left.latestTime() > kStaleSeconds || now - right.latestTime() > kStaleSeconds) {
             offset = 0;
             hasGamepiece = false;
+            return;
+        }
+
+        // Use every sample since last time, from either sensor, paired with the
+        // other sensor at the same time, once. Both sensors have data up to the
+        // horizon, so samples after it wait for next time.
+        double horizon = Math.min(left.latestTime(), right.latestTime());
+        pairs = 0;
+        gamepiecePairs = 0;
+        offsetSum = 0;
+        SampleHistory.pairs(left, right, alignedUntil, horizon, classifier);
+        alignedUntil = horizon;
+        if (pairs == 0)
+            return;
+
+        // Most of the pairs have to agree, so a single glitch doesn't count.
+        hasGamepiece = 2 * gamepiecePairs > pairs;
+        offset = hasGamepiece ? offsetSum / gamepiecePairs : 0;
+    }
+
+    /** One pair of samples at the same time. */
+    private void classify(double left, double right) {
+        pairs++;
+        // If the sensors detect something outside of their rated range, the Pi will return -1.
+        if (left < 0 || right < 0) {
             // TODO add error state tracking
+            return;
         }
 
         // If the sensors give us a distance larger than the manipulator, we can assume they are
         // interfering with each other. This is likely because there is no gamepiece in the manipulator
-        else if (left > kSeparationWidth || right > kSeparationWidth || left + right > kSeparationWidth) {
-            offset = 0;
-            hasGamepiece = false;
+        if (left > kSeparationWidth || right > kSeparationWidth || left + right > kSeparationWidth) {
+            return;
         }
 
         // We have a gamepiece!
-        else {
-            offset = (left - right) / 2;
-            hasGamepiece = true;
-        }
+        gamepiecePairs++;
+        offsetSum += (left - right) / 2;
     }
 
     @Override
@@ -0,0 +1,164 @@
+package frc.robot.subsystems.DistanceSensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class SampleHistoryTest {
+    private static final double kDelta = 1e-9;
+
+    @Test
+    void testEmpty() {
+        SampleHistory h = new SampleHistory(4);
+        assertEquals(0, h.size());
+        assertEquals(4, h.capacity());
+        assertEquals(Double.NEGATIVE_INFINITY, h.latestTime());
+        assertTrue(Double.isNaN(h.latestValue()));
+        assertTrue(Double.isNaN(h.valueAt(1)));
+        assertEquals(0, h.indexAfter(1));
+    }
+
+    @Test
+    void testInterpolation() {
+        SampleHistory h = new SampleHistory(4);
+        h.add(1.0, 10);
+        h.add(2.0, 20);
+        h.add(4.0, 0);
+        assertEquals(10, h.valueAt(1.0), kDelta);
+        assertEquals(15, h.valueAt(1.5), kDelta);
+        assertEquals(20, h.valueAt(2.0), kDelta);
+        assertEquals(10, h.valueAt(3.0), kDelta);
+        assertEquals(1, h.indexAfter(1.0));
+        assertEquals(2, h.indexAfter(3.0));
+    }
+
+    /** Unknown values aren't interpolated, the nearest sample is held. */
+    @Test
+    void testUnknown() {
+        SampleHistory h = new SampleHistory(4);
+        h.add(1.0, 10);
+        h.add(2.0, -1);
+        h.add(3.0, 30);
+        assertEquals(10, h.valueAt(1.4), kDelta);
+        assertEquals(-1, h.valueAt(1.6), kDelta);
+        assertEquals(-1, h.valueAt(2.4), kDelta);
+        assertEquals(30, h.valueAt(2.6), kDelta);
+    }
+
+    /** Outside the window, the oldest or newest sample. */
+    @Test
+    void testOutOfWindow() {
+        SampleHistory h = new SampleHistory(3);
+        for (int i = 0; i < 5; ++i) {
+            h.add(i, 10 * i);
+        }
+        // the first two are gone
+        assertEquals(3, h.size());
+        assertEquals(2, h.time(0), kDelta);
+        assertEquals(40, h.value(2), kDelta);
+        assertEquals(20, h.valueAt(0.5), kDelta);
+        assertEquals(20, h.valueAt(2), kDelta);
+        assertEquals(40, h.valueAt(10), kDelta);
+        assertEquals(4, h.latestTime(), kDelta);
+        assertEquals(40, h.latestValue(), kDelta);
+        assertEquals(0, h.indexAfter(1));
+        assertEquals(3, h.indexAfter(4));
+    }
+
+    @Test
+    void testOutOfOrder() {
+        SampleHistory h = new SampleHistory(4);
+        h.add(2.0, 20);
+        h.add(1.0, 10);
+        assertEquals(1, h.size());
+        assertEquals(20, h.valueAt(1.0), kDelta);
+    }
+
+    /**
+     * readQueue() batches can have several samples with the same timestamp, even
+     * across batches. They're all kept, in order; at that time, the newest one
+     * counts, and there's no divide by zero between them.
+     */
+    @Test
+    void testEqualTimestamps() {
+        SampleHistory h = new SampleHistory(8);
+        // first batch
+        h.add(1.00, 10);
+        h.add(1.00, 12);
+        h.add(1.02, 14);
+        // second batch, starting at the same time the first one ended
+        h.add(1.02, 16);
+        h.add(1.04, 18);
+        assertEquals(5, h.size());
+        assertEquals(12, h.valueAt(1.00), kDelta);
+        assertEquals(13, h.valueAt(1.01), kDelta);
+        assertEquals(16, h.valueAt(1.02), kDelta);
+        assertEquals(17, h.valueAt(1.03), kDelta);
+        assertEquals(18, h.latestValue(), kDelta);
+        // after all the samples at that time
+        assertEquals(2, h.indexAfter(1.00));
+        assertEquals(4, h.indexAfter(1.02));
+        for (int i = 1; i < h.size(); ++i) {
+            assertTrue(h.time(i) >= h.time(i - 1));
+        }
+    }
+
+    private static List<String> pairs(SampleHistory a, SampleHistory b, double after, double until) {
+        List<String> pairs = new ArrayList<>();
+        SampleHistory.pairs(a, b, after, until, (x, y) -> pairs.add(x + " " + y));
+        return pairs;
+    }
+
+    /** Staggered samples are each paired with the other sensor, interpolated. */
+    @Test
+    void testPairsStaggered() {
+        SampleHistory a = new SampleHistory(8);
+        SampleHistory b = new SampleHistory(8);
+        a.add(1.0, 10);
+        b.add(1.5, 15);
+        a.add(2.0, 20);
+        b.add(2.5, 25);
+        a.add(3.0, 30);
+        assertEquals(List.of("10.0 15.0", "15.0 15.0", "20.0 20.0", "25.0 25.0", "30.0 25.0"),
+                pairs(a, b, Double.NEGATIVE_INFINITY, 3.0));
+        // after, exclusive, until, inclusive
+        assertEquals(List.of("20.0 20.0", "25.0 25.0"), pairs(a, b, 1.5, 2.5));
+        assertEquals(List.of(), pairs(a, b, 3.0, 4.0));
+    }
+
+    /** Samples at the same time in both are one pair, not one from each side. */
+    @Test
+    void testPairsSimultaneous() {
+        SampleHistory a = new SampleHistory(8);
+        SampleHistory b = new SampleHistory(8);
+        a.add(1.0, 10);
+        b.add(1.0, 11);
+        a.add(2.0, 20);
+        b.add(2.0, 21);
+        b.add(2.5, 25);
+        a.add(3.0, 30);
+        b.add(3.0, 31);
+        assertEquals(List.of("10.0 11.0", "20.0 21.0", "25.0 25.0", "30.0 31.0"),
+                pairs(a, b, Double.NEGATIVE_INFINITY, 3.0));
+        // each sample once, from either side
+        assertEquals(List.of("20.0 21.0", "25.0 25.0"), pairs(a, b, 1.0, 2.5));
+    }
+
+    /** Repeated times within one history are each used once too. */
+    @Test
+    void testPairsRepeated() {
+        SampleHistory a = new SampleHistory(8);
+        SampleHistory b = new SampleHistory(8);
+        a.add(1.0, 10);
+        a.add(1.0, 12);
+        b.add(1.0, 11);
+        b.add(2.0, 21);
+        a.add(2.0, 22);
+        assertEquals(List.of("10.0 11.0", "12.0 11.0", "22.0 21.0"),
+                pairs(a, b, Double.NEGATIVE_INFINITY, 2.0));
+    }
+}
@@ -0,0 +1,53 @@
+package frc.robot;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Encoding SomeData the way Robot used to, with a new mapper and array per
+ * cycle, against MsgpackEncoder. The shared mapper case is in between, to show
+ * how much of the difference is the mapper and how much is the array.
+ *
+ * Run with ./gradlew jmh; results are in build/results/jmh. For allocation per
+ * call, add the gc profiler, i.e. profilers = ['gc'] in the jmh block.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MsgpackEncoderBenchmark {
+    private final SomeData m_data = new SomeData();
+    private final ObjectMapper m_mapper = new ObjectMapper(new MessagePackFactory());
+    private final MsgpackEncoder<SomeData> m_encoder = new MsgpackEncoder<>(SomeData.class);
+
+    @Setup
+    public void setup() {
+        m_data.m.put("fookey", 0.01);
+        m_data.m.put("barkey", 0.02);
+    }
+
+    @Benchmark
+    public byte[] newMapper() throws IOException {
+        return new ObjectMapper(new MessagePackFactory()).writeValueAsBytes(m_data);
+    }
+
+    @Benchmark
+    public byte[] sharedMapper() throws IOException {
+        return m_mapper.writeValueAsBytes(m_data);
+    }
+
+    @Benchmark
+    public int encoder() throws IOException {
+        return m_encoder.encode(m_data);
+    }
+}
@@ -0,0 +1,105 @@
+package frc.robot;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import edu.wpi.first.networktables.RawPublisher;
+
+/**
+ * Encodes values of one class as msgpack, for a raw topic, reusing everything
+ * it can from one call to the next.
+ *
+ * The mapper is shared and the writer is bound to the class once, so the
+ * serializer lookup happens only the first time. Each value is written into
+ * the same buffer, which grows to fit the biggest value and then stays put,
+ * and is published from there with offset and length, so there's no new byte
+ * array per call.
+ *
+ * Keep one of these per publisher; it's not thread-safe.
+ */
+public class MsgpackEncoder<T> {
+    /** Mappers are expensive to make and safe to share. */
+    private static final ObjectMapper kMapper = new ObjectMapper(new MessagePackFactory());
+
+    private final ObjectWriter m_writer;
+    private final Buffer m_buffer;
+
+    public MsgpackEncoder(Class<T> type) {
+        this(type, 256);
+    }
+
+    /** @param capacity initial buffer size, it grows as needed. */
+    public MsgpackEncoder(Class<T> type, int capacity) {
+        m_writer = kMapper.writerFor(type);
+        m_buffer = new Buffer(capacity);
+    }
+
+    /**
+     * Encode the value into the buffer, replacing what was there.
+     *
+     * @return the length, see buffer().
+     */
+    public int encode(T value) throws IOException {
+        m_buffer.reset();
+        m_writer.writeValue(m_buffer, value);
+        return m_buffer.m_length;
+    }
+
+    /** Encode the value and publish it. */
+    public void publish(T value, RawPublisher publisher) throws IOException {
+        int length = encode(value);
+        publisher.set(m_buffer.m_bytes, 0, length);
+    }
+
+    /**
+     * The most recent encoding is the first length() bytes. This is the live
+     * buffer, not a copy, so it's only good until the next encode().
+     */
+    public byte[] buffer() {
+        return m_buffer.m_bytes;
+    }
+
+    public int length() {
+        return m_buffer.m_length;
+    }
+
+    /** Like ByteArrayOutputStream, without the locks, and exposing the array. */
+    private static class Buffer extends OutputStream {
+        private byte[] m_bytes;
+        private int m_length;
+
+        Buffer(int capacity) {
+            m_bytes = new byte[Math.max(1, capacity)];
+        }
+
+        void reset() {
+            m_length = 0;
+        }
+
+        @Override
+        public void write(int b) {
+            ensure(1);
+            m_bytes[m_length++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensure(len);
+            System.arraycopy(b, off, m_bytes, m_length, len);
+            m_length += len;
+        }
+
+        private void ensure(int more) {
+            int needed = m_length + more;
+            if (needed > m_bytes.length) {
+                m_bytes = Arrays.copyOf(m_bytes, Math.max(needed, 2 * m_bytes.length));
+            }
+        }
+    }
+}
@@ -4,10 +4,7 @@
 
 package frc.robot;
 
-import org.msgpack.jackson.dataformat.MessagePackFactory;
-
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
 
 import edu.wpi.first.networktables.DoublePublisher;
 import edu.wpi.first.networktables.NetworkTable;
@@ -36,6 +33,8 @@ public class Robot extends TimedRobot {
   double y = 0;
   SomeData d = new SomeData();
   RawPublisher dPub;
+  // reused every cycle, so publishing d doesn't allocate a new mapper or array.
+  MsgpackEncoder<SomeData> dEncoder = new MsgpackEncoder<>(SomeData.class);
 
   /**
    * This function is run when the robot is first started up and should be used
@@ -123,11 +122,9 @@ public class Robot extends TimedRobot {
   public void teleopPeriodic() {
     xPub.set(x);
     yPub.set(y);
-    ObjectMapper objectMapper = new ObjectMapper(new MessagePackFactory());
     try {
-      byte[] bytes = objectMapper.writeValueAsBytes(d);
-      dPub.set(bytes);
-    } catch (JsonProcessingException e) {
+      dEncoder.publish(d, dPub);
+    } catch (IOException e) {
       // do nothing
     }
     x += 0.05;
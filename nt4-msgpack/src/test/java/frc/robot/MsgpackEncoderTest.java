@@ -0,0 +1,48 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class MsgpackEncoderTest {
+    @Test
+    void testSameBytes() throws IOException {
+        SomeData d = new SomeData();
+        d.x = 7;
+        d.m.put("fookey", 0.01);
+        d.m.put("barkey", 0.02);
+        ObjectMapper mapper = new ObjectMapper(new MessagePackFactory());
+        MsgpackEncoder<SomeData> encoder = new MsgpackEncoder<>(SomeData.class);
+        for (int i = 0; i < 10; ++i) {
+            int length = encoder.encode(d);
+            assertArrayEquals(mapper.writeValueAsBytes(d), Arrays.copyOf(encoder.buffer(), length));
+            d.x += 1;
+            d.m.put("fookey", d.m.get("fookey") + 0.01);
+        }
+    }
+
+    @Test
+    void testGrows() throws IOException {
+        SomeData d = new SomeData();
+        ObjectMapper mapper = new ObjectMapper(new MessagePackFactory());
+        MsgpackEncoder<SomeData> encoder = new MsgpackEncoder<>(SomeData.class, 1);
+        for (int i = 0; i < 100; ++i) {
+            d.m.put("key" + i, (double) i);
+        }
+        int length = encoder.encode(d);
+        assertArrayEquals(mapper.writeValueAsBytes(d), Arrays.copyOf(encoder.buffer(), length));
+        // smaller values reuse the same buffer
+        byte[] buffer = encoder.buffer();
+        d.m.clear();
+        length = encoder.encode(d);
+        assertSame(buffer, encoder.buffer());
+        assertArrayEquals(mapper.writeValueAsBytes(d), Arrays.copyOf(encoder.buffer(), length));
+    }
+}
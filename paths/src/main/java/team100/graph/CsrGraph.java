@@ -0,0 +1,64 @@
+package team100.graph;
+
+/**
+ * Compressed sparse row adjacency with integer node ids: the outgoing edges of
+ * node i are the indices [offsets[i], offsets[i+1]) into targets and costs.
+ *
+ * Node coordinates are kept alongside, for the heuristic.
+ */
+public class CsrGraph {
+    private final double[] x;
+    private final double[] y;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] costs;
+
+    /**
+     * @param offsets length is one more than the node count
+     */
+    public CsrGraph(double[] x, double[] y, int[] offsets, int[] targets, double[] costs) {
+        if (x.length != y.length || offsets.length != x.length + 1)
+            throw new IllegalArgumentException("node arrays don't match");
+        if (targets.length != costs.length || offsets[x.length] != targets.length)
+            throw new IllegalArgumentException("edge arrays don't match");
+        this.x = x;
+        this.y = y;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.costs = costs;
+    }
+
+    public int nodeCount() {
+        return x.length;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    public double getX(int node) {
+        return x[node];
+    }
+
+    public double getY(int node) {
+        return y[node];
+    }
+
+    /** First edge of the node. */
+    public int begin(int node) {
+        return offsets[node];
+    }
+
+    /** One past the last edge of the node. */
+    public int end(int node) {
+        return offsets[node + 1];
+    }
+
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    public double cost(int edge) {
+        return costs[edge];
+    }
+}
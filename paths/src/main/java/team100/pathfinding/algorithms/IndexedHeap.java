@@ -0,0 +1,141 @@
+package team100.pathfinding.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Indexed d-ary min-heap of integer ids with double keys, for decrease-key
+ * without handles or boxing.
+ *
+ * A 4-ary heap is shallower than a binary one, and the children of a node are
+ * adjacent in memory, which usually beats a Fibonacci heap in practice.
+ *
+ * Clearing only touches the ids still in the heap, so reuse is cheap.
+ */
+public class IndexedHeap {
+    private static final int kArity = 4;
+
+    private int[] heap;
+    /** Position of each id in the heap, or -1. */
+    private int[] pos;
+    private double[] keys;
+    private int size;
+
+    public IndexedHeap(int capacity) {
+        heap = new int[capacity];
+        pos = new int[capacity];
+        keys = new double[capacity];
+        Arrays.fill(pos, -1);
+    }
+
+    /** Makes room for ids up to capacity - 1, and empties the heap. */
+    public void reset(int capacity) {
+        clear();
+        if (capacity > pos.length) {
+            heap = new int[capacity];
+            pos = new int[capacity];
+            keys = new double[capacity];
+            Arrays.fill(pos, -1);
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; ++i) {
+            pos[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int id) {
+        return pos[id] >= 0;
+    }
+
+    public double key(int id) {
+        return keys[id];
+    }
+
+    /**
+     * Inserts the id, or changes its key if it's already there.
+     */
+    public void put(int id, double key) {
+        int i = pos[id];
+        if (i < 0) {
+            i = size++;
+            heap[i] = id;
+            pos[id] = i;
+            keys[id] = key;
+            up(i);
+        } else if (key < keys[id]) {
+            keys[id] = key;
+            up(i);
+        } else {
+            keys[id] = key;
+            down(i);
+        }
+    }
+
+    /** Removes and returns the id with the smallest key. */
+    public int poll() {
+        int top = heap[0];
+        pos[top] = -1;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            pos[last] = 0;
+            down(0);
+        }
+        return top;
+    }
+
+    private void up(int i) {
+        int id = heap[i];
+        double key = keys[id];
+        while (i > 0) {
+            int parent = (i - 1) / kArity;
+            int p = heap[parent];
+            if (keys[p] <= key)
+                break;
+            heap[i] = p;
+            pos[p] = i;
+            i = parent;
+        }
+        heap[i] = id;
+        pos[id] = i;
+    }
+
+    private void down(int i) {
+        int id = heap[i];
+        double key = keys[id];
+        while (true) {
+            int first = kArity * i + 1;
+            if (first >= size)
+                break;
+            int last = Math.min(first + kArity, size);
+            int best = first;
+            double bestKey = keys[heap[first]];
+            for (int c = first + 1; c < last; ++c) {
+                double k = keys[heap[c]];
+                if (k < bestKey) {
+                    best = c;
+                    bestKey = k;
+                }
+            }
+            if (bestKey >= key)
+                break;
+            int b = heap[best];
+            heap[i] = b;
+            pos[b] = i;
+            i = best;
+        }
+        heap[i] = id;
+        pos[id] = i;
+    }
+}
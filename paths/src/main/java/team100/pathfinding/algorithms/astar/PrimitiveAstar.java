@@ -0,0 +1,107 @@
+package team100.pathfinding.algorithms.astar;
+
+import java.util.Arrays;
+
+import team100.graph.CsrGraph;
+import team100.pathfinding.algorithms.IndexedHeap;
+
+/**
+ * A* over a CsrGraph with integer node ids, using the Euclidean distance to the
+ * goal as the heuristic.
+ *
+ * Costs-so-far and parents are plain arrays, and the open list is an
+ * IndexedHeap, so a search allocates nothing. The arrays are reused across
+ * searches, and only grow when the graph does; a stamp per node says whether
+ * its entries belong to the current search, so nothing needs clearing either.
+ *
+ * Nodes are reopened if a cheaper path turns up, so the heuristic only needs to
+ * be admissible.
+ */
+public class PrimitiveAstar {
+    private final IndexedHeap open;
+    private double[] g;
+    private int[] parent;
+    private int[] visited;
+    private int stamp;
+    private double cost;
+
+    public PrimitiveAstar(int capacity) {
+        open = new IndexedHeap(capacity);
+        g = new double[capacity];
+        parent = new int[capacity];
+        visited = new int[capacity];
+    }
+
+    /**
+     * @param path receives the nodes from start to goal inclusive, and needs room
+     *             for every node in the graph.
+     * @return the number of nodes in the path, or zero if the goal is unreachable.
+     */
+    public int find(CsrGraph graph, int start, int goal, int[] path) {
+        int n = graph.nodeCount();
+        if (n > g.length) {
+            g = new double[n];
+            parent = new int[n];
+            visited = new int[n];
+            stamp = 0;
+        }
+        open.reset(n);
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            stamp = 1;
+        }
+        double goalX = graph.getX(goal);
+        double goalY = graph.getY(goal);
+
+        g[start] = 0;
+        parent[start] = -1;
+        visited[start] = stamp;
+        open.put(start, estimate(graph, start, goalX, goalY));
+
+        while (!open.isEmpty()) {
+            int u = open.poll();
+            if (u == goal) {
+                cost = g[goal];
+                return buildPath(goal, path);
+            }
+            double gu = g[u];
+            int end = graph.end(u);
+            for (int e = graph.begin(u); e < end; ++e) {
+                int w = graph.target(e);
+                double gw = gu + graph.cost(e);
+                // If it is not a better path just ignore
+                if (visited[w] == stamp && g[w] <= gw)
+                    continue;
+                visited[w] = stamp;
+                g[w] = gw;
+                parent[w] = u;
+                open.put(w, gw + estimate(graph, w, goalX, goalY));
+            }
+        }
+        cost = Double.POSITIVE_INFINITY;
+        return 0;
+    }
+
+    /** Cost of the last path found, or infinity if there wasn't one. */
+    public double getCost() {
+        return cost;
+    }
+
+    private int buildPath(int goal, int[] path) {
+        int count = 0;
+        for (int v = goal; v >= 0; v = parent[v]) {
+            count++;
+        }
+        int i = count;
+        for (int v = goal; v >= 0; v = parent[v]) {
+            path[--i] = v;
+        }
+        return count;
+    }
+
+    private static double estimate(CsrGraph graph, int node, double goalX, double goalY) {
+        double dx = goalX - graph.getX(node);
+        double dy = goalY - graph.getY(node);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
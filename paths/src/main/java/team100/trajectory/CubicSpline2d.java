@@ -0,0 +1,139 @@
+package team100.trajectory;
+
+import java.util.List;
+
+import team100.geometry.Point;
+
+/**
+ * Natural cubic spline through the waypoints, parameterized by chord length.
+ *
+ * Each coordinate is twice continuously differentiable, so the curvature is
+ * continuous too, which is what a drivetrain can follow without steps in
+ * centripetal acceleration. The ends have zero curvature.
+ *
+ * The curve passes through the waypoints but bulges a little between them, so
+ * obstacles need some margin, or more knots; see TrajectoryGenerator.
+ *
+ * linear() makes the straight segments between the waypoints instead, with
+ * corners at the knots.
+ */
+public class CubicSpline2d {
+    /** Parameter at each knot. */
+    private final double[] u;
+    private final double[] x;
+    private final double[] y;
+    /** Second derivatives at each knot. */
+    private final double[] mx;
+    private final double[] my;
+
+    /** True for the straight segments from linear(). */
+    private final boolean linear;
+
+    /**
+     * @param waypoints at least two, with no repeats in a row.
+     */
+    public CubicSpline2d(List<Point> waypoints) {
+        this(waypoints, false);
+    }
+
+    /** Straight segments between the waypoints, i.e. zero second derivatives. */
+    public static CubicSpline2d linear(List<Point> waypoints) {
+        return new CubicSpline2d(waypoints, true);
+    }
+
+    private CubicSpline2d(List<Point> waypoints, boolean linear) {
+        int n = waypoints.size();
+        if (n < 2)
+            throw new IllegalArgumentException("need at least two waypoints");
+        u = new double[n];
+        x = new double[n];
+        y = new double[n];
+        for (int i = 0; i < n; ++i) {
+            Point p = waypoints.get(i);
+            x[i] = p.getX();
+            y[i] = p.getY();
+            if (i > 0) {
+                double h = Math.hypot(x[i] - x[i - 1], y[i] - y[i - 1]);
+                if (h == 0)
+                    throw new IllegalArgumentException("repeated waypoint " + p);
+                u[i] = u[i - 1] + h;
+            }
+        }
+        this.linear = linear;
+        mx = linear ? new double[n] : secondDerivatives(u, x);
+        my = linear ? new double[n] : secondDerivatives(u, y);
+    }
+
+    /** True if the tangent jumps at the knots. */
+    public boolean isLinear() {
+        return linear;
+    }
+
+    public int segmentCount() {
+        return u.length - 1;
+    }
+
+    /** Parameter at the start of the segment, or the end for i = segmentCount. */
+    public double knot(int i) {
+        return u[i];
+    }
+
+    /**
+     * Evaluates the spline at parameter t, in segment i.
+     *
+     * @param out x, y, x', y', x'', y''
+     */
+    public void evaluate(int i, double t, double[] out) {
+        double h = u[i + 1] - u[i];
+        double tau = t - u[i];
+        eval(h, tau, x[i], x[i + 1], mx[i], mx[i + 1], out, 0);
+        eval(h, tau, y[i], y[i + 1], my[i], my[i + 1], out, 1);
+    }
+
+    /** Signed curvature from the derivatives written by evaluate(). */
+    public static double curvature(double[] d) {
+        double dx = d[2];
+        double dy = d[3];
+        double norm = Math.hypot(dx, dy);
+        return (dx * d[5] - dy * d[4]) / (norm * norm * norm);
+    }
+
+    private static void eval(double h, double tau, double y0, double y1, double m0, double m1,
+            double[] out, int offset) {
+        double b = (y1 - y0) / h - h * (2 * m0 + m1) / 6;
+        double c = m0 / 2;
+        double d = (m1 - m0) / (6 * h);
+        out[offset] = y0 + tau * (b + tau * (c + tau * d));
+        out[offset + 2] = b + tau * (2 * c + tau * 3 * d);
+        out[offset + 4] = 2 * c + 6 * d * tau;
+    }
+
+    /** Tridiagonal solve, with zero second derivative at the ends. */
+    private static double[] secondDerivatives(double[] u, double[] y) {
+        int n = u.length;
+        double[] m = new double[n];
+        if (n < 3)
+            return m;
+        double[] diag = new double[n];
+        double[] rhs = new double[n];
+        for (int i = 1; i < n - 1; ++i) {
+            double h0 = u[i] - u[i - 1];
+            double h1 = u[i + 1] - u[i];
+            diag[i] = 2 * (h0 + h1);
+            rhs[i] = 6 * ((y[i + 1] - y[i]) / h1 - (y[i] - y[i - 1]) / h0);
+        }
+        // forward elimination
+        for (int i = 2; i < n - 1; ++i) {
+            double h0 = u[i] - u[i - 1];
+            double w = h0 / diag[i - 1];
+            diag[i] -= w * h0;
+            rhs[i] -= w * rhs[i - 1];
+        }
+        // back substitution
+        for (int i = n - 2; i >= 1; --i) {
+            double h1 = u[i + 1] - u[i];
+            m[i] = (rhs[i] - h1 * m[i + 1]) / diag[i];
+        }
+        return m;
+    }
+}
@@ -0,0 +1,54 @@
+package team100.trajectory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import team100.geometry.Point;
+import team100.graph.Path;
+import team100.visibilitygraph.VisibilityGraph;
+
+/**
+ * Shortcut smoothing: from each kept waypoint, skip ahead to the farthest
+ * waypoint still visible, against the same obstacles as the graph.
+ *
+ * A shortest path through the visibility graph is already taut, so this mostly
+ * removes collinear and repeated waypoints, but paths from elsewhere, e.g. a
+ * grid, get much shorter.
+ */
+public class PathSmoother {
+    private final VisibilityGraph graph;
+
+    public PathSmoother(VisibilityGraph graph) {
+        this.graph = graph;
+    }
+
+    /** The waypoints of the path, from the start. */
+    public static List<Point> waypoints(Path<Point> path) {
+        List<Point> result = new ArrayList<>();
+        if (path.isEmpty())
+            return result;
+        result.add(path.get(0).getFrom());
+        for (int i = 0; i < path.size(); ++i) {
+            result.add(path.get(i).getTo());
+        }
+        return result;
+    }
+
+    public List<Point> smooth(List<Point> waypoints) {
+        List<Point> result = new ArrayList<>();
+        if (waypoints.isEmpty())
+            return result;
+        int last = waypoints.size() - 1;
+        int i = 0;
+        result.add(waypoints.get(0));
+        while (i < last) {
+            int j = last;
+            while (j > i + 1 && !graph.isVisible(waypoints.get(i), waypoints.get(j)))
+                j--;
+            if (!waypoints.get(j).equals(result.get(result.size() - 1)))
+                result.add(waypoints.get(j));
+            i = j;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,68 @@
+package team100.trajectory;
+
+/**
+ * Time-indexed trajectory on a uniform time grid, so sampling is O(1): index
+ * straight into the grid, then extrapolate with constant acceleration from the
+ * grid point, like a MotionState.
+ *
+ * The acceleration at each grid point is the average over the following
+ * interval, so velocity is continuous.
+ */
+public class Trajectory {
+    private final double dt;
+    private final double duration;
+    private final double[] x;
+    private final double[] y;
+    private final double[] vx;
+    private final double[] vy;
+    private final double[] ax;
+    private final double[] ay;
+
+    /**
+     * @param dt       grid spacing
+     * @param duration the last sample is at the duration, which may be less than
+     *                 one dt after the previous one.
+     */
+    public Trajectory(double dt, double duration,
+            double[] x, double[] y, double[] vx, double[] vy, double[] ax, double[] ay) {
+        this.dt = dt;
+        this.duration = duration;
+        this.x = x;
+        this.y = y;
+        this.vx = vx;
+        this.vy = vy;
+        this.ax = ax;
+        this.ay = ay;
+    }
+
+    public double duration() {
+        return duration;
+    }
+
+    public double dt() {
+        return dt;
+    }
+
+    /** Number of grid samples. */
+    public int size() {
+        return x.length;
+    }
+
+    /**
+     * Samples the trajectory, clamping t to [0, duration].
+     *
+     * @param out x, y, vx, vy, ax, ay
+     */
+    public void sample(double t, double[] out) {
+        t = Math.max(0, Math.min(duration, t));
+        int last = x.length - 1;
+        int i = Math.min((int) (t / dt), last);
+        double tau = i == last ? 0 : t - i * dt;
+        out[0] = x[i] + tau * (vx[i] + tau * ax[i] / 2);
+        out[1] = y[i] + tau * (vy[i] + tau * ay[i] / 2);
+        out[2] = vx[i] + tau * ax[i];
+        out[3] = vy[i] + tau * ay[i];
+        out[4] = ax[i];
+        out[5] = ay[i];
+    }
+}
@@ -0,0 +1,200 @@
+package team100.trajectory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import team100.geometry.Point;
+import team100.graph.Path;
+import team100.visibilitygraph.VisibilityGraph;
+
+/**
+ * Turns an Astar path into something a drivetrain can follow: shortcut
+ * smoothing against the obstacles, a curvature-continuous spline through what's
+ * left, and time-parameterization along the spline, resampled onto a uniform
+ * time grid.
+ *
+ * The spline bulges between knots, so each segment is sampled against the
+ * obstacles, and any segment that hits one gets a new knot at the middle of its
+ * chord, which pulls the curve towards the straight path. If that doesn't clear
+ * everything in a few rounds, the trajectory follows the straight segments
+ * instead, stopping at each corner.
+ *
+ * The time-parameterization works like MotionProfileGenerator with a velocity
+ * constraint: the speed limit at each arc-length sample is the smaller of the
+ * max velocity and the speed where centripetal acceleration reaches the max
+ * acceleration, then a forward pass limits acceleration and a backward pass
+ * limits deceleration, with constant acceleration between samples. So
+ * tangential and centripetal acceleration are each within the limit, not
+ * their sum. It starts and ends at rest.
+ *
+ * Everything is arrays, so the whole thing fits in a control period.
+ */
+public class TrajectoryGenerator {
+    private static final int kSamplesPerSegment = 64;
+    private static final int kMaxRefinements = 8;
+
+    private final VisibilityGraph graph;
+    private final PathSmoother smoother;
+    private final double maxVel;
+    private final double maxAccel;
+    private final double dt;
+
+    /**
+     * @param dt grid spacing of the output, e.g. the control period.
+     */
+    public TrajectoryGenerator(VisibilityGraph graph, double maxVel, double maxAccel, double dt) {
+        this.graph = graph;
+        this.smoother = new PathSmoother(graph);
+        this.maxVel = maxVel;
+        this.maxAccel = maxAccel;
+        this.dt = dt;
+    }
+
+    public Trajectory generate(Path<Point> path) {
+        return generate(smoother.smooth(PathSmoother.waypoints(path)));
+    }
+
+    /**
+     * @param waypoints no repeats in a row, each visible from the one before.
+     */
+    public Trajectory generate(List<Point> waypoints) {
+        if (waypoints.isEmpty())
+            throw new IllegalArgumentException("no waypoints");
+        if (waypoints.size() == 1) {
+            Point p = waypoints.get(0);
+            return new Trajectory(dt, 0,
+                    new double[] { p.getX() }, new double[] { p.getY() },
+                    new double[1], new double[1], new double[1], new double[1]);
+        }
+        CubicSpline2d spline = clearSpline(waypoints);
+        int segments = spline.segmentCount();
+        int n = segments * kSamplesPerSegment + 1;
+
+        // sample the spline
+        double[] u = new double[n];
+        int[] seg = new int[n];
+        double[] s = new double[n];
+        double[] v = new double[n];
+        double[] d = new double[6];
+        double px = 0;
+        double py = 0;
+        for (int j = 0; j < n; ++j) {
+            int i = Math.min(j / kSamplesPerSegment, segments - 1);
+            double frac = (double) (j - i * kSamplesPerSegment) / kSamplesPerSegment;
+            u[j] = spline.knot(i) + frac * (spline.knot(i + 1) - spline.knot(i));
+            seg[j] = i;
+            spline.evaluate(i, u[j], d);
+            if (j > 0)
+                s[j] = s[j - 1] + Math.hypot(d[0] - px, d[1] - py);
+            px = d[0];
+            py = d[1];
+            double curvature = Math.abs(CubicSpline2d.curvature(d));
+            v[j] = curvature > 0 ? Math.min(maxVel, Math.sqrt(maxAccel / curvature)) : maxVel;
+        }
+
+        // start and end at rest, and stop at corners
+        v[0] = 0;
+        v[n - 1] = 0;
+        if (spline.isLinear()) {
+            for (int i = 1; i < segments; ++i) {
+                v[i * kSamplesPerSegment] = 0;
+            }
+        }
+        for (int j = 1; j < n; ++j) {
+            v[j] = Math.min(v[j], Math.sqrt(v[j - 1] * v[j - 1] + 2 * maxAccel * (s[j] - s[j - 1])));
+        }
+        for (int j = n - 2; j >= 0; --j) {
+            v[j] = Math.min(v[j], Math.sqrt(v[j + 1] * v[j + 1] + 2 * maxAccel * (s[j + 1] - s[j])));
+        }
+        double[] time = new double[n];
+        double[] accel = new double[n];
+        for (int j = 0; j < n - 1; ++j) {
+            double ds = s[j + 1] - s[j];
+            time[j + 1] = time[j] + 2 * ds / (v[j] + v[j + 1]);
+            accel[j] = (v[j + 1] * v[j + 1] - v[j] * v[j]) / (2 * ds);
+        }
+
+        // resample onto the time grid
+        double duration = time[n - 1];
+        int count = (int) Math.ceil(duration / dt) + 1;
+        double[] x = new double[count];
+        double[] y = new double[count];
+        double[] vx = new double[count];
+        double[] vy = new double[count];
+        double[] ax = new double[count];
+        double[] ay = new double[count];
+        int j = 0;
+        for (int k = 0; k < count; ++k) {
+            double t = Math.min(k * dt, duration);
+            while (j < n - 2 && time[j + 1] <= t)
+                j++;
+            double tau = t - time[j];
+            double speed = v[j] + accel[j] * tau;
+            double ds = s[j + 1] - s[j];
+            double along = Math.min(ds, tau * (v[j] + accel[j] * tau / 2));
+            spline.evaluate(seg[j], u[j] + (u[j + 1] - u[j]) * along / ds, d);
+            double norm = Math.hypot(d[2], d[3]);
+            double tx = d[2] / norm;
+            double ty = d[3] / norm;
+            double centripetal = speed * speed * CubicSpline2d.curvature(d);
+            x[k] = d[0];
+            y[k] = d[1];
+            vx[k] = speed * tx;
+            vy[k] = speed * ty;
+            ax[k] = accel[j] * tx - centripetal * ty;
+            ay[k] = accel[j] * ty + centripetal * tx;
+        }
+        // use the average over each interval, so velocity between grid points is
+        // an exact interpolation, and never exceeds the limit.
+        for (int k = 0; k < count - 1; ++k) {
+            double interval = Math.min((k + 1) * dt, duration) - k * dt;
+            ax[k] = (vx[k + 1] - vx[k]) / interval;
+            ay[k] = (vy[k + 1] - vy[k]) / interval;
+        }
+        return new Trajectory(dt, duration, x, y, vx, vy, ax, ay);
+    }
+
+    /**
+     * A spline through the waypoints that misses the obstacles, or the straight
+     * segments between them.
+     */
+    private CubicSpline2d clearSpline(List<Point> waypoints) {
+        List<Point> knots = new ArrayList<>(waypoints);
+        for (int round = 0; round < kMaxRefinements; ++round) {
+            CubicSpline2d spline = new CubicSpline2d(knots);
+            List<Point> refined = new ArrayList<>();
+            boolean clear = true;
+            for (int i = 0; i < spline.segmentCount(); ++i) {
+                Point a = knots.get(i);
+                refined.add(a);
+                if (!isClear(spline, i)) {
+                    Point b = knots.get(i + 1);
+                    refined.add(new Point((a.getX() + b.getX()) / 2, (a.getY() + b.getY()) / 2));
+                    clear = false;
+                }
+            }
+            if (clear)
+                return spline;
+            refined.add(knots.get(knots.size() - 1));
+            knots = refined;
+        }
+        return CubicSpline2d.linear(waypoints);
+    }
+
+    /** True if the chords between samples of the segment miss the obstacles. */
+    private boolean isClear(CubicSpline2d spline, int i) {
+        double[] d = new double[6];
+        double u0 = spline.knot(i);
+        double u1 = spline.knot(i + 1);
+        spline.evaluate(i, u0, d);
+        Point prev = new Point((float) d[0], (float) d[1]);
+        for (int j = 1; j <= kSamplesPerSegment; ++j) {
+            spline.evaluate(i, u0 + (u1 - u0) * j / kSamplesPerSegment, d);
+            Point p = new Point((float) d[0], (float) d[1]);
+            if (!graph.isVisible(prev, p))
+                return false;
+            prev = p;
+        }
+        return true;
+    }
+}
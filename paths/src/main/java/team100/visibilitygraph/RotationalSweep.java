@@ -0,0 +1,504 @@
+package team100.visibilitygraph;
+
+import java.util.List;
+import java.util.TreeSet;
+
+import team100.geometry.Point;
+import team100.geometry.Polygon;
+
+/**
+ * Exact visibility by Lee's rotational plane sweep, over primitive arrays.
+ *
+ * From each origin, the other vertices are sorted by angle, and a half-line
+ * from the origin sweeps around once, keeping the obstacle edges it crosses in
+ * a balanced tree, ordered by distance along the half-line. Edges don't cross,
+ * so that order only changes at vertices, where edges are added and removed. A
+ * vertex is visible if the nearest crossed edge doesn't cross the segment to
+ * it, and a vertex behind another on the same half-line is visible if no edge
+ * in the tree crosses between them, so each origin costs O(n log n), and the
+ * whole graph O(n^2 log n), instead of testing every pair against every edge.
+ *
+ * Visibility is exact: segments may touch obstacle vertices and slide along
+ * obstacle edges, but may not cross an edge or pass through an interior. That
+ * means paths hug the corners exactly, so add any clearance by growing the
+ * obstacles.
+ *
+ * Obstacles shouldn't overlap each other, since the sweep assumes edges don't
+ * cross.
+ *
+ * Polygons may be either winding; polygons with fewer than three points, or no
+ * area, are just edges with no interior.
+ *
+ * The scratch arrays make this not threadsafe.
+ *
+ * See de Berg et al, Computational Geometry, chapter 15.
+ */
+public class RotationalSweep {
+    private static final double kTwoPi = 2 * Math.PI;
+    /** Not an edge: a point on the ray, ordered before edges at or beyond it. */
+    private static final Integer kProbe = -1;
+
+    // vertices
+    private final int n;
+    private final double[] vx;
+    private final double[] vy;
+    /** Next vertex counterclockwise around the polygon, or -1. */
+    private final int[] vnext;
+    /** Previous vertex counterclockwise around the polygon, or -1. */
+    private final int[] vprev;
+    /** True if the vertex belongs to a polygon with an interior. */
+    private final boolean[] vinterior;
+    /** Incident edges, or -1. */
+    private final int[] vedge0;
+    private final int[] vedge1;
+
+    // edges
+    private final int m;
+    private final int[] ea;
+    private final int[] eb;
+
+    // scratch
+    private final double[] angle;
+    private final double[] dist;
+    private final int[] order;
+    private final int[] sortTemp;
+    private final int[] groups;
+    private final boolean[] visible;
+    /** Edges crossing the ray, nearest first, see compareEdges(). */
+    private final TreeSet<Integer> tree;
+    // the ray the tree is ordered along, a unit vector from the origin.
+    private double rayOx;
+    private double rayOy;
+    private double rayDx;
+    private double rayDy;
+    /** Distance along the ray of the kProbe element. */
+    private double probe;
+
+    /**
+     * Vertices are numbered in order: the free points first, then the points of
+     * each polygon.
+     */
+    public RotationalSweep(List<Point> points, List<Polygon> polygons) {
+        int count = points.size();
+        int edgeCount = 0;
+        for (Polygon polygon : polygons) {
+            int k = polygon.getPointCount();
+            count += k;
+            if (k == 2)
+                edgeCount += 1;
+            else if (k > 2)
+                edgeCount += k;
+        }
+        n = count;
+        vx = new double[n];
+        vy = new double[n];
+        vnext = new int[n];
+        vprev = new int[n];
+        vinterior = new boolean[n];
+        vedge0 = new int[n];
+        vedge1 = new int[n];
+        m = edgeCount;
+        ea = new int[m];
+        eb = new int[m];
+
+        int v = 0;
+        for (Point p : points) {
+            vx[v] = p.getX();
+            vy[v] = p.getY();
+            vnext[v] = -1;
+            vprev[v] = -1;
+            vedge0[v] = -1;
+            vedge1[v] = -1;
+            v++;
+        }
+        int e = 0;
+        for (Polygon polygon : polygons) {
+            int k = polygon.getPointCount();
+            int first = v;
+            double area = 0;
+            for (int i = 0; i < k; ++i) {
+                Point p = polygon.getPoint(i);
+                Point q = polygon.getPoint((i + 1) % k);
+                vx[v] = p.getX();
+                vy[v] = p.getY();
+                vedge0[v] = -1;
+                vedge1[v] = -1;
+                area += (double) p.getX() * q.getY() - (double) q.getX() * p.getY();
+                v++;
+            }
+            boolean ccw = area >= 0;
+            for (int i = 0; i < k; ++i) {
+                int after = first + (i + 1) % k;
+                int before = first + (i + k - 1) % k;
+                vnext[first + i] = k < 2 ? -1 : (ccw ? after : before);
+                vprev[first + i] = k < 2 ? -1 : (ccw ? before : after);
+                vinterior[first + i] = k > 2 && area != 0;
+            }
+            int edges = k == 2 ? 1 : (k > 2 ? k : 0);
+            for (int i = 0; i < edges; ++i) {
+                ea[e] = first + i;
+                eb[e] = first + (i + 1) % k;
+                attach(ea[e], e);
+                attach(eb[e], e);
+                e++;
+            }
+        }
+
+        angle = new double[n];
+        dist = new double[n];
+        order = new int[n];
+        sortTemp = new int[n];
+        groups = new int[n + 1];
+        visible = new boolean[n];
+        tree = new TreeSet<>(this::compareEdges);
+    }
+
+    private void attach(int v, int e) {
+        if (vedge0[v] < 0)
+            vedge0[v] = e;
+        else
+            vedge1[v] = e;
+    }
+
+    public int vertexCount() {
+        return n;
+    }
+
+    public double getX(int v) {
+        return vx[v];
+    }
+
+    public double getY(int v) {
+        return vy[v];
+    }
+
+    /**
+     * Moves a free point, i.e. one of the points given to the constructor, so
+     * temporary vertices like the start and goal can change without a rebuild.
+     */
+    public void setPoint(int v, double x, double y) {
+        if (vedge0[v] >= 0)
+            throw new IllegalArgumentException("not a free point: " + v);
+        vx[v] = x;
+        vy[v] = y;
+    }
+
+    /**
+     * Vertices visible from vertex v.
+     *
+     * @param out receives the visible vertices, in sweep order; needs room for all
+     *            of them.
+     * @return how many were visible
+     */
+    public int visibleFrom(int v, int[] out) {
+        return visibleFrom(vx[v], vy[v], v, out);
+    }
+
+    /**
+     * Vertices visible from an arbitrary origin.
+     *
+     * @param self the vertex at the origin, or -1 if the origin isn't a vertex.
+     * @param out  receives the visible vertices, in sweep order; needs room for
+     *             all of them.
+     * @return how many were visible
+     */
+    public int visibleFrom(double ox, double oy, int self, int[] out) {
+        int count = 0;
+        int events = 0;
+        for (int j = 0; j < n; ++j) {
+            if (j == self)
+                continue;
+            double dx = vx[j] - ox;
+            double dy = vy[j] - oy;
+            if (dx == 0 && dy == 0) {
+                // coincident, trivially visible
+                out[count++] = j;
+                continue;
+            }
+            double a = Math.atan2(dy, dx);
+            angle[j] = a < 0 ? a + kTwoPi : a;
+            dist[j] = dx * dx + dy * dy;
+            order[events++] = j;
+        }
+        if (events == 0)
+            return count;
+        sort(0, events);
+
+        // group vertices on the same ray, nearest first.
+        int groupCount = 0;
+        int i = 0;
+        while (i < events) {
+            int j = i + 1;
+            while (j < events && sameRay(ox, oy, order[i], order[j]))
+                j++;
+            sortByDistance(i, j);
+            groups[groupCount++] = i;
+            i = j;
+        }
+        groups[groupCount] = events;
+
+        // start with the edges crossing a ray just before the first group.
+        double lastAngle = angle[order[groups[groupCount - 1]]];
+        double firstAngle = angle[order[0]];
+        double before = bisect(lastAngle, firstAngle);
+        initTree(ox, oy, self, before);
+
+        for (int g = 0; g < groupCount; ++g) {
+            int gs = groups[g];
+            int ge = groups[g + 1];
+            for (int k = gs; k < ge; ++k) {
+                visible[k] = isVisible(ox, oy, self, k, k == gs);
+                if (visible[k])
+                    out[count++] = order[k];
+            }
+            // remove the edges that end here, found in the order just before this
+            // group, which has no ties.
+            setRay(ox, oy, before);
+            for (int k = gs; k < ge; ++k) {
+                int w = order[k];
+                update(ox, oy, self, w, vedge0[w], false);
+                update(ox, oy, self, w, vedge1[w], false);
+            }
+            // add the edges that start here, ordered just after this group.
+            double here = angle[order[gs]];
+            double next = angle[order[groups[(g + 1) % groupCount]]];
+            double after = bisect(here, next);
+            setRay(ox, oy, after);
+            for (int k = gs; k < ge; ++k) {
+                int w = order[k];
+                update(ox, oy, self, w, vedge0[w], true);
+                update(ox, oy, self, w, vedge1[w], true);
+            }
+            before = after;
+        }
+        return count;
+    }
+
+    /**
+     * The vertex at position k in the order, which is the nearest on its ray if
+     * first is true.
+     */
+    private boolean isVisible(double ox, double oy, int self, int k, boolean first) {
+        int w = order[k];
+        double wx = vx[w];
+        double wy = vy[w];
+        // leaving the origin into its own polygon
+        if (self >= 0 && inside(self, wx - ox, wy - oy))
+            return false;
+        // arriving at w from inside its polygon
+        if (inside(w, ox - wx, oy - wy))
+            return false;
+        if (first) {
+            // only the nearest edge can block
+            return tree.isEmpty() || !crosses(ox, oy, wx, wy, tree.first());
+        }
+        // the ray passes through the previous vertex on it
+        if (!visible[k - 1])
+            return false;
+        int p = order[k - 1];
+        double px = vx[p];
+        double py = vy[p];
+        if (inside(p, wx - px, wy - py))
+            return false;
+        // anything crossing between them is in the tree, ordered along this ray,
+        // from the edges touching p, to the edges touching w.
+        double wd = Math.sqrt(dist[w]);
+        rayOx = ox;
+        rayOy = oy;
+        rayDx = (wx - ox) / wd;
+        rayDy = (wy - oy) / wd;
+        probe = Math.sqrt(dist[p]);
+        for (int e : tree.tailSet(kProbe, false)) {
+            double d = rayDistance(ox, oy, rayDx, rayDy, e);
+            if (d == Double.POSITIVE_INFINITY)
+                continue;
+            if (d >= wd)
+                return true;
+            if (crosses(px, py, wx, wy, e))
+                return false;
+        }
+        return true;
+    }
+
+    /** Insert or remove edge e, incident to w, according to its other end. */
+    private void update(double ox, double oy, int self, int w, int e, boolean insert) {
+        if (e < 0 || skip(ox, oy, self, e))
+            return;
+        int u = ea[e] == w ? eb[e] : ea[e];
+        double c = cross(vx[w] - ox, vy[w] - oy, vx[u] - ox, vy[u] - oy);
+        if (insert && c > 0) {
+            tree.add(e);
+        } else if (!insert && c < 0) {
+            tree.remove(e);
+        }
+    }
+
+    /** Edges touching the origin never block anything from it. */
+    private boolean skip(double ox, double oy, int self, int e) {
+        int a = ea[e];
+        int b = eb[e];
+        if (a == self || b == self)
+            return true;
+        double ax = vx[a] - ox;
+        double ay = vy[a] - oy;
+        double bx = vx[b] - ox;
+        double by = vy[b] - oy;
+        return cross(ax, ay, bx, by) == 0 && ax * bx + ay * by <= 0;
+    }
+
+    private void initTree(double ox, double oy, int self, double start) {
+        tree.clear();
+        setRay(ox, oy, start);
+        for (int e = 0; e < m; ++e) {
+            if (skip(ox, oy, self, e))
+                continue;
+            if (rayDistance(ox, oy, rayDx, rayDy, e) < Double.POSITIVE_INFINITY)
+                tree.add(e);
+        }
+    }
+
+    /** Order the tree along the ray at this angle, between groups. */
+    private void setRay(double ox, double oy, double angle) {
+        rayOx = ox;
+        rayOy = oy;
+        rayDx = Math.cos(angle);
+        rayDy = Math.sin(angle);
+    }
+
+    /**
+     * By distance along the ray. Between groups, edges in the tree never tie,
+     * since they don't cross, but break ties by index anyway, so the order stays
+     * total. The probe comes before any edge at or beyond its distance.
+     */
+    private int compareEdges(Integer a, Integer b) {
+        if (a.intValue() == b.intValue())
+            return 0;
+        if (a < 0)
+            return probe <= rayDistance(rayOx, rayOy, rayDx, rayDy, b) ? -1 : 1;
+        if (b < 0)
+            return -compareEdges(b, a);
+        int c = Double.compare(
+                rayDistance(rayOx, rayOy, rayDx, rayDy, a),
+                rayDistance(rayOx, rayOy, rayDx, rayDy, b));
+        return c != 0 ? c : Integer.compare(a, b);
+    }
+
+    /** Distance along the ray to edge e, or infinity if they don't meet. */
+    private double rayDistance(double ox, double oy, double dx, double dy, int e) {
+        double ax = vx[ea[e]];
+        double ay = vy[ea[e]];
+        double ex = vx[eb[e]] - ax;
+        double ey = vy[eb[e]] - ay;
+        double denom = cross(dx, dy, ex, ey);
+        if (denom == 0)
+            return Double.POSITIVE_INFINITY;
+        double t = cross(ax - ox, ay - oy, ex, ey) / denom;
+        double s = cross(ax - ox, ay - oy, dx, dy) / denom;
+        if (t > 0 && s >= 0 && s <= 1)
+            return t;
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /** True if segment pq properly crosses edge e, i.e. not just touching. */
+    private boolean crosses(double px, double py, double qx, double qy, int e) {
+        return crosses(px, py, qx, qy, vx[ea[e]], vy[ea[e]], vx[eb[e]], vy[eb[e]]);
+    }
+
+    /** True if segment pq properly crosses segment ab, i.e. not just touching. */
+    static boolean crosses(double px, double py, double qx, double qy,
+            double ax, double ay, double bx, double by) {
+        double o1 = cross(qx - px, qy - py, ax - px, ay - py);
+        double o2 = cross(qx - px, qy - py, bx - px, by - py);
+        double o3 = cross(bx - ax, by - ay, px - ax, py - ay);
+        double o4 = cross(bx - ax, by - ay, qx - ax, qy - ay);
+        return ((o1 > 0 && o2 < 0) || (o1 < 0 && o2 > 0))
+                && ((o3 > 0 && o4 < 0) || (o3 < 0 && o4 > 0));
+    }
+
+    /**
+     * True if direction d from vertex v points strictly into the interior of its
+     * polygon.
+     */
+    private boolean inside(int v, double dx, double dy) {
+        if (!vinterior[v])
+            return false;
+        int next = vnext[v];
+        int prev = vprev[v];
+        return inside(vx[next] - vx[v], vy[next] - vy[v], vx[prev] - vx[v], vy[prev] - vy[v], dx, dy);
+    }
+
+    /**
+     * True if direction d points strictly into the interior at a vertex with
+     * edges e1 to the next vertex and e2 to the previous one, counterclockwise.
+     */
+    static boolean inside(double e1x, double e1y, double e2x, double e2y, double dx, double dy) {
+        if (cross(e1x, e1y, e2x, e2y) > 0) {
+            // convex, interior is the wedge from e1 counterclockwise to e2
+            return cross(e1x, e1y, dx, dy) > 0 && cross(dx, dy, e2x, e2y) > 0;
+        }
+        // reflex, exterior is the closed wedge from e2 counterclockwise to e1
+        return !(cross(e2x, e2y, dx, dy) >= 0 && cross(dx, dy, e1x, e1y) >= 0);
+    }
+
+    private boolean sameRay(double ox, double oy, int a, int b) {
+        double ax = vx[a] - ox;
+        double ay = vy[a] - oy;
+        double bx = vx[b] - ox;
+        double by = vy[b] - oy;
+        return cross(ax, ay, bx, by) == 0 && ax * bx + ay * by > 0;
+    }
+
+    /** Angle halfway counterclockwise from a to b. */
+    private static double bisect(double a, double b) {
+        double delta = b - a;
+        while (delta <= 0)
+            delta += kTwoPi;
+        return a + delta / 2;
+    }
+
+    static double cross(double ax, double ay, double bx, double by) {
+        return ax * by - ay * bx;
+    }
+
+    /** Merge sort of order[lo, hi) by angle then distance. */
+    private void sort(int lo, int hi) {
+        if (hi - lo < 2)
+            return;
+        int mid = (lo + hi) >>> 1;
+        sort(lo, mid);
+        sort(mid, hi);
+        int i = lo;
+        int j = mid;
+        int k = lo;
+        while (i < mid && j < hi) {
+            if (less(order[j], order[i]))
+                sortTemp[k++] = order[j++];
+            else
+                sortTemp[k++] = order[i++];
+        }
+        while (i < mid)
+            sortTemp[k++] = order[i++];
+        while (j < hi)
+            sortTemp[k++] = order[j++];
+        System.arraycopy(sortTemp, lo, order, lo, hi - lo);
+    }
+
+    private boolean less(int a, int b) {
+        if (angle[a] != angle[b])
+            return angle[a] < angle[b];
+        return dist[a] < dist[b];
+    }
+
+    /** Insertion sort of order[lo, hi) by distance, these runs are short. */
+    private void sortByDistance(int lo, int hi) {
+        for (int i = lo + 1; i < hi; ++i) {
+            int x = order[i];
+            int j = i - 1;
+            while (j >= lo && dist[order[j]] > dist[x]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = x;
+        }
+    }
+}
@@ -1,58 +1,92 @@
 package team100.visibilitygraph;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 
-import team100.geometry.Line;
 import team100.geometry.Point;
 import team100.geometry.Polygon;
 import team100.graph.Connection;
+import team100.graph.CsrGraph;
 import team100.pathfinding.algorithms.astar.EuclideanDistanceHeuristic;
 
+/**
+ * Visibility graph among obstacle vertices, plus the start and end.
+ *
+ * The obstacle part is kept incrementally: adding a polygon only re-checks the
+ * existing edges whose segments cross its bounding box, and sweeps from its
+ * own vertices; removing one only re-checks the pairs whose segments cross its
+ * bounding box. The start and end are temporary vertices, attached with one
+ * sweep each, so moving them every cycle is cheap.
+ *
+ * Obstacle vertices have stable ids, reused after removal, and the adjacency
+ * among them is a bitset per vertex.
+ */
 public class VisibilityGraph {
-    private final Point startPoint;
-    private final Point endPoint;
+    private static final int kStart = 0;
+    private static final int kEnd = 1;
+
+    private Point startPoint;
+    private Point endPoint;
     private final List<Polygon> polygons;
+    /** xmin, ymin, xmax, ymax for each polygon. */
+    private final List<double[]> bounds;
+    /** Vertex ids for each polygon. */
+    private final List<int[]> polygonIds;
+    /** Obstacle vertex by id, null if free. */
+    private final List<Point> vertices;
+    private final Deque<Integer> freeIds;
+    private final HashMap<Point, Integer> ids;
+    private final List<BitSet> adjacency;
+    private final BitSet startVisible;
+    private final BitSet endVisible;
+    private boolean startSeesEnd;
+
+    /** Start, end, and polygon points, in order. */
     private final List<Point> nodes;
+    /** Cache, cleared on any change. */
     private final HashMap<Point, List<Connection<Point>>> connections;
 
+    /** Rebuilt lazily after polygons change. */
+    private RotationalSweep sweep;
+    /** Obstacle vertex id by sweep index, after the start and end. */
+    private int[] sweepIds;
+    private int[] visible;
+
     public VisibilityGraph(Point start, Point end, Polygon... polygons) {
         startPoint = start;
         endPoint = end;
-        this.polygons = new ArrayList<Polygon>(Arrays.asList(polygons));
+        this.polygons = new ArrayList<Polygon>();
+        bounds = new ArrayList<>();
+        polygonIds = new ArrayList<>();
+        vertices = new ArrayList<>();
+        freeIds = new ArrayDeque<>();
+        ids = new HashMap<>();
+        adjacency = new ArrayList<>();
+        startVisible = new BitSet();
+        endVisible = new BitSet();
         nodes = new ArrayList<Point>();
         connections = new HashMap<Point, List<Connection<Point>>>();
 
-        nodes.add(start);
-        nodes.add(end);
-
-        for (Polygon polygon : this.polygons) {
-            nodes.addAll(polygon.getPoints());
+        for (Polygon polygon : polygons) {
+            register(polygon);
         }
-
-        for (int i = 0; i < nodes.size(); i++) {
-            List<Connection<Point>> connectionList = new ArrayList<>();
-        
-            for (int j = 0; j < nodes.size(); j++) {
-                if (j != i && !intersects(nodes.get(i), nodes.get(j))) {
-                    EuclideanDistanceHeuristic heuristic = new EuclideanDistanceHeuristic(nodes.get(i));
-                    connectionList.add(new Connection<>(nodes.get(i),
-                            nodes.get(j),
-                            heuristic.estimate(nodes.get(j))));
-                }
-            }
-        
-            connections.put(nodes.get(i), connectionList);
+        sweep();
+        for (int k = 0; k < sweepIds.length + 2; ++k) {
+            sweepFrom(k);
         }
+        invalidate();
     }
 
     public Point getStart() {
         return startPoint;
     }
-    
+
     public Point getEnd() {
         return endPoint;
     }
@@ -65,36 +99,411 @@ public class VisibilityGraph {
         return Collections.unmodifiableList(polygons);
     }
 
-    private boolean intersects(Point point1, Point point2) {
+    /**
+     * Replaces the start and end, with one sweep each; the obstacle part is
+     * untouched.
+     */
+    public void setEndpoints(Point start, Point end) {
+        startPoint = start;
+        endPoint = end;
+        RotationalSweep s = sweep();
+        s.setPoint(kStart, start.getX(), start.getY());
+        s.setPoint(kEnd, end.getX(), end.getY());
+        startVisible.clear();
+        endVisible.clear();
+        startSeesEnd = false;
+        sweepFrom(kStart);
+        sweepFrom(kEnd);
+        invalidate();
+    }
+
+    /**
+     * Adds an obstacle, which shouldn't overlap any other obstacle.
+     */
+    public void addPolygon(Polygon polygon) {
+        double[] box = bounds(polygon);
+        // remove the edges it blocks
+        for (int u = 0; u < vertices.size(); ++u) {
+            Point a = vertices.get(u);
+            if (a == null)
+                continue;
+            BitSet row = adjacency.get(u);
+            for (int w = row.nextSetBit(u + 1); w >= 0; w = row.nextSetBit(w + 1)) {
+                if (blocks(polygon, box, a, vertices.get(w))) {
+                    row.clear(w);
+                    adjacency.get(w).clear(u);
+                }
+            }
+        }
+        clearBlocked(startVisible, startPoint, polygon, box);
+        clearBlocked(endVisible, endPoint, polygon, box);
+        if (startSeesEnd && blocks(polygon, box, startPoint, endPoint))
+            startSeesEnd = false;
+
+        // add edges from its vertices
+        int[] added = register(polygon);
+        sweep();
+        for (int k = 0; k < sweepIds.length; ++k) {
+            if (Arrays.binarySearch(added, sweepIds[k]) >= 0)
+                sweepFrom(k + 2);
+        }
+        invalidate();
+    }
+
+    /**
+     * Removes an obstacle.
+     *
+     * @return false if the polygon wasn't there
+     */
+    public boolean removePolygon(Polygon polygon) {
+        int index = polygons.indexOf(polygon);
+        if (index < 0)
+            return false;
+        polygons.remove(index);
+        double[] box = bounds.remove(index);
+        for (int id : polygonIds.remove(index)) {
+            BitSet row = adjacency.get(id);
+            for (int w = row.nextSetBit(0); w >= 0; w = row.nextSetBit(w + 1)) {
+                adjacency.get(w).clear(id);
+            }
+            row.clear();
+            startVisible.clear(id);
+            endVisible.clear(id);
+            ids.remove(vertices.get(id), id);
+            vertices.set(id, null);
+            freeIds.push(id);
+        }
+        sweep = null;
+
+        // re-check the pairs it might have blocked
+        for (int u = 0; u < vertices.size(); ++u) {
+            Point a = vertices.get(u);
+            if (a == null)
+                continue;
+            BitSet row = adjacency.get(u);
+            for (int w = u + 1; w < vertices.size(); ++w) {
+                Point b = vertices.get(w);
+                if (b == null || row.get(w) || !crossesBox(a, b, box))
+                    continue;
+                if (!blocked(a, b)) {
+                    row.set(w);
+                    adjacency.get(w).set(u);
+                }
+            }
+        }
+        restoreUnblocked(startVisible, startPoint, box);
+        restoreUnblocked(endVisible, endPoint, box);
+        if (!startSeesEnd && crossesBox(startPoint, endPoint, box) && !blocked(startPoint, endPoint))
+            startSeesEnd = true;
+        invalidate();
+        return true;
+    }
+
+    public List<Connection<Point>> getConnections(Point from) {
+        List<Connection<Point>> result = connections.get(from);
+        if (result != null)
+            return result;
+        BitSet row;
+        result = new ArrayList<>();
+        EuclideanDistanceHeuristic heuristic = new EuclideanDistanceHeuristic(from);
+        if (from.equals(startPoint)) {
+            if (startSeesEnd)
+                result.add(new Connection<>(from, endPoint, heuristic.estimate(endPoint)));
+            row = startVisible;
+        } else if (from.equals(endPoint)) {
+            if (startSeesEnd)
+                result.add(new Connection<>(from, startPoint, heuristic.estimate(startPoint)));
+            row = endVisible;
+        } else {
+            Integer id = ids.get(from);
+            if (id == null)
+                return null;
+            if (startVisible.get(id))
+                result.add(new Connection<>(from, startPoint, heuristic.estimate(startPoint)));
+            if (endVisible.get(id))
+                result.add(new Connection<>(from, endPoint, heuristic.estimate(endPoint)));
+            row = adjacency.get(id);
+        }
+        for (int w = row.nextSetBit(0); w >= 0; w = row.nextSetBit(w + 1)) {
+            Point to = vertices.get(w);
+            result.add(new Connection<>(from, to, heuristic.estimate(to)));
+        }
+        connections.put(from, result);
+        return result;
+    }
+
+    /**
+     * True if the segment ab is clear of the obstacles, by the same rules as the
+     * graph edges.
+     */
+    public boolean isVisible(Point a, Point b) {
+        return !blocked(a, b);
+    }
+
+    /**
+     * Integer-id adjacency for PrimitiveAstar: node 0 is the start, node 1 is the
+     * end, and the rest are obstacle vertices, see getNode().
+     */
+    public CsrGraph toCsr() {
+        int n = vertices.size() + 2;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; ++i) {
+            Point p = getNode(i);
+            x[i] = p == null ? Double.NaN : p.getX();
+            y[i] = p == null ? Double.NaN : p.getY();
+            offsets[i + 1] = offsets[i] + degree(i);
+        }
+        int[] targets = new int[offsets[n]];
+        double[] costs = new double[offsets[n]];
+        int e = 0;
+        for (int i = 0; i < n; ++i) {
+            BitSet row;
+            if (i == kStart) {
+                if (startSeesEnd)
+                    targets[e++] = kEnd;
+                row = startVisible;
+            } else if (i == kEnd) {
+                if (startSeesEnd)
+                    targets[e++] = kStart;
+                row = endVisible;
+            } else {
+                if (startVisible.get(i - 2))
+                    targets[e++] = kStart;
+                if (endVisible.get(i - 2))
+                    targets[e++] = kEnd;
+                row = adjacency.get(i - 2);
+            }
+            for (int w = row.nextSetBit(0); w >= 0; w = row.nextSetBit(w + 1)) {
+                targets[e++] = w + 2;
+            }
+            for (int k = offsets[i]; k < e; ++k) {
+                costs[k] = Math.hypot(x[targets[k]] - x[i], y[targets[k]] - y[i]);
+            }
+        }
+        return new CsrGraph(x, y, offsets, targets, costs);
+    }
+
+    /** The point for a toCsr() node id, or null for an unused id. */
+    public Point getNode(int node) {
+        if (node == kStart)
+            return startPoint;
+        if (node == kEnd)
+            return endPoint;
+        return vertices.get(node - 2);
+    }
+
+    private int degree(int node) {
+        if (node == kStart)
+            return startVisible.cardinality() + (startSeesEnd ? 1 : 0);
+        if (node == kEnd)
+            return endVisible.cardinality() + (startSeesEnd ? 1 : 0);
+        int id = node - 2;
+        return adjacency.get(id).cardinality()
+                + (startVisible.get(id) ? 1 : 0)
+                + (endVisible.get(id) ? 1 : 0);
+    }
+
+    /** Clears the endpoint's edges blocked by a new polygon. */
+    private void clearBlocked(BitSet row, Point from, Polygon polygon, double[] box) {
+        for (int w = row.nextSetBit(0); w >= 0; w = row.nextSetBit(w + 1)) {
+            if (blocks(polygon, box, from, vertices.get(w)))
+                row.clear(w);
+        }
+    }
+
+    /** Restores the endpoint's edges that a removed box might have blocked. */
+    private void restoreUnblocked(BitSet row, Point from, double[] box) {
+        for (int w = 0; w < vertices.size(); ++w) {
+            Point b = vertices.get(w);
+            if (b == null || row.get(w) || !crossesBox(from, b, box))
+                continue;
+            if (!blocked(from, b))
+                row.set(w);
+        }
+    }
+
+    /** Assigns ids to the polygon's vertices, without any edges. */
+    private int[] register(Polygon polygon) {
+        int[] result = new int[polygon.getPointCount()];
+        for (int i = 0; i < result.length; ++i) {
+            int id;
+            if (freeIds.isEmpty()) {
+                id = vertices.size();
+                vertices.add(null);
+                adjacency.add(new BitSet());
+            } else {
+                id = freeIds.pop();
+            }
+            Point p = polygon.getPoint(i);
+            vertices.set(id, p);
+            ids.put(p, id);
+            result[i] = id;
+        }
+        polygons.add(polygon);
+        bounds.add(bounds(polygon));
+        polygonIds.add(result);
+        int[] sorted = result.clone();
+        Arrays.sort(sorted);
+        sweep = null;
+        return sorted;
+    }
+
+    private RotationalSweep sweep() {
+        if (sweep == null) {
+            sweep = new RotationalSweep(Arrays.asList(startPoint, endPoint), polygons);
+            sweepIds = new int[sweep.vertexCount() - 2];
+            int k = 0;
+            for (int[] polygonId : polygonIds) {
+                for (int id : polygonId) {
+                    sweepIds[k++] = id;
+                }
+            }
+            visible = new int[sweep.vertexCount()];
+        }
+        return sweep;
+    }
+
+    /** Sets all the edges visible from sweep index k. */
+    private void sweepFrom(int k) {
+        int count = sweep.visibleFrom(k, visible);
+        for (int i = 0; i < count; ++i) {
+            link(k, visible[i]);
+        }
+    }
+
+    private void link(int k, int j) {
+        if (k > j) {
+            link(j, k);
+            return;
+        }
+        if (k == kStart && j == kEnd) {
+            startSeesEnd = true;
+        } else if (k == kStart) {
+            startVisible.set(sweepIds[j - 2]);
+        } else if (k == kEnd) {
+            endVisible.set(sweepIds[j - 2]);
+        } else {
+            int u = sweepIds[k - 2];
+            int w = sweepIds[j - 2];
+            adjacency.get(u).set(w);
+            adjacency.get(w).set(u);
+        }
+    }
+
+    private void invalidate() {
+        connections.clear();
+        nodes.clear();
+        nodes.add(startPoint);
+        nodes.add(endPoint);
         for (Polygon polygon : polygons) {
-            float x1 = point1.getX();
-            float y1 = point1.getY();
-            float x2 = point2.getX();
-            float y2 = point2.getY();
-            if (new Line(point1, point2).intersects(polygon)
-                    && new Line(new Point(x1 + 1, y1), point2).intersects(polygon)
-                    && new Line(new Point(x1 - 1, y1), point2).intersects(polygon)
-                    && new Line(new Point(x1, y1 + 1), point2).intersects(polygon)
-                    && new Line(new Point(x1 + 1, y1 + 1), new Point(x2 + 1, y2 + 1)).intersects(polygon)
-                    && new Line(new Point(x1, y1 - 1), point2).intersects(polygon)
-                    && new Line(new Point(x1 - 1, y1 - 1), point2).intersects(polygon)
-                    && new Line(new Point(x1 + 1, y1 - 1), point2).intersects(polygon)
-                    && new Line(new Point(x1 - 1, y1 + 1), point2).intersects(polygon)
-                    && new Line(point1, new Point(x2 + 1, y2)).intersects(polygon)
-                    && new Line(point1, new Point(x2 - 1, y2)).intersects(polygon)
-                    && new Line(point1, new Point(x2, y2 + 1)).intersects(polygon)
-                    && new Line(point1, new Point(x2, y2 - 1)).intersects(polygon)
-                    && new Line(new Point(x1, y1 - 1), new Point(x2, y2 - 1)).intersects(polygon)
-                    && new Line(point1, new Point(x2 + 1, y2 - 1)).intersects(polygon)
-                    && new Line(point1, new Point(x2 - 1, y2 + 1)).intersects(polygon)) {
+            nodes.addAll(polygon.getPoints());
+        }
+    }
+
+    /** True if any obstacle blocks the segment ab. */
+    private boolean blocked(Point a, Point b) {
+        for (int i = 0; i < polygons.size(); ++i) {
+            if (blocks(polygons.get(i), bounds.get(i), a, b))
                 return true;
-            }
         }
+        return false;
+    }
 
+    /**
+     * True if the segment ab crosses an edge of the polygon, or passes into its
+     * interior through a vertex, using the same rules as the sweep.
+     */
+    private static boolean blocks(Polygon polygon, double[] box, Point a, Point b) {
+        if (!crossesBox(a, b, box))
+            return false;
+        double ax = a.getX();
+        double ay = a.getY();
+        double bx = b.getX();
+        double by = b.getY();
+        int n = polygon.getPointCount();
+        double area = 0;
+        for (int i = 0; i < n; ++i) {
+            Point p = polygon.getPoint(i);
+            Point q = polygon.getPoint((i + 1) % n);
+            if (n > 1 && RotationalSweep.crosses(ax, ay, bx, by, p.getX(), p.getY(), q.getX(), q.getY()))
+                return true;
+            area += RotationalSweep.cross(p.getX(), p.getY(), q.getX(), q.getY());
+        }
+        if (n < 3 || area == 0)
+            return false;
+        double dx = bx - ax;
+        double dy = by - ay;
+        for (int i = 0; i < n; ++i) {
+            Point v = polygon.getPoint(i);
+            double vx = v.getX();
+            double vy = v.getY();
+            if (RotationalSweep.cross(dx, dy, vx - ax, vy - ay) != 0)
+                continue;
+            double t = dx * (vx - ax) + dy * (vy - ay);
+            if (t < 0 || t > dx * dx + dy * dy)
+                continue;
+            Point next = polygon.getPoint((i + 1) % n);
+            Point prev = polygon.getPoint((i + n - 1) % n);
+            if (area < 0) {
+                Point tmp = next;
+                next = prev;
+                prev = tmp;
+            }
+            double e1x = next.getX() - vx;
+            double e1y = next.getY() - vy;
+            double e2x = prev.getX() - vx;
+            double e2y = prev.getY() - vy;
+            // the segment touches v, check the directions it leaves v
+            if ((vx != bx || vy != by) && RotationalSweep.inside(e1x, e1y, e2x, e2y, bx - vx, by - vy))
+                return true;
+            if ((vx != ax || vy != ay) && RotationalSweep.inside(e1x, e1y, e2x, e2y, ax - vx, ay - vy))
+                return true;
+        }
         return false;
     }
 
-    public List<Connection<Point>> getConnections(Point from) {
-        return connections.get(from);
+    private static double[] bounds(Polygon polygon) {
+        double[] box = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+        for (Point p : polygon.getPoints()) {
+            box[0] = Math.min(box[0], p.getX());
+            box[1] = Math.min(box[1], p.getY());
+            box[2] = Math.max(box[2], p.getX());
+            box[3] = Math.max(box[3], p.getY());
+        }
+        return box;
+    }
+
+    /** Slab clipping against the closed box. */
+    private static boolean crossesBox(Point a, Point b, double[] box) {
+        if (box[0] > box[2])
+            return false; // empty polygon
+        double ax = a.getX();
+        double ay = a.getY();
+        double dx = b.getX() - ax;
+        double dy = b.getY() - ay;
+        double t0 = 0;
+        double t1 = 1;
+        if (dx == 0) {
+            if (ax < box[0] || ax > box[2])
+                return false;
+        } else {
+            double r0 = (box[0] - ax) / dx;
+            double r1 = (box[2] - ax) / dx;
+            t0 = Math.max(t0, Math.min(r0, r1));
+            t1 = Math.min(t1, Math.max(r0, r1));
+        }
+        if (dy == 0) {
+            if (ay < box[1] || ay > box[3])
+                return false;
+        } else {
+            double r0 = (box[1] - ay) / dy;
+            double r1 = (box[3] - ay) / dy;
+            t0 = Math.max(t0, Math.min(r0, r1));
+            t1 = Math.min(t1, Math.max(r0, r1));
+        }
+        return t0 <= t1;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,144 @@
+package team100;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import team100.geometry.Point;
+import team100.geometry.Polygon;
+import team100.graph.CsrGraph;
+import team100.graph.Path;
+import team100.pathfinding.algorithms.IndexedHeap;
+import team100.pathfinding.algorithms.astar.Astar;
+import team100.pathfinding.algorithms.astar.EuclideanDistanceHeuristic;
+import team100.pathfinding.algorithms.astar.PrimitiveAstar;
+import team100.visibilitygraph.VisibilityGraph;
+
+public class PrimitiveAstarTest {
+    private static final double kEpsilon = 0.1;
+
+    @Test
+    public void testOneObstacle() {
+        Polygon p = new Polygon(
+                new Point(45, 45),
+                new Point(45, 55),
+                new Point(55, 55),
+                new Point(55, 45));
+        VisibilityGraph v = new VisibilityGraph(new Point(0, 0), new Point(100, 100), p);
+        CsrGraph graph = v.toCsr();
+        PrimitiveAstar astar = new PrimitiveAstar(graph.nodeCount());
+        int[] path = new int[graph.nodeCount()];
+        int count = astar.find(graph, 0, 1, path);
+        assertEquals(3, count);
+        assertEquals(142.2, astar.getCost(), kEpsilon);
+        assertEquals(0, path[0]);
+        assertEquals(1, path[2]);
+        // either corner is fine
+        Point corner = v.getNode(path[1]);
+        assertEquals(100, corner.getX() + corner.getY());
+    }
+
+    @Test
+    public void testUnreachable() {
+        // 0 -> 1, nothing reaches 2
+        CsrGraph graph = new CsrGraph(
+                new double[] { 0, 1, 2 },
+                new double[] { 0, 0, 0 },
+                new int[] { 0, 1, 2, 2 },
+                new int[] { 1, 0 },
+                new double[] { 1, 1 });
+        PrimitiveAstar astar = new PrimitiveAstar(3);
+        int[] path = new int[3];
+        assertEquals(0, astar.find(graph, 0, 2, path));
+        assertEquals(Double.POSITIVE_INFINITY, astar.getCost());
+        assertEquals(2, astar.find(graph, 0, 1, path));
+        assertEquals(1, astar.getCost(), kEpsilon);
+    }
+
+    @Test
+    public void testHeap() {
+        Random random = new Random(0);
+        IndexedHeap heap = new IndexedHeap(100);
+        for (int trial = 0; trial < 10; ++trial) {
+            double[] keys = new double[100];
+            for (int i = 0; i < 100; ++i) {
+                keys[i] = random.nextDouble();
+                heap.put(i, keys[i]);
+            }
+            // decrease some, increase some
+            for (int i = 0; i < 50; ++i) {
+                int id = random.nextInt(100);
+                keys[id] = random.nextDouble();
+                heap.put(id, keys[id]);
+            }
+            assertTrue(heap.contains(7));
+            double[] sorted = keys.clone();
+            Arrays.sort(sorted);
+            for (int i = 0; i < 60; ++i) {
+                int id = heap.poll();
+                assertFalse(heap.contains(id));
+                assertEquals(sorted[i], keys[id]);
+            }
+            assertEquals(40, heap.size());
+            heap.clear();
+            assertTrue(heap.isEmpty());
+        }
+    }
+
+    /** Same costs as the original Astar, reusing one instance throughout. */
+    @Test
+    public void testMatchesAstar() {
+        Random random = new Random(0);
+        PrimitiveAstar astar = new PrimitiveAstar(4);
+        int[] path = new int[0];
+        for (int trial = 0; trial < 100; ++trial) {
+            List<Polygon> polygons = new ArrayList<>();
+            for (int cx = 0; cx < 5; ++cx) {
+                for (int cy = 0; cy < 5; ++cy) {
+                    if (random.nextInt(4) == 0)
+                        continue;
+                    int x0 = 10 * cx;
+                    int y0 = 10 * cy;
+                    int w = 1 + random.nextInt(8);
+                    int h = 1 + random.nextInt(8);
+                    polygons.add(new Polygon(
+                            new Point(x0, y0),
+                            new Point(x0 + w, y0),
+                            new Point(x0 + w, y0 + h),
+                            new Point(x0, y0 + h)));
+                }
+            }
+            Point start = new Point(10 * random.nextInt(5) + 9, random.nextInt(50));
+            Point end = new Point(10 * random.nextInt(5) + 9, random.nextInt(50));
+            VisibilityGraph v = new VisibilityGraph(start, end, polygons.toArray(new Polygon[0]));
+
+            Path<Point> expected = new Astar(new EuclideanDistanceHeuristic(end), v).find();
+            double expectedCost = 0;
+            for (int i = 0; i < expected.size(); ++i)
+                expectedCost += expected.get(i).getCost();
+
+            CsrGraph graph = v.toCsr();
+            if (path.length < graph.nodeCount())
+                path = new int[graph.nodeCount()];
+            int count = astar.find(graph, 0, 1, path);
+            assertEquals(expectedCost, astar.getCost(), 1e-9);
+
+            // the path is made of real edges that add up
+            double total = 0;
+            for (int i = 1; i < count; ++i) {
+                Point a = v.getNode(path[i - 1]);
+                Point b = v.getNode(path[i]);
+                assertTrue(v.getConnections(a).stream().anyMatch(c -> c.getTo().equals(b)));
+                total += Math.hypot(b.getX() - a.getX(), b.getY() - a.getY());
+            }
+            assertEquals(astar.getCost(), total, 1e-9);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package team100;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import team100.geometry.Point;
+import team100.geometry.Polygon;
+import team100.visibilitygraph.RotationalSweep;
+
+public class RotationalSweepTest {
+
+    @Test
+    public void testSquare() {
+        // a square between two points, the corners see each other along the edges
+        // but not across the diagonals.
+        Polygon square = new Polygon(new Point(1, 1), new Point(2, 1), new Point(2, 2), new Point(1, 2));
+        RotationalSweep sweep = new RotationalSweep(
+                Arrays.asList(new Point(0, 0), new Point(3, 3)),
+                Arrays.asList(square));
+        assertEquals("[2, 3, 5]", visible(sweep, 0));
+        assertEquals("[1, 3, 5]", visible(sweep, 4));
+        assertEquals("[0, 3, 5]", visible(sweep, 2));
+    }
+
+    @Test
+    public void testCollinear() {
+        // the start, the bottom edge of the square, and the end are all in a row.
+        Polygon square = new Polygon(new Point(1, 0), new Point(2, 0), new Point(2, 1), new Point(1, 1));
+        RotationalSweep sweep = new RotationalSweep(
+                Arrays.asList(new Point(0, 0), new Point(3, 0)),
+                Arrays.asList(square));
+        assertEquals("[1, 2, 3, 5]", visible(sweep, 0));
+    }
+
+    @Test
+    public void testEmpty() {
+        RotationalSweep sweep = new RotationalSweep(
+                Arrays.asList(new Point(0, 0), new Point(100, 100)),
+                Arrays.asList(new Polygon()));
+        assertEquals("[1]", visible(sweep, 0));
+    }
+
+    /** Compare with the brute-force answer for lots of random obstacles. */
+    @Test
+    public void testRandom() {
+        Random random = new Random(0);
+        for (int trial = 0; trial < 200; ++trial) {
+            List<Polygon> polygons = new ArrayList<>();
+            for (int cx = 0; cx < 4; ++cx) {
+                for (int cy = 0; cy < 4; ++cy) {
+                    if (random.nextInt(3) == 0)
+                        continue;
+                    Polygon p = randomPolygon(random, cx * 10, cy * 10);
+                    if (p != null)
+                        polygons.add(p);
+                }
+            }
+            List<Point> points = new ArrayList<>();
+            while (points.size() < 4) {
+                Point p = new Point(random.nextInt(40), random.nextInt(40));
+                if (free(p, polygons))
+                    points.add(p);
+            }
+            RotationalSweep sweep = new RotationalSweep(points, polygons);
+            List<Point> all = new ArrayList<>(points);
+            for (Polygon p : polygons)
+                all.addAll(p.getPoints());
+            for (int i = 0; i < all.size(); ++i) {
+                List<Integer> expected = new ArrayList<>();
+                for (int j = 0; j < all.size(); ++j) {
+                    if (j != i && bruteForce(all.get(i), all.get(j), polygons))
+                        expected.add(j);
+                }
+                assertEquals(expected.toString(), visible(sweep, i), "trial " + trial + " vertex " + i);
+            }
+        }
+    }
+
+    private static String visible(RotationalSweep sweep, int v) {
+        int[] out = new int[sweep.vertexCount()];
+        int count = sweep.visibleFrom(v, out);
+        List<Integer> result = new ArrayList<>();
+        for (int k = 0; k < count; ++k)
+            result.add(out[k]);
+        Collections.sort(result);
+        return result.toString();
+    }
+
+    /**
+     * Convex hull of a few integer points in an 8x8 cell, or an L for the reflex
+     * case, either winding, so there are plenty of collinear vertices across
+     * cells.
+     */
+    private static Polygon randomPolygon(Random random, int x0, int y0) {
+        if (random.nextInt(4) == 0) {
+            int w = 2 + random.nextInt(7);
+            int h = 2 + random.nextInt(7);
+            int a = 1 + random.nextInt(w - 1);
+            int b = 1 + random.nextInt(h - 1);
+            List<Point> ell = new ArrayList<>(Arrays.asList(
+                    new Point(x0, y0), new Point(x0 + w, y0), new Point(x0 + w, y0 + b),
+                    new Point(x0 + a, y0 + b), new Point(x0 + a, y0 + h), new Point(x0, y0 + h)));
+            if (random.nextBoolean())
+                Collections.reverse(ell);
+            return new Polygon(ell.toArray(new Point[0]));
+        }
+        List<Point> pts = new ArrayList<>();
+        int k = 3 + random.nextInt(4);
+        for (int i = 0; i < k; ++i)
+            pts.add(new Point(x0 + random.nextInt(9), y0 + random.nextInt(9)));
+        pts.sort((a, b) -> a.getX() != b.getX() ? Float.compare(a.getX(), b.getX())
+                : Float.compare(a.getY(), b.getY()));
+        List<Point> hull = new ArrayList<>();
+        for (int pass = 0; pass < 2; ++pass) {
+            int base = hull.size();
+            for (Point p : pts) {
+                while (hull.size() >= base + 2
+                        && orient(hull.get(hull.size() - 2), hull.get(hull.size() - 1), p) <= 0)
+                    hull.remove(hull.size() - 1);
+                hull.add(p);
+            }
+            hull.remove(hull.size() - 1);
+            Collections.reverse(pts);
+        }
+        if (hull.size() < 3)
+            return null;
+        if (random.nextBoolean())
+            Collections.reverse(hull);
+        return new Polygon(hull.toArray(new Point[0]));
+    }
+
+    private static boolean free(Point p, List<Polygon> polygons) {
+        for (Polygon polygon : polygons) {
+            if (polygon.getPoints().contains(p) || onBoundary(p.getX(), p.getY(), polygon)
+                    || inside(p.getX(), p.getY(), polygon))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Exact visibility: no proper crossings, and no piece of the segment between
+     * the vertices it touches lies inside a polygon.
+     */
+    private static boolean bruteForce(Point p, Point q, List<Polygon> polygons) {
+        double px = p.getX();
+        double py = p.getY();
+        double dx = q.getX() - px;
+        double dy = q.getY() - py;
+        List<Double> ts = new ArrayList<>(Arrays.asList(0.0, 1.0));
+        for (Polygon polygon : polygons) {
+            int k = polygon.getPointCount();
+            for (int i = 0; i < k; ++i) {
+                Point a = polygon.getPoint(i);
+                Point b = polygon.getPoint((i + 1) % k);
+                double o1 = orient(p, q, a);
+                double o2 = orient(p, q, b);
+                double o3 = orient(a, b, p);
+                double o4 = orient(a, b, q);
+                if (o1 * o2 < 0 && o3 * o4 < 0)
+                    return false;
+                if (o1 == 0) {
+                    double t = ((a.getX() - px) * dx + (a.getY() - py) * dy) / (dx * dx + dy * dy);
+                    if (t > 0 && t < 1)
+                        ts.add(t);
+                }
+            }
+        }
+        Collections.sort(ts);
+        for (int i = 1; i < ts.size(); ++i) {
+            double t = (ts.get(i - 1) + ts.get(i)) / 2;
+            double mx = px + t * dx;
+            double my = py + t * dy;
+            for (Polygon polygon : polygons) {
+                if (!onBoundary(mx, my, polygon) && inside(mx, my, polygon))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean onBoundary(double x, double y, Polygon polygon) {
+        int k = polygon.getPointCount();
+        for (int i = 0; i < k; ++i) {
+            Point a = polygon.getPoint(i);
+            Point b = polygon.getPoint((i + 1) % k);
+            double cross = (b.getX() - a.getX()) * (y - a.getY()) - (b.getY() - a.getY()) * (x - a.getX());
+            if (Math.abs(cross) < 1e-9
+                    && x >= Math.min(a.getX(), b.getX()) && x <= Math.max(a.getX(), b.getX())
+                    && y >= Math.min(a.getY(), b.getY()) && y <= Math.max(a.getY(), b.getY()))
+                return true;
+        }
+        return false;
+    }
+
+    /** Even-odd ray casting. */
+    private static boolean inside(double x, double y, Polygon polygon) {
+        boolean result = false;
+        int k = polygon.getPointCount();
+        for (int i = 0, j = k - 1; i < k; j = i++) {
+            Point a = polygon.getPoint(i);
+            Point b = polygon.getPoint(j);
+            if ((a.getY() > y) != (b.getY() > y)
+                    && x < (b.getX() - a.getX()) * (y - a.getY()) / (b.getY() - a.getY()) + a.getX())
+                result = !result;
+        }
+        return result;
+    }
+
+    private static double orient(Point a, Point b, Point c) {
+        return (double) (b.getX() - a.getX()) * (c.getY() - a.getY())
+                - (double) (b.getY() - a.getY()) * (c.getX() - a.getX());
+    }
+}
@@ -0,0 +1,189 @@
+package team100;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import team100.geometry.Point;
+import team100.geometry.Polygon;
+import team100.graph.Path;
+import team100.pathfinding.algorithms.astar.Astar;
+import team100.pathfinding.algorithms.astar.EuclideanDistanceHeuristic;
+import team100.trajectory.CubicSpline2d;
+import team100.trajectory.PathSmoother;
+import team100.trajectory.Trajectory;
+import team100.trajectory.TrajectoryGenerator;
+import team100.visibilitygraph.VisibilityGraph;
+
+public class TrajectoryTest {
+    private static final double kDelta = 0.001;
+
+    @Test
+    public void testShortcut() {
+        // a detour around nothing is replaced by a straight line
+        VisibilityGraph v = new VisibilityGraph(new Point(0, 0), new Point(100, 0));
+        List<Point> smooth = new PathSmoother(v).smooth(Arrays.asList(
+                new Point(0, 0), new Point(50, 50), new Point(60, 50), new Point(100, 0)));
+        assertEquals(Arrays.asList(new Point(0, 0), new Point(100, 0)), smooth);
+    }
+
+    @Test
+    public void testShortcutBlocked() {
+        Polygon p = new Polygon(
+                new Point(45, 45),
+                new Point(45, 55),
+                new Point(55, 55),
+                new Point(55, 45));
+        VisibilityGraph v = new VisibilityGraph(new Point(0, 0), new Point(100, 100), p);
+        // the detour through (0, 55) is cut down to the corner
+        List<Point> smooth = new PathSmoother(v).smooth(Arrays.asList(
+                new Point(0, 0), new Point(0, 55), new Point(45, 55), new Point(100, 100)));
+        assertEquals(Arrays.asList(new Point(0, 0), new Point(45, 55), new Point(100, 100)), smooth);
+    }
+
+    @Test
+    public void testSpline() {
+        CubicSpline2d spline = new CubicSpline2d(Arrays.asList(
+                new Point(0, 0), new Point(10, 5), new Point(20, 0), new Point(30, 10)));
+        double[] left = new double[6];
+        double[] right = new double[6];
+        for (int i = 1; i < spline.segmentCount(); ++i) {
+            // passes through the knots, with continuous curvature
+            spline.evaluate(i - 1, spline.knot(i), left);
+            spline.evaluate(i, spline.knot(i), right);
+            for (int k = 0; k < 6; ++k) {
+                assertEquals(left[k], right[k], 1e-9);
+            }
+            assertEquals(CubicSpline2d.curvature(left), CubicSpline2d.curvature(right), 1e-9);
+        }
+        spline.evaluate(0, 0, left);
+        assertEquals(0, left[0], kDelta);
+        assertEquals(0, CubicSpline2d.curvature(left), kDelta);
+        spline.evaluate(1, spline.knot(1), left);
+        assertEquals(10, left[0], kDelta);
+        assertEquals(5, left[1], kDelta);
+    }
+
+    @Test
+    public void testLinear() {
+        CubicSpline2d spline = CubicSpline2d.linear(Arrays.asList(
+                new Point(0, 0), new Point(10, 0), new Point(10, 10)));
+        assertTrue(spline.isLinear());
+        double[] out = new double[6];
+        spline.evaluate(0, 5, out);
+        assertEquals(5, out[0], kDelta);
+        assertEquals(0, out[1], kDelta);
+        assertEquals(0, CubicSpline2d.curvature(out), kDelta);
+        spline.evaluate(1, 15, out);
+        assertEquals(10, out[0], kDelta);
+        assertEquals(5, out[1], kDelta);
+    }
+
+    @Test
+    public void testSplineMissesObstacle() {
+        // the spline through these dips to y = -1.9 around x = 13.
+        Polygon p = new Polygon(
+                new Point(5, -3),
+                new Point(15, -3),
+                new Point(15, -1),
+                new Point(5, -1));
+        VisibilityGraph v = new VisibilityGraph(new Point(0, 0), new Point(20, 20), p);
+        Trajectory t = new TrajectoryGenerator(v, 4, 2, 0.02).generate(
+                Arrays.asList(new Point(0, 0), new Point(20, 0), new Point(20, 20)));
+        double[] out = new double[6];
+        for (double time = 0; time <= t.duration(); time += 0.005) {
+            t.sample(time, out);
+            assertOutside(p, out);
+        }
+        t.sample(t.duration(), out);
+        assertEquals(20, out[0], kDelta);
+        assertEquals(20, out[1], kDelta);
+    }
+
+    @Test
+    public void testStraight() {
+        // 1 m/s, 1 m/s^2, over 3 m: 1 s up, 2 s cruise, 1 s down.
+        VisibilityGraph v = new VisibilityGraph(new Point(0, 0), new Point(3, 0));
+        Trajectory t = new TrajectoryGenerator(v, 1, 1, 0.02).generate(
+                Arrays.asList(new Point(0, 0), new Point(3, 0)));
+        assertEquals(4, t.duration(), 0.01);
+        double[] out = new double[6];
+        t.sample(0.5, out);
+        assertEquals(0.125, out[0], kDelta);
+        assertEquals(0.5, out[2], kDelta);
+        assertEquals(1, out[4], kDelta);
+        t.sample(1.5, out);
+        assertEquals(1, out[2], kDelta);
+        t.sample(100, out);
+        assertEquals(3, out[0], kDelta);
+        assertEquals(0, out[2], kDelta);
+    }
+
+    @Test
+    public void testFindAndFollow() {
+        Polygon p = new Polygon(
+                new Point(45, 45),
+                new Point(45, 55),
+                new Point(55, 55),
+                new Point(55, 45));
+        Point start = new Point(0, 0);
+        Point end = new Point(100, 100);
+        VisibilityGraph v = new VisibilityGraph(start, end, p);
+        Path<Point> path = new Astar(new EuclideanDistanceHeuristic(end), v).find();
+        double maxVel = 4;
+        double maxAccel = 2;
+        Trajectory t = new TrajectoryGenerator(v, maxVel, maxAccel, 0.02).generate(path);
+
+        double[] out = new double[6];
+        t.sample(0, out);
+        assertEquals(0, out[0], kDelta);
+        assertEquals(0, out[1], kDelta);
+        t.sample(t.duration(), out);
+        assertEquals(100, out[0], kDelta);
+        assertEquals(100, out[1], kDelta);
+        assertEquals(0, Math.hypot(out[2], out[3]), 0.01);
+
+        // within limits everywhere
+        double[] prev = new double[6];
+        t.sample(0, prev);
+        for (double time = 0.01; time < t.duration(); time += 0.01) {
+            t.sample(time, out);
+            double speed = Math.hypot(out[2], out[3]);
+            assertTrue(speed <= maxVel + kDelta);
+            if (speed > 0.1) {
+                double tangential = (out[2] * out[4] + out[3] * out[5]) / speed;
+                double centripetal = (out[2] * out[5] - out[3] * out[4]) / speed;
+                assertTrue(Math.abs(tangential) <= maxAccel + kDelta, "" + tangential);
+                assertTrue(Math.abs(centripetal) <= maxAccel + 0.01, "" + centripetal);
+            }
+            // continuous position
+            assertTrue(Math.hypot(out[0] - prev[0], out[1] - prev[1]) <= maxVel * 0.01 + kDelta);
+            // never inside the obstacle
+            assertOutside(p, out);
+            System.arraycopy(out, 0, prev, 0, 6);
+        }
+    }
+
+    /** The sample is not strictly inside the polygon's bounding box. */
+    private static void assertOutside(Polygon p, double[] sample) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (Point q : p.getPoints()) {
+            minX = Math.min(minX, q.getX());
+            minY = Math.min(minY, q.getY());
+            maxX = Math.max(maxX, q.getX());
+            maxY = Math.max(maxY, q.getY());
+        }
+        double x = sample[0];
+        double y = sample[1];
+        assertFalse(x > minX + kDelta && x < maxX - kDelta && y > minY + kDelta && y < maxY - kDelta,
+                "inside at " + x + ", " + y);
+    }
+}
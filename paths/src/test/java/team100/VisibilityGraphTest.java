@@ -1,8 +1,13 @@
 package team100;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
 
 import org.junit.jupiter.api.Test;
 
@@ -35,4 +40,117 @@ public class VisibilityGraphTest {
         assertEquals(100, to.getY());
     }
 
+    @Test
+    public void testAddRemove() {
+        Point start = new Point(0, 0);
+        Point end = new Point(100, 100);
+        VisibilityGraph v = new VisibilityGraph(start, end);
+        assertEquals(1, v.getConnections(start).size());
+
+        Polygon p = new Polygon(
+                new Point(45, 45),
+                new Point(45, 55),
+                new Point(55, 55),
+                new Point(55, 45));
+        v.addPolygon(p);
+        // start sees three corners, and not the end
+        assertEquals(3, v.getConnections(start).size());
+        assertEquals(6, v.getPoints().size());
+
+        assertTrue(v.removePolygon(p));
+        assertFalse(v.removePolygon(p));
+        assertEquals(1, v.getConnections(start).size());
+        assertEquals(2, v.getPoints().size());
+    }
+
+    @Test
+    public void testMoveEndpoints() {
+        Polygon p = new Polygon(
+                new Point(45, 45),
+                new Point(45, 55),
+                new Point(55, 55),
+                new Point(55, 45));
+        VisibilityGraph v = new VisibilityGraph(new Point(0, 0), new Point(100, 100), p);
+        Point start = new Point(0, 100);
+        Point end = new Point(100, 0);
+        v.setEndpoints(start, end);
+        assertEquals(start, v.getStart());
+        assertEquals(3, v.getConnections(start).size());
+        assertEquals(3, v.getConnections(end).size());
+    }
+
+    /**
+     * Random adds, removes, and moves should always match a graph built from
+     * scratch.
+     */
+    @Test
+    public void testIncremental() {
+        Random random = new Random(0);
+        Point start = freePoint(random);
+        Point end = freePoint(random);
+        List<Polygon> present = new ArrayList<>();
+        VisibilityGraph v = new VisibilityGraph(start, end);
+        for (int step = 0; step < 300; ++step) {
+            int op = random.nextInt(3);
+            if (op == 0 && present.size() < 16) {
+                Polygon p = randomPolygon(random, present);
+                present.add(p);
+                v.addPolygon(p);
+            } else if (op == 1 && !present.isEmpty()) {
+                Polygon p = present.remove(random.nextInt(present.size()));
+                assertTrue(v.removePolygon(p));
+            } else {
+                start = freePoint(random);
+                end = freePoint(random);
+                v.setEndpoints(start, end);
+            }
+            VisibilityGraph fresh = new VisibilityGraph(start, end, present.toArray(new Polygon[0]));
+            assertEquals(fresh.getPoints().size(), v.getPoints().size());
+            for (Point p : fresh.getPoints()) {
+                assertEquals(targets(fresh, p), targets(v, p), "step " + step + " point " + p);
+            }
+        }
+    }
+
+    private static String targets(VisibilityGraph v, Point from) {
+        TreeSet<String> result = new TreeSet<>();
+        for (Connection<Point> c : v.getConnections(from)) {
+            result.add(c.getTo().getX() + "," + c.getTo().getY());
+        }
+        return result.toString();
+    }
+
+    /** Obstacles stay inside 8x8 cells on a 10x10 grid, so this is always free. */
+    private static Point freePoint(Random random) {
+        return new Point(10 * random.nextInt(4) + 9, random.nextInt(40));
+    }
+
+    /** A rectangle or triangle in an unused cell. */
+    private static Polygon randomPolygon(Random random, List<Polygon> present) {
+        while (true) {
+            int x0 = 10 * random.nextInt(4);
+            int y0 = 10 * random.nextInt(4);
+            boolean used = false;
+            for (Polygon p : present) {
+                Point corner = p.getPoint(0);
+                if (corner.getX() >= x0 && corner.getX() < x0 + 10 && corner.getY() >= y0 && corner.getY() < y0 + 10)
+                    used = true;
+            }
+            if (used)
+                continue;
+            int w = 1 + random.nextInt(8);
+            int h = 1 + random.nextInt(8);
+            if (random.nextBoolean()) {
+                return new Polygon(
+                        new Point(x0, y0),
+                        new Point(x0 + w, y0),
+                        new Point(x0 + w, y0 + h),
+                        new Point(x0, y0 + h));
+            }
+            return new Polygon(
+                    new Point(x0, y0),
+                    new Point(x0, y0 + h),
+                    new Point(x0 + w, y0 + random.nextInt(9)));
+        }
+    }
 }
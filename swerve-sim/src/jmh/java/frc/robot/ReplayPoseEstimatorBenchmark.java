@@ -0,0 +1,72 @@
+package frc.robot;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * ReplayPoseEstimator with a full history, driving in a circle at 50 hz.
+ *
+ * The late measurement case adds an odometry step and then a measurement a
+ * quarter of the history old, between samples, so each one splits a step and
+ * replays everything since; the history stays full, so the two together are
+ * the steady state of a robot with laggy vision. Its cost less the update case
+ * is the cost of the replay, which should grow linearly with capacity.
+ *
+ * Run with ./gradlew jmh; results are in build/results/jmh.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReplayPoseEstimatorBenchmark {
+    private static final double kDtS = 0.02;
+
+    @Param({ "50", "100", "500" })
+    public int capacity;
+
+    private final Pose2d m_visionPose = new Pose2d(1, 1, new Rotation2d(0.5));
+    private ReplayPoseEstimator m_estimator;
+    private double m_timeS;
+    private double m_latencyS;
+
+    @Setup
+    public void setup() {
+        m_estimator = new ReplayPoseEstimator(
+                capacity,
+                new double[] { 0.1, 0.1, 0.1 },
+                new double[] { 0.5, 0.5, 0.5 });
+        m_timeS = 0;
+        for (int i = 0; i < capacity; ++i) {
+            step();
+        }
+        // each iteration of the late case adds two entries, so the history
+        // spans half as much time as it would with odometry alone.
+        m_latencyS = (capacity / 4 + 0.5) * kDtS;
+    }
+
+    @Benchmark
+    public void update() {
+        step();
+    }
+
+    @Benchmark
+    public boolean lateVisionMeasurement() {
+        step();
+        return m_estimator.addVisionMeasurement(m_visionPose, m_timeS - m_latencyS);
+    }
+
+    private void step() {
+        m_timeS += kDtS;
+        m_estimator.update(m_timeS, 0.06, 0, 0.02);
+    }
+}
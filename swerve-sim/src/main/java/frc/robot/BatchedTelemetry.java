@@ -0,0 +1,218 @@
+package frc.robot;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.RawPublisher;
+import edu.wpi.first.networktables.RawTopic;
+
+/**
+ * Publishes each table's fields together, as one raw topic, instead of one
+ * topic per field, and only when something changed.
+ *
+ * Setting a field just writes it to memory; flush() publishes, once per loop.
+ * Each table is a group with its own minimum period and change threshold: a
+ * group is published when the period has passed and some field moved more
+ * than the threshold since the last time it was published.
+ *
+ * The raw topic is "/telemetry/{table}", with type "telemetry", and its value
+ * is the fields as little-endian doubles, in the order they were added, which
+ * is the "fields" property of the topic, a JSON array of names.
+ *
+ * Arrays (e.g. the Field2d pose) stay ordinary array topics, since the
+ * dashboard widgets need them, but they're limited in the same way.
+ */
+public class BatchedTelemetry implements Telemetry {
+    public static final String kType = "telemetry";
+
+    private final NetworkTableInstance m_inst;
+    private final Map<String, Group> m_groups = new LinkedHashMap<>();
+    private double m_defaultPeriodS = 0;
+    private double m_defaultThreshold = 0;
+
+    public BatchedTelemetry(NetworkTableInstance inst) {
+        m_inst = inst;
+    }
+
+    /** For groups not configured explicitly, including existing ones. */
+    public void configureDefault(double minPeriodS, double threshold) {
+        m_defaultPeriodS = minPeriodS;
+        m_defaultThreshold = threshold;
+    }
+
+    /**
+     * @param table      the group
+     * @param minPeriodS publish no more often than this.
+     * @param threshold  publish when some field changes more than this.
+     */
+    public void configure(String table, double minPeriodS, double threshold) {
+        Group group = group(table);
+        group.m_minPeriodS = minPeriodS;
+        group.m_threshold = threshold;
+        group.m_configured = true;
+    }
+
+    @Override
+    public DoubleConsumer doublePublisher(String table, String name) {
+        Group group = group(table);
+        int field = group.add(name);
+        return value -> group.m_values[field] = value;
+    }
+
+    @Override
+    public Consumer<double[]> doubleArrayPublisher(String table, String name) {
+        ArrayField field = new ArrayField(m_inst.getTable(table).getDoubleArrayTopic(name).publish());
+        group(table).m_arrays.add(field);
+        return values -> field.m_values = values;
+    }
+
+    /** Publish the groups that are due, call once per loop. */
+    @Override
+    public void flush(double timeS) {
+        for (Group group : m_groups.values()) {
+            group.flush(timeS);
+        }
+    }
+
+    private Group group(String table) {
+        return m_groups.computeIfAbsent(table, Group::new);
+    }
+
+    /** True if the lengths differ, or any element moved more than the threshold. */
+    static boolean changed(double[] published, double[] values, int length, double threshold) {
+        if (published.length != length)
+            return true;
+        for (int i = 0; i < length; ++i) {
+            double p = published[i];
+            double v = values[i];
+            if (Double.isNaN(p) != Double.isNaN(v))
+                return true;
+            if (Math.abs(v - p) > threshold)
+                return true;
+        }
+        return false;
+    }
+
+    private static class ArrayField {
+        private final DoubleArrayPublisher m_publisher;
+        private double[] m_values;
+        private double[] m_published = new double[0];
+
+        ArrayField(DoubleArrayPublisher publisher) {
+            m_publisher = publisher;
+        }
+    }
+
+    private class Group {
+        private final String m_table;
+        private String[] m_names = new String[0];
+        private double[] m_values = new double[0];
+        private double[] m_published = new double[0];
+        private ByteBuffer m_buffer = ByteBuffer.allocate(0);
+        private RawPublisher m_publisher;
+        private boolean m_schemaChanged;
+        private final List<ArrayField> m_arrays = new ArrayList<>();
+        private double m_publishedS = Double.NEGATIVE_INFINITY;
+        private boolean m_configured;
+        private double m_minPeriodS;
+        private double m_threshold;
+
+        Group(String table) {
+            m_table = table;
+        }
+
+        double minPeriodS() {
+            return m_configured ? m_minPeriodS : m_defaultPeriodS;
+        }
+
+        double threshold() {
+            return m_configured ? m_threshold : m_defaultThreshold;
+        }
+
+        int add(String name) {
+            for (int i = 0; i < m_names.length; ++i) {
+                if (m_names[i].equals(name))
+                    return i;
+            }
+            int field = m_names.length;
+            m_names = Arrays.copyOf(m_names, field + 1);
+            m_names[field] = name;
+            m_values = Arrays.copyOf(m_values, field + 1);
+            m_values[field] = Double.NaN;
+            m_buffer = ByteBuffer.allocate(8 * (field + 1)).order(ByteOrder.LITTLE_ENDIAN);
+            m_schemaChanged = true;
+            return field;
+        }
+
+        void flush(double nowS) {
+            if (nowS - m_publishedS < minPeriodS())
+                return;
+            boolean published = flushArrays();
+            if (m_schemaChanged || changed(m_published, m_values, m_values.length, threshold())) {
+                publish();
+                published = true;
+            }
+            if (published)
+                m_publishedS = nowS;
+        }
+
+        private boolean flushArrays() {
+            boolean published = false;
+            for (ArrayField field : m_arrays) {
+                double[] values = field.m_values;
+                if (values == null || !changed(field.m_published, values, values.length, threshold()))
+                    continue;
+                field.m_publisher.set(values);
+                field.m_published = values.clone();
+                published = true;
+            }
+            return published;
+        }
+
+        private void publish() {
+            if (m_publisher == null) {
+                RawTopic topic = m_inst.getRawTopic("/telemetry/" + m_table);
+                m_publisher = topic.publish(kType);
+            }
+            if (m_schemaChanged) {
+                m_inst.getRawTopic("/telemetry/" + m_table).setProperty("fields", schema(m_names));
+                m_schemaChanged = false;
+            }
+            m_buffer.clear();
+            for (double value : m_values) {
+                m_buffer.putDouble(value);
+            }
+            m_publisher.set(m_buffer.array());
+            if (m_published.length != m_values.length) {
+                m_published = new double[m_values.length];
+            }
+            System.arraycopy(m_values, 0, m_published, 0, m_values.length);
+        }
+    }
+
+    /** JSON array of strings. */
+    static String schema(String[] names) {
+        StringBuilder result = new StringBuilder("[");
+        for (int i = 0; i < names.length; ++i) {
+            if (i > 0)
+                result.append(',');
+            result.append('"');
+            for (char c : names[i].toCharArray()) {
+                if (c == '"' || c == '\\')
+                    result.append('\\');
+                result.append(c);
+            }
+            result.append('"');
+        }
+        return result.append(']').toString();
+    }
+}
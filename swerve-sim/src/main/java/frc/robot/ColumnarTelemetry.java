@@ -0,0 +1,137 @@
+package frc.robot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Keeps telemetry in memory, for headless runs where nobody is watching
+ * NetworkTables.
+ *
+ * There's one column per field, named "table/name" (and "table/name/i" for
+ * array elements), and one row per step, see endRow(). Setting a field just
+ * writes to the current row, so it's cheap enough to leave on. Fields keep
+ * their value until they're set again; fields with no value yet are NaN.
+ */
+public class ColumnarTelemetry implements Telemetry {
+    private final List<String> m_names = new ArrayList<>();
+    private final Map<String, Integer> m_index = new HashMap<>();
+    private double[] m_current = new double[0];
+    private double[][] m_columns = new double[0][];
+    private double[] m_time;
+    private int m_rows;
+
+    public ColumnarTelemetry() {
+        this(1024);
+    }
+
+    /** @param rows initial capacity, it grows as needed. */
+    public ColumnarTelemetry(int rows) {
+        m_time = new double[Math.max(1, rows)];
+    }
+
+    @Override
+    public DoubleConsumer doublePublisher(String table, String name) {
+        int column = column(table + "/" + name);
+        return value -> m_current[column] = value;
+    }
+
+    @Override
+    public Consumer<double[]> doubleArrayPublisher(String table, String name) {
+        String prefix = table + "/" + name + "/";
+        return new Consumer<double[]>() {
+            private int[] m_elements = new int[0];
+
+            @Override
+            public void accept(double[] values) {
+                if (values.length > m_elements.length) {
+                    int[] elements = Arrays.copyOf(m_elements, values.length);
+                    for (int i = m_elements.length; i < values.length; ++i) {
+                        elements[i] = column(prefix + i);
+                    }
+                    m_elements = elements;
+                }
+                for (int i = 0; i < values.length; ++i) {
+                    m_current[m_elements[i]] = values[i];
+                }
+            }
+        };
+    }
+
+    /** Finish the current row, at the given (simulated) time. */
+    public void endRow(double timeS) {
+        if (m_rows == m_time.length) {
+            int capacity = 2 * m_rows;
+            m_time = Arrays.copyOf(m_time, capacity);
+            for (int c = 0; c < m_columns.length; ++c) {
+                m_columns[c] = Arrays.copyOf(m_columns[c], capacity);
+            }
+        }
+        m_time[m_rows] = timeS;
+        for (int c = 0; c < m_columns.length; ++c) {
+            m_columns[c][m_rows] = m_current[c];
+        }
+        ++m_rows;
+    }
+
+    public int rows() {
+        return m_rows;
+    }
+
+    public List<String> names() {
+        return List.copyOf(m_names);
+    }
+
+    public double[] time() {
+        return Arrays.copyOf(m_time, m_rows);
+    }
+
+    /** Values of the field at each row. */
+    public double[] get(String name) {
+        Integer column = m_index.get(name);
+        if (column == null)
+            throw new IllegalArgumentException("no field named " + name);
+        return Arrays.copyOf(m_columns[column], m_rows);
+    }
+
+    /** Forget the rows, keep the fields and their current values. */
+    public void clear() {
+        m_rows = 0;
+    }
+
+    /** Time first, then the fields in the order they were added. */
+    public void writeCsv(Appendable out) throws IOException {
+        out.append("time");
+        for (String name : m_names) {
+            out.append(',').append(name);
+        }
+        out.append('\n');
+        for (int r = 0; r < m_rows; ++r) {
+            out.append(Double.toString(m_time[r]));
+            for (int c = 0; c < m_columns.length; ++c) {
+                out.append(',').append(Double.toString(m_columns[c][r]));
+            }
+            out.append('\n');
+        }
+    }
+
+    private int column(String name) {
+        Integer existing = m_index.get(name);
+        if (existing != null)
+            return existing;
+        int column = m_names.size();
+        m_names.add(name);
+        m_index.put(name, column);
+        m_current = Arrays.copyOf(m_current, column + 1);
+        m_current[column] = Double.NaN;
+        m_columns = Arrays.copyOf(m_columns, column + 1);
+        m_columns[column] = new double[m_time.length];
+        Arrays.fill(m_columns[column], Double.NaN);
+        return column;
+    }
+}
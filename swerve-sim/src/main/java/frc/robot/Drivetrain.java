@@ -2,22 +2,20 @@ package frc.robot;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
 
 import edu.wpi.first.math.controller.ProfiledPIDController;
-import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Twist2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.trajectory.TrapezoidProfile;
-import edu.wpi.first.networktables.DoubleArrayPublisher;
-import edu.wpi.first.networktables.DoublePublisher;
-import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
-import edu.wpi.first.networktables.StringPublisher;
 import edu.wpi.first.wpilibj.AnalogGyro;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.simulation.AnalogGyroSim;
@@ -37,10 +35,10 @@ public class Drivetrain extends SubsystemBase {
     private final Translation2d m_backRightLocation = new Translation2d(-0.381, -0.381);
 
     // package visibility for testing
-    final SwerveModule m_frontLeft = new SwerveModule("FrontLeft", 1, 2, 0, 1, 2, 3);
-    final SwerveModule m_frontRight = new SwerveModule("FrontRight", 3, 4, 4, 5, 6, 7);
-    final SwerveModule m_backLeft = new SwerveModule("BackLeft", 5, 6, 8, 9, 10, 11);
-    final SwerveModule m_backRight = new SwerveModule("BackRight", 7, 8, 12, 13, 14, 15);
+    final SwerveModule m_frontLeft;
+    final SwerveModule m_frontRight;
+    final SwerveModule m_backLeft;
+    final SwerveModule m_backRight;
 
     final AnalogGyro m_gyro = new AnalogGyro(0);
     // note gyro is NED, robot is NWU, see inversion below.
@@ -58,40 +56,69 @@ public class Drivetrain extends SubsystemBase {
     public final ProfiledPIDController headingController;
 
     /*
-     * Here we use SwerveDrivePoseEstimator so that we can fuse odometry readings.
-     * The numbers used below are robot specific, and should be tuned.
+     * Fuses odometry with late vision measurements, at their capture time.
+     * Two seconds of history at 50 hz, and the same default std devs as
+     * SwerveDrivePoseEstimator; these are robot specific, and should be tuned.
      */
-    private final SwerveDrivePoseEstimator m_poseEstimator = new SwerveDrivePoseEstimator(
-            m_kinematics,
-            m_gyro.getRotation2d(), // NWU
-            new SwerveModulePosition[] {
-                    m_frontLeft.getPosition(),
-                    m_frontRight.getPosition(),
-                    m_backLeft.getPosition(),
-                    m_backRight.getPosition()
-            },
-            new Pose2d());
-
-    NetworkTableInstance inst = NetworkTableInstance.getDefault();
-
-    DoublePublisher xSpeedPubM_s = inst.getTable("desired").getDoubleTopic("xspeed m_s").publish();
-    DoublePublisher ySpeedPubM_s = inst.getTable("desired").getDoubleTopic("yspeed m_s").publish();
-    DoublePublisher thetaSpeedPubRad_s = inst.getTable("desired").getDoubleTopic("thetaspeed rad_s").publish();
-
-    DoublePublisher actualXSpeedPubM_s = inst.getTable("actual").getDoubleTopic("xspeed m_s").publish();
-    DoublePublisher actualYSpeedPubM_s = inst.getTable("actual").getDoubleTopic("yspeed m_s").publish();
-    DoublePublisher actualThetaSpeedPubRad_s = inst.getTable("actual").getDoubleTopic("thetaspeed rad_s").publish();
-
-    DoubleArrayPublisher robotPosePub;
+    private final ReplayPoseEstimator m_poseEstimator = new ReplayPoseEstimator(
+            100,
+            new double[] { 0.1, 0.1, 0.1 },
+            new double[] { 0.9, 0.9, 0.9 });
+    private SwerveModulePosition[] m_prevPositions;
+    private Rotation2d m_prevGyro; // NWU
+
+    // optional, since it's noisy, which spoils the odometry tests.
+    private SimulatedCamera m_camera;
+    // ground truth for the camera; odometry has nothing to do with it.
+    private Pose2d m_truePose = new Pose2d();
+
+    DoubleConsumer xSpeedPubM_s;
+    DoubleConsumer ySpeedPubM_s;
+    DoubleConsumer thetaSpeedPubRad_s;
+
+    DoubleConsumer actualXSpeedPubM_s;
+    DoubleConsumer actualYSpeedPubM_s;
+    DoubleConsumer actualThetaSpeedPubRad_s;
+
+    Consumer<double[]> robotPosePub;
    // DoubleArrayPublisher waypointPub;
-    StringPublisher fieldTypePub;
 
     List<CallbackStore> cbs = new ArrayList<CallbackStore>();
 
     ChassisSpeeds speeds;
 
+    private final Telemetry m_telemetry;
+
+    /** Publishes to NetworkTables, for the interactive simulator. */
     public Drivetrain() {
+        this(NetworkTableInstance.getDefault());
+    }
+
+    private Drivetrain(NetworkTableInstance inst) {
+        this(batchedTelemetry(inst));
+        inst.startClient4("blarg");
+        inst.getTable("field").getStringTopic(".type").publish().set("Field2d");
+    }
+
+    /** Sends telemetry somewhere else, e.g. to memory, for headless simulation. */
+    public Drivetrain(Telemetry telemetry) {
+        m_telemetry = telemetry;
+        m_frontLeft = new SwerveModule("FrontLeft", telemetry, 1, 2, 0, 1, 2, 3);
+        m_frontRight = new SwerveModule("FrontRight", telemetry, 3, 4, 4, 5, 6, 7);
+        m_backLeft = new SwerveModule("BackLeft", telemetry, 5, 6, 8, 9, 10, 11);
+        m_backRight = new SwerveModule("BackRight", telemetry, 7, 8, 12, 13, 14, 15);
+
+        xSpeedPubM_s = telemetry.doublePublisher("desired", "xspeed m_s");
+        ySpeedPubM_s = telemetry.doublePublisher("desired", "yspeed m_s");
+        thetaSpeedPubRad_s = telemetry.doublePublisher("desired", "thetaspeed rad_s");
+        actualXSpeedPubM_s = telemetry.doublePublisher("actual", "xspeed m_s");
+        actualYSpeedPubM_s = telemetry.doublePublisher("actual", "yspeed m_s");
+        actualThetaSpeedPubRad_s = telemetry.doublePublisher("actual", "thetaspeed rad_s");
+        robotPosePub = telemetry.doubleArrayPublisher("field", "robotPose");
+
         m_gyro.reset();
+        m_prevPositions = getPositions();
+        m_prevGyro = m_gyro.getRotation2d(); // NWU
         headingController = new ProfiledPIDController( //
                 0.67, // kP //0.75
                 0, // kI
@@ -100,13 +127,25 @@ public class Drivetrain extends SubsystemBase {
                         2 * Math.PI, // speed rad/s
                         4 * Math.PI)); // accel rad/s/s
         headingController.setTolerance(0.01);
+    }
 
-        inst.startClient4("blarg");
-        NetworkTable fieldTable = inst.getTable("field");
-        robotPosePub = fieldTable.getDoubleArrayTopic("robotPose").publish();
-       // waypointPub = fieldTable.getDoubleArrayTopic("waypoint").publish();
-        fieldTypePub = fieldTable.getStringTopic(".type").publish();
-        fieldTypePub.set("Field2d");
+    /**
+     * One raw topic per table, only when changed by more than a millimeter (or
+     * milliradian), and the per-module detail at 10 hz.
+     */
+    private static BatchedTelemetry batchedTelemetry(NetworkTableInstance inst) {
+        BatchedTelemetry telemetry = new BatchedTelemetry(inst);
+        telemetry.configureDefault(0, 0.001);
+        for (String module : new String[] { "FrontLeft", "FrontRight", "BackLeft", "BackRight" }) {
+            telemetry.configure(module, 0.1, 0.001);
+        }
+        return telemetry;
+    }
+
+    /** Publish whatever telemetry is due. */
+    @Override
+    public void periodic() {
+        m_telemetry.flush(Timer.getFPGATimestamp());
     }
 
     public Pose2d getPose() {
@@ -115,13 +154,11 @@ public class Drivetrain extends SubsystemBase {
     }
 
     public void resetOdometry(Pose2d pose) {
-        m_poseEstimator.resetPosition(m_gyro.getRotation2d(), // NWU
-                new SwerveModulePosition[] {
-                        m_frontLeft.getPosition(),
-                        m_frontRight.getPosition(),
-                        m_backLeft.getPosition(),
-                        m_backRight.getPosition()
-                }, pose);
+        resetPose(pose);
+    }
+
+    public void setCamera(SimulatedCamera camera) {
+        m_camera = camera;
     }
 
     /**
@@ -134,9 +171,9 @@ public class Drivetrain extends SubsystemBase {
      *                      field.
      */
     public void drive(double xSpeedM_s, double ySpeedM_s, double rotRad_s, boolean fieldRelative) {
-        xSpeedPubM_s.set(xSpeedM_s);
-        ySpeedPubM_s.set(ySpeedM_s);
-        thetaSpeedPubRad_s.set(rotRad_s);
+        xSpeedPubM_s.accept(xSpeedM_s);
+        ySpeedPubM_s.accept(ySpeedM_s);
+        thetaSpeedPubRad_s.accept(rotRad_s);
 
         SwerveModuleState[] swerveModuleStates = m_kinematics.toSwerveModuleStates(
                 fieldRelative
@@ -151,13 +188,10 @@ public class Drivetrain extends SubsystemBase {
 
     // adapted from main2023 on Jul 9 2023
     public void resetPose(Pose2d robotPose) {
-        m_poseEstimator.resetPosition(m_gyro.getRotation2d(), new SwerveModulePosition[] {
-                m_frontLeft.getPosition(),
-                m_frontRight.getPosition(),
-                m_backLeft.getPosition(),
-                m_backRight.getPosition()
-        },
-                robotPose);
+        m_prevPositions = getPositions();
+        m_prevGyro = m_gyro.getRotation2d(); // NWU
+        m_poseEstimator.reset(Timer.getFPGATimestamp(), robotPose);
+        m_truePose = robotPose;
     }
 
     public void driveWithHeading(double xSpeedMetersPerSec, double ySpeedMetersPerSec, double rotRadiansPerSec,
@@ -213,17 +247,31 @@ public class Drivetrain extends SubsystemBase {
 
     /** Updates the field relative position of the robot. */
     public void updateOdometry() {
-        m_poseEstimator.update(
-                m_gyro.getRotation2d(), // NWU
-                new SwerveModulePosition[] {
-                        m_frontLeft.getPosition(),
-                        m_frontRight.getPosition(),
-                        m_backLeft.getPosition(),
-                        m_backRight.getPosition()
-                });
+        double nowS = Timer.getFPGATimestamp();
+        SwerveModulePosition[] positions = getPositions();
+        Rotation2d gyro = m_gyro.getRotation2d(); // NWU
+        SwerveModulePosition[] deltas = new SwerveModulePosition[positions.length];
+        for (int i = 0; i < positions.length; ++i) {
+            deltas[i] = new SwerveModulePosition(
+                    positions[i].distanceMeters - m_prevPositions[i].distanceMeters,
+                    positions[i].angle);
+        }
+        // same as SwerveDriveOdometry: translation from the wheels, rotation from the gyro.
+        Twist2d twist = m_kinematics.toTwist2d(deltas);
+        m_poseEstimator.update(nowS, twist.dx, twist.dy, gyro.minus(m_prevGyro).getRadians());
+        m_prevPositions = positions;
+        m_prevGyro = gyro;
+
+        // frames arrive late, sometimes out of order, and the estimator applies
+        // each one at its capture time.
+        if (m_camera != null) {
+            for (SimulatedCamera.Frame frame : m_camera.poll(nowS)) {
+                m_poseEstimator.addVisionMeasurement(frame.pose, frame.timestampS);
+            }
+        }
 
         Pose2d newEstimate = m_poseEstimator.getEstimatedPosition();
-        robotPosePub.set(new double[] {
+        robotPosePub.accept(new double[] {
                 newEstimate.getX(),
                 newEstimate.getY(),
                 newEstimate.getRotation().getDegrees()
@@ -234,16 +282,15 @@ public class Drivetrain extends SubsystemBase {
         //         newEstimate.getY(),
         //         newEstimate.getRotation().getDegrees()
         // });
+    }
 
-        // Also apply vision measurements. We use 0.3 seconds in the past as an example
-        // -- on a real robot, this must be calculated based either on latency or
-        // timestamps.
-
-        // m_poseEstimator.addVisionMeasurement(
-        // ExampleGlobalMeasurementSensor.getEstimatedGlobalPose(
-        // m_poseEstimator.getEstimatedPosition()),
-        // Timer.getFPGATimestamp() - 0.3);
-
+    private SwerveModulePosition[] getPositions() {
+        return new SwerveModulePosition[] {
+                m_frontLeft.getPosition(),
+                m_frontRight.getPosition(),
+                m_backLeft.getPosition(),
+                m_backRight.getPosition()
+        };
     }
 
     public void simulationInit() {
@@ -289,9 +336,17 @@ public class Drivetrain extends SubsystemBase {
         // is NWU, so invert here.
         gyroSim.setAngle(newAngleDeg);
 
-        xSpeedPubM_s.set(speeds.vxMetersPerSecond);
-        ySpeedPubM_s.set(speeds.vyMetersPerSecond);
-        thetaSpeedPubRad_s.set(-1.0 * speeds.omegaRadiansPerSecond);
+        m_truePose = m_truePose.exp(new Twist2d(
+                speeds.vxMetersPerSecond * dtS,
+                speeds.vyMetersPerSecond * dtS,
+                speeds.omegaRadiansPerSecond * dtS));
+        if (m_camera != null) {
+            m_camera.capture(Timer.getFPGATimestamp(), m_truePose);
+        }
+
+        xSpeedPubM_s.accept(speeds.vxMetersPerSecond);
+        ySpeedPubM_s.accept(speeds.vyMetersPerSecond);
+        thetaSpeedPubRad_s.accept(-1.0 * speeds.omegaRadiansPerSecond);
     }
 
     public void close() {
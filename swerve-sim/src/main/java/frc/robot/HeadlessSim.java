@@ -0,0 +1,104 @@
+package frc.robot;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/**
+ * Runs the drivetrain and its commands on a simulated clock, as fast as the
+ * CPU allows, without NetworkTables, e.g. to run lots of autonomous routines
+ * for regression or tuning.
+ *
+ * The HAL clock is paused, and each step advances it by one loop period, so
+ * everything that uses Timer (odometry, WaitCommand, the trajectory followers)
+ * sees simulated time. A step runs the scheduler, which runs the drivetrain
+ * physics in Drivetrain.simulationPeriodic(), with dt from the stepped clock,
+ * and then the commands; then it updates odometry. The physics must only be
+ * stepped there, since another call would advance it twice per step.
+ * Telemetry goes to a ColumnarTelemetry, one row per step.
+ *
+ * The HAL and the command scheduler are global, so only one of these should
+ * exist at a time; close it before making another.
+ */
+public class HeadlessSim implements AutoCloseable {
+    public static final double kDtS = 0.02;
+
+    private final ColumnarTelemetry m_telemetry = new ColumnarTelemetry();
+    private final Drivetrain m_drivetrain;
+
+    public HeadlessSim() {
+        HAL.initialize(500, 0);
+        SimHooks.pauseTiming();
+        // commands only run when enabled.
+        DriverStationSim.setDsAttached(true);
+        DriverStationSim.setAutonomous(true);
+        DriverStationSim.setEnabled(true);
+        DriverStationSim.notifyNewData();
+        m_drivetrain = new Drivetrain(m_telemetry);
+        m_drivetrain.simulationInit();
+        m_drivetrain.resetOdometry(new Pose2d());
+    }
+
+    public Drivetrain getDrivetrain() {
+        return m_drivetrain;
+    }
+
+    public ColumnarTelemetry getTelemetry() {
+        return m_telemetry;
+    }
+
+    /** Simulated time, i.e. Timer.getFPGATimestamp(). */
+    public double getTimeS() {
+        return Timer.getFPGATimestamp();
+    }
+
+    /** Advance one loop period. */
+    public void step() {
+        CommandScheduler.getInstance().run();
+        m_drivetrain.updateOdometry();
+        m_telemetry.endRow(Timer.getFPGATimestamp());
+        SimHooks.stepTiming(kDtS);
+    }
+
+    /** Advance by the duration, rounded to whole steps. */
+    public void run(double durationS) {
+        long steps = Math.round(durationS / kDtS);
+        for (long i = 0; i < steps; ++i) {
+            step();
+        }
+    }
+
+    /**
+     * Schedule the command and step until it finishes, or until the timeout,
+     * when it's cancelled.
+     *
+     * @return true if the command finished by itself.
+     */
+    public boolean run(Command command, double timeoutS) {
+        CommandScheduler scheduler = CommandScheduler.getInstance();
+        scheduler.schedule(command);
+        long steps = (long) Math.ceil(timeoutS / kDtS);
+        for (long i = 0; i < steps; ++i) {
+            step();
+            if (!scheduler.isScheduled(command))
+                return true;
+        }
+        scheduler.cancel(command);
+        return false;
+    }
+
+    @Override
+    public void close() {
+        CommandScheduler scheduler = CommandScheduler.getInstance();
+        scheduler.cancelAll();
+        scheduler.unregisterSubsystem(m_drivetrain);
+        m_drivetrain.close();
+        DriverStationSim.setEnabled(false);
+        DriverStationSim.notifyNewData();
+        SimHooks.resumeTiming();
+    }
+}
@@ -0,0 +1,316 @@
+package frc.robot;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Fuses odometry with late vision measurements.
+ *
+ * Like controllib.storage.BitemporalBuffer, a vision measurement has a valid
+ * time (when the frame was captured) that is earlier than its record time (when
+ * it arrives), by a variable amount, so frames can even arrive out of order.
+ * This keeps a time-indexed history of odometry steps; a measurement corrects
+ * the estimate at its valid time, and the odometry since then is replayed on
+ * top of the correction. Each entry keeps the measurement applied to it, and
+ * replay applies it again, so a frame that arrives after a newer one doesn't
+ * erase the newer correction. A second measurement with the same valid time
+ * gets an entry of its own, with no motion, after the first.
+ *
+ * The history is a ring of primitive arrays, so updates don't allocate, and the
+ * cost of a measurement is linear in the number of steps since its valid time.
+ * Measurements older than the history are ignored.
+ *
+ * The correction is the same as SwerveDrivePoseEstimator: the difference
+ * between the measurement and the estimate, as a twist, scaled per axis by the
+ * steady-state Kalman gain.
+ */
+public class ReplayPoseEstimator {
+    private final int m_capacity;
+    private final double[] m_gain = new double[3];
+
+    // logical entry i is at (m_head + i) % m_capacity.
+    private final double[] m_time;
+    private final double[] m_x;
+    private final double[] m_y;
+    private final double[] m_theta;
+    // robot-relative odometry twist from the previous entry to this one.
+    private final double[] m_dx;
+    private final double[] m_dy;
+    private final double[] m_dtheta;
+    // field-relative vision measurement applied at this entry, if any.
+    private final boolean[] m_vision;
+    private final double[] m_vx;
+    private final double[] m_vy;
+    private final double[] m_vtheta;
+    private int m_head;
+    private int m_size;
+
+    private final double[] m_scratch = new double[3];
+
+    /**
+     * @param capacity      number of odometry steps to keep, e.g. 100 is two
+     *                      seconds at 50 hz.
+     * @param stateStdDevs  x (m), y (m), theta (rad)
+     * @param visionStdDevs x (m), y (m), theta (rad)
+     */
+    public ReplayPoseEstimator(int capacity, double[] stateStdDevs, double[] visionStdDevs) {
+        if (capacity < 2)
+            throw new IllegalArgumentException("capacity must be at least 2");
+        m_capacity = capacity;
+        m_time = new double[capacity];
+        m_x = new double[capacity];
+        m_y = new double[capacity];
+        m_theta = new double[capacity];
+        m_dx = new double[capacity];
+        m_dy = new double[capacity];
+        m_dtheta = new double[capacity];
+        m_vision = new boolean[capacity];
+        m_vx = new double[capacity];
+        m_vy = new double[capacity];
+        m_vtheta = new double[capacity];
+        for (int i = 0; i < 3; ++i) {
+            double q = stateStdDevs[i] * stateStdDevs[i];
+            double r = visionStdDevs[i] * visionStdDevs[i];
+            m_gain[i] = q == 0 ? 0 : q / (q + Math.sqrt(q * r));
+        }
+        reset(0, new Pose2d());
+    }
+
+    /** Forget the history and start over at the given pose. */
+    public void reset(double timeS, Pose2d pose) {
+        m_head = 0;
+        m_size = 1;
+        set(0, timeS, pose.getX(), pose.getY(), pose.getRotation().getRadians(), 0, 0, 0);
+    }
+
+    /**
+     * Add an odometry step.
+     *
+     * @param timeS  time of the sample the step ends with.
+     * @param dx     robot-relative twist since the previous update, m
+     * @param dy     robot-relative twist since the previous update, m
+     * @param dtheta rotation since the previous update, rad, usually from the gyro.
+     */
+    public void update(double timeS, double dx, double dy, double dtheta) {
+        int last = index(m_size - 1);
+        exp(m_x[last], m_y[last], m_theta[last], dx, dy, dtheta, m_scratch);
+        if (timeS > m_time[last] || m_vision[last]) {
+            // folding into a corrected entry would apply the correction twice.
+            append(Math.max(timeS, m_time[last]), m_scratch[0], m_scratch[1], m_scratch[2], dx, dy, dtheta);
+            return;
+        }
+        // no time has passed, so fold the step into the last entry.
+        if (m_size > 1) {
+            int prev = index(m_size - 2);
+            log(m_x[prev], m_y[prev], m_theta[prev], m_scratch[0], m_scratch[1], m_scratch[2], m_scratch);
+            m_dx[last] = m_scratch[0];
+            m_dy[last] = m_scratch[1];
+            m_dtheta[last] = m_scratch[2];
+            exp(m_x[prev], m_y[prev], m_theta[prev], m_dx[last], m_dy[last], m_dtheta[last], m_scratch);
+        }
+        m_x[last] = m_scratch[0];
+        m_y[last] = m_scratch[1];
+        m_theta[last] = m_scratch[2];
+    }
+
+    /**
+     * Correct the estimate at the valid time of the measurement, and replay the
+     * odometry since then.
+     *
+     * @param visionPose field-relative pose measurement
+     * @param timestampS valid time, i.e. when the frame was captured, on the same
+     *                   clock as the odometry.
+     * @return false if the measurement is older than the history and was ignored.
+     */
+    public boolean addVisionMeasurement(Pose2d visionPose, double timestampS) {
+        int k = floor(timestampS);
+        if (k < 0)
+            return false;
+        boolean between = k < m_size - 1 && m_time[index(k)] < timestampS;
+        if (between || m_vision[index(k)]) {
+            // between samples, split the step that spans the valid time, and
+            // after another measurement, add a step with no motion, so that the
+            // correction has an entry of its own.
+            if (m_size == m_capacity) {
+                if (k == 0)
+                    return false;
+                drop();
+                --k;
+            }
+            if (k < m_size - 1) {
+                insertAfter(k, between ? timestampS : m_time[index(k)]);
+            } else {
+                int last = index(k);
+                append(m_time[last], m_x[last], m_y[last], m_theta[last], 0, 0, 0);
+            }
+            ++k;
+        }
+        // measurements newer than the latest odometry apply to the latest.
+        int i = index(k);
+        m_vision[i] = true;
+        m_vx[i] = visionPose.getX();
+        m_vy[i] = visionPose.getY();
+        m_vtheta[i] = visionPose.getRotation().getRadians();
+        correct(i);
+        replay(k);
+        return true;
+    }
+
+    public Pose2d getEstimatedPosition() {
+        int last = index(m_size - 1);
+        return new Pose2d(m_x[last], m_y[last], new Rotation2d(m_theta[last]));
+    }
+
+    /** Number of entries in the history. */
+    public int size() {
+        return m_size;
+    }
+
+    ////////////////////////////////////////////////////////
+
+    private int index(int i) {
+        return (m_head + i) % m_capacity;
+    }
+
+    private void set(int i, double time, double x, double y, double theta, double dx, double dy, double dtheta) {
+        int j = index(i);
+        m_time[j] = time;
+        m_x[j] = x;
+        m_y[j] = y;
+        m_theta[j] = theta;
+        m_dx[j] = dx;
+        m_dy[j] = dy;
+        m_dtheta[j] = dtheta;
+        m_vision[j] = false;
+    }
+
+    /** Move the pose at index i towards its vision measurement. */
+    private void correct(int i) {
+        log(m_x[i], m_y[i], m_theta[i], m_vx[i], m_vy[i], m_vtheta[i], m_scratch);
+        exp(m_x[i], m_y[i], m_theta[i],
+                m_gain[0] * m_scratch[0], m_gain[1] * m_scratch[1], m_gain[2] * m_scratch[2], m_scratch);
+        m_x[i] = m_scratch[0];
+        m_y[i] = m_scratch[1];
+        m_theta[i] = m_scratch[2];
+    }
+
+    private void drop() {
+        m_head = (m_head + 1) % m_capacity;
+        --m_size;
+    }
+
+    private void append(double time, double x, double y, double theta, double dx, double dy, double dtheta) {
+        if (m_size == m_capacity)
+            drop();
+        ++m_size;
+        set(m_size - 1, time, x, y, theta, dx, dy, dtheta);
+    }
+
+    /** Last entry at or before the time, or -1 if the time precedes them all. */
+    private int floor(double timeS) {
+        int lo = 0;
+        int hi = m_size - 1;
+        if (timeS < m_time[index(lo)])
+            return -1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (m_time[index(mid)] <= timeS) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Split the step from k to k+1 at the time. A constant twist is an arc, so
+     * the two parts compose exactly to the original step.
+     */
+    private void insertAfter(int k, double timeS) {
+        for (int i = m_size; i > k + 1; --i) {
+            int to = index(i);
+            int from = index(i - 1);
+            m_time[to] = m_time[from];
+            m_x[to] = m_x[from];
+            m_y[to] = m_y[from];
+            m_theta[to] = m_theta[from];
+            m_dx[to] = m_dx[from];
+            m_dy[to] = m_dy[from];
+            m_dtheta[to] = m_dtheta[from];
+            m_vision[to] = m_vision[from];
+            m_vx[to] = m_vx[from];
+            m_vy[to] = m_vy[from];
+            m_vtheta[to] = m_vtheta[from];
+        }
+        ++m_size;
+        int before = index(k);
+        int after = index(k + 2);
+        double f = (timeS - m_time[before]) / (m_time[after] - m_time[before]);
+        double dx = m_dx[after];
+        double dy = m_dy[after];
+        double dtheta = m_dtheta[after];
+        exp(m_x[before], m_y[before], m_theta[before], f * dx, f * dy, f * dtheta, m_scratch);
+        set(k + 1, timeS, m_scratch[0], m_scratch[1], m_scratch[2], f * dx, f * dy, f * dtheta);
+        m_dx[after] = (1 - f) * dx;
+        m_dy[after] = (1 - f) * dy;
+        m_dtheta[after] = (1 - f) * dtheta;
+    }
+
+    /**
+     * Recompute the poses after entry k from their odometry steps, and their
+     * vision measurements.
+     */
+    private void replay(int k) {
+        for (int i = k + 1; i < m_size; ++i) {
+            int prev = index(i - 1);
+            int j = index(i);
+            exp(m_x[prev], m_y[prev], m_theta[prev], m_dx[j], m_dy[j], m_dtheta[j], m_scratch);
+            m_x[j] = m_scratch[0];
+            m_y[j] = m_scratch[1];
+            m_theta[j] = m_scratch[2];
+            if (m_vision[j])
+                correct(j);
+        }
+    }
+
+    /** Same as Pose2d.exp(), without the allocation. */
+    static void exp(double x, double y, double theta, double dx, double dy, double dtheta, double[] out) {
+        double s;
+        double c;
+        if (Math.abs(dtheta) < 1E-9) {
+            s = 1.0 - 1.0 / 6.0 * dtheta * dtheta;
+            c = 0.5 * dtheta;
+        } else {
+            s = Math.sin(dtheta) / dtheta;
+            c = (1 - Math.cos(dtheta)) / dtheta;
+        }
+        double tx = dx * s - dy * c;
+        double ty = dx * c + dy * s;
+        double cos = Math.cos(theta);
+        double sin = Math.sin(theta);
+        out[0] = x + tx * cos - ty * sin;
+        out[1] = y + tx * sin + ty * cos;
+        out[2] = theta + dtheta;
+    }
+
+    /** Same as Pose2d.log(), without the allocation. */
+    static void log(double x0, double y0, double theta0, double x1, double y1, double theta1, double[] out) {
+        double cos = Math.cos(theta0);
+        double sin = Math.sin(theta0);
+        double rx = (x1 - x0) * cos + (y1 - y0) * sin;
+        double ry = -(x1 - x0) * sin + (y1 - y0) * cos;
+        double dtheta = Math.IEEEremainder(theta1 - theta0, 2 * Math.PI);
+        double halfDtheta = dtheta / 2.0;
+        double cosMinusOne = Math.cos(dtheta) - 1;
+        double halfThetaByTanOfHalfDtheta;
+        if (Math.abs(cosMinusOne) < 1E-9) {
+            halfThetaByTanOfHalfDtheta = 1.0 - 1.0 / 12.0 * dtheta * dtheta;
+        } else {
+            halfThetaByTanOfHalfDtheta = -(halfDtheta * Math.sin(dtheta)) / cosMinusOne;
+        }
+        out[0] = rx * halfThetaByTanOfHalfDtheta + ry * halfDtheta;
+        out[1] = -rx * halfDtheta + ry * halfThetaByTanOfHalfDtheta;
+        out[2] = dtheta;
+    }
+}
@@ -62,6 +62,8 @@ public class Robot extends TimedRobot {
 
     public Robot() {
         m_swerve = new Drivetrain();
+        // 20 fps, 30 ms plus a 20 ms mean tail of latency, 10% dropped.
+        m_swerve.setCamera(new SimulatedCamera(0.05, 0.03, 0.02, 0.1, 0.05, Math.toRadians(2), 0));
         // m_manualControl = new XboxControl();
         // m_manualControl = new LogitechExtreme3dControl();
         m_manualControl = new Pilot();
@@ -0,0 +1,103 @@
+package frc.robot;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Simulates a camera pipeline, replacing ExampleGlobalMeasurementSensor, which
+ * returns a noisy pose immediately.
+ *
+ * Frames are captured at a fixed rate from the true pose, with noise, and some
+ * are dropped. Each one arrives after a latency made of a fixed part (exposure,
+ * processing) and an exponential tail (scheduling, network), so a slow frame
+ * can arrive after a later fast one. Frames carry their capture time, which is
+ * the time the pose is valid.
+ *
+ * The random source is seeded, so runs are repeatable.
+ */
+public class SimulatedCamera {
+    public static class Frame {
+        public final Pose2d pose;
+        /** When the frame was captured, i.e. when the pose is valid. */
+        public final double timestampS;
+        /** When the frame reaches the robot. */
+        public final double arrivalS;
+
+        public Frame(Pose2d pose, double timestampS, double arrivalS) {
+            this.pose = pose;
+            this.timestampS = timestampS;
+            this.arrivalS = arrivalS;
+        }
+    }
+
+    private final double m_periodS;
+    private final double m_minLatencyS;
+    private final double m_meanJitterS;
+    private final double m_dropRate;
+    private final double m_xyStdDevM;
+    private final double m_thetaStdDevRad;
+    private final Random m_random;
+    private final PriorityQueue<Frame> m_inFlight = new PriorityQueue<>(
+            Comparator.comparingDouble((Frame f) -> f.arrivalS));
+    private double m_nextCaptureS = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param periodS        time between captures
+     * @param minLatencyS    fixed part of the latency
+     * @param meanJitterS    mean of the exponential part of the latency
+     * @param dropRate       fraction of frames that never arrive
+     * @param xyStdDevM      pose noise
+     * @param thetaStdDevRad pose noise
+     * @param seed           for the random source
+     */
+    public SimulatedCamera(
+            double periodS,
+            double minLatencyS,
+            double meanJitterS,
+            double dropRate,
+            double xyStdDevM,
+            double thetaStdDevRad,
+            long seed) {
+        m_periodS = periodS;
+        m_minLatencyS = minLatencyS;
+        m_meanJitterS = meanJitterS;
+        m_dropRate = dropRate;
+        m_xyStdDevM = xyStdDevM;
+        m_thetaStdDevRad = thetaStdDevRad;
+        m_random = new Random(seed);
+    }
+
+    /** Call from the simulation loop, with the true pose; captures if it's time. */
+    public void capture(double nowS, Pose2d truePose) {
+        if (nowS < m_nextCaptureS)
+            return;
+        m_nextCaptureS += m_periodS;
+        if (m_nextCaptureS <= nowS) {
+            // first capture, or the loop fell behind; don't try to catch up.
+            m_nextCaptureS = nowS + m_periodS;
+        }
+        if (m_random.nextDouble() < m_dropRate)
+            return;
+        double latencyS = m_minLatencyS - m_meanJitterS * Math.log(1 - m_random.nextDouble());
+        Pose2d noisyPose = new Pose2d(
+                truePose.getX() + m_xyStdDevM * m_random.nextGaussian(),
+                truePose.getY() + m_xyStdDevM * m_random.nextGaussian(),
+                truePose.getRotation().plus(new Rotation2d(m_thetaStdDevRad * m_random.nextGaussian())));
+        m_inFlight.add(new Frame(noisyPose, nowS, nowS + latencyS));
+    }
+
+    /** Frames that have arrived by now, in order of arrival. */
+    public List<Frame> poll(double nowS) {
+        List<Frame> frames = new ArrayList<>();
+        while (!m_inFlight.isEmpty() && m_inFlight.peek().arrivalS <= nowS) {
+            frames.add(m_inFlight.poll());
+        }
+        return frames;
+    }
+}
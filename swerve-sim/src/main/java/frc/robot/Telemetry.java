@@ -0,0 +1,24 @@
+package frc.robot;
+
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Where Drivetrain and SwerveModule send what they observe.
+ *
+ * On the robot, or in the interactive simulator, this is NetworkTables, see
+ * BatchedTelemetry; in a headless simulation it's memory, see
+ * ColumnarTelemetry.
+ */
+public interface Telemetry {
+    DoubleConsumer doublePublisher(String table, String name);
+
+    Consumer<double[]> doubleArrayPublisher(String table, String name);
+
+    /**
+     * End of a loop. Setting a field may just remember the value, in which case
+     * this is where it's actually published.
+     */
+    default void flush(double timeS) {
+    }
+}
@@ -0,0 +1,101 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.RawSubscriber;
+import edu.wpi.first.networktables.TimestampedRaw;
+
+public class BatchedTelemetryTest {
+    private static double[] decode(byte[] raw) {
+        ByteBuffer buffer = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+        double[] result = new double[raw.length / 8];
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = buffer.getDouble();
+        }
+        return result;
+    }
+
+    @Test
+    void testChanged() {
+        double[] published = new double[] { 1, Double.NaN };
+        assertFalse(BatchedTelemetry.changed(published, new double[] { 1.005, Double.NaN }, 2, 0.01));
+        assertTrue(BatchedTelemetry.changed(published, new double[] { 1.02, Double.NaN }, 2, 0.01));
+        assertTrue(BatchedTelemetry.changed(published, new double[] { 1, 0 }, 2, 0.01));
+        assertTrue(BatchedTelemetry.changed(published, new double[] { 1 }, 1, 0.01));
+    }
+
+    @Test
+    void testSchema() {
+        assertEquals("[\"xspeed m_s\",\"a\\\"b\"]", BatchedTelemetry.schema(new String[] { "xspeed m_s", "a\"b" }));
+    }
+
+    @Test
+    void testBatching() {
+        NetworkTableInstance inst = NetworkTableInstance.create();
+        try {
+            BatchedTelemetry telemetry = new BatchedTelemetry(inst);
+            telemetry.configure("t", 0.1, 0.01);
+            DoubleConsumer a = telemetry.doublePublisher("t", "a");
+            DoubleConsumer b = telemetry.doublePublisher("t", "b");
+            RawSubscriber sub = inst.getRawTopic("/telemetry/t").subscribe(
+                    BatchedTelemetry.kType, new byte[0],
+                    PubSubOption.keepDuplicates(true), PubSubOption.pollStorage(10));
+
+            a.accept(1);
+            b.accept(2);
+            telemetry.flush(0);
+            // too soon
+            a.accept(3);
+            telemetry.flush(0.05);
+            // now
+            telemetry.flush(0.1);
+            // too small a change
+            b.accept(2.001);
+            telemetry.flush(0.2);
+            // unchanged
+            telemetry.flush(0.3);
+
+            TimestampedRaw[] values = sub.readQueue();
+            assertEquals(2, values.length);
+            assertArrayEquals(new double[] { 1, 2 }, decode(values[0].value));
+            assertArrayEquals(new double[] { 3, 2 }, decode(values[1].value));
+            assertEquals("[\"a\",\"b\"]", inst.getRawTopic("/telemetry/t").getProperty("fields"));
+        } finally {
+            inst.close();
+        }
+    }
+
+    @Test
+    void testArray() {
+        NetworkTableInstance inst = NetworkTableInstance.create();
+        try {
+            BatchedTelemetry telemetry = new BatchedTelemetry(inst);
+            telemetry.configureDefault(0, 0.01);
+            Consumer<double[]> pose = telemetry.doubleArrayPublisher("field", "robotPose");
+            DoubleArraySubscriber sub = inst.getTable("field").getDoubleArrayTopic("robotPose").subscribe(
+                    new double[0], PubSubOption.keepDuplicates(true), PubSubOption.pollStorage(10));
+            pose.accept(new double[] { 1, 2, 3 });
+            telemetry.flush(0);
+            pose.accept(new double[] { 1, 2, 3.001 });
+            telemetry.flush(0.02);
+            pose.accept(new double[] { 1, 2, 4 });
+            telemetry.flush(0.04);
+            assertEquals(2, sub.readQueue().length);
+        } finally {
+            inst.close();
+        }
+    }
+}
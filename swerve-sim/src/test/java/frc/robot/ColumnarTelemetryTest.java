@@ -0,0 +1,56 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+import org.junit.jupiter.api.Test;
+
+public class ColumnarTelemetryTest {
+    @Test
+    void testColumns() {
+        ColumnarTelemetry telemetry = new ColumnarTelemetry(2);
+        DoubleConsumer a = telemetry.doublePublisher("t", "a");
+        a.accept(1);
+        telemetry.endRow(0.0);
+        // b is added late, and isn't set every row
+        DoubleConsumer b = telemetry.doublePublisher("t", "b");
+        b.accept(2);
+        telemetry.endRow(0.1);
+        a.accept(3);
+        telemetry.endRow(0.2);
+        assertEquals(3, telemetry.rows());
+        assertEquals(List.of("t/a", "t/b"), telemetry.names());
+        assertArrayEquals(new double[] { 0.0, 0.1, 0.2 }, telemetry.time());
+        assertArrayEquals(new double[] { 1, 1, 3 }, telemetry.get("t/a"));
+        assertArrayEquals(new double[] { Double.NaN, 2, 2 }, telemetry.get("t/b"));
+        // same field, same column
+        telemetry.doublePublisher("t", "a").accept(4);
+        telemetry.endRow(0.3);
+        assertArrayEquals(new double[] { 1, 1, 3, 4 }, telemetry.get("t/a"));
+    }
+
+    @Test
+    void testArray() {
+        ColumnarTelemetry telemetry = new ColumnarTelemetry();
+        Consumer<double[]> pose = telemetry.doubleArrayPublisher("field", "robotPose");
+        pose.accept(new double[] { 1, 2, 3 });
+        telemetry.endRow(0);
+        assertEquals(List.of("field/robotPose/0", "field/robotPose/1", "field/robotPose/2"), telemetry.names());
+        assertArrayEquals(new double[] { 2 }, telemetry.get("field/robotPose/1"));
+    }
+
+    @Test
+    void testCsv() throws IOException {
+        ColumnarTelemetry telemetry = new ColumnarTelemetry();
+        telemetry.doublePublisher("t", "a").accept(1);
+        telemetry.endRow(0);
+        StringBuilder csv = new StringBuilder();
+        telemetry.writeCsv(csv);
+        assertEquals("time,t/a\n0.0,1.0\n", csv.toString());
+    }
+}
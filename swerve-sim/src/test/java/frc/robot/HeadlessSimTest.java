@@ -0,0 +1,61 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj2.command.RunCommand;
+
+public class HeadlessSimTest {
+    @Test
+    void testDriveForward() {
+        try (HeadlessSim sim = new HeadlessSim()) {
+            Drivetrain drivetrain = sim.getDrivetrain();
+            double startS = sim.getTimeS();
+            assertTrue(sim.run(new RunCommand(() -> drivetrain.drive(1, 0, 0, false), drivetrain).withTimeout(2), 5));
+            // the clock only moves when the sim steps it.
+            assertEquals(2.0, sim.getTimeS() - startS, 0.05);
+            Pose2d pose = drivetrain.getPose();
+            // the module model is noisy, and takes a few steps to settle.
+            assertEquals(2.0, pose.getX(), 0.3);
+            assertEquals(0, pose.getY(), 0.1);
+            ColumnarTelemetry telemetry = sim.getTelemetry();
+            assertEquals(100, telemetry.rows(), 3);
+            double[] x = telemetry.get("field/robotPose/0");
+            assertEquals(pose.getX(), x[x.length - 1], 0.05);
+        }
+    }
+
+    @Test
+    void testTimeout() {
+        try (HeadlessSim sim = new HeadlessSim()) {
+            Drivetrain drivetrain = sim.getDrivetrain();
+            assertFalse(sim.run(new RunCommand(() -> drivetrain.drive(0, 0, 0, false), drivetrain), 1));
+            assertEquals(50, sim.getTelemetry().rows());
+        }
+    }
+
+    /**
+     * Simulation runs at least ten times faster than real time, i.e. a 20 ms
+     * step takes less than 2 ms, so e.g. a hundred 15-second autonomous routines
+     * take less than two and a half minutes.
+     */
+    @Test
+    void testSpeed() {
+        try (HeadlessSim sim = new HeadlessSim()) {
+            Drivetrain drivetrain = sim.getDrivetrain();
+            // warm up
+            sim.run(new RunCommand(() -> drivetrain.drive(1, 0, 1, true), drivetrain).withTimeout(10), 20);
+            double startS = sim.getTimeS();
+            long t0 = System.nanoTime();
+            sim.run(new RunCommand(() -> drivetrain.drive(1, 0, 1, true), drivetrain).withTimeout(60), 120);
+            double wallS = (System.nanoTime() - t0) / 1e9;
+            double simS = sim.getTimeS() - startS;
+            assertEquals(60, simS, 0.05);
+            assertTrue(simS / wallS > 10, String.format("%.1f simulated s per wall s", simS / wallS));
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+public class ReplayPoseEstimatorTest {
+    private static final double[] kStateStdDevs = new double[] { 0.1, 0.1, 0.1 };
+    private static final double[] kVisionStdDevs = new double[] { 0.9, 0.9, 0.9 };
+    private static final double kDt = 0.02;
+
+    private static void assertPose(Pose2d expected, Pose2d actual) {
+        assertAll(
+                () -> assertEquals(expected.getX(), actual.getX(), 1e-9, "x"),
+                () -> assertEquals(expected.getY(), actual.getY(), 1e-9, "y"),
+                () -> assertEquals(expected.getRotation().getRadians(), actual.getRotation().getRadians(), 1e-9,
+                        "theta"));
+    }
+
+    /** Odometry alone is just integration of the twists. */
+    @Test
+    void testOdometry() {
+        ReplayPoseEstimator estimator = new ReplayPoseEstimator(10, kStateStdDevs, kVisionStdDevs);
+        estimator.reset(0, new Pose2d(1, 2, new Rotation2d(Math.PI / 2)));
+        estimator.update(kDt, 0.1, 0, 0);
+        assertPose(new Pose2d(1, 2.1, new Rotation2d(Math.PI / 2)), estimator.getEstimatedPosition());
+        // quarter circle, radius 1, turning left
+        estimator.update(2 * kDt, Math.PI / 2, 0, Math.PI / 2);
+        assertPose(new Pose2d(0, 3.1, new Rotation2d(Math.PI)), estimator.getEstimatedPosition());
+        // many more steps than capacity
+        for (int i = 3; i < 100; ++i) {
+            estimator.update(i * kDt, 0.1, 0, 0);
+        }
+        assertEquals(10, estimator.size());
+        assertPose(new Pose2d(-9.7, 3.1, new Rotation2d(Math.PI)), estimator.getEstimatedPosition());
+    }
+
+    /** Updates with the same timestamp are folded into one step. */
+    @Test
+    void testSameTime() {
+        ReplayPoseEstimator estimator = new ReplayPoseEstimator(10, kStateStdDevs, kVisionStdDevs);
+        estimator.reset(0, new Pose2d());
+        estimator.update(kDt, 0.1, 0, 0.1);
+        estimator.update(kDt, 0.1, 0, 0.1);
+        assertEquals(2, estimator.size());
+        ReplayPoseEstimator expected = new ReplayPoseEstimator(10, kStateStdDevs, kVisionStdDevs);
+        expected.reset(0, new Pose2d());
+        expected.update(kDt, 0.1, 0, 0.1);
+        expected.update(2 * kDt, 0.1, 0, 0.1);
+        assertPose(expected.getEstimatedPosition(), estimator.getEstimatedPosition());
+        // the folded step replays to the same place.
+        estimator.addVisionMeasurement(new Pose2d(), 0);
+        expected.addVisionMeasurement(new Pose2d(), 0);
+        assertPose(expected.getEstimatedPosition(), estimator.getEstimatedPosition());
+    }
+
+    /** With no motion, a measurement moves the estimate part of the way. */
+    @Test
+    void testCorrection() {
+        ReplayPoseEstimator estimator = new ReplayPoseEstimator(10, kStateStdDevs, kVisionStdDevs);
+        estimator.reset(0, new Pose2d());
+        estimator.update(kDt, 0, 0, 0);
+        assertTrue(estimator.addVisionMeasurement(new Pose2d(1, 0, new Rotation2d()), kDt / 2));
+        // q/(q+sqrt(qr)) = 0.01/(0.01+0.09)
+        assertPose(new Pose2d(0.1, 0, new Rotation2d()), estimator.getEstimatedPosition());
+        // a new entry for the measurement
+        assertEquals(3, estimator.size());
+    }
+
+    @Test
+    void testTooOld() {
+        ReplayPoseEstimator estimator = new ReplayPoseEstimator(10, kStateStdDevs, kVisionStdDevs);
+        estimator.reset(1, new Pose2d());
+        estimator.update(1 + kDt, 0.1, 0, 0);
+        assertFalse(estimator.addVisionMeasurement(new Pose2d(1, 0, new Rotation2d()), 0.5));
+        assertPose(new Pose2d(0.1, 0, new Rotation2d()), estimator.getEstimatedPosition());
+    }
+
+    /** A late measurement ends up exactly where it would have on time. */
+    @Test
+    void testLateSameAsOnTime() {
+        ReplayPoseEstimator onTime = new ReplayPoseEstimator(100, kStateStdDevs, kVisionStdDevs);
+        ReplayPoseEstimator late = new ReplayPoseEstimator(100, kStateStdDevs, kVisionStdDevs);
+        onTime.reset(0, new Pose2d());
+        late.reset(0, new Pose2d());
+        List<SimulatedCamera.Frame> pending = new ArrayList<>();
+        for (int i = 1; i < 200; ++i) {
+            double t = i * kDt;
+            onTime.update(t, 0.05, 0.01, 0.02);
+            late.update(t, 0.05, 0.01, 0.02);
+            if (i % 3 == 0) {
+                // captured between odometry samples, with a pose off to one side
+                Pose2d visionPose = new Pose2d(i * 0.05, 1, new Rotation2d());
+                double captureS = t - 0.3 * kDt;
+                onTime.addVisionMeasurement(visionPose, captureS);
+                pending.add(new SimulatedCamera.Frame(visionPose, captureS, t));
+            }
+            if (i % 15 == 0) {
+                // several at once, up to a quarter second late
+                for (SimulatedCamera.Frame frame : pending) {
+                    late.addVisionMeasurement(frame.pose, frame.timestampS);
+                }
+                pending.clear();
+                assertPose(onTime.getEstimatedPosition(), late.getEstimatedPosition());
+            }
+        }
+    }
+
+    /**
+     * Drive straight with a slow camera; the estimate is much
+     * better using the capture time than using the arrival time.
+     */
+    @Test
+    void testLatencyCompensation() {
+        SimulatedCamera camera = new SimulatedCamera(0.05, 0.1, 0.05, 0.2, 0.02, 0.01, 0);
+        ReplayPoseEstimator compensated = new ReplayPoseEstimator(100, kStateStdDevs, kVisionStdDevs);
+        ReplayPoseEstimator naive = new ReplayPoseEstimator(100, kStateStdDevs, kVisionStdDevs);
+        compensated.reset(0, new Pose2d());
+        naive.reset(0, new Pose2d());
+        double speed = 3.0;
+        double compensatedError = 0;
+        double naiveError = 0;
+        int frames = 0;
+        for (int i = 1; i < 500; ++i) {
+            double t = i * kDt;
+            Pose2d truePose = new Pose2d(speed * t, 0, new Rotation2d());
+            camera.capture(t, truePose);
+            // the wheels slip a little
+            compensated.update(t, 1.02 * speed * kDt, 0, 0);
+            naive.update(t, 1.02 * speed * kDt, 0, 0);
+            for (SimulatedCamera.Frame frame : camera.poll(t)) {
+                compensated.addVisionMeasurement(frame.pose, frame.timestampS);
+                naive.addVisionMeasurement(frame.pose, t);
+                ++frames;
+            }
+            if (i > 100) {
+                compensatedError += Math.abs(compensated.getEstimatedPosition().getX() - truePose.getX());
+                naiveError += Math.abs(naive.getEstimatedPosition().getX() - truePose.getX());
+            }
+        }
+        // a bit less than 20 fps, since the loop is 50 hz, and 20% dropped
+        assertEquals(160, frames, 25);
+        assertTrue(compensatedError < naiveError / 2,
+                String.format("compensated %.3f naive %.3f", compensatedError, naiveError));
+    }
+
+    /**
+     * Frames that arrive after newer ones, as they do from SimulatedCamera, end
+     * up where they would have in capture order.
+     */
+    @Test
+    void testOutOfOrder() {
+        // mean jitter longer than the frame period, so arrivals get shuffled.
+        SimulatedCamera camera = new SimulatedCamera(0.05, 0.02, 0.1, 0, 0.1, 0.05, 1);
+        ReplayPoseEstimator late = new ReplayPoseEstimator(1000, kStateStdDevs, kVisionStdDevs);
+        ReplayPoseEstimator inOrder = new ReplayPoseEstimator(1000, kStateStdDevs, kVisionStdDevs);
+        late.reset(0, new Pose2d());
+        inOrder.reset(0, new Pose2d());
+        List<SimulatedCamera.Frame> frames = new ArrayList<>();
+        int reordered = 0;
+        double newestS = Double.NEGATIVE_INFINITY;
+        for (int i = 1; i < 200; ++i) {
+            double t = i * kDt;
+            camera.capture(t, new Pose2d(t, 0.1 * t, new Rotation2d(0.2 * t)));
+            late.update(t, 0.05, 0.01, 0.02);
+            inOrder.update(t, 0.05, 0.01, 0.02);
+            for (SimulatedCamera.Frame frame : camera.poll(t)) {
+                if (frame.timestampS < newestS)
+                    ++reordered;
+                newestS = Math.max(newestS, frame.timestampS);
+                assertTrue(late.addVisionMeasurement(frame.pose, frame.timestampS));
+                frames.add(frame);
+            }
+        }
+        assertTrue(reordered > 10, "reordered " + reordered);
+        frames.sort((a, b) -> Double.compare(a.timestampS, b.timestampS));
+        for (SimulatedCamera.Frame frame : frames) {
+            inOrder.addVisionMeasurement(frame.pose, frame.timestampS);
+        }
+        assertPose(inOrder.getEstimatedPosition(), late.getEstimatedPosition());
+    }
+
+    /** Two measurements at the same time both count, in arrival order. */
+    @Test
+    void testSameValidTime() {
+        ReplayPoseEstimator estimator = new ReplayPoseEstimator(10, kStateStdDevs, kVisionStdDevs);
+        estimator.reset(0, new Pose2d());
+        estimator.update(kDt, 0, 0, 0);
+        estimator.update(2 * kDt, 0, 0, 0);
+        estimator.addVisionMeasurement(new Pose2d(1, 0, new Rotation2d()), kDt);
+        estimator.addVisionMeasurement(new Pose2d(1, 0, new Rotation2d()), kDt);
+        // 0.1 of the way, then 0.1 of the rest
+        assertPose(new Pose2d(0.19, 0, new Rotation2d()), estimator.getEstimatedPosition());
+        assertEquals(4, estimator.size());
+        // an older frame doesn't erase them
+        estimator.addVisionMeasurement(new Pose2d(), kDt / 2);
+        assertPose(new Pose2d(0.19, 0, new Rotation2d()), estimator.getEstimatedPosition());
+    }
+}
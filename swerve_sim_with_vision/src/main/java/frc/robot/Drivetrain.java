@@ -2,6 +2,8 @@ package frc.robot;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
 
 import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
@@ -12,17 +14,14 @@ import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
-import edu.wpi.first.networktables.DoubleArrayPublisher;
-import edu.wpi.first.networktables.DoublePublisher;
-import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
-import edu.wpi.first.networktables.StringPublisher;
 import edu.wpi.first.wpilibj.AnalogGyro;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.simulation.AnalogGyroSim;
 import edu.wpi.first.wpilibj.simulation.CallbackStore;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
+/** Represents a swerve drive style drivetrain, with vision measurements. */
 public class Drivetrain extends SubsystemBase {
     public static final double kMaxSpeedMS = 6.0;
 
@@ -32,10 +31,10 @@ public class Drivetrain extends SubsystemBase {
     private final Translation2d m_backRightLocation = new Translation2d(-0.381, -0.381);
 
     // package visibility for testing
-    final SwerveModule m_frontLeft = new SwerveModule("FrontLeft", 1, 2, 0, 1, 2, 3);
-    final SwerveModule m_frontRight = new SwerveModule("FrontRight", 3, 4, 4, 5, 6, 7);
-    final SwerveModule m_backLeft = new SwerveModule("BackLeft", 5, 6, 8, 9, 10, 11);
-    final SwerveModule m_backRight = new SwerveModule("BackRight", 7, 8, 12, 13, 14, 15);
+    final SwerveModule m_frontLeft;
+    final SwerveModule m_frontRight;
+    final SwerveModule m_backLeft;
+    final SwerveModule m_backRight;
 
     final AnalogGyro m_gyro = new AnalogGyro(0);
     // note gyro is NED, robot is NWU, see inversion below.
@@ -47,43 +46,83 @@ public class Drivetrain extends SubsystemBase {
     private double m_prevTimeSeconds = Timer.getFPGATimestamp();
     private final double m_nominalDtS = 0.02; // Seconds
 
-    private final SwerveDrivePoseEstimator m_poseEstimator = new SwerveDrivePoseEstimator(
-            m_kinematics,
-            m_gyro.getRotation2d(), // NWU
-            new SwerveModulePosition[] {
-                    m_frontLeft.getPosition(),
-                    m_frontRight.getPosition(),
-                    m_backLeft.getPosition(),
-                    m_backRight.getPosition()
-            },
-            new Pose2d(),
-            VecBuilder.fill(0.1, 0.1, 0.1),
-            VecBuilder.fill(0.001, 0.001, 0.001));
+    private final SwerveDrivePoseEstimator m_poseEstimator;
 
-    NetworkTableInstance inst = NetworkTableInstance.getDefault();
+    DoubleConsumer xSpeedPubM_s;
+    DoubleConsumer ySpeedPubM_s;
+    DoubleConsumer thetaSpeedPubRad_s;
 
-    DoublePublisher xSpeedPubM_s = inst.getTable("desired").getDoubleTopic("xspeed m_s").publish();
-    DoublePublisher ySpeedPubM_s = inst.getTable("desired").getDoubleTopic("yspeed m_s").publish();
-    DoublePublisher thetaSpeedPubRad_s = inst.getTable("desired").getDoubleTopic("thetaspeed rad_s").publish();
+    DoubleConsumer actualXSpeedPubM_s;
+    DoubleConsumer actualYSpeedPubM_s;
+    DoubleConsumer actualThetaSpeedPubRad_s;
 
-    DoublePublisher actualXSpeedPubM_s = inst.getTable("actual").getDoubleTopic("xspeed m_s").publish();
-    DoublePublisher actualYSpeedPubM_s = inst.getTable("actual").getDoubleTopic("yspeed m_s").publish();
-    DoublePublisher actualThetaSpeedPubRad_s = inst.getTable("actual").getDoubleTopic("thetaspeed rad_s").publish();
-
-    DoubleArrayPublisher robotPosePub;
-    StringPublisher fieldTypePub;
+    Consumer<double[]> robotPosePub;
 
     List<CallbackStore> cbs = new ArrayList<CallbackStore>();
 
     ChassisSpeeds speeds;
 
+    private final Telemetry m_telemetry;
+
+    /** Publishes to NetworkTables, for the interactive simulator. */
     public Drivetrain() {
-        m_gyro.reset();
+        this(NetworkTableInstance.getDefault());
+    }
+
+    private Drivetrain(NetworkTableInstance inst) {
+        this(batchedTelemetry(inst));
         inst.startClient4("blarg");
-        NetworkTable fieldTable = inst.getTable("field");
-        robotPosePub = fieldTable.getDoubleArrayTopic("robotPose").publish();
-        fieldTypePub = fieldTable.getStringTopic(".type").publish();
-        fieldTypePub.set("Field2d");
+        inst.getTable("field").getStringTopic(".type").publish().set("Field2d");
+    }
+
+    /** Sends telemetry somewhere else, e.g. another NetworkTableInstance. */
+    public Drivetrain(Telemetry telemetry) {
+        m_telemetry = telemetry;
+        m_frontLeft = new SwerveModule("FrontLeft", telemetry, 1, 2, 0, 1, 2, 3);
+        m_frontRight = new SwerveModule("FrontRight", telemetry, 3, 4, 4, 5, 6, 7);
+        m_backLeft = new SwerveModule("BackLeft", telemetry, 5, 6, 8, 9, 10, 11);
+        m_backRight = new SwerveModule("BackRight", telemetry, 7, 8, 12, 13, 14, 15);
+
+        xSpeedPubM_s = telemetry.doublePublisher("desired", "xspeed m_s");
+        ySpeedPubM_s = telemetry.doublePublisher("desired", "yspeed m_s");
+        thetaSpeedPubRad_s = telemetry.doublePublisher("desired", "thetaspeed rad_s");
+        actualXSpeedPubM_s = telemetry.doublePublisher("actual", "xspeed m_s");
+        actualYSpeedPubM_s = telemetry.doublePublisher("actual", "yspeed m_s");
+        actualThetaSpeedPubRad_s = telemetry.doublePublisher("actual", "thetaspeed rad_s");
+        robotPosePub = telemetry.doubleArrayPublisher("field", "robotPose");
+
+        m_poseEstimator = new SwerveDrivePoseEstimator(
+                m_kinematics,
+                m_gyro.getRotation2d(), // NWU
+                new SwerveModulePosition[] {
+                        m_frontLeft.getPosition(),
+                        m_frontRight.getPosition(),
+                        m_backLeft.getPosition(),
+                        m_backRight.getPosition()
+                },
+                new Pose2d(),
+                VecBuilder.fill(0.1, 0.1, 0.1),
+                VecBuilder.fill(0.001, 0.001, 0.001));
+        m_gyro.reset();
+    }
+
+    /**
+     * One raw topic per table, only when changed by more than a millimeter (or
+     * milliradian), and the per-module detail at 10 hz.
+     */
+    private static BatchedTelemetry batchedTelemetry(NetworkTableInstance inst) {
+        BatchedTelemetry telemetry = new BatchedTelemetry(inst);
+        telemetry.configureDefault(0, 0.001);
+        for (String module : new String[] { "FrontLeft", "FrontRight", "BackLeft", "BackRight" }) {
+            telemetry.configure(module, 0.1, 0.001);
+        }
+        return telemetry;
+    }
+
+    /** Publish whatever telemetry is due. */
+    @Override
+    public void periodic() {
+        m_telemetry.flush(Timer.getFPGATimestamp());
     }
 
     public Pose2d getPose() {
@@ -126,7 +165,7 @@ public class Drivetrain extends SubsystemBase {
                 });
 
         Pose2d newEstimate = m_poseEstimator.getEstimatedPosition();
-        robotPosePub.set(new double[] {
+        robotPosePub.accept(new double[] {
                 newEstimate.getX(),
                 newEstimate.getY(),
                 newEstimate.getRotation().getDegrees()
@@ -181,9 +220,9 @@ public class Drivetrain extends SubsystemBase {
         // is NWU, so invert here.
         gyroSim.setAngle(newAngleDeg);
 
-        xSpeedPubM_s.set(speeds.vxMetersPerSecond);
-        ySpeedPubM_s.set(speeds.vyMetersPerSecond);
-        thetaSpeedPubRad_s.set(-1.0 * speeds.omegaRadiansPerSecond);
+        xSpeedPubM_s.accept(speeds.vxMetersPerSecond);
+        ySpeedPubM_s.accept(speeds.vyMetersPerSecond);
+        thetaSpeedPubRad_s.accept(-1.0 * speeds.omegaRadiansPerSecond);
     }
 
     public void close() {
@@ -2,6 +2,7 @@ package frc.robot;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.DoubleConsumer;
 
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.ProfiledPIDController;
@@ -10,9 +11,6 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.trajectory.TrapezoidProfile;
-import edu.wpi.first.networktables.DoublePublisher;
-import edu.wpi.first.networktables.NetworkTable;
-import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.Encoder;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.motorcontrol.PWMMotorController;
@@ -60,27 +58,24 @@ public class SwerveModule {
     private final SimpleMotorFeedforward m_driveFeedforward = new SimpleMotorFeedforward(DRIVE_KS, DRIVE_KV);
     private final SimpleMotorFeedforward m_turnFeedforward = new SimpleMotorFeedforward(TURN_KS, TURN_KV);
 
-    // ######## network tables ########
-    private final NetworkTableInstance inst = NetworkTableInstance.getDefault();
-    // private final String m_name;
-    private final NetworkTable m_table;
+    // ######## telemetry ########
     // distance, m
-    private final DoublePublisher m_DriveEncoderPubM;
+    private final DoubleConsumer m_DriveEncoderPubM;
     // distance, rad
-    private final DoublePublisher m_TurnEncoderPubRad;
+    private final DoubleConsumer m_TurnEncoderPubRad;
     // drive rate only, m/s; turn rate is ignored
-    private final DoublePublisher m_DriveEncoderRatePubM_s;
+    private final DoubleConsumer m_DriveEncoderRatePubM_s;
     // motor output, [-1,1]
-    private final DoublePublisher m_DrivePWMPub1_1;
-    private final DoublePublisher m_TurnPWMPub1_1;
+    private final DoubleConsumer m_DrivePWMPub1_1;
+    private final DoubleConsumer m_TurnPWMPub1_1;
     // desired velocity from "inverse feed forward", m/s
-    private final DoublePublisher m_DriveVPubM_s;
+    private final DoubleConsumer m_DriveVPubM_s;
     // desired velocity from "inverse feed forward", rad/s
-    private final DoublePublisher m_TurnVPubRad_s;
+    private final DoubleConsumer m_TurnVPubRad_s;
     // desired velocity from input.
-    private final DoublePublisher m_DriveVInPubM_s;
+    private final DoubleConsumer m_DriveVInPubM_s;
     // desired position from input.
-    private final DoublePublisher m_TurnPInPubRad;
+    private final DoubleConsumer m_TurnPInPubRad;
 
     List<CallbackStore> cbs = new ArrayList<CallbackStore>();
     private double m_prevTimeSeconds = Timer.getFPGATimestamp();
@@ -93,6 +88,7 @@ public class SwerveModule {
      * Constructs a SwerveModule with a drive motor, turning motor, drive encoder
      * and turning encoder.
      *
+     * @param telemetry              where to send observations.
      * @param driveMotorChannel      PWM output for the drive motor.
      * @param turningMotorChannel    PWM output for the turning motor.
      * @param driveEncoderChannelA   DIO input for the drive encoder channel A
@@ -102,22 +98,22 @@ public class SwerveModule {
      */
     public SwerveModule(
             String name,
+            Telemetry telemetry,
             int driveMotorChannel,
             int turningMotorChannel,
             int driveEncoderChannelA,
             int driveEncoderChannelB,
             int turningEncoderChannelA,
             int turningEncoderChannelB) {
-        m_table = inst.getTable(name);
-        m_DriveEncoderPubM = m_table.getDoubleTopic("driveEncoderDistanceM").publish();
-        m_TurnEncoderPubRad = m_table.getDoubleTopic("turnEncoderDistanceRad").publish();
-        m_DriveEncoderRatePubM_s = m_table.getDoubleTopic("driveEncoderRateM_s").publish();
-        m_DrivePWMPub1_1 = m_table.getDoubleTopic("drivePWMOutput1_1").publish();
-        m_TurnPWMPub1_1 = m_table.getDoubleTopic("turnPWMOutput1_1").publish();
-        m_DriveVPubM_s = m_table.getDoubleTopic("driveDesiredSpeedM_s").publish();
-        m_TurnVPubRad_s = m_table.getDoubleTopic("turnDesiredSpeedRad_s").publish();
-        m_DriveVInPubM_s = m_table.getDoubleTopic("driveInputSpeedM_s").publish();
-        m_TurnPInPubRad = m_table.getDoubleTopic("turnInputRad").publish();
+        m_DriveEncoderPubM = telemetry.doublePublisher(name, "driveEncoderDistanceM");
+        m_TurnEncoderPubRad = telemetry.doublePublisher(name, "turnEncoderDistanceRad");
+        m_DriveEncoderRatePubM_s = telemetry.doublePublisher(name, "driveEncoderRateM_s");
+        m_DrivePWMPub1_1 = telemetry.doublePublisher(name, "drivePWMOutput1_1");
+        m_TurnPWMPub1_1 = telemetry.doublePublisher(name, "turnPWMOutput1_1");
+        m_DriveVPubM_s = telemetry.doublePublisher(name, "driveDesiredSpeedM_s");
+        m_TurnVPubRad_s = telemetry.doublePublisher(name, "turnDesiredSpeedRad_s");
+        m_DriveVInPubM_s = telemetry.doublePublisher(name, "driveInputSpeedM_s");
+        m_TurnPInPubRad = telemetry.doublePublisher(name, "turnInputRad");
 
         m_driveMotor = new PWMSparkMax(driveMotorChannel);
         m_DrivePWMSim = new PWMSim(m_driveMotor);
@@ -150,8 +146,8 @@ public class SwerveModule {
         m_turningPIDController.enableContinuousInput(-Math.PI, Math.PI);
     }
 
-    public void pubSim(PWMSim sim, DoublePublisher pub) {
-        cbs.add(sim.registerSpeedCallback((name, value) -> pub.set(value.getDouble()), true));
+    public void pubSim(PWMSim sim, DoubleConsumer pub) {
+        cbs.add(sim.registerSpeedCallback((name, value) -> pub.accept(value.getDouble()), true));
     }
 
     /**
@@ -182,8 +178,8 @@ public class SwerveModule {
         double turnVRad_s = simulatedVelocity(m_TurnPWMSim.getSpeed(), TURN_KS, TURN_KV);
 
         // observe the derived velocity
-        m_DriveVPubM_s.set(driveVM_s);
-        m_TurnVPubRad_s.set(turnVRad_s);
+        m_DriveVPubM_s.accept(driveVM_s);
+        m_TurnVPubRad_s.accept(turnVRad_s);
 
         // set the encoders using the derived velocity
         m_DriveEncoderSim.setRate(driveVM_s);
@@ -191,9 +187,9 @@ public class SwerveModule {
         m_TurnEncoderSim.setDistance(m_TurnEncoderSim.getDistance() + turnVRad_s * dtS);
 
         // observe the encoders
-        m_DriveEncoderPubM.set(m_DriveEncoderSim.getDistance());
-        m_TurnEncoderPubRad.set(m_TurnEncoderSim.getDistance());
-        m_DriveEncoderRatePubM_s.set(m_DriveEncoderSim.getRate());
+        m_DriveEncoderPubM.accept(m_DriveEncoderSim.getDistance());
+        m_TurnEncoderPubRad.accept(m_TurnEncoderSim.getDistance());
+        m_DriveEncoderRatePubM_s.accept(m_DriveEncoderSim.getRate());
 
     }
 
@@ -213,8 +209,8 @@ public class SwerveModule {
 
     // just to see it, has no effect
     public void publishState(SwerveModuleState state) {
-        m_DriveVInPubM_s.set(state.speedMetersPerSecond);
-        m_TurnPInPubRad.set(state.angle.getRadians());
+        m_DriveVInPubM_s.accept(state.speedMetersPerSecond);
+        m_TurnPInPubRad.accept(state.angle.getRadians());
     }
 
     public void setDesiredState(SwerveModuleState desiredState) {
@@ -11,10 +11,18 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
 
+/**
+ * The HAL clock is paused, and each test steps it along with the physics, so
+ * Timer (the dt in simulationPeriodic(), the vision timestamps) sees simulated
+ * time, and the results don't depend on how fast the test runs.
+ */
 public class SwerveSimTest {
+    private static final double kDtS = 0.02;
 
     Drivetrain newDrivetrain() {
+        SimHooks.pauseTiming();
         Drivetrain m_swerve = new Drivetrain();
         m_swerve.simulationInit();
         m_swerve.m_frontLeft.m_drivePIDController.reset();
@@ -48,6 +56,7 @@ public class SwerveSimTest {
                     new SwerveModuleState(0, new Rotation2d(0)),
                     new SwerveModuleState(0, new Rotation2d(0))
             });
+            SimHooks.stepTiming(kDtS);
             m_swerve.simulationPeriodic();
             final Pose2d finalPose = m_swerve.getPose();
             assertAll(
@@ -56,6 +65,7 @@ public class SwerveSimTest {
                     () -> assertEquals(0, finalPose.getRotation().getRadians(), "final rot"));
         } finally {
             m_swerve.close(); // release the HAL stuff
+            SimHooks.resumeTiming();
         }
     }
 
@@ -116,7 +126,8 @@ public class SwerveSimTest {
                     () -> assertEquals(0.251, m_swerve.m_frontRight.getDriveOutput(), 0.001, "FR output"),
                     () -> assertEquals(0.251, m_swerve.m_backLeft.getDriveOutput(), 0.001, "BL output"),
                     () -> assertEquals(0.251, m_swerve.m_backRight.getDriveOutput(), 0.001, "BR output"));
-            m_swerve.simulationPeriodic(0.02);
+            SimHooks.stepTiming(kDtS);
+            m_swerve.simulationPeriodic(kDtS);
             m_swerve.updateOdometry();
             final Pose2d finalPose = m_swerve.getPose();
             // since the feedforward is treated as correct but the controller
@@ -127,6 +138,7 @@ public class SwerveSimTest {
                     () -> assertEquals(0, finalPose.getRotation().getRadians(), 0.1, "final rot"));
         } finally {
             m_swerve.close(); // release the HAL stuff
+            SimHooks.resumeTiming();
         }
     }
 
@@ -212,7 +224,8 @@ public class SwerveSimTest {
                     () -> assertEquals(0.251, m_swerve.m_frontRight.getDriveOutput(), 0.001, "FR output"),
                     () -> assertEquals(-0.251, m_swerve.m_backLeft.getDriveOutput(), 0.001, "BL output"),
                     () -> assertEquals(0.251, m_swerve.m_backRight.getDriveOutput(), 0.001, "BR output"));
-            m_swerve.simulationPeriodic(0.02);
+            SimHooks.stepTiming(kDtS);
+            m_swerve.simulationPeriodic(kDtS);
             m_swerve.updateOdometry();
             // each wheel should have moved the same as the displacement case above
             assertAll(
@@ -249,6 +262,7 @@ public class SwerveSimTest {
                     () -> assertEquals(0.062, finalPose.getRotation().getRadians(), 0.1, "estimate rot"));
         } finally {
             m_swerve.close(); // release the HAL stuff
+            SimHooks.resumeTiming();
         }
     }
 
@@ -378,7 +392,8 @@ public class SwerveSimTest {
                     () -> assertEquals(0, m_swerve.m_frontRight.getTurnOutput(), 0.001, "FR turn output"),
                     () -> assertEquals(0, m_swerve.m_backLeft.getTurnOutput(), 0.001, "BL turn output"),
                     () -> assertEquals(0, m_swerve.m_backRight.getTurnOutput(), 0.001, "BR turn output"));
-            m_swerve.simulationPeriodic(0.02);
+            SimHooks.stepTiming(kDtS);
+            m_swerve.simulationPeriodic(kDtS);
             m_swerve.updateOdometry();
 
             m_odometry.update(m_swerve.m_gyro.getRotation2d(), new SwerveModulePosition[] {
@@ -430,6 +445,7 @@ public class SwerveSimTest {
                     () -> assertEquals(Math.PI / 2, finalPose.getRotation().getRadians(), 0.1, "estimate rot"));
         } finally {
             m_swerve.close(); // release the HAL stuff
+            SimHooks.resumeTiming();
         }
     }
 }
@@ -0,0 +1,364 @@
+package team100;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the camera's msgpack payload (see Blips) straight into a
+ * TagObservations, without Jackson, reflection, boxing, or intermediate
+ * arrays, so decoding a frame allocates nothing.
+ *
+ * The payload is a map with "et" (a number) and "tags" (an array of maps with
+ * "id", "pose_R", a 3x3 nested array, and "pose_t", a 3x1 nested array), in any
+ * order; other keys are skipped. Numbers may be encoded as ints or floats.
+ * A tag missing any of its three fields is an error, as is anything nested
+ * more than kMaxDepth deep, so a hostile payload can't overflow the stack.
+ *
+ * Keep one of these per listener; it's not thread-safe.
+ */
+public class BlipsDecoder {
+    private static final byte[] kEt = ascii("et");
+    private static final byte[] kTags = ascii("tags");
+    private static final byte[] kId = ascii("id");
+    private static final byte[] kPoseR = ascii("pose_R");
+    private static final byte[] kPoseT = ascii("pose_t");
+    private static final int kMaxDepth = 32;
+    private static final int kHasId = 1;
+    private static final int kHasPoseR = 2;
+    private static final int kHasPoseT = 4;
+
+    private byte[] m_buf;
+    private int m_pos;
+    private int m_end;
+
+    public void decode(byte[] buf, TagObservations out) throws IOException {
+        decode(buf, 0, buf.length, out);
+    }
+
+    public void decode(byte[] buf, int offset, int length, TagObservations out) throws IOException {
+        m_buf = buf;
+        m_pos = offset;
+        m_end = offset + length;
+        out.clear();
+        try {
+            int fields = readMapHeader();
+            for (int i = 0; i < fields; ++i) {
+                int keyLength = readStringHeader();
+                int key = m_pos;
+                skipBytes(keyLength);
+                if (keyEquals(key, keyLength, kEt)) {
+                    out.setEt(readDouble());
+                } else if (keyEquals(key, keyLength, kTags)) {
+                    int tags = readArrayHeader();
+                    for (int j = 0; j < tags; ++j) {
+                        readTag(out, out.add());
+                    }
+                } else {
+                    skip(0);
+                }
+            }
+        } finally {
+            m_buf = null;
+        }
+    }
+
+    private void readTag(TagObservations out, int tag) throws IOException {
+        int fields = readMapHeader();
+        int found = 0;
+        for (int i = 0; i < fields; ++i) {
+            int keyLength = readStringHeader();
+            int key = m_pos;
+            skipBytes(keyLength);
+            if (keyEquals(key, keyLength, kId)) {
+                out.setId(tag, (int) readLong());
+                found |= kHasId;
+            } else if (keyEquals(key, keyLength, kPoseR)) {
+                requireLength(readArrayHeader(), 3, "pose_R");
+                for (int row = 0; row < 3; ++row) {
+                    requireLength(readArrayHeader(), 3, "pose_R");
+                    for (int col = 0; col < 3; ++col) {
+                        out.setRotation(tag, row, col, readDouble());
+                    }
+                }
+                found |= kHasPoseR;
+            } else if (keyEquals(key, keyLength, kPoseT)) {
+                requireLength(readArrayHeader(), 3, "pose_t");
+                for (int row = 0; row < 3; ++row) {
+                    requireLength(readArrayHeader(), 1, "pose_t");
+                    out.setTranslation(tag, row, readDouble());
+                }
+                found |= kHasPoseT;
+            } else {
+                skip(0);
+            }
+        }
+        if ((found & kHasId) == 0)
+            throw new IOException("tag without id");
+        if ((found & kHasPoseR) == 0)
+            throw new IOException("tag without pose_R");
+        if ((found & kHasPoseT) == 0)
+            throw new IOException("tag without pose_t");
+    }
+
+    private static void requireLength(int actual, int expected, String name) throws IOException {
+        if (actual != expected)
+            throw new IOException(name + " has wrong shape");
+    }
+
+    /** Compares the key in place, so there's no String. */
+    private boolean keyEquals(int start, int length, byte[] key) {
+        if (length != key.length)
+            return false;
+        for (int i = 0; i < length; ++i) {
+            if (m_buf[start + i] != key[i])
+                return false;
+        }
+        return true;
+    }
+
+    ////////////////////////////////////////////////////////
+    // msgpack primitives, see https://github.com/msgpack/msgpack/blob/master/spec.md
+
+    private int readMapHeader() throws IOException {
+        int b = readByte();
+        if ((b & 0xf0) == 0x80)
+            return b & 0x0f;
+        if (b == 0xde)
+            return readUint16();
+        if (b == 0xdf)
+            return readLength32();
+        throw unexpected(b, "map");
+    }
+
+    private int readArrayHeader() throws IOException {
+        int b = readByte();
+        if ((b & 0xf0) == 0x90)
+            return b & 0x0f;
+        if (b == 0xdc)
+            return readUint16();
+        if (b == 0xdd)
+            return readLength32();
+        throw unexpected(b, "array");
+    }
+
+    private int readStringHeader() throws IOException {
+        int b = readByte();
+        if ((b & 0xe0) == 0xa0)
+            return b & 0x1f;
+        if (b == 0xd9)
+            return readByte();
+        if (b == 0xda)
+            return readUint16();
+        if (b == 0xdb)
+            return readLength32();
+        throw unexpected(b, "string");
+    }
+
+    private double readDouble() throws IOException {
+        int b = peekByte();
+        if (b == 0xcb) {
+            ++m_pos;
+            return Double.longBitsToDouble(readInt64());
+        }
+        if (b == 0xca) {
+            ++m_pos;
+            return Float.intBitsToFloat((int) readInt32());
+        }
+        return readLong();
+    }
+
+    private long readLong() throws IOException {
+        int b = readByte();
+        if (b <= 0x7f)
+            return b;
+        if (b >= 0xe0)
+            return (byte) b;
+        switch (b) {
+            case 0xcc:
+                return readByte();
+            case 0xcd:
+                return readUint16();
+            case 0xce:
+                return readInt32() & 0xffffffffL;
+            case 0xcf:
+                // uint64 beyond Long.MAX_VALUE wraps, which is fine for ids.
+                return readInt64();
+            case 0xd0:
+                return (byte) readByte();
+            case 0xd1:
+                return (short) readUint16();
+            case 0xd2:
+                return (int) readInt32();
+            case 0xd3:
+                return readInt64();
+            default:
+                throw unexpected(b, "integer");
+        }
+    }
+
+    /** Skip one value of any type, nested in depth containers. */
+    private void skip(int depth) throws IOException {
+        if (depth > kMaxDepth)
+            throw new IOException("nested too deep");
+        int b = readByte();
+        if (b <= 0x7f || b >= 0xe0)
+            return;
+        if ((b & 0xf0) == 0x80) {
+            skipValues(2 * (b & 0x0f), depth);
+            return;
+        }
+        if ((b & 0xf0) == 0x90) {
+            skipValues(b & 0x0f, depth);
+            return;
+        }
+        if ((b & 0xe0) == 0xa0) {
+            skipBytes(b & 0x1f);
+            return;
+        }
+        switch (b) {
+            case 0xc0: // nil
+            case 0xc2: // false
+            case 0xc3: // true
+                return;
+            case 0xcc:
+            case 0xd0:
+                skipBytes(1);
+                return;
+            case 0xcd:
+            case 0xd1:
+                skipBytes(2);
+                return;
+            case 0xca:
+            case 0xce:
+            case 0xd2:
+                skipBytes(4);
+                return;
+            case 0xcb:
+            case 0xcf:
+            case 0xd3:
+                skipBytes(8);
+                return;
+            case 0xc4: // bin 8
+            case 0xd9: // str 8
+                skipBytes(readByte());
+                return;
+            case 0xc5:
+            case 0xda:
+                skipBytes(readUint16());
+                return;
+            case 0xc6:
+            case 0xdb:
+                skipBytes(readLength32());
+                return;
+            case 0xd4: // fixext, type byte plus data
+                skipBytes(2);
+                return;
+            case 0xd5:
+                skipBytes(3);
+                return;
+            case 0xd6:
+                skipBytes(5);
+                return;
+            case 0xd7:
+                skipBytes(9);
+                return;
+            case 0xd8:
+                skipBytes(17);
+                return;
+            case 0xc7: // ext, length, type, data
+                skipBytes(readByte() + 1);
+                return;
+            case 0xc8:
+                skipBytes(readUint16() + 1);
+                return;
+            case 0xc9:
+                skipBytes(readLength32() + 1);
+                return;
+            case 0xdc:
+                skipValues(readUint16(), depth);
+                return;
+            case 0xdd:
+                skipValues(readLength32(), depth);
+                return;
+            case 0xde:
+                skipValues(2 * readUint16(), depth);
+                return;
+            case 0xdf:
+                skipValues(2 * readLength32(), depth);
+                return;
+            default:
+                throw unexpected(b, "value");
+        }
+    }
+
+    /** Skip the contents of a container at the given depth. */
+    private void skipValues(int count, int depth) throws IOException {
+        for (int i = 0; i < count; ++i) {
+            skip(depth + 1);
+        }
+    }
+
+    private void skipBytes(int count) throws IOException {
+        require(count);
+        m_pos += count;
+    }
+
+    private void require(int count) throws IOException {
+        if (count < 0 || count > m_end - m_pos)
+            throw new EOFException("truncated payload");
+    }
+
+    private int peekByte() throws IOException {
+        require(1);
+        return m_buf[m_pos] & 0xff;
+    }
+
+    private int readByte() throws IOException {
+        require(1);
+        return m_buf[m_pos++] & 0xff;
+    }
+
+    private int readUint16() throws IOException {
+        require(2);
+        int result = ((m_buf[m_pos] & 0xff) << 8) | (m_buf[m_pos + 1] & 0xff);
+        m_pos += 2;
+        return result;
+    }
+
+    private long readInt32() throws IOException {
+        require(4);
+        long result = ((m_buf[m_pos] & 0xffL) << 24)
+                | ((m_buf[m_pos + 1] & 0xffL) << 16)
+                | ((m_buf[m_pos + 2] & 0xffL) << 8)
+                | (m_buf[m_pos + 3] & 0xffL);
+        m_pos += 4;
+        return result;
+    }
+
+    /** Lengths bigger than the payload can't be right, so int is enough. */
+    private int readLength32() throws IOException {
+        long length = readInt32();
+        if (length > m_end - m_pos)
+            throw new EOFException("truncated payload");
+        return (int) length;
+    }
+
+    private long readInt64() throws IOException {
+        require(8);
+        long result = 0;
+        for (int i = 0; i < 8; ++i) {
+            result = (result << 8) | (m_buf[m_pos + i] & 0xffL);
+        }
+        m_pos += 8;
+        return result;
+    }
+
+    private IOException unexpected(int b, String expected) {
+        return new IOException(String.format("expected %s, got 0x%02x at %d", expected, b, m_pos - 1));
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
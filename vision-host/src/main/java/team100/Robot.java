@@ -2,18 +2,22 @@ package team100;
 
 import java.io.IOException;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
 
-import org.msgpack.jackson.dataformat.MessagePackFactory;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
-
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
 import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
 import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableEvent;
 import edu.wpi.first.networktables.NetworkTableInstance;
@@ -28,7 +32,28 @@ import edu.wpi.first.wpilibj.Timer;
 public class Robot extends TimedRobot {
   private final DoublePublisher timestamp_publisher;
 
-  private final ObjectMapper object_mapper;
+  // reused for every frame, only the listener thread uses them.
+  private final BlipsDecoder decoder;
+  private final TagObservations observations;
+  private final TagObservations tagframe_observations;
+  // tagframe detections go here, and come out once per loop.
+  private final TagAggregator aggregator;
+  private final TagAggregator.Measurement measurement = new TagAggregator.Measurement();
+  private final DoubleArrayPublisher pose_publisher;
+  private final double[] pose = new double[3];
+  private final DoubleArrayPublisher pose_stddev_publisher;
+  private final DoublePublisher measurement_time_publisher;
+  private final IntegerPublisher tags_publisher;
+  private final IntegerPublisher duplicates_publisher;
+  private final IntegerPublisher rejected_publisher;
+  private final IntegerPublisher dropped_publisher;
+  private final IntegerPublisher capture_publisher;
+  private final DoublePublisher latency_publisher;
+  // there's no odometry here, so the estimate is just the last measurement,
+  // and it's uncertain until there is one.
+  private final double[] estimate = new double[3];
+  private final double[] estimate_stddevs = new double[] { 1e3, 1e3, 1e3 };
+  private final TagAggregator.PoseHistory history = this::history;
   int connListenerHandle;
 
   public Robot() {
@@ -37,12 +62,35 @@ public class Robot extends TimedRobot {
     inst.startServer("example server");
     NetworkTable example_table = inst.getTable("example_table");
     timestamp_publisher = example_table.getDoubleTopic("timestamp").publish();
-    object_mapper = new ObjectMapper(new MessagePackFactory());
+    decoder = new BlipsDecoder();
+    observations = new TagObservations(16);
+    tagframe_observations = new TagObservations(16);
+    // one camera, in the middle of the robot, facing forward.
+    aggregator = new TagAggregator(
+        new Pose2d[] { new Pose2d() },
+        layout(),
+        new double[] { 0.02, 0.02, 0.02 },
+        TagAggregator.kGate99,
+        0.01,
+        64);
     NetworkTable vision_table = inst.getTable("Vision");
+    pose_publisher = vision_table.getDoubleArrayTopic("pose").publish();
+    pose_stddev_publisher = vision_table.getDoubleArrayTopic("pose_stddev").publish();
+    measurement_time_publisher = vision_table.getDoubleTopic("measurement_time_s").publish();
+    tags_publisher = vision_table.getIntegerTopic("tags_used").publish();
+    duplicates_publisher = vision_table.getIntegerTopic("duplicates").publish();
+    rejected_publisher = vision_table.getIntegerTopic("rejected").publish();
+    dropped_publisher = vision_table.getIntegerTopic("dropped").publish();
+    capture_publisher = vision_table.getIntegerTopic("capture_us").publish();
+    latency_publisher = vision_table.getDoubleTopic("latency_s").publish();
     inst.addListener(
         vision_table.getEntry("tags"),
         EnumSet.of(NetworkTableEvent.Kind.kValueAll),
         (event) -> accept(event));
+    inst.addListener(
+        vision_table.getEntry("tagframe"),
+        EnumSet.of(NetworkTableEvent.Kind.kValueAll),
+        (event) -> acceptTagFrame(event));
     connListenerHandle = inst.addConnectionListener(true, event -> {
       if (event.is(NetworkTableEvent.Kind.kConnected)) {
         System.out.println("Connected to " + event.connInfo.remote_id);
@@ -54,26 +102,43 @@ public class Robot extends TimedRobot {
 
   private void accept(NetworkTableEvent event) {
     try {
-      Blips blips = object_mapper.readValue(event.valueData.value.getRaw(), Blips.class);
-      System.out.printf("PAYLOAD %s\n", blips);
-      System.out.printf("DELAY (s): %f\n", blips.et);
-      System.out.printf("BLIP COUNT: %d\n", blips.tags.size());
-      for (Blip b: blips.tags ) {
-        Pose3d p = blipToPose(b);
-        System.out.printf("TAG ID: %d\n", b.id);
-        System.out.printf("POSE: %s\n", p);
-      }
+      decoder.decode(event.valueData.value.getRaw(), observations);
+      print(observations);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void acceptTagFrame(NetworkTableEvent event) {
+    try {
+      TagFrame.decode(event.valueData.value.getRaw(), tagframe_observations);
+      capture_publisher.set(tagframe_observations.captureTimeUs());
+      latency_publisher.set(tagframe_observations.et());
+      // et is capture to publish, which is about capture to now.
+      double captureS = Timer.getFPGATimestamp() - tagframe_observations.et();
+      aggregator.add(0, captureS, tagframe_observations);
     } catch (IOException e) {
       e.printStackTrace();
     }
   }
 
-  private Pose3d blipToPose(Blip b) {
-    Translation3d t = new Translation3d(b.pose_t[0][0], b.pose_t[1][0], b.pose_t[2][0]);
+  private void print(TagObservations o) {
+    System.out.printf("PAYLOAD %s\n", o);
+    System.out.printf("DELAY (s): %f\n", o.et());
+    System.out.printf("BLIP COUNT: %d\n", o.size());
+    for (int i = 0; i < o.size(); ++i) {
+      Pose3d p = blipToPose(o, i);
+      System.out.printf("TAG ID: %d\n", o.id(i));
+      System.out.printf("POSE: %s\n", p);
+    }
+  }
+
+  private Pose3d blipToPose(TagObservations o, int tag) {
+    Translation3d t = new Translation3d(o.translation(tag, 0), o.translation(tag, 1), o.translation(tag, 2));
     Matrix<N3, N3> rot = new Matrix<N3, N3>(Nat.N3(), Nat.N3());
     for (int i = 0; i < 3; ++i) {
       for (int j = 0; j < 3; ++j) {
-        rot.set(i,j,b.pose_R[i][j]);
+        rot.set(i,j,o.rotation(tag, i, j));
       }
     }
     Rotation3d r = new Rotation3d(rot);
@@ -81,8 +146,45 @@ public class Robot extends TimedRobot {
     return p;
   }
 
+  private static Map<Integer, Pose2d> layout() {
+    Map<Integer, Pose2d> result = new HashMap<>();
+    try {
+      AprilTagFieldLayout layout = AprilTagFieldLayout.loadFromResource(
+          AprilTagFields.k2023ChargedUp.m_resourceFile);
+      for (AprilTag tag : layout.getTags()) {
+        result.put(tag.ID, tag.pose.toPose2d());
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    return result;
+  }
+
+  private boolean history(double timeS, double[] out) {
+    System.arraycopy(estimate, 0, out, 0, 3);
+    return true;
+  }
+
   @Override
   public void robotPeriodic() {
     timestamp_publisher.set(Timer.getFPGATimestamp());
+    if (aggregator.tick(history, estimate_stddevs, measurement)) {
+      pose[0] = measurement.x;
+      pose[1] = measurement.y;
+      pose[2] = measurement.theta;
+      pose_publisher.set(pose);
+      pose_stddev_publisher.set(measurement.stdDevs);
+      measurement_time_publisher.set(measurement.timeS);
+      tags_publisher.set(measurement.tags);
+      duplicates_publisher.set(measurement.duplicates);
+      rejected_publisher.set(measurement.rejected);
+      dropped_publisher.set(measurement.dropped);
+      estimate[0] = measurement.x;
+      estimate[1] = measurement.y;
+      estimate[2] = measurement.theta;
+      estimate_stddevs[0] = 0.5;
+      estimate_stddevs[1] = 0.5;
+      estimate_stddevs[2] = 0.5;
+    }
   }
 }
@@ -0,0 +1,331 @@
+package team100;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Collects tag detections from several cameras between control ticks, and
+ * turns them into one pose measurement per tick, instead of one estimator
+ * update per tag per frame.
+ *
+ * The listener threads call add() with each decoded frame; that just converts
+ * each known tag into a field-relative robot pose, in the plane, and buffers
+ * it. Once per tick, the control thread calls tick(), which swaps the buffer
+ * out, and then
+ *
+ * <ul>
+ * <li>drops duplicates: the same tag seen by more than one camera at about the
+ * same time is really one measurement (the tag layout error is common to
+ * both), so only the nearest view is kept.
+ * <li>drops outliers: each pose is compared with the estimate at its capture
+ * time, and rejected if the Mahalanobis distance is outside the gate.
+ * <li>moves the survivors to the newest capture time, using the estimator's
+ * own motion in between, and fuses them, weighted by their variance.
+ * </ul>
+ *
+ * The buffer is fixed size, so a burst of bad frames can't make a tick take
+ * longer; detections beyond the capacity are dropped and counted. Nothing
+ * allocates after construction.
+ */
+public class TagAggregator {
+    /** Chi-squared with 3 degrees of freedom, 99%. */
+    public static final double kGate99 = 11.34;
+
+    /** The estimator's pose at some time in the recent past. */
+    public interface PoseHistory {
+        /**
+         * @param out x, y, theta
+         * @return false if there's no estimate for that time
+         */
+        boolean sample(double timeS, double[] out);
+    }
+
+    /** The result of a tick, reused. */
+    public static class Measurement {
+        public double timeS;
+        public double x;
+        public double y;
+        public double theta;
+        /** x, y, theta, as for addVisionMeasurement. */
+        public final double[] stdDevs = new double[3];
+        /** Tags fused. */
+        public int tags;
+        public int duplicates;
+        public int rejected;
+        /** Detections lost to a full buffer, or with no estimate to compare. */
+        public int dropped;
+
+        public Pose2d pose() {
+            return new Pose2d(x, y, new Rotation2d(theta));
+        }
+    }
+
+    /** Detections, as robot poses, structure of arrays. */
+    private static class Batch {
+        final int[] camera;
+        final int[] id;
+        final double[] timeS;
+        final double[] range;
+        final double[] x;
+        final double[] y;
+        final double[] theta;
+        int size;
+        int overflow;
+
+        Batch(int capacity) {
+            camera = new int[capacity];
+            id = new int[capacity];
+            timeS = new double[capacity];
+            range = new double[capacity];
+            x = new double[capacity];
+            y = new double[capacity];
+            theta = new double[capacity];
+        }
+    }
+
+    // camera in robot, x, y, theta
+    private final double[][] m_cameras;
+    // tag in field, by id, NaN where there's no tag
+    private final double[] m_tagX;
+    private final double[] m_tagY;
+    private final double[] m_tagTheta;
+    private final double[] m_stdDevsAt1m;
+    private final double m_gate;
+    private final double m_sameFrameS;
+
+    private Batch m_pending;
+    private Batch m_working;
+    private final boolean[] m_keep;
+    private final double[] m_estimate = new double[3];
+    private final double[] m_newest = new double[3];
+
+    /**
+     * @param cameras     each camera's pose in the robot frame, in the plane; the
+     *                    index is the camera number for add().
+     * @param layout      tag poses in the field, in the plane, facing out.
+     * @param stdDevsAt1m x, y, theta, for a tag 1 m away; they grow with the
+     *                    square of the range.
+     * @param gate        Mahalanobis distance squared, e.g. kGate99.
+     * @param sameFrameS  views of the same tag this close in time are duplicates.
+     * @param capacity    detections per tick.
+     */
+    public TagAggregator(
+            Pose2d[] cameras,
+            Map<Integer, Pose2d> layout,
+            double[] stdDevsAt1m,
+            double gate,
+            double sameFrameS,
+            int capacity) {
+        m_cameras = new double[cameras.length][];
+        for (int i = 0; i < cameras.length; ++i) {
+            m_cameras[i] = new double[] {
+                    cameras[i].getX(), cameras[i].getY(), cameras[i].getRotation().getRadians() };
+        }
+        int maxId = 0;
+        for (int id : layout.keySet()) {
+            if (id < 0)
+                throw new IllegalArgumentException("negative tag id " + id);
+            maxId = Math.max(maxId, id);
+        }
+        m_tagX = new double[maxId + 1];
+        m_tagY = new double[maxId + 1];
+        m_tagTheta = new double[maxId + 1];
+        Arrays.fill(m_tagX, Double.NaN);
+        for (Map.Entry<Integer, Pose2d> e : layout.entrySet()) {
+            m_tagX[e.getKey()] = e.getValue().getX();
+            m_tagY[e.getKey()] = e.getValue().getY();
+            m_tagTheta[e.getKey()] = e.getValue().getRotation().getRadians();
+        }
+        m_stdDevsAt1m = stdDevsAt1m.clone();
+        m_gate = gate;
+        m_sameFrameS = sameFrameS;
+        m_pending = new Batch(capacity);
+        m_working = new Batch(capacity);
+        m_keep = new boolean[capacity];
+    }
+
+    /**
+     * Buffer the tags in one frame. Unknown tags are ignored.
+     *
+     * @param camera       index into the cameras given to the constructor
+     * @param captureTimeS FPGA time
+     */
+    public synchronized void add(int camera, double captureTimeS, TagObservations frame) {
+        double[] c = m_cameras[camera];
+        Batch b = m_pending;
+        for (int i = 0; i < frame.size(); ++i) {
+            int id = frame.id(i);
+            if (id >= m_tagX.length || Double.isNaN(m_tagX[id]))
+                continue;
+            if (b.size == b.id.length) {
+                b.overflow++;
+                continue;
+            }
+            // AprilTag camera frame is x right, y down, z forward, and the tag's
+            // z points into the tag, so its face points along minus the third
+            // column of the rotation.
+            double tx = frame.translation(i, 2);
+            double ty = -frame.translation(i, 0);
+            double ttheta = Math.atan2(frame.rotation(i, 0, 2), -frame.rotation(i, 2, 2));
+            // camera in field = tag in field * inverse(tag in camera)
+            double ct = m_tagTheta[id] - ttheta;
+            double cos = Math.cos(ct);
+            double sin = Math.sin(ct);
+            double cx = m_tagX[id] - (cos * tx - sin * ty);
+            double cy = m_tagY[id] - (sin * tx + cos * ty);
+            // robot in field = camera in field * inverse(camera in robot)
+            double rt = ct - c[2];
+            cos = Math.cos(rt);
+            sin = Math.sin(rt);
+            int k = b.size++;
+            b.camera[k] = camera;
+            b.id[k] = id;
+            b.timeS[k] = captureTimeS;
+            b.range[k] = Math.hypot(tx, ty);
+            b.x[k] = cx - (cos * c[0] - sin * c[1]);
+            b.y[k] = cy - (sin * c[0] + cos * c[1]);
+            b.theta[k] = MathUtil.angleModulus(rt);
+        }
+    }
+
+    private synchronized Batch swap() {
+        Batch b = m_pending;
+        m_pending = m_working;
+        m_pending.size = 0;
+        m_pending.overflow = 0;
+        m_working = b;
+        return b;
+    }
+
+    /**
+     * Fuse everything since the last tick.
+     *
+     * @param history        the estimate, for gating and for motion between
+     *                       captures
+     * @param stateStdDevs   x, y, theta, uncertainty of the estimate
+     * @param out            the measurement, if any
+     * @return true if there is a measurement
+     */
+    public boolean tick(PoseHistory history, double[] stateStdDevs, Measurement out) {
+        Batch b = swap();
+        out.tags = 0;
+        out.duplicates = 0;
+        out.rejected = 0;
+        out.dropped = b.overflow;
+        dedup(b, out);
+        double newestS = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < b.size; ++i) {
+            if (!m_keep[i])
+                continue;
+            if (!history.sample(b.timeS[i], m_estimate)) {
+                m_keep[i] = false;
+                out.dropped++;
+                continue;
+            }
+            if (distanceSquared(b, i, stateStdDevs) > m_gate) {
+                m_keep[i] = false;
+                out.rejected++;
+                continue;
+            }
+            newestS = Math.max(newestS, b.timeS[i]);
+        }
+        if (newestS == Double.NEGATIVE_INFINITY)
+            return false;
+        if (!history.sample(newestS, m_newest))
+            return false;
+        fuse(b, history, newestS, out);
+        return true;
+    }
+
+    /** Of views of the same tag at about the same time, keep the nearest. */
+    private void dedup(Batch b, Measurement out) {
+        for (int i = 0; i < b.size; ++i) {
+            m_keep[i] = true;
+        }
+        for (int i = 0; i < b.size; ++i) {
+            if (!m_keep[i])
+                continue;
+            for (int j = i + 1; j < b.size; ++j) {
+                if (!m_keep[j] || b.id[j] != b.id[i] || b.camera[j] == b.camera[i]
+                        || Math.abs(b.timeS[j] - b.timeS[i]) > m_sameFrameS)
+                    continue;
+                out.duplicates++;
+                if (b.range[j] < b.range[i]) {
+                    m_keep[i] = false;
+                    break;
+                }
+                m_keep[j] = false;
+            }
+        }
+    }
+
+    /** Against m_estimate; the covariances are diagonal. */
+    private double distanceSquared(Batch b, int i, double[] stateStdDevs) {
+        double r2 = b.range[i] * b.range[i];
+        double dx = b.x[i] - m_estimate[0];
+        double dy = b.y[i] - m_estimate[1];
+        double dtheta = MathUtil.angleModulus(b.theta[i] - m_estimate[2]);
+        return dx * dx / variance(stateStdDevs[0], m_stdDevsAt1m[0] * r2)
+                + dy * dy / variance(stateStdDevs[1], m_stdDevsAt1m[1] * r2)
+                + dtheta * dtheta / variance(stateStdDevs[2], m_stdDevsAt1m[2] * r2);
+    }
+
+    private static double variance(double a, double b) {
+        return a * a + b * b;
+    }
+
+    /**
+     * Move each kept pose to the newest time, i.e. pose * inverse(estimate
+     * then) * estimate now, and take the inverse-variance weighted mean. Angles
+     * are averaged as differences from the estimate, so they don't wrap.
+     */
+    private void fuse(Batch b, PoseHistory history, double newestS, Measurement out) {
+        double sx = 0;
+        double sy = 0;
+        double stheta = 0;
+        double wx = 0;
+        double wy = 0;
+        double wtheta = 0;
+        for (int i = 0; i < b.size; ++i) {
+            if (!m_keep[i])
+                continue;
+            history.sample(b.timeS[i], m_estimate);
+            // motion since capture, in the estimate's frame then
+            double dxf = m_newest[0] - m_estimate[0];
+            double dyf = m_newest[1] - m_estimate[1];
+            double cos = Math.cos(m_estimate[2]);
+            double sin = Math.sin(m_estimate[2]);
+            double mx = cos * dxf + sin * dyf;
+            double my = -sin * dxf + cos * dyf;
+            double mtheta = m_newest[2] - m_estimate[2];
+            cos = Math.cos(b.theta[i]);
+            sin = Math.sin(b.theta[i]);
+            double x = b.x[i] + cos * mx - sin * my;
+            double y = b.y[i] + sin * mx + cos * my;
+            double dtheta = MathUtil.angleModulus(b.theta[i] + mtheta - m_newest[2]);
+
+            double r2 = b.range[i] * b.range[i];
+            double ix = 1 / variance(m_stdDevsAt1m[0] * r2, 0);
+            double iy = 1 / variance(m_stdDevsAt1m[1] * r2, 0);
+            double itheta = 1 / variance(m_stdDevsAt1m[2] * r2, 0);
+            sx += ix * x;
+            sy += iy * y;
+            stheta += itheta * dtheta;
+            wx += ix;
+            wy += iy;
+            wtheta += itheta;
+            out.tags++;
+        }
+        out.timeS = newestS;
+        out.x = sx / wx;
+        out.y = sy / wy;
+        out.theta = MathUtil.angleModulus(m_newest[2] + stheta / wtheta);
+        out.stdDevs[0] = Math.sqrt(1 / wx);
+        out.stdDevs[1] = Math.sqrt(1 / wy);
+        out.stdDevs[2] = Math.sqrt(1 / wtheta);
+    }
+}
@@ -0,0 +1,154 @@
+package team100;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed-layout binary encoding of the tags in one camera frame, published as a
+ * raw NT topic of type "tagframe", instead of the self-describing msgpack map
+ * (see Blips), which repeats every key in every frame.
+ *
+ * Little-endian. The header is
+ *
+ * <pre>
+ * offset size
+ *  0     u8   version, currently 1
+ *  1     u8   header size in bytes, currently 16
+ *  2     u8   tag size in bytes, currently 52
+ *  3     u8   tag count
+ *  4     f32  latency, capture to publish, seconds
+ *  8     i64  capture timestamp, camera clock, microseconds
+ * </pre>
+ *
+ * followed by the tags, each of which is
+ *
+ * <pre>
+ *  0     u16  id
+ *  2     u16  reserved, zero
+ *  4     f32  pose_R, 3x3, row-major
+ * 40     f32  pose_t, 3x1
+ * </pre>
+ *
+ * Floats are plenty: their resolution is far finer than the detector's noise.
+ *
+ * The version changes only for incompatible layouts. Fields may be added to
+ * the end of the header or of each tag without changing it, since the sizes are
+ * in the header; readers skip what they don't know about.
+ */
+public final class TagFrame {
+    public static final String kTypeString = "tagframe";
+    public static final int kVersion = 1;
+    public static final int kHeaderSize = 16;
+    public static final int kTagSize = 52;
+    public static final int kMaxTags = 255;
+
+    private TagFrame() {
+        //
+    }
+
+    /** Bytes needed for the given number of tags. */
+    public static int size(int tags) {
+        return kHeaderSize + tags * kTagSize;
+    }
+
+    /**
+     * Write the frame at the buffer's position, and advance it.
+     *
+     * @param observations  the tags, and the latency, as et.
+     * @param captureTimeUs camera clock.
+     * @throws IllegalArgumentException if there are too many tags, or an id is out
+     *                                  of range.
+     * @throws BufferOverflowException  if there's not enough room, see size().
+     */
+    public static void encode(TagObservations observations, long captureTimeUs, ByteBuffer out) {
+        int tags = observations.size();
+        if (tags > kMaxTags)
+            throw new IllegalArgumentException("too many tags: " + tags);
+        if (out.remaining() < size(tags))
+            throw new BufferOverflowException();
+        ByteOrder order = out.order();
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.put((byte) kVersion);
+        out.put((byte) kHeaderSize);
+        out.put((byte) kTagSize);
+        out.put((byte) tags);
+        out.putFloat((float) observations.et());
+        out.putLong(captureTimeUs);
+        for (int i = 0; i < tags; ++i) {
+            int id = observations.id(i);
+            if (id < 0 || id > 0xffff)
+                throw new IllegalArgumentException("id out of range: " + id);
+            out.putShort((short) id);
+            out.putShort((short) 0);
+            for (int row = 0; row < 3; ++row) {
+                for (int col = 0; col < 3; ++col) {
+                    out.putFloat((float) observations.rotation(i, row, col));
+                }
+            }
+            for (int row = 0; row < 3; ++row) {
+                out.putFloat((float) observations.translation(i, row));
+            }
+        }
+        out.order(order);
+    }
+
+    /**
+     * Read a frame into the observations; the latency goes in et. This reads the
+     * array directly, so it doesn't allocate.
+     */
+    public static void decode(byte[] buf, int offset, int length, TagObservations out) throws IOException {
+        out.clear();
+        if (offset < 0 || length < 0 || length > buf.length - offset)
+            throw new IllegalArgumentException("bad range");
+        if (length < 4)
+            throw new EOFException("truncated header");
+        int version = buf[offset] & 0xff;
+        int headerSize = buf[offset + 1] & 0xff;
+        int tagSize = buf[offset + 2] & 0xff;
+        int tags = buf[offset + 3] & 0xff;
+        if (version != kVersion)
+            throw new IOException("unknown tagframe version " + version);
+        if (headerSize < kHeaderSize || tagSize < kTagSize)
+            throw new IOException("tagframe sizes too small");
+        if (length < headerSize + tags * tagSize)
+            throw new EOFException("truncated tagframe");
+        out.setEt(getFloat(buf, offset + 4));
+        out.setCaptureTimeUs(getLong(buf, offset + 8));
+        for (int i = 0; i < tags; ++i) {
+            int p = offset + headerSize + i * tagSize;
+            int tag = out.add();
+            out.setId(tag, (buf[p] & 0xff) | (buf[p + 1] & 0xff) << 8);
+            p += 4;
+            for (int row = 0; row < 3; ++row) {
+                for (int col = 0; col < 3; ++col) {
+                    out.setRotation(tag, row, col, getFloat(buf, p));
+                    p += 4;
+                }
+            }
+            for (int row = 0; row < 3; ++row) {
+                out.setTranslation(tag, row, getFloat(buf, p));
+                p += 4;
+            }
+        }
+    }
+
+    public static void decode(byte[] buf, TagObservations out) throws IOException {
+        decode(buf, 0, buf.length, out);
+    }
+
+    private static float getFloat(byte[] buf, int p) {
+        return Float.intBitsToFloat(
+                (buf[p] & 0xff) | (buf[p + 1] & 0xff) << 8 | (buf[p + 2] & 0xff) << 16 | (buf[p + 3] & 0xff) << 24);
+    }
+
+    private static long getLong(byte[] buf, int p) {
+        long result = 0;
+        for (int i = 7; i >= 0; --i) {
+            result = (result << 8) | (buf[p + i] & 0xffL);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,114 @@
+package team100;
+
+import java.util.Arrays;
+
+/**
+ * The tags in one camera frame, as a structure of arrays, so that decoding a
+ * frame into it doesn't allocate. This is the same content as Blips.
+ *
+ * Reuse one of these for every frame; it grows to fit the busiest frame, and
+ * after that it stays put. It's not thread-safe.
+ */
+public class TagObservations {
+    private double m_et;
+    private long m_captureTimeUs;
+    private int m_size;
+    private int[] m_id;
+    // pose_R, row-major, 9 per tag
+    private double[] m_R;
+    // pose_t, 3 per tag
+    private double[] m_t;
+
+    public TagObservations(int capacity) {
+        capacity = Math.max(1, capacity);
+        m_id = new int[capacity];
+        m_R = new double[9 * capacity];
+        m_t = new double[3 * capacity];
+    }
+
+    public void clear() {
+        m_et = 0;
+        m_captureTimeUs = 0;
+        m_size = 0;
+    }
+
+    /** Elapsed time reported by the camera, seconds. */
+    public double et() {
+        return m_et;
+    }
+
+    /** Camera clock, zero if the encoding doesn't include it (msgpack doesn't). */
+    public long captureTimeUs() {
+        return m_captureTimeUs;
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    public int id(int tag) {
+        return m_id[tag];
+    }
+
+    /** Element of the rotation matrix, pose_R. */
+    public double rotation(int tag, int row, int col) {
+        return m_R[9 * tag + 3 * row + col];
+    }
+
+    /** Element of the translation vector, pose_t. */
+    public double translation(int tag, int row) {
+        return m_t[3 * tag + row];
+    }
+
+    void setEt(double et) {
+        m_et = et;
+    }
+
+    void setCaptureTimeUs(long captureTimeUs) {
+        m_captureTimeUs = captureTimeUs;
+    }
+
+    /**
+     * Make room for another tag, and return its index. The slot is zeroed, so
+     * nothing from an earlier frame shows through.
+     */
+    int add() {
+        if (m_size == m_id.length) {
+            int capacity = 2 * m_size;
+            m_id = Arrays.copyOf(m_id, capacity);
+            m_R = Arrays.copyOf(m_R, 9 * capacity);
+            m_t = Arrays.copyOf(m_t, 3 * capacity);
+        }
+        int tag = m_size++;
+        m_id[tag] = 0;
+        Arrays.fill(m_R, 9 * tag, 9 * tag + 9, 0);
+        Arrays.fill(m_t, 3 * tag, 3 * tag + 3, 0);
+        return tag;
+    }
+
+    void setId(int tag, int id) {
+        m_id[tag] = id;
+    }
+
+    void setRotation(int tag, int row, int col, double value) {
+        m_R[9 * tag + 3 * row + col] = value;
+    }
+
+    void setTranslation(int tag, int row, double value) {
+        m_t[3 * tag + row] = value;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("TagObservations [et=").append(m_et).append(", tags=[");
+        for (int i = 0; i < m_size; ++i) {
+            if (i > 0)
+                result.append(", ");
+            result.append("[id=").append(m_id[i])
+                    .append(", pose_R=").append(Arrays.toString(Arrays.copyOfRange(m_R, 9 * i, 9 * i + 9)))
+                    .append(", pose_t=").append(Arrays.toString(Arrays.copyOfRange(m_t, 3 * i, 3 * i + 3)))
+                    .append("]");
+        }
+        return result.append("]]").toString();
+    }
+}
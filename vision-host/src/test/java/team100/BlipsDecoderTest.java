@@ -0,0 +1,235 @@
+package team100;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessagePack;
+
+public class BlipsDecoderTest {
+    private static final double kDelta = 1e-9;
+
+    /** One tag, with pose_R[row][col] = 3 * row + col and pose_t = 10 + row. */
+    private static void packTag(MessageBufferPacker packer, int id) throws IOException {
+        packer.packMapHeader(3);
+        packer.packString("id");
+        packer.packInt(id);
+        packPoseR(packer);
+        packPoseT(packer);
+    }
+
+    private static void packPoseR(MessageBufferPacker packer) throws IOException {
+        packer.packString("pose_R");
+        packer.packArrayHeader(3);
+        for (int row = 0; row < 3; ++row) {
+            packer.packArrayHeader(3);
+            for (int col = 0; col < 3; ++col) {
+                packer.packDouble(3 * row + col);
+            }
+        }
+    }
+
+    private static void packPoseT(MessageBufferPacker packer) throws IOException {
+        packer.packString("pose_t");
+        packer.packArrayHeader(3);
+        for (int row = 0; row < 3; ++row) {
+            packer.packArrayHeader(1);
+            packer.packDouble(10 + row);
+        }
+    }
+
+    private static void assertTag(TagObservations o, int tag, int id) {
+        assertEquals(id, o.id(tag));
+        for (int row = 0; row < 3; ++row) {
+            for (int col = 0; col < 3; ++col) {
+                assertEquals(3 * row + col, o.rotation(tag, row, col), kDelta);
+            }
+            assertEquals(10 + row, o.translation(tag, row), kDelta);
+        }
+    }
+
+    @Test
+    void testDecode() throws IOException {
+        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+        packer.packMapHeader(2);
+        packer.packString("tags");
+        packer.packArrayHeader(2);
+        packTag(packer, 1);
+        packTag(packer, 300);
+        packer.packString("et");
+        packer.packDouble(0.025);
+        TagObservations o = new TagObservations(1);
+        new BlipsDecoder().decode(packer.toByteArray(), o);
+        assertEquals(0.025, o.et(), kDelta);
+        assertEquals(0, o.captureTimeUs());
+        assertEquals(2, o.size());
+        assertTag(o, 0, 1);
+        assertTag(o, 1, 300);
+    }
+
+    /** Ints where floats are expected, and floats, are fine too. */
+    @Test
+    void testNumberTypes() throws IOException {
+        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+        packer.packMapHeader(2);
+        packer.packString("et");
+        packer.packInt(2);
+        packer.packString("tags");
+        packer.packArrayHeader(1);
+        packer.packMapHeader(3);
+        packer.packString("pose_t");
+        packer.packArrayHeader(3);
+        for (int row = 0; row < 3; ++row) {
+            packer.packArrayHeader(1);
+            packer.packFloat(10 + row);
+        }
+        packPoseR(packer);
+        packer.packString("id");
+        packer.packLong(-7);
+        TagObservations o = new TagObservations(1);
+        new BlipsDecoder().decode(packer.toByteArray(), o);
+        assertEquals(2, o.et(), kDelta);
+        assertTag(o, 0, -7);
+    }
+
+    /** Keys the decoder doesn't know, of any type, are skipped. */
+    @Test
+    void testSkipUnknown() throws IOException {
+        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+        packer.packMapHeader(4);
+        packer.packString("version");
+        packer.packString("a string that's longer than thirty-one bytes");
+        packer.packString("tags");
+        packer.packArrayHeader(1);
+        packer.packMapHeader(5);
+        packer.packString("hamming");
+        packer.packInt(70000);
+        packTagFields(packer, 5);
+        packer.packString("corners");
+        packer.packArrayHeader(4);
+        for (int i = 0; i < 4; ++i) {
+            packer.packArrayHeader(2);
+            packer.packDouble(i);
+            packer.packFloat(i);
+        }
+        packer.packString("extra");
+        packer.packMapHeader(3);
+        packer.packString("nil");
+        packer.packNil();
+        packer.packString("bool");
+        packer.packBoolean(true);
+        packer.packString("bin");
+        packer.packBinaryHeader(3);
+        packer.writePayload(new byte[] { 1, 2, 3 });
+        packer.packString("et");
+        packer.packDouble(0.5);
+        TagObservations o = new TagObservations(1);
+        new BlipsDecoder().decode(packer.toByteArray(), o);
+        assertEquals(0.5, o.et(), kDelta);
+        assertEquals(1, o.size());
+        assertTag(o, 0, 5);
+    }
+
+    private static void packTagFields(MessageBufferPacker packer, int id) throws IOException {
+        packer.packString("id");
+        packer.packInt(id);
+        packPoseR(packer);
+        packPoseT(packer);
+    }
+
+    /**
+     * A tag without all its fields is rejected, rather than keeping whatever was
+     * in its slot from the previous frame.
+     */
+    @Test
+    void testMissingFields() throws IOException {
+        BlipsDecoder decoder = new BlipsDecoder();
+        TagObservations o = new TagObservations(1);
+        MessageBufferPacker full = MessagePack.newDefaultBufferPacker();
+        full.packMapHeader(1);
+        full.packString("tags");
+        full.packArrayHeader(1);
+        packTag(full, 9);
+        decoder.decode(full.toByteArray(), o);
+        assertTag(o, 0, 9);
+
+        for (int missing = 0; missing < 3; ++missing) {
+            MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+            packer.packMapHeader(1);
+            packer.packString("tags");
+            packer.packArrayHeader(1);
+            packer.packMapHeader(2);
+            if (missing != 0) {
+                packer.packString("id");
+                packer.packInt(4);
+            }
+            if (missing != 1)
+                packPoseR(packer);
+            if (missing != 2)
+                packPoseT(packer);
+            byte[] payload = packer.toByteArray();
+            assertThrows(IOException.class, () -> decoder.decode(payload, o));
+        }
+    }
+
+    /** A reused slot starts out empty. */
+    @Test
+    void testSlotReset() {
+        TagObservations o = new TagObservations(1);
+        int tag = o.add();
+        o.setId(tag, 3);
+        o.setRotation(tag, 1, 1, 5);
+        o.setTranslation(tag, 2, 6);
+        o.clear();
+        tag = o.add();
+        assertEquals(0, o.id(tag));
+        assertEquals(0, o.rotation(tag, 1, 1), kDelta);
+        assertEquals(0, o.translation(tag, 2), kDelta);
+    }
+
+    @Test
+    void testMalformed() throws IOException {
+        BlipsDecoder decoder = new BlipsDecoder();
+        TagObservations o = new TagObservations(1);
+        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+        packer.packMapHeader(1);
+        packer.packString("tags");
+        packer.packArrayHeader(1);
+        packTag(packer, 1);
+        byte[] payload = packer.toByteArray();
+        // truncated
+        for (int length = 0; length < payload.length; ++length) {
+            int l = length;
+            assertThrows(IOException.class, () -> decoder.decode(payload, 0, l, o));
+        }
+        // not a map
+        assertThrows(IOException.class, () -> decoder.decode(new byte[] { (byte) 0x90 }, o));
+    }
+
+    /** Deeply nested unknown values are an error, not a StackOverflowError. */
+    @Test
+    void testDepthLimit() throws IOException {
+        int depth = 100000;
+        byte[] payload = new byte[depth + 4];
+        payload[0] = (byte) 0x81; // map with one entry
+        payload[1] = (byte) 0xa1; // one-byte key
+        payload[2] = 'x';
+        for (int i = 3; i < depth + 3; ++i) {
+            payload[i] = (byte) 0x91; // array with one element
+        }
+        payload[depth + 3] = 0;
+        assertThrows(IOException.class, () -> new BlipsDecoder().decode(payload, new TagObservations(1)));
+
+        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+        packer.packMapHeader(1);
+        packer.packString("x");
+        for (int i = 0; i < 10; ++i) {
+            packer.packArrayHeader(1);
+        }
+        packer.packInt(0);
+        new BlipsDecoder().decode(packer.toByteArray(), new TagObservations(1));
+    }
+}
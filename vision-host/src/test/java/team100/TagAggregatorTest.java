@@ -0,0 +1,162 @@
+package team100;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+public class TagAggregatorTest {
+    private static final double kDelta = 1e-9;
+    private static final Map<Integer, Pose2d> kLayout = Map.of(
+            1, new Pose2d(5, 0, new Rotation2d(Math.PI)),
+            2, new Pose2d(5, 2, new Rotation2d(Math.PI)));
+    private static final Pose2d[] kCameras = new Pose2d[] {
+            new Pose2d(0.2, 0.1, new Rotation2d(0.1)),
+            new Pose2d(-0.2, -0.1, new Rotation2d(-0.1)) };
+
+    private static TagAggregator aggregator(int capacity) {
+        return new TagAggregator(kCameras, kLayout, new double[] { 0.01, 0.01, 0.01 },
+                TagAggregator.kGate99, 0.01, capacity);
+    }
+
+    /** What the camera would see, i.e. the inverse of TagAggregator.add(). */
+    private static void see(TagObservations o, int camera, int id, double rx, double ry, double rtheta) {
+        Pose2d c = kCameras[camera];
+        Pose2d t = kLayout.get(id);
+        // camera in field
+        double ct = rtheta + c.getRotation().getRadians();
+        double cx = rx + Math.cos(rtheta) * c.getX() - Math.sin(rtheta) * c.getY();
+        double cy = ry + Math.sin(rtheta) * c.getX() + Math.cos(rtheta) * c.getY();
+        // tag in camera, in the plane
+        double dx = t.getX() - cx;
+        double dy = t.getY() - cy;
+        double tx = Math.cos(ct) * dx + Math.sin(ct) * dy;
+        double ty = -Math.sin(ct) * dx + Math.cos(ct) * dy;
+        double ttheta = t.getRotation().getRadians() - ct;
+        // rotation about the camera y axis
+        double phi = Math.PI - ttheta;
+        int tag = o.add();
+        o.setId(tag, id);
+        o.setTranslation(tag, 0, -ty);
+        o.setTranslation(tag, 1, 0);
+        o.setTranslation(tag, 2, tx);
+        o.setRotation(tag, 0, 0, Math.cos(phi));
+        o.setRotation(tag, 0, 2, Math.sin(phi));
+        o.setRotation(tag, 1, 1, 1);
+        o.setRotation(tag, 2, 0, -Math.sin(phi));
+        o.setRotation(tag, 2, 2, Math.cos(phi));
+    }
+
+    /** Constant velocity in x, from the origin. */
+    private static boolean moving(double timeS, double[] out) {
+        out[0] = timeS;
+        out[1] = 0;
+        out[2] = 0;
+        return true;
+    }
+
+    @Test
+    void testPose() {
+        TagAggregator a = aggregator(16);
+        TagObservations o = new TagObservations(4);
+        see(o, 0, 1, 1, 0.5, 0.2);
+        see(o, 0, 2, 1, 0.5, 0.2);
+        a.add(0, 1.0, o);
+        TagAggregator.Measurement m = new TagAggregator.Measurement();
+        assertTrue(a.tick((t, out) -> {
+            out[0] = 1;
+            out[1] = 0.5;
+            out[2] = 0.2;
+            return true;
+        }, new double[] { 0.1, 0.1, 0.1 }, m));
+        assertEquals(1.0, m.timeS, kDelta);
+        assertEquals(1, m.x, kDelta);
+        assertEquals(0.5, m.y, kDelta);
+        assertEquals(0.2, m.theta, kDelta);
+        assertEquals(2, m.tags);
+        // nothing new, nothing out
+        assertFalse(a.tick(TagAggregatorTest::moving, new double[] { 0.1, 0.1, 0.1 }, m));
+    }
+
+    @Test
+    void testDuplicate() {
+        TagAggregator a = aggregator(16);
+        TagObservations o = new TagObservations(4);
+        see(o, 0, 1, 1, 0, 0);
+        a.add(0, 1.0, o);
+        o.clear();
+        see(o, 1, 1, 1, 0, 0);
+        a.add(1, 1.005, o);
+        o.clear();
+        // same camera, next frame, isn't a duplicate
+        see(o, 0, 1, 1.02, 0, 0);
+        a.add(0, 1.02, o);
+        TagAggregator.Measurement m = new TagAggregator.Measurement();
+        assertTrue(a.tick(TagAggregatorTest::moving, new double[] { 0.1, 0.1, 0.1 }, m));
+        assertEquals(2, m.tags);
+        assertEquals(1, m.duplicates);
+    }
+
+    @Test
+    void testOutlier() {
+        TagAggregator a = aggregator(16);
+        TagObservations o = new TagObservations(4);
+        see(o, 0, 1, 1, 0, 0);
+        see(o, 0, 2, 3, 0, 0);
+        a.add(0, 1.0, o);
+        TagAggregator.Measurement m = new TagAggregator.Measurement();
+        assertTrue(a.tick(TagAggregatorTest::moving, new double[] { 0.1, 0.1, 0.1 }, m));
+        assertEquals(1, m.tags);
+        assertEquals(1, m.rejected);
+        assertEquals(1, m.x, kDelta);
+        // with no estimate to speak of, anything goes
+        a.add(0, 1.0, o);
+        assertTrue(a.tick(TagAggregatorTest::moving, new double[] { 1e3, 1e3, 1e3 }, m));
+        assertEquals(2, m.tags);
+        assertEquals(0, m.rejected);
+    }
+
+    /** Frames captured at different times are moved to the newest. */
+    @Test
+    void testMotion() {
+        TagAggregator a = aggregator(16);
+        TagObservations o = new TagObservations(4);
+        see(o, 0, 1, 1.0, 0, 0);
+        a.add(0, 1.0, o);
+        o.clear();
+        see(o, 1, 2, 1.04, 0, 0);
+        a.add(1, 1.04, o);
+        TagAggregator.Measurement m = new TagAggregator.Measurement();
+        assertTrue(a.tick(TagAggregatorTest::moving, new double[] { 0.1, 0.1, 0.1 }, m));
+        assertEquals(2, m.tags);
+        assertEquals(1.04, m.timeS, kDelta);
+        assertEquals(1.04, m.x, kDelta);
+        assertEquals(0, m.y, kDelta);
+    }
+
+    @Test
+    void testOverflowAndUnknown() {
+        TagAggregator a = aggregator(2);
+        TagObservations o = new TagObservations(4);
+        see(o, 0, 1, 1, 0, 0);
+        see(o, 0, 2, 1, 0, 0);
+        see(o, 0, 1, 1, 0, 0);
+        int unknown = o.add();
+        o.setId(unknown, 99);
+        a.add(0, 1.0, o);
+        TagAggregator.Measurement m = new TagAggregator.Measurement();
+        assertTrue(a.tick(TagAggregatorTest::moving, new double[] { 0.1, 0.1, 0.1 }, m));
+        assertEquals(2, m.tags);
+        assertEquals(1, m.dropped);
+        // no estimate, no measurement
+        a.add(0, 1.0, o);
+        assertFalse(a.tick((t, out) -> false, new double[] { 0.1, 0.1, 0.1 }, m));
+        assertEquals(3, m.dropped);
+    }
+}
@@ -0,0 +1,190 @@
+package team100;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessagePack;
+
+public class TagFrameTest {
+    private static TagObservations random(Random random, int tags) {
+        TagObservations o = new TagObservations(1);
+        o.setEt(random.nextDouble() * 0.1);
+        for (int i = 0; i < tags; ++i) {
+            int tag = o.add();
+            o.setId(tag, random.nextInt(0x10000));
+            for (int row = 0; row < 3; ++row) {
+                for (int col = 0; col < 3; ++col) {
+                    o.setRotation(tag, row, col, 2 * random.nextDouble() - 1);
+                }
+                o.setTranslation(tag, row, 10 * random.nextDouble() - 5);
+            }
+        }
+        return o;
+    }
+
+    private static byte[] encode(TagObservations o, long captureTimeUs) {
+        ByteBuffer buffer = ByteBuffer.allocate(TagFrame.size(o.size()));
+        TagFrame.encode(o, captureTimeUs, buffer);
+        assertEquals(buffer.capacity(), buffer.position());
+        return buffer.array();
+    }
+
+    /** The same, to float precision. */
+    private static void assertSame(TagObservations expected, TagObservations actual) {
+        assertEquals((float) expected.et(), actual.et());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.id(i), actual.id(i));
+            for (int row = 0; row < 3; ++row) {
+                for (int col = 0; col < 3; ++col) {
+                    assertEquals((float) expected.rotation(i, row, col), actual.rotation(i, row, col));
+                }
+                assertEquals((float) expected.translation(i, row), actual.translation(i, row));
+            }
+        }
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        Random random = new Random(0);
+        TagObservations actual = new TagObservations(1);
+        for (int trial = 0; trial < 1000; ++trial) {
+            TagObservations expected = random(random, random.nextInt(20));
+            long captureTimeUs = random.nextLong();
+            TagFrame.decode(encode(expected, captureTimeUs), actual);
+            assertSame(expected, actual);
+            assertEquals(captureTimeUs, actual.captureTimeUs());
+        }
+    }
+
+    @Test
+    void testEncodeAtOffset() throws IOException {
+        TagObservations expected = random(new Random(0), 3);
+        ByteBuffer buffer = ByteBuffer.allocate(100 + TagFrame.size(3));
+        buffer.position(100);
+        TagFrame.encode(expected, 1234, buffer);
+        TagObservations actual = new TagObservations(1);
+        TagFrame.decode(buffer.array(), 100, TagFrame.size(3), actual);
+        assertSame(expected, actual);
+        assertThrows(java.nio.BufferOverflowException.class,
+                () -> TagFrame.encode(expected, 0, ByteBuffer.allocate(TagFrame.size(3) - 1)));
+    }
+
+    /** A later writer may append fields to the header and to each tag. */
+    @Test
+    void testForwardCompatible() throws IOException {
+        TagObservations expected = random(new Random(0), 4);
+        byte[] v1 = encode(expected, 5678);
+        int headerSize = TagFrame.kHeaderSize + 8;
+        int tagSize = TagFrame.kTagSize + 12;
+        byte[] extended = new byte[headerSize + 4 * tagSize];
+        Arrays.fill(extended, (byte) 0x55);
+        System.arraycopy(v1, 0, extended, 0, TagFrame.kHeaderSize);
+        extended[1] = (byte) headerSize;
+        extended[2] = (byte) tagSize;
+        for (int i = 0; i < 4; ++i) {
+            System.arraycopy(v1, TagFrame.kHeaderSize + i * TagFrame.kTagSize,
+                    extended, headerSize + i * tagSize, TagFrame.kTagSize);
+        }
+        TagObservations actual = new TagObservations(1);
+        TagFrame.decode(extended, actual);
+        assertSame(expected, actual);
+        assertEquals(5678, actual.captureTimeUs());
+    }
+
+    @Test
+    void testRejects() {
+        byte[] frame = encode(random(new Random(0), 2), 0);
+        TagObservations actual = new TagObservations(1);
+        byte[] version = frame.clone();
+        version[0] = 2;
+        assertThrows(IOException.class, () -> TagFrame.decode(version, actual));
+        byte[] small = frame.clone();
+        small[2] = (byte) (TagFrame.kTagSize - 1);
+        assertThrows(IOException.class, () -> TagFrame.decode(small, actual));
+        assertThrows(IOException.class, () -> TagFrame.decode(Arrays.copyOf(frame, frame.length - 1), actual));
+        assertThrows(IOException.class, () -> TagFrame.decode(new byte[0], actual));
+    }
+
+    /** Damaged frames either decode or throw IOException, nothing else. */
+    @Test
+    void testFuzz() {
+        Random random = new Random(0);
+        TagObservations actual = new TagObservations(1);
+        for (int trial = 0; trial < 100000; ++trial) {
+            byte[] frame = encode(random(random, random.nextInt(5)), random.nextLong());
+            switch (random.nextInt(3)) {
+                case 0:
+                    frame = Arrays.copyOf(frame, random.nextInt(frame.length + 1));
+                    break;
+                case 1:
+                    frame[random.nextInt(frame.length)] = (byte) random.nextInt(256);
+                    break;
+                default:
+                    frame = new byte[random.nextInt(300)];
+                    random.nextBytes(frame);
+                    if (frame.length > 0)
+                        frame[0] = (byte) TagFrame.kVersion;
+            }
+            try {
+                TagFrame.decode(frame, actual);
+            } catch (IOException e) {
+                // fine
+            }
+        }
+    }
+
+    /** The same content as the camera's msgpack, see apriltags_example/app4.py. */
+    private static byte[] msgpack(TagObservations o) throws IOException {
+        MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+        packer.packMapHeader(2);
+        packer.packString("tags");
+        packer.packArrayHeader(o.size());
+        for (int i = 0; i < o.size(); ++i) {
+            packer.packMapHeader(3);
+            packer.packString("id");
+            packer.packInt(o.id(i));
+            packer.packString("pose_t");
+            packer.packArrayHeader(3);
+            for (int row = 0; row < 3; ++row) {
+                packer.packArrayHeader(1);
+                packer.packDouble(o.translation(i, row));
+            }
+            packer.packString("pose_R");
+            packer.packArrayHeader(3);
+            for (int row = 0; row < 3; ++row) {
+                packer.packArrayHeader(3);
+                for (int col = 0; col < 3; ++col) {
+                    packer.packDouble(o.rotation(i, row, col));
+                }
+            }
+        }
+        packer.packString("et");
+        packer.packDouble(o.et());
+        return packer.toByteArray();
+    }
+
+    /** The same tags are smaller as a frame than as msgpack, and decode the same. */
+    @Test
+    void testCompareWithMsgpack() throws IOException {
+        TagObservations o = random(new Random(0), 8);
+        byte[] frame = encode(o, 0);
+        byte[] msgpack = msgpack(o);
+        assertTrue(frame.length < msgpack.length);
+
+        TagObservations fromMsgpack = new TagObservations(8);
+        new BlipsDecoder().decode(msgpack, fromMsgpack);
+        TagObservations fromFrame = new TagObservations(8);
+        TagFrame.decode(frame, fromFrame);
+        // msgpack has doubles, the frame has floats
+        assertSame(fromMsgpack, fromFrame);
+    }
+}
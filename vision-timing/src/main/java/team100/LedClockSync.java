@@ -0,0 +1,175 @@
+package team100;
+
+/**
+ * Works out when camera frames were really captured, in FPGA time, using an
+ * LED that the robot flashes and the camera watches.
+ *
+ * Each frame says whether the LED was lit, and when the camera thinks it was
+ * captured: its own sensor timestamp, carried into FPGA time by the NT server
+ * time offset. That's close, but not exact: the NT offset is only as good as
+ * the ping it came from, and the sensor timestamp isn't quite the middle of the
+ * exposure. So this estimates a correction, which is added to the claimed time.
+ *
+ * When the LED changes state between two frames, the edge (whose FPGA time we
+ * know) happened after the first capture and before the second, which bounds
+ * the correction on both sides:
+ *
+ * <pre>
+ * edge - second capture <= correction < edge - first capture
+ * </pre>
+ *
+ * The bounds from the recent edges are intersected, and the correction is the
+ * middle of what's left. The frame period sets the width of each bound, but
+ * the frames land at a different phase every time, so the intersection gets
+ * much narrower than that. If the bounds stop agreeing, e.g. because a clock
+ * jumped, the old ones are dropped.
+ *
+ * If the camera doesn't stamp its frames, pass the arrival time as the capture
+ * time; the correction is then minus the latency.
+ *
+ * The LED is driven from the main loop and the frames arrive on the NT listener
+ * thread, so the methods are synchronized.
+ */
+public class LedClockSync {
+    /** Edges further than this from where we expect can't be the right one. */
+    private static final double kMaxSkewS = 0.4;
+    private static final int kEdges = 8;
+    private static final int kBounds = 16;
+
+    // recent LED edges, ring buffers
+    private final double[] m_edgeTimeS = new double[kEdges];
+    private final boolean[] m_edgeOn = new boolean[kEdges];
+    private int m_edgeCount;
+    private boolean m_ledOn;
+
+    // bounds on the correction from recent edges, ring buffers
+    private final double[] m_lower = new double[kBounds];
+    private final double[] m_upper = new double[kBounds];
+    private int m_boundNext;
+    private int m_boundCount;
+    private double m_correctionS;
+    private double m_uncertaintyS = Double.POSITIVE_INFINITY;
+
+    private boolean m_havePrevious;
+    private boolean m_previousLit;
+    private double m_previousCaptureS;
+
+    /** Arrival minus corrected capture time. */
+    private final SampleWindow m_latency = new SampleWindow(500);
+    /** Arrival of the first lit frame minus the LED rising edge. */
+    private final SampleWindow m_roundTrip = new SampleWindow(50);
+
+    /** Call whenever the LED output is set; only changes are recorded. */
+    public synchronized void led(boolean on, double nowS) {
+        if (on == m_ledOn)
+            return;
+        m_ledOn = on;
+        int i = m_edgeCount % kEdges;
+        m_edgeTimeS[i] = nowS;
+        m_edgeOn[i] = on;
+        ++m_edgeCount;
+    }
+
+    /**
+     * Call for every frame, in order.
+     *
+     * @param lit      the camera saw the LED
+     * @param captureS when the camera says the frame was captured, FPGA time
+     * @param arrivalS when the frame got here, FPGA time
+     */
+    public synchronized void frame(boolean lit, double captureS, double arrivalS) {
+        if (m_havePrevious && lit != m_previousLit && captureS > m_previousCaptureS) {
+            double expectedS = 0.5 * (m_previousCaptureS + captureS) + m_correctionS;
+            double edgeS = nearestEdge(lit, expectedS);
+            if (!Double.isNaN(edgeS)) {
+                addBound(edgeS - captureS, edgeS - m_previousCaptureS);
+                if (lit)
+                    m_roundTrip.add(arrivalS - edgeS);
+            }
+        }
+        m_havePrevious = true;
+        m_previousLit = lit;
+        m_previousCaptureS = captureS;
+        if (synced())
+            m_latency.add(arrivalS - validTime(captureS));
+    }
+
+    /** True once there's at least one edge to go on. */
+    public synchronized boolean synced() {
+        return m_boundCount > 0;
+    }
+
+    /** FPGA time of the capture, i.e. when the measurement was valid. */
+    public synchronized double validTime(double captureS) {
+        return captureS + m_correctionS;
+    }
+
+    /** Added to the claimed capture time, seconds. */
+    public synchronized double correction() {
+        return m_correctionS;
+    }
+
+    /** Half the width of the remaining interval, infinite before the first edge. */
+    public synchronized double uncertainty() {
+        return m_uncertaintyS;
+    }
+
+    /** Capture to arrival, seconds, see SampleWindow.percentile(). */
+    public synchronized double latency(double p) {
+        return m_latency.percentile(p);
+    }
+
+    public synchronized double latencyMean() {
+        return m_latency.mean();
+    }
+
+    public synchronized double latencyStddev() {
+        return m_latency.stddev();
+    }
+
+    /** LED on to the first lit frame arriving, seconds. */
+    public synchronized double roundTrip(double p) {
+        return m_roundTrip.percentile(p);
+    }
+
+    /** The recorded edge in that direction nearest the expected time, or NaN. */
+    private double nearestEdge(boolean on, double expectedS) {
+        double best = Double.NaN;
+        double bestError = kMaxSkewS;
+        for (int i = 0; i < Math.min(m_edgeCount, kEdges); ++i) {
+            if (m_edgeOn[i] != on)
+                continue;
+            double error = Math.abs(m_edgeTimeS[i] - expectedS);
+            if (error < bestError) {
+                best = m_edgeTimeS[i];
+                bestError = error;
+            }
+        }
+        return best;
+    }
+
+    private void addBound(double lower, double upper) {
+        m_lower[m_boundNext] = lower;
+        m_upper[m_boundNext] = upper;
+        m_boundNext = (m_boundNext + 1) % kBounds;
+        m_boundCount = Math.min(m_boundCount + 1, kBounds);
+        double lo = Double.NEGATIVE_INFINITY;
+        double hi = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < m_boundCount; ++i) {
+            lo = Math.max(lo, m_lower[i]);
+            hi = Math.min(hi, m_upper[i]);
+        }
+        if (lo > hi) {
+            // disagreement, start over from the newest
+            m_lower[0] = lower;
+            m_upper[0] = upper;
+            m_boundNext = 1 % kBounds;
+            m_boundCount = 1;
+            lo = lower;
+            hi = upper;
+            m_latency.clear();
+        }
+        m_correctionS = 0.5 * (lo + hi);
+        m_uncertaintyS = 0.5 * (hi - lo);
+    }
+}
@@ -2,8 +2,12 @@ package team100;
 
 import java.util.EnumSet;
 
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableEvent;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableValue;
 import edu.wpi.first.wpilibj.DigitalOutput;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.Timer;
@@ -11,22 +15,63 @@ import edu.wpi.first.wpilibj.Timer;
 /**
  * Flashes an LED output which is viewed by the camera.
  * Light another LED based on the camera output.
+ *
+ * The flashes also calibrate the camera timing, see LedClockSync, which is
+ * published in the "Timing" table, along with each detection, stamped with its
+ * corrected valid time.
  */
 public class Robot extends TimedRobot {
   private final DigitalOutput led = new DigitalOutput(0);
   private final DigitalOutput seen = new DigitalOutput(1);
+  private final LedClockSync sync = new LedClockSync();
+  private final DoublePublisher correction_publisher;
+  private final DoublePublisher uncertainty_publisher;
+  private final DoublePublisher latency_p50_publisher;
+  private final DoublePublisher latency_p95_publisher;
+  private final DoublePublisher round_trip_p50_publisher;
+  private final BooleanPublisher seen_publisher;
 
   public Robot() {
     NetworkTableInstance inst = NetworkTableInstance.getDefault();
     inst.startServer("example server");
+    NetworkTable timing_table = inst.getTable("Timing");
+    correction_publisher = timing_table.getDoubleTopic("correction").publish();
+    uncertainty_publisher = timing_table.getDoubleTopic("uncertainty").publish();
+    latency_p50_publisher = timing_table.getDoubleTopic("latency_p50").publish();
+    latency_p95_publisher = timing_table.getDoubleTopic("latency_p95").publish();
+    round_trip_p50_publisher = timing_table.getDoubleTopic("round_trip_p50").publish();
+    seen_publisher = timing_table.getBooleanTopic("seen").publish();
     inst.addListener(
         inst.getTable("Vision").getEntry("led"),
         EnumSet.of(NetworkTableEvent.Kind.kValueAll),
-        (event) -> seen.set(event.valueData.value.getBoolean()));
+        (event) -> accept(event.valueData.value));
+  }
+
+  /**
+   * The camera stamps each value with its capture time, which NT carries into
+   * server time, i.e. FPGA time, here. Unstamped values have server time 0 or
+   * 1; for those, use the arrival time.
+   */
+  private void accept(NetworkTableValue value) {
+    double arrivalS = Timer.getFPGATimestamp();
+    boolean lit = value.getBoolean();
+    seen.set(lit);
+    long serverTimeUs = value.getServerTime();
+    double captureS = serverTimeUs > 1 ? serverTimeUs / 1e6 : arrivalS;
+    sync.frame(lit, captureS, arrivalS);
+    // consumers use the NT timestamp as the time the detection was valid.
+    seen_publisher.set(lit, (long) (sync.validTime(captureS) * 1e6));
   }
 
   @Override
   public void robotPeriodic() {
-    led.set((int) (10 * Timer.getFPGATimestamp()) % 10 == 0); // 10% duty cycle 1hz
+    boolean on = (int) (10 * Timer.getFPGATimestamp()) % 10 == 0; // 10% duty cycle 1hz
+    led.set(on);
+    sync.led(on, Timer.getFPGATimestamp());
+    correction_publisher.set(sync.correction());
+    uncertainty_publisher.set(sync.uncertainty());
+    latency_p50_publisher.set(sync.latency(0.5));
+    latency_p95_publisher.set(sync.latency(0.95));
+    round_trip_p50_publisher.set(sync.roundTrip(0.5));
   }
 }
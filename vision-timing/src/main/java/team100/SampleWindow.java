@@ -0,0 +1,72 @@
+package team100;
+
+import java.util.Arrays;
+
+/**
+ * The most recent samples of something, e.g. latency, for its distribution.
+ * Fixed size, so adding doesn't allocate, and neither do the statistics.
+ */
+public class SampleWindow {
+    private final double[] m_samples;
+    // scratch for percentiles
+    private final double[] m_sorted;
+    private int m_next;
+    private int m_size;
+
+    public SampleWindow(int capacity) {
+        m_samples = new double[capacity];
+        m_sorted = new double[capacity];
+    }
+
+    public void add(double sample) {
+        m_samples[m_next] = sample;
+        m_next = (m_next + 1) % m_samples.length;
+        if (m_size < m_samples.length)
+            ++m_size;
+    }
+
+    public void clear() {
+        m_next = 0;
+        m_size = 0;
+    }
+
+    public int size() {
+        return m_size;
+    }
+
+    /** NaN if empty. */
+    public double mean() {
+        if (m_size == 0)
+            return Double.NaN;
+        double sum = 0;
+        for (int i = 0; i < m_size; ++i) {
+            sum += m_samples[i];
+        }
+        return sum / m_size;
+    }
+
+    /** Population standard deviation, NaN if empty. */
+    public double stddev() {
+        double mean = mean();
+        double sum = 0;
+        for (int i = 0; i < m_size; ++i) {
+            double d = m_samples[i] - mean;
+            sum += d * d;
+        }
+        return Math.sqrt(sum / m_size);
+    }
+
+    /**
+     * Nearest-rank percentile, NaN if empty.
+     *
+     * @param p in [0, 1], so 0 is the min and 1 is the max.
+     */
+    public double percentile(double p) {
+        if (m_size == 0)
+            return Double.NaN;
+        System.arraycopy(m_samples, 0, m_sorted, 0, m_size);
+        Arrays.sort(m_sorted, 0, m_size);
+        int rank = (int) Math.ceil(p * m_size) - 1;
+        return m_sorted[Math.max(0, Math.min(m_size - 1, rank))];
+    }
+}
@@ -0,0 +1,106 @@
+package team100;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class LedClockSyncTest {
+    private static final double kLoopS = 0.02;
+    /** 41 Hz by the camera's clock, which isn't quite the FPGA's. */
+    private static final double kFrameS = 1.0 / 41.2;
+
+    /**
+     * The robot loop flashing the LED as Robot does, and a 41 Hz camera whose
+     * claimed capture times are off by a constant, with a little jitter, and 60
+     * to 120 ms latency.
+     */
+    private static class Sim {
+        final LedClockSync sync = new LedClockSync();
+        final Random random = new Random(0);
+        /** Claimed capture time minus true capture time. */
+        double clockErrorS;
+        double nowS = 0;
+        double nextFrameS = 0.003;
+        boolean on;
+        /** Last LED change. */
+        double edgeS = Double.NEGATIVE_INFINITY;
+        double latencyMinS = Double.POSITIVE_INFINITY;
+        double latencyMaxS = 0;
+
+        void run(double durationS) {
+            double endS = nowS + durationS;
+            while (nowS < endS) {
+                // camera frames captured up to now; they arrive later, but in
+                // order, so just deliver them in order.
+                while (nextFrameS < nowS + kLoopS) {
+                    boolean lit = on && nextFrameS >= edgeS || !on && nextFrameS < edgeS;
+                    double latencyS = 0.06 + 0.06 * random.nextDouble();
+                    latencyMinS = Math.min(latencyMinS, latencyS);
+                    latencyMaxS = Math.max(latencyMaxS, latencyS);
+                    sync.frame(lit, nextFrameS + clockErrorS, nextFrameS + latencyS);
+                    nextFrameS += kFrameS + 0.001 * (random.nextDouble() - 0.5);
+                }
+                nowS += kLoopS;
+                boolean led = (int) (10 * nowS) % 10 == 0;
+                if (led != on) {
+                    on = led;
+                    edgeS = nowS;
+                }
+                sync.led(led, nowS);
+            }
+        }
+    }
+
+    @Test
+    void testUnsynced() {
+        LedClockSync sync = new LedClockSync();
+        assertFalse(sync.synced());
+        assertEquals(Double.POSITIVE_INFINITY, sync.uncertainty());
+        assertEquals(0, sync.correction());
+        assertEquals(5, sync.validTime(5));
+        // no edges, no bounds
+        sync.frame(false, 1, 1.1);
+        sync.frame(true, 1.03, 1.13);
+        assertFalse(sync.synced());
+        assertTrue(Double.isNaN(sync.latency(0.5)));
+    }
+
+    /** The correction converges to the camera's clock error. */
+    @Test
+    void testConverges() {
+        Sim sim = new Sim();
+        sim.clockErrorS = 0.013;
+        sim.run(60);
+        LedClockSync sync = sim.sync;
+        assertTrue(sync.synced());
+        assertTrue(sync.uncertainty() < 0.003, "uncertainty " + sync.uncertainty());
+        assertEquals(-0.013, sync.correction(), sync.uncertainty() + 1e-9);
+        // a detection captured at 100 s is corrected to within the uncertainty
+        assertEquals(100, sync.validTime(100 + 0.013), sync.uncertainty() + 1e-9);
+        // latency is from the corrected time
+        double latencyP50 = sync.latency(0.5);
+        assertTrue(latencyP50 > sim.latencyMinS - sync.uncertainty(), "latency " + latencyP50);
+        assertTrue(latencyP50 < sim.latencyMaxS + sync.uncertainty(), "latency " + latencyP50);
+        // the first lit frame is captured within a frame of the edge
+        double roundTrip = sync.roundTrip(0.5);
+        assertTrue(roundTrip > sim.latencyMinS, "round trip " + roundTrip);
+        assertTrue(roundTrip < sim.latencyMaxS + kFrameS, "round trip " + roundTrip);
+    }
+
+    /** If the camera clock jumps, the old bounds are dropped. */
+    @Test
+    void testClockJump() {
+        Sim sim = new Sim();
+        sim.clockErrorS = 0.013;
+        sim.run(30);
+        assertEquals(-0.013, sim.sync.correction(), sim.sync.uncertainty() + 1e-9);
+        sim.clockErrorS = -0.05;
+        sim.run(30);
+        assertTrue(sim.sync.uncertainty() < 0.005, "uncertainty " + sim.sync.uncertainty());
+        assertEquals(0.05, sim.sync.correction(), sim.sync.uncertainty() + 1e-9);
+    }
+}
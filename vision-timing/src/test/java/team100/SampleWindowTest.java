@@ -0,0 +1,60 @@
+package team100;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class SampleWindowTest {
+    private static final double kDelta = 1e-9;
+
+    @Test
+    void testEmpty() {
+        SampleWindow w = new SampleWindow(4);
+        assertEquals(0, w.size());
+        assertTrue(Double.isNaN(w.mean()));
+        assertTrue(Double.isNaN(w.stddev()));
+        assertTrue(Double.isNaN(w.percentile(0.5)));
+    }
+
+    @Test
+    void testStats() {
+        SampleWindow w = new SampleWindow(10);
+        for (double x : new double[] { 2, 4, 4, 4, 5, 5, 7, 9 }) {
+            w.add(x);
+        }
+        assertEquals(8, w.size());
+        assertEquals(5, w.mean(), kDelta);
+        assertEquals(2, w.stddev(), kDelta);
+        assertEquals(2, w.percentile(0), kDelta);
+        assertEquals(4, w.percentile(0.5), kDelta);
+        assertEquals(5, w.percentile(0.75), kDelta);
+        assertEquals(7, w.percentile(0.8), kDelta);
+        assertEquals(9, w.percentile(1), kDelta);
+    }
+
+    /** Only the most recent samples count. */
+    @Test
+    void testWrap() {
+        SampleWindow w = new SampleWindow(3);
+        for (int i = 0; i < 10; ++i) {
+            w.add(i);
+        }
+        assertEquals(3, w.size());
+        assertEquals(8, w.mean(), kDelta);
+        assertEquals(7, w.percentile(0), kDelta);
+        assertEquals(9, w.percentile(1), kDelta);
+    }
+
+    @Test
+    void testClear() {
+        SampleWindow w = new SampleWindow(3);
+        w.add(1);
+        w.add(2);
+        w.clear();
+        assertEquals(0, w.size());
+        w.add(5);
+        assertEquals(5, w.mean(), kDelta);
+        assertEquals(5, w.percentile(0.5), kDelta);
+    }
+}